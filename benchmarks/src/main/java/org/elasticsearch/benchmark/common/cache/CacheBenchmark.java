@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hit throughput of the LRU {@link Cache} against the frequency-aware cache built with
+ * {@link CacheBuilder#setFrequencyAware(boolean)} for an increasing number of concurrent readers. All lookups hit.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CacheBenchmark {
+    // the number of keys each thread cycles through, a power of two
+    private static final int NUMBER_OF_LOOKUPS = 1 << 16;
+
+    @Param({"lru", "tiny_lfu"})
+    private String cacheType;
+
+    @Param({"10000"})
+    private int numberOfEntries;
+
+    private Cache<Integer, Integer> cache;
+
+    @Setup
+    public void setUp() {
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(numberOfEntries)
+            .setFrequencyAware("tiny_lfu".equals(cacheType))
+            .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookups {
+        private Integer[] keys;
+        private int index;
+
+        @Setup
+        public void setUp(CacheBenchmark benchmark) {
+            // skewed towards small keys so that a few entries are much hotter than the rest, like in the request cache
+            Random random = new Random(Thread.currentThread().getId());
+            keys = new Integer[NUMBER_OF_LOOKUPS];
+            for (int i = 0; i < keys.length; i++) {
+                double skew = random.nextDouble();
+                keys[i] = (int) (skew * skew * benchmark.numberOfEntries);
+            }
+        }
+
+        Integer next() {
+            return keys[index++ & (NUMBER_OF_LOOKUPS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer get_01(Lookups lookups) {
+        return cache.get(lookups.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer get_04(Lookups lookups) {
+        return cache.get(lookups.next());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer get_16(Lookups lookups) {
+        return cache.get(lookups.next());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer get_32(Lookups lookups) {
+        return cache.get(lookups.next());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer get_64(Lookups lookups) {
+        return cache.get(lookups.next());
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.fielddata.AbstractNumericDocValues;
+import org.elasticsearch.index.fielddata.DoubleValuesBatch;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.LongValuesBatch;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collecting all docs of a segment one doc at a time through {@link LeafBucketCollector#collect(int, long)} against
+ * collecting them in blocks through {@link LeafBucketCollector#collect(int[], int, long)}, with leaf collectors that do the same
+ * work as the sum, avg and date_histogram aggregators on a single-valued field.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BatchedCollectionBenchmark {
+    // the size of the blocks of docs that aggregators are handed when collecting in batches
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"10000000"})
+    private int numDocs;
+
+    @Param({"sum", "avg", "date_histogram"})
+    private String aggregation;
+
+    private long[] longs;
+    private double[] doubles;
+    private int[] docs;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        longs = new long[numDocs];
+        doubles = new double[numDocs];
+        // a year worth of timestamps, so that the histogram has a few hundred daily buckets
+        long start = 1514764800000L;
+        for (int i = 0; i < numDocs; i++) {
+            longs[i] = start + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(365));
+            doubles[i] = random.nextDouble() * 1000;
+        }
+        docs = new int[BATCH_SIZE];
+    }
+
+    @Benchmark
+    public Object perDoc() throws IOException {
+        Collector collector = newCollector();
+        for (int doc = 0; doc < numDocs; doc++) {
+            collector.collect(doc, 0);
+        }
+        return collector.result();
+    }
+
+    @Benchmark
+    public Object batched() throws IOException {
+        Collector collector = newCollector();
+        for (int doc = 0; doc < numDocs; doc += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, numDocs - doc);
+            for (int i = 0; i < count; i++) {
+                docs[i] = doc + i;
+            }
+            collector.collect(docs, count, 0);
+        }
+        return collector.result();
+    }
+
+    private Collector newCollector() {
+        switch (aggregation) {
+            case "sum":
+                return new SumCollector(doubleValues(), false);
+            case "avg":
+                return new SumCollector(doubleValues(), true);
+            case "date_histogram":
+                return new DateHistogramCollector(longValues());
+            default:
+                throw new IllegalArgumentException("Unknown aggregation [" + aggregation + "]");
+        }
+    }
+
+    private SortedNumericDoubleValues doubleValues() {
+        return FieldData.singleton(new NumericDoubleValues() {
+            private int doc;
+
+            @Override
+            public boolean advanceExact(int target) {
+                doc = target;
+                return true;
+            }
+
+            @Override
+            public double doubleValue() {
+                return doubles[doc];
+            }
+        });
+    }
+
+    private SortedNumericDocValues longValues() {
+        return DocValues.singleton(new AbstractNumericDocValues() {
+            private int doc = -1;
+
+            @Override
+            public boolean advanceExact(int target) {
+                doc = target;
+                return true;
+            }
+
+            @Override
+            public long longValue() {
+                return longs[doc];
+            }
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+        });
+    }
+
+    private abstract static class Collector extends LeafBucketCollector {
+        abstract Object result();
+    }
+
+    /**
+     * Mirrors the collection of the sum and avg aggregators for a single bucket.
+     */
+    private static class SumCollector extends Collector {
+        private final SortedNumericDoubleValues values;
+        private final DoubleValuesBatch batch = new DoubleValuesBatch();
+        private final boolean countValues;
+        private double sum;
+        private double compensation;
+        private long count;
+
+        SumCollector(SortedNumericDoubleValues values, boolean countValues) {
+            this.values = values;
+            this.countValues = countValues;
+        }
+
+        @Override
+        public void collect(int doc, long bucket) throws IOException {
+            if (values.advanceExact(doc)) {
+                final int valueCount = values.docValueCount();
+                if (countValues) {
+                    count += valueCount;
+                }
+                for (int i = 0; i < valueCount; i++) {
+                    add(values.nextValue());
+                }
+            }
+        }
+
+        @Override
+        public void collect(int[] docs, int count, long bucket) throws IOException {
+            batch.read(values, docs, count);
+            final int numValues = batch.numValues();
+            if (countValues) {
+                this.count += numValues;
+            }
+            final double[] vals = batch.values();
+            for (int i = 0; i < numValues; i++) {
+                add(vals[i]);
+            }
+        }
+
+        private void add(double value) {
+            if (Double.isFinite(value) == false) {
+                sum += value;
+            } else if (Double.isFinite(sum)) {
+                double corrected = value - compensation;
+                double newSum = sum + corrected;
+                compensation = (newSum - sum) - corrected;
+                sum = newSum;
+            }
+        }
+
+        @Override
+        Object result() {
+            return countValues ? sum / count : sum;
+        }
+    }
+
+    /**
+     * Mirrors the collection of the date_histogram aggregator with a daily interval and no sub aggregations.
+     */
+    private static class DateHistogramCollector extends Collector {
+        private final SortedNumericDocValues values;
+        private final LongValuesBatch batch = new LongValuesBatch();
+        private final Rounding rounding = Rounding.builder(Rounding.DateTimeUnit.DAY_OF_MONTH).build();
+        private final LongHash bucketOrds = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE);
+        private long[] docCounts = new long[16];
+
+        DateHistogramCollector(SortedNumericDocValues values) {
+            this.values = values;
+        }
+
+        @Override
+        public void collect(int doc, long bucket) throws IOException {
+            if (values.advanceExact(doc)) {
+                final int valueCount = values.docValueCount();
+                long previousRounded = Long.MIN_VALUE;
+                for (int i = 0; i < valueCount; i++) {
+                    long rounded = rounding.round(values.nextValue());
+                    if (rounded != previousRounded) {
+                        collectBucket(rounded);
+                        previousRounded = rounded;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void collect(int[] docs, int count, long bucket) throws IOException {
+            batch.read(values, docs, count);
+            final long[] vals = batch.values();
+            final int[] offsets = batch.offsets();
+            for (int d = 0; d < count; d++) {
+                long previousRounded = Long.MIN_VALUE;
+                for (int i = offsets[d]; i < offsets[d + 1]; i++) {
+                    long rounded = rounding.round(vals[i]);
+                    if (rounded != previousRounded) {
+                        collectBucket(rounded);
+                        previousRounded = rounded;
+                    }
+                }
+            }
+        }
+
+        private void collectBucket(long rounded) {
+            long bucketOrd = bucketOrds.add(rounded);
+            if (bucketOrd < 0) {
+                bucketOrd = -1 - bucketOrd;
+            } else if (bucketOrd >= docCounts.length) {
+                docCounts = Arrays.copyOf(docCounts, docCounts.length * 2);
+            }
+            docCounts[(int) bucketOrd]++;
+        }
+
+        @Override
+        Object result() {
+            bucketOrds.close();
+            return docCounts;
+        }
+    }
+}
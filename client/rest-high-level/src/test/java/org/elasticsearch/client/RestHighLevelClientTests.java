@@ -647,6 +647,7 @@ public class RestHighLevelClientTests extends ESTestCase {
     public void testApiNamingConventions() throws Exception {
         //this list should be empty once the high-level client is feature complete
         String[] notYetSupportedApi = new String[]{
+            "close_reader_context",
             "cluster.remote_info",
             "count",
             "create",
@@ -659,6 +660,7 @@ public class RestHighLevelClientTests extends ESTestCase {
             "indices.get_upgrade",
             "indices.put_alias",
             "mtermvectors",
+            "open_reader_context",
             "render_search_template",
             "scripts_painless_execute",
             "tasks.get",
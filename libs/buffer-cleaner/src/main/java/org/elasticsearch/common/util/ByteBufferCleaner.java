@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * Frees the memory of direct and memory-mapped {@link ByteBuffer}s without waiting for the garbage collector, the same way
+ * Lucene's {@code MMapDirectory} unmaps the files it closes. A buffer must never be accessed after it has been freed, which
+ * would crash the JVM. If the JVM does not allow it, buffers are left to the garbage collector.
+ * <p>
+ * This class lives in its own jar so that only this jar is granted the permissions to access the internal JDK APIs.
+ */
+public final class ByteBufferCleaner {
+
+    @FunctionalInterface
+    private interface Cleaner {
+        void clean(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+
+    // null if buffers cannot be freed explicitly
+    private static final Cleaner CLEANER = AccessController.doPrivileged((PrivilegedAction<Cleaner>) ByteBufferCleaner::lookupCleaner);
+
+    private ByteBufferCleaner() {}
+
+    /**
+     * Whether buffers are freed by {@link #clean(ByteBuffer)}, rather than left to the garbage collector.
+     */
+    public static boolean isSupported() {
+        return CLEANER != null;
+    }
+
+    /**
+     * Frees the memory of the given direct buffer, which must neither be a slice nor a duplicate of another buffer, and must
+     * never be accessed again. Does nothing if buffers cannot be freed explicitly.
+     */
+    public static void clean(ByteBuffer buffer) {
+        if (buffer.isDirect() == false) {
+            throw new IllegalArgumentException("only direct buffers can be freed");
+        }
+        if (CLEANER == null) {
+            return;
+        }
+        try {
+            CLEANER.clean(buffer);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("failed to free buffer", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("failed to free buffer", e);
+        }
+    }
+
+    private static Cleaner lookupCleaner() {
+        try {
+            try {
+                // java 9+
+                final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafeField.setAccessible(true);
+                final Object theUnsafe = theUnsafeField.get(null);
+                return buffer -> invokeCleaner.invoke(theUnsafe, buffer);
+            } catch (NoSuchMethodException e) {
+                // java 8
+                final Method cleanerMethod = Class.forName("java.nio.DirectByteBuffer").getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    final Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleanMethod.invoke(cleaner);
+                    }
+                };
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // direct buffers cannot be freed explicitly and are left to the garbage collector
+            return null;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.replication.ReplicationResponse;
 import org.elasticsearch.action.support.replication.TransportWriteAction;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.translog.Translog;
@@ -68,6 +69,7 @@ class BulkPrimaryExecutionContext {
 
     private final BulkShardRequest request;
     private final IndexShard primary;
+    private final IndexShard.PreParsedDocument[] preParsedDocuments;
     private Translog.Location locationToSync = null;
     private int currentIndex = -1;
 
@@ -78,8 +80,19 @@ class BulkPrimaryExecutionContext {
 
 
     BulkPrimaryExecutionContext(BulkShardRequest request, IndexShard primary) {
+        this(request, primary, null);
+    }
+
+    /**
+     * @param preParsedDocuments the documents of the index items that were parsed ahead of execution, indexed like the items
+     *                           of the request, or <code>null</code> if none were parsed
+     */
+    BulkPrimaryExecutionContext(BulkShardRequest request, IndexShard primary,
+                                IndexShard.PreParsedDocument[] preParsedDocuments) {
+        assert preParsedDocuments == null || preParsedDocuments.length == request.items().length;
         this.request = request;
         this.primary = primary;
+        this.preParsedDocuments = preParsedDocuments;
         advance();
     }
 
@@ -123,6 +136,20 @@ class BulkPrimaryExecutionContext {
         return executionResult;
     }
 
+    /**
+     * returns the document that was parsed for the current item ahead of execution, if any. The document is only returned once
+     * so that a retried operation parses its source again.
+     */
+    @Nullable
+    public IndexShard.PreParsedDocument takePreParsedDocument() {
+        if (preParsedDocuments == null) {
+            return null;
+        }
+        final IndexShard.PreParsedDocument preParsed = preParsedDocuments[currentIndex];
+        preParsedDocuments[currentIndex] = null;
+        return preParsed;
+    }
+
     /** returns the number of times the current operation has been retried */
     public int getRetryCounter() {
         return retryCounter;
@@ -46,13 +46,16 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.get.GetResult;
@@ -71,6 +74,9 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
@@ -139,7 +145,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             waitingFuture.get();
         };
         return performOnPrimary(request, primary, updateHelper, threadPool::absoluteTimeInMillis,
-            new ConcreteMappingUpdatePerformer(), waitForMappingUpdate);
+            new ConcreteMappingUpdatePerformer(), waitForMappingUpdate, threadPool.executor(ThreadPool.Names.WRITE));
     }
 
     public static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
@@ -149,10 +155,82 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         LongSupplier nowInMillisSupplier,
         MappingUpdatePerformer mappingUpdater,
         CheckedRunnable<Exception> waitForMappingUpdate) throws Exception {
-        BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
+        return performOnPrimary(request, primary, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, null);
+    }
+
+    /**
+     * Performs the bulk shard request on the primary. If the index is configured with a
+     * {@link IndexSettings#INDEX_BULK_PARSE_PARALLELISM_SETTING bulk parse parallelism} greater than one, the documents of the index
+     * items are first parsed concurrently on the given executor, the operations are still applied to the shard in order.
+     *
+     * @param parseExecutor the executor to parse documents on, or <code>null</code> to parse every document when its item executes
+     */
+    public static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
+        BulkShardRequest request,
+        IndexShard primary,
+        UpdateHelper updateHelper,
+        LongSupplier nowInMillisSupplier,
+        MappingUpdatePerformer mappingUpdater,
+        CheckedRunnable<Exception> waitForMappingUpdate,
+        @Nullable Executor parseExecutor) throws Exception {
+        final IndexShard.PreParsedDocument[] preParsedDocuments = parseExecutor == null ? null :
+            preParseIndexRequests(request, primary, primary.indexSettings().getBulkParseParallelism(), parseExecutor);
+        BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary, preParsedDocuments);
         return performOnPrimary(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate);
     }
 
+    /**
+     * Parses the documents of the index items of the request with up to the given number of threads, the calling thread included.
+     * Returns <code>null</code> if there is nothing to parse concurrently, otherwise an array that holds the parsed document of
+     * every index item that could be parsed with the current mapping.
+     */
+    @Nullable
+    static IndexShard.PreParsedDocument[] preParseIndexRequests(BulkShardRequest request, IndexShard primary, int parallelism,
+                                                                Executor executor) throws InterruptedException {
+        final BulkItemRequest[] items = request.items();
+        int indexItems = 0;
+        for (BulkItemRequest item : items) {
+            if (item.request() instanceof IndexRequest && item.getPrimaryResponse() == null) {
+                indexItems++;
+            }
+        }
+        if (parallelism <= 1 || indexItems < 2) {
+            return null;
+        }
+        final IndexShard.PreParsedDocument[] preParsedDocuments = new IndexShard.PreParsedDocument[items.length];
+        final AtomicInteger nextItem = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(items.length);
+        final Runnable parser = () -> {
+            int i;
+            while ((i = nextItem.getAndIncrement()) < items.length) {
+                try {
+                    final BulkItemRequest item = items[i];
+                    if (item.request() instanceof IndexRequest && item.getPrimaryResponse() == null) {
+                        final IndexRequest indexRequest = (IndexRequest) item.request();
+                        preParsedDocuments[i] = primary.preParseIndexOperationOnPrimary(
+                            SourceToParse.source(indexRequest.index(), indexRequest.type(), indexRequest.id(), indexRequest.source(),
+                                indexRequest.getContentType()).routing(indexRequest.routing()));
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+        final int helpers = Math.min(parallelism - 1, indexItems - 1);
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(parser);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread parses the items that are left
+                break;
+            }
+        }
+        // the calling thread parses as well so that the items are parsed even if no helper gets to run
+        parser.run();
+        latch.await();
+        return preParsedDocuments;
+    }
+
     private static WritePrimaryResult<BulkShardRequest, BulkShardResponse> performOnPrimary(
         BulkPrimaryExecutionContext context, UpdateHelper updateHelper, LongSupplier nowInMillisSupplier,
         MappingUpdatePerformer mappingUpdater, CheckedRunnable<Exception> waitForMappingUpdate) throws Exception {
@@ -457,10 +535,13 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         final SourceToParse sourceToParse =
             SourceToParse.source(request.index(), request.type(), request.id(), request.source(), request.getContentType())
                 .routing(request.routing());
+        final IndexShard.PreParsedDocument preParsed = context.takePreParsedDocument();
         executeOnPrimaryWhileHandlingMappingUpdates(context,
-            () ->
+            () -> preParsed == null ?
+                primary.applyIndexOperationOnPrimary(request.version(), request.versionType(), sourceToParse,
+                    request.getAutoGeneratedTimestamp(), request.isRetry()) :
                 primary.applyIndexOperationOnPrimary(request.version(), request.versionType(), sourceToParse,
-                    request.getAutoGeneratedTimestamp(), request.isRetry()),
+                    request.getAutoGeneratedTimestamp(), request.isRetry(), preParsed),
             e -> primary.getFailedIndexResult(e, request.version()),
             context::markOperationAsExecuted,
             mapping -> mappingUpdater.updateMappings(mapping, primary.shardId(), request.type()));
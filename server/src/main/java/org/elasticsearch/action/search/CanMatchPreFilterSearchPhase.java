@@ -23,15 +23,20 @@ import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.ShardFieldRange;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.transport.Transport;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Stream;
 
 /**
@@ -39,12 +44,16 @@ import java.util.stream.Stream;
  * The queries are rewritten against the shards and based on the rewrite result shards might be able to be excluded
  * from the search. The extra round trip to the search shards is very cheap and is not subject to rejections
  * which allows to fan out to more shards at the same time without running into rejections even if we are hitting a
- * large portion of the clusters indices.
+ * large portion of the clusters indices. Shards whose cached field ranges (see {@link FieldRangeCache}) prove that the query cannot
+ * match are skipped without sending them a request at all.
  */
 final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<SearchService.CanMatchResponse> {
 
     private final Function<GroupShardsIterator<SearchShardIterator>, SearchPhase> phaseFactory;
     private final GroupShardsIterator<SearchShardIterator> shardsIts;
+    private final FieldRangeCache fieldRangeCache;
+    private final List<RangeQueryBuilder> requiredRanges;
+    private final LongSupplier nowInMillis;
 
     CanMatchPreFilterSearchPhase(Logger logger, SearchTransportService searchTransportService,
                                         BiFunction<String, String, Transport.Connection> nodeIdToConnection,
@@ -54,23 +63,43 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<Searc
                                         ActionListener<SearchResponse> listener, GroupShardsIterator<SearchShardIterator> shardsIts,
                                         TransportSearchAction.SearchTimeProvider timeProvider, long clusterStateVersion,
                                         SearchTask task, Function<GroupShardsIterator<SearchShardIterator>, SearchPhase> phaseFactory,
-                                        SearchResponse.Clusters clusters) {
+                                        SearchResponse.Clusters clusters, FieldRangeCache fieldRangeCache) {
         /*
          * We set max concurrent shard requests to the number of shards to otherwise avoid deep recursing that would occur if the local node
          * is the coordinating node for the query, holds all the shards for the request, and there are a lot of shards.
          */
         super("can_match", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, indexRoutings,
                 executor, request, listener, shardsIts, timeProvider, clusterStateVersion, task,
-                new BitSetSearchPhaseResults(shardsIts.size()), shardsIts.size(), clusters);
+                new BitSetSearchPhaseResults(shardsIts.size()), shardsIts.size(), clusters, null);
         this.phaseFactory = phaseFactory;
         this.shardsIts = shardsIts;
+        this.fieldRangeCache = fieldRangeCache;
+        this.requiredRanges = request.source() == null ? Collections.emptyList() : ShardFieldRange.requiredRanges(request.source().query());
+        this.nowInMillis = timeProvider::getAbsoluteStartMillis;
     }
 
     @Override
     protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
                                        SearchActionListener<SearchService.CanMatchResponse> listener) {
+        if (shardIt.getClusterAlias() == null && fieldRangeCache.canMatch(shardIt.shardId(), requiredRanges, nowInMillis) == false) {
+            listener.onResponse(new SearchService.CanMatchResponse(false));
+            return;
+        }
         getSearchTransport().sendCanMatch(getConnection(shardIt.getClusterAlias(), shard.currentNodeId()),
-            buildShardSearchRequest(shardIt), getTask(), listener);
+            buildShardSearchRequest(shardIt), getTask(), new ActionListener<SearchService.CanMatchResponse>() {
+                @Override
+                public void onResponse(SearchService.CanMatchResponse response) {
+                    if (shardIt.getClusterAlias() == null) {
+                        fieldRangeCache.put(shardIt.shardId(), response.getFieldRangesVersion(), response.getFieldRanges());
+                    }
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    listener.onFailure(e);
+                }
+            });
     }
 
     @Override
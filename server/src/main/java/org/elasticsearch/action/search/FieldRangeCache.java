@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.ShardFieldRange;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A node level cache of the {@link ShardFieldRange}s that shards report with their can-match responses. The coordinating node
+ * consults it to skip shards whose values cannot match the range queries of a search without sending them a can-match request. A
+ * range is only used for as long as the metadata of its index has the version that the shard reported it for, which guarantees
+ * that the index is still blocked for writes and that the shard has not changed since.
+ */
+final class FieldRangeCache {
+
+    private final Supplier<ClusterState> clusterStateSupplier;
+    private final Cache<Key, CachedRange> cache;
+
+    /**
+     * @param maxSize the maximum number of ranges to cache, <code>0</code> disables caching
+     */
+    FieldRangeCache(Supplier<ClusterState> clusterStateSupplier, int maxSize) {
+        this.clusterStateSupplier = clusterStateSupplier;
+        this.cache = maxSize > 0 ? CacheBuilder.<Key, CachedRange>builder().setMaximumWeight(maxSize).build() : null;
+    }
+
+    /**
+     * Caches the ranges that the given shard reported for the given version of the metadata of its index.
+     */
+    void put(ShardId shardId, long indexMetaDataVersion, List<ShardFieldRange> ranges) {
+        if (cache == null || indexMetaDataVersion == -1) {
+            return;
+        }
+        for (ShardFieldRange range : ranges) {
+            cache.put(new Key(shardId, range.field()), new CachedRange(indexMetaDataVersion, range));
+        }
+    }
+
+    /**
+     * Returns <code>false</code> if the cached ranges of the given shard prove that it has no document that matches all the given
+     * range queries, and <code>true</code> otherwise.
+     */
+    boolean canMatch(ShardId shardId, List<RangeQueryBuilder> queries, LongSupplier nowInMillis) {
+        if (cache == null || queries.isEmpty()) {
+            return true;
+        }
+        IndexMetaData indexMetaData = null;
+        for (RangeQueryBuilder query : queries) {
+            Key key = new Key(shardId, query.fieldName());
+            CachedRange cached = cache.get(key);
+            if (cached == null) {
+                continue;
+            }
+            if (indexMetaData == null) {
+                indexMetaData = clusterStateSupplier.get().metaData().index(shardId.getIndex());
+            }
+            if (indexMetaData == null || indexMetaData.getVersion() != cached.indexMetaDataVersion) {
+                // the index was deleted or its metadata changed, it might accept writes again
+                cache.invalidate(key, cached);
+            } else if (cached.range.isDisjoint(query, nowInMillis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    private static final class Key {
+        private final ShardId shardId;
+        private final String field;
+
+        Key(ShardId shardId, String field) {
+            this.shardId = shardId;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return shardId.equals(key.shardId) && field.equals(key.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, field);
+        }
+    }
+
+    private static final class CachedRange {
+        private final long indexMetaDataVersion;
+        private final ShardFieldRange range;
+
+        CachedRange(long indexMetaDataVersion, ShardFieldRange range) {
+            this.indexMetaDataVersion = indexMetaDataVersion;
+            this.range = range;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Decides when a shard level search request that has not responded yet is also sent to another copy of the shard, in which case
+ * the first response wins. The delay is an upper bound of the response times of the node that the request was sent to, as recorded
+ * by the {@link ResponseCollectorService}: the EWMA of its response time plus {@link #NUM_STD_DEVS} standard deviations, which only
+ * few responses exceed unless the node is struggling, but never less than a minimum delay. Requests to nodes without recorded
+ * response times are not hedged.
+ */
+final class HedgingPolicy {
+
+    static final double NUM_STD_DEVS = 2;
+
+    private final ThreadPool threadPool;
+    private final ResponseCollectorService responseCollectorService;
+    private final TimeValue minDelay;
+
+    HedgingPolicy(ThreadPool threadPool, ResponseCollectorService responseCollectorService, TimeValue minDelay) {
+        this.threadPool = threadPool;
+        this.responseCollectorService = responseCollectorService;
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * Returns how long to wait for a response of the given node before sending the request to another copy of the shard, or
+     * <code>null</code> if requests to this node should not be hedged.
+     */
+    @Nullable
+    TimeValue delay(String nodeId) {
+        OptionalDouble upperBound = responseCollectorService.getResponseTimeUpperBound(nodeId, NUM_STD_DEVS);
+        if (upperBound.isPresent() == false) {
+            return null;
+        }
+        return TimeValue.timeValueNanos(Math.max(minDelay.nanos(), (long) upperBound.getAsDouble()));
+    }
+
+    /**
+     * Runs the given hedge after the given delay, unless the returned future is cancelled first.
+     */
+    ScheduledFuture<?> schedule(TimeValue delay, Runnable hedge) {
+        return threadPool.schedule(delay, ThreadPool.Names.GENERIC, hedge);
+    }
+}
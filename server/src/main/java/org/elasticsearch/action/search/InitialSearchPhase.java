@@ -25,8 +25,10 @@ import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 
@@ -36,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -46,6 +49,8 @@ import java.util.stream.Stream;
  * referred to as the {@code shardIndex}.
  * The fan out and collect algorithm is traditionally used as the initial phase which can either be a query execution or collection
  * distributed frequencies
+ * If a {@link HedgingPolicy} is given, a shard request that takes unusually long is also sent to the next copy of the shard and the
+ * first response wins, while the response of the other copy is discarded once it arrives.
  */
 abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends SearchPhase {
     private final SearchRequest request;
@@ -58,9 +63,12 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
     private final Executor executor;
     private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
     private final boolean throttleConcurrentRequests;
+    @Nullable
+    private final HedgingPolicy hedgingPolicy;
+    private final ShardAttempts[] shardAttempts;
 
     InitialSearchPhase(String name, SearchRequest request, GroupShardsIterator<SearchShardIterator> shardsIts, Logger logger,
-                       int maxConcurrentRequestsPerNode, Executor executor) {
+                       int maxConcurrentRequestsPerNode, Executor executor, @Nullable HedgingPolicy hedgingPolicy) {
         super(name);
         this.request = request;
         final List<SearchShardIterator> toSkipIterators = new ArrayList<>();
@@ -84,17 +92,34 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         // in the case were we have less shards than maxConcurrentRequestsPerNode we don't need to throttle
         this.throttleConcurrentRequests = maxConcurrentRequestsPerNode < shardsIts.size();
         this.executor = executor;
+        this.hedgingPolicy = hedgingPolicy;
+        if (hedgingPolicy != null) {
+            shardAttempts = new ShardAttempts[shardsIts.size()];
+            for (int i = 0; i < shardAttempts.length; i++) {
+                shardAttempts[i] = new ShardAttempts();
+            }
+        } else {
+            shardAttempts = null;
+        }
     }
 
     private void onShardFailure(final int shardIndex, @Nullable ShardRouting shard, @Nullable String nodeId,
                                 final SearchShardIterator shardIt, Exception e) {
+        onShardFailure(shardIndex, shard, nodeId, shardIt, e, 0);
+    }
+
+    /**
+     * @param otherFailedAttempts the number of hedged requests for the shard that failed before this one and were not accounted for
+     */
+    private void onShardFailure(final int shardIndex, @Nullable ShardRouting shard, @Nullable String nodeId,
+                                final SearchShardIterator shardIt, Exception e, int otherFailedAttempts) {
         // we always add the shard failure for a specific shard instance
         // we do make sure to clean it on a successful response from a shard
         SearchShardTarget shardTarget = new SearchShardTarget(nodeId, shardIt.shardId(), shardIt.getClusterAlias(),
                 shardIt.getOriginalIndices());
         onShardFailure(shardIndex, shardTarget, e);
 
-        if (totalOps.incrementAndGet() == expectedTotalOps) {
+        if (totalOps.addAndGet(1 + otherFailedAttempts) == expectedTotalOps) {
             if (logger.isDebugEnabled()) {
                 if (e != null && !TransportActions.isShardNotAvailableException(e)) {
                     logger.debug(new ParameterizedMessage(
@@ -244,6 +269,11 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
 
 
     private void performPhaseOnShard(final int shardIndex, final SearchShardIterator shardIt, final ShardRouting shard) {
+        performPhaseOnShard(shardIndex, shardIt, shard, false);
+    }
+
+    private void performPhaseOnShard(final int shardIndex, final SearchShardIterator shardIt, final ShardRouting shard,
+                                     final boolean hedge) {
         /*
          * We capture the thread that this phase is starting on. When we are called back after executing the phase, we are either on the
          * same thread (because we never went async, or the same thread was selected from the thread pool) or a different thread. If we
@@ -254,29 +284,44 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         if (shard == null) {
             fork(() -> onShardFailure(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId())));
         } else {
-            final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
+            // hedged requests are sent on top of the throttled ones, they must not take or release permits
+            final PendingExecutions pendingExecutions = throttleConcurrentRequests && hedge == false ?
                 pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
                 : null;
+            final ShardAttempts attempts = shardAttempts == null ? null : shardAttempts[shardIndex];
             Runnable r = () -> {
                 final Thread thread = Thread.currentThread();
+                if (attempts != null && hedge == false) {
+                    attempts.start();
+                }
                 try {
                     executePhaseOnShard(shardIt, shard, new SearchActionListener<FirstResult>(new SearchShardTarget(shard.currentNodeId(),
                         shardIt.shardId(), shardIt.getClusterAlias(), shardIt.getOriginalIndices()), shardIndex) {
                         @Override
                         public void innerOnResponse(FirstResult result) {
                             try {
-                                onShardResult(result, shardIt);
+                                final int otherAttempts = attempts == null ? 0 : attempts.succeed();
+                                if (otherAttempts < 0) {
+                                    // another copy of the shard responded first
+                                    onShardResultDiscarded(result);
+                                } else {
+                                    onShardResult(result, shardIt, otherAttempts);
+                                }
                             } finally {
-                                executeNext(pendingExecutions, thread);
+                                if (hedge == false) {
+                                    executeNext(pendingExecutions, thread);
+                                }
                             }
                         }
 
                         @Override
                         public void onFailure(Exception t) {
                             try {
-                                onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, t);
+                                onAttemptFailure(shardIndex, shard, shardIt, attempts, t);
                             } finally {
-                                executeNext(pendingExecutions, thread);
+                                if (hedge == false) {
+                                    executeNext(pendingExecutions, thread);
+                                }
                             }
                         }
                     });
@@ -288,11 +333,16 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
                          * It is possible to run into connection exceptions here because we are getting the connection early and might
                          * run in tonodes that are not connected. In this case, on shard failure will move us to the next shard copy.
                          */
-                        fork(() -> onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e));
+                        fork(() -> onAttemptFailure(shardIndex, shard, shardIt, attempts, e));
                     } finally {
-                        executeNext(pendingExecutions, thread);
+                        if (hedge == false) {
+                            executeNext(pendingExecutions, thread);
+                        }
                     }
                 }
+                if (attempts != null && hedge == false) {
+                    maybeScheduleHedge(shardIndex, shardIt, shard, attempts);
+                }
             };
             if (pendingExecutions == null) {
                 r.run();
@@ -303,7 +353,132 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         }
     }
 
-    private void onShardResult(FirstResult result, SearchShardIterator shardIt) {
+    private void onAttemptFailure(final int shardIndex, final ShardRouting shard, final SearchShardIterator shardIt,
+                                  @Nullable final ShardAttempts attempts, final Exception e) {
+        final int otherFailedAttempts = attempts == null ? 0 : attempts.fail(e);
+        if (otherFailedAttempts < 0) {
+            // another copy of the shard responded first or is still running the request and will account for this failure
+            logger.trace(() -> new ParameterizedMessage("{}: Ignoring failure of hedged request [{}]", shard.shortSummary(), request), e);
+        } else {
+            // no other request is running for the shard, so none can succeed after its failure was recorded
+            onShardFailure(shardIndex, shard, shard.currentNodeId(), shardIt, e, otherFailedAttempts);
+        }
+    }
+
+    private void maybeScheduleHedge(final int shardIndex, final SearchShardIterator shardIt, final ShardRouting shard,
+                                    final ShardAttempts attempts) {
+        if (shardIt.remaining() == 0) {
+            return;
+        }
+        final TimeValue delay = hedgingPolicy.delay(shard.currentNodeId());
+        if (delay != null) {
+            attempts.setHedgeTimer(hedgingPolicy.schedule(delay, () -> {
+                final ShardRouting nextShard = attempts.startHedge(shardIt);
+                if (nextShard != null) {
+                    logger.trace("{}: no response after [{}], sending hedged request to [{}]", shard.shortSummary(), delay,
+                        nextShard.currentNodeId());
+                    performPhaseOnShard(shardIndex, shardIt, nextShard, true);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Tracks the requests that are running for a shard when requests are hedged. Every request for the shard is accounted for in the
+     * total ops exactly once: on the first successful response for all requests that failed before or are still running at that time,
+     * or on the failure of the last running request for all requests that failed before it. Failures are only recorded for the last
+     * running request since another one might still succeed otherwise.
+     */
+    private static final class ShardAttempts {
+        private int running;
+        private int failed;
+        private Exception failure;
+        private boolean hedged;
+        private boolean done;
+        private ScheduledFuture<?> hedgeTimer;
+
+        synchronized void start() {
+            assert done == false : "shard already responded";
+            running++;
+        }
+
+        /**
+         * Takes the next copy of the shard to send a hedged request to, or returns <code>null</code> if the shard already responded,
+         * was already hedged or has no other copy.
+         */
+        synchronized ShardRouting startHedge(SearchShardIterator shardIt) {
+            hedgeTimer = null;
+            if (done || hedged || running == 0) {
+                return null;
+            }
+            hedged = true;
+            final ShardRouting nextShard = shardIt.nextOrNull();
+            if (nextShard != null) {
+                running++;
+            }
+            return nextShard;
+        }
+
+        /**
+         * Sets the timer that sends the hedged request, which is cancelled as soon as the shard responded.
+         */
+        synchronized void setHedgeTimer(ScheduledFuture<?> timer) {
+            FutureUtils.cancel(hedgeTimer);
+            if (done || hedged) {
+                FutureUtils.cancel(timer);
+            } else {
+                hedgeTimer = timer;
+            }
+        }
+
+        /**
+         * Marks a request as successful and returns the number of other requests for the shard that failed or are still running and
+         * still need to be accounted for, or <code>-1</code> if the shard already responded.
+         */
+        synchronized int succeed() {
+            running--;
+            assert running >= 0 : "more requests completed than started";
+            if (done) {
+                return -1;
+            }
+            done = true;
+            FutureUtils.cancel(hedgeTimer);
+            hedgeTimer = null;
+            return running + failed;
+        }
+
+        /**
+         * Marks a request as failed and returns the number of other requests for the shard that failed before it and still need to be
+         * accounted for, or <code>-1</code> if the shard already responded or another request for the shard is still running.
+         */
+        synchronized int fail(Exception e) {
+            running--;
+            assert running >= 0 : "more requests completed than started";
+            if (done) {
+                return -1;
+            }
+            if (running > 0) {
+                failed++;
+                if (failure == null) {
+                    failure = e;
+                } else if (failure != e) {
+                    failure.addSuppressed(e);
+                }
+                return -1;
+            }
+            FutureUtils.cancel(hedgeTimer);
+            hedgeTimer = null;
+            if (failure != null && failure != e) {
+                e.addSuppressed(failure);
+            }
+            failure = null;
+            final int otherFailed = failed;
+            failed = 0;
+            return otherFailed;
+        }
+    }
+
+    private void onShardResult(FirstResult result, SearchShardIterator shardIt, int otherAttempts) {
         assert result.getShardIndex() != -1 : "shard index is not set";
         assert result.getSearchShardTarget() != null : "search shard target must not be null";
         onShardSuccess(result);
@@ -312,15 +487,20 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
         // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
         // increment all the "future" shards to update the total ops since we some may work and some may not...
         // and when that happens, we break on total ops, so we must maintain them
-        successfulShardExecution(shardIt);
+        successfulShardExecution(shardIt, otherAttempts);
     }
 
     private void successfulShardExecution(SearchShardIterator shardsIt) {
+        successfulShardExecution(shardsIt, 0);
+    }
+
+    private void successfulShardExecution(SearchShardIterator shardsIt, int otherAttempts) {
         final int remainingOpsOnIterator;
         if (shardsIt.skip()) {
             remainingOpsOnIterator = shardsIt.remaining();
         } else {
-            remainingOpsOnIterator = shardsIt.remaining() + 1;
+            // hedged requests that are still running for the shard took copies from the iterator but won't be accounted for otherwise
+            remainingOpsOnIterator = shardsIt.remaining() + 1 + otherAttempts;
         }
         final int xTotalOps = totalOps.addAndGet(remainingOpsOnIterator);
         if (xTotalOps == expectedTotalOps) {
@@ -356,6 +536,12 @@ abstract class InitialSearchPhase<FirstResult extends SearchPhaseResult> extends
      */
     abstract void onShardSuccess(FirstResult result);
 
+    /**
+     * Executed for successful responses of hedged shard level requests that lost against the response of another copy of the shard.
+     * @param result the discarded result
+     */
+    void onShardResultDiscarded(FirstResult result) {}
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The id of the reader contexts that {@link OpenReaderContextAction} opened: for every shard the node that holds the reader context
+ * and its id, see {@link org.elasticsearch.search.internal.ShardSearchRequest#readerId()}, and the index expressions that resolve the
+ * alias filters of the searches.
+ */
+final class ReaderContextId {
+
+    private final String[] indices;
+    private final List<ShardReaderId> shards;
+
+    ReaderContextId(String[] indices, List<ShardReaderId> shards) {
+        this.indices = indices;
+        this.shards = shards;
+    }
+
+    /**
+     * The index expressions that the reader contexts were opened with.
+     */
+    String[] indices() {
+        return indices;
+    }
+
+    List<ShardReaderId> shards() {
+        return shards;
+    }
+
+    static String encode(String[] indices, List<ShardReaderId> shards) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            Version.writeVersion(Version.CURRENT, out);
+            out.writeStringArray(indices);
+            out.writeList(shards);
+            return Base64.getUrlEncoder().encodeToString(BytesReference.toBytes(out.bytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ReaderContextId decode(String id) {
+        try (StreamInput in = StreamInput.wrap(Base64.getUrlDecoder().decode(id))) {
+            in.setVersion(Version.readVersion(in));
+            String[] indices = in.readStringArray();
+            List<ShardReaderId> shards = in.readList(ShardReaderId::new);
+            if (in.available() != 0) {
+                throw new IllegalArgumentException("Not all bytes were read");
+            }
+            return new ReaderContextId(indices, shards);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot parse reader context id", e);
+        }
+    }
+
+    /**
+     * The reader context of a single shard.
+     */
+    static final class ShardReaderId implements Writeable {
+
+        private final ShardId shardId;
+        private final String nodeId;
+        private final long readerId;
+
+        ShardReaderId(ShardId shardId, String nodeId, long readerId) {
+            this.shardId = shardId;
+            this.nodeId = nodeId;
+            this.readerId = readerId;
+        }
+
+        ShardReaderId(StreamInput in) throws IOException {
+            shardId = ShardId.readShardId(in);
+            nodeId = in.readString();
+            readerId = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            shardId.writeTo(out);
+            out.writeString(nodeId);
+            out.writeLong(readerId);
+        }
+
+        ShardId getShardId() {
+            return shardId;
+        }
+
+        String getNodeId() {
+            return nodeId;
+        }
+
+        long getReaderId() {
+            return readerId;
+        }
+    }
+}
@@ -34,10 +34,18 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -58,6 +66,7 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.Suggest.Suggestion.Entry;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -66,7 +75,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -75,16 +85,42 @@ public final class SearchPhaseController extends AbstractComponent {
 
     private static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
-    private final Function<Boolean, ReduceContext> reduceContextFunction;
+    /**
+     * The amount of serialized shard aggregations that the coordinating node buffers before it reduces them, even if fewer
+     * than {@link SearchRequest#getBatchedReduceSize()} results are buffered. Setting it to <code>0</code> folds every shard
+     * result into the partially reduced aggregations as soon as it arrives.
+     */
+    public static final Setting<ByteSizeValue> MAX_BUFFERED_AGGS_SIZE =
+        Setting.memorySizeSetting("search.max_buffered_aggs_size", "1%", Property.NodeScope);
+
+    private final BiFunction<Boolean, BooleanSupplier, ReduceContext> reduceContextFunction;
+    private final CircuitBreaker breaker;
+    private final long maxBufferedAggsBytes;
+
+    /**
+     * Constructor.
+     * @param settings Node settings
+     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation} from whether it
+     *                              is the final reduce and the cancellation flag of the request
+     */
+    public SearchPhaseController(Settings settings, BiFunction<Boolean, BooleanSupplier, ReduceContext> reduceContextFunction) {
+        this(settings, reduceContextFunction, null);
+    }
 
     /**
      * Constructor.
      * @param settings Node settings
-     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
+     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation} from whether it
+     *                              is the final reduce and the cancellation flag of the request
+     * @param circuitBreakerService the service whose request breaker accounts for the shard aggregations that are reduced
      */
-    public SearchPhaseController(Settings settings, Function<Boolean, ReduceContext> reduceContextFunction) {
+    public SearchPhaseController(Settings settings, BiFunction<Boolean, BooleanSupplier, ReduceContext> reduceContextFunction,
+                                 @Nullable CircuitBreakerService circuitBreakerService) {
         super(settings);
         this.reduceContextFunction = reduceContextFunction;
+        this.breaker = circuitBreakerService == null ? new NoopCircuitBreaker(CircuitBreaker.REQUEST)
+            : circuitBreakerService.getBreaker(CircuitBreaker.REQUEST);
+        this.maxBufferedAggsBytes = MAX_BUFFERED_AGGS_SIZE.get(settings).getBytes();
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -253,10 +289,10 @@ public final class SearchPhaseController extends AbstractComponent {
             TopFieldDocs firstTopDocs = (TopFieldDocs) topDocs;
             final Sort sort = new Sort(firstTopDocs.fields);
             final TopFieldDocs[] shardTopDocs = results.toArray(new TopFieldDocs[numShards]);
-            mergedTopDocs = TopDocs.merge(sort, from, topN, shardTopDocs, setShardIndex);
+            mergedTopDocs = TopDocsMerger.merge(sort, from, topN, shardTopDocs);
         } else {
             final TopDocs[] shardTopDocs = results.toArray(new TopDocs[numShards]);
-            mergedTopDocs = TopDocs.merge(from, topN, shardTopDocs, setShardIndex);
+            mergedTopDocs = TopDocsMerger.merge(null, from, topN, shardTopDocs);
         }
         return mergedTopDocs;
     }
@@ -421,7 +457,19 @@ public final class SearchPhaseController extends AbstractComponent {
      * @param queryResults a list of non-null query shard results
      */
     public ReducedQueryPhase reducedQueryPhase(Collection<? extends SearchPhaseResult> queryResults, boolean isScrollRequest, boolean trackTotalHits) {
-        return reducedQueryPhase(queryResults, null, new ArrayList<>(), new TopDocsStats(trackTotalHits), 0, isScrollRequest);
+        return reducedQueryPhase(queryResults, isScrollRequest, trackTotalHits, () -> false);
+    }
+
+    /**
+     * Reduces the given query results and consumes all aggregations and profile results.
+     * @param queryResults a list of non-null query shard results
+     * @param isCancelled supplier of the cancellation flag of the search request, the reduce of the aggregations stops if it
+     *                   returns true
+     */
+    public ReducedQueryPhase reducedQueryPhase(Collection<? extends SearchPhaseResult> queryResults, boolean isScrollRequest,
+                                               boolean trackTotalHits, BooleanSupplier isCancelled) {
+        return reducedQueryPhase(queryResults, null, 0, new ArrayList<>(), new TopDocsStats(trackTotalHits), 0, isScrollRequest,
+            isCancelled);
     }
 
 
@@ -430,15 +478,19 @@ public final class SearchPhaseController extends AbstractComponent {
      * @param queryResults a list of non-null query shard results
      * @param bufferedAggs a list of pre-collected / buffered aggregations. if this list is non-null all aggregations have been consumed
      *                    from all non-null query results.
+     * @param bufferedAggsBytes the estimated size of the buffered aggregations in bytes
      * @param bufferedTopDocs a list of pre-collected / buffered top docs. if this list is non-null all top docs have been consumed
      *                    from all non-null query results.
      * @param numReducePhases the number of non-final reduce phases applied to the query results.
+     * @param isCancelled supplier of the cancellation flag of the search request
      * @see QuerySearchResult#consumeAggs()
      * @see QuerySearchResult#consumeProfileResult()
      */
     private ReducedQueryPhase reducedQueryPhase(Collection<? extends SearchPhaseResult> queryResults,
-                                                List<InternalAggregations> bufferedAggs, List<TopDocs> bufferedTopDocs,
-                                                TopDocsStats topDocsStats, int numReducePhases, boolean isScrollRequest) {
+                                                List<InternalAggregations> bufferedAggs, long bufferedAggsBytes,
+                                                List<TopDocs> bufferedTopDocs,
+                                                TopDocsStats topDocsStats, int numReducePhases, boolean isScrollRequest,
+                                                BooleanSupplier isCancelled) {
         assert numReducePhases >= 0 : "num reduce phases must be >= 0 but was: " + numReducePhases;
         numReducePhases++; // increment for this phase
         boolean timedOut = false;
@@ -452,6 +504,7 @@ public final class SearchPhaseController extends AbstractComponent {
         final boolean hasProfileResults = firstResult.hasProfileResults();
         final boolean consumeAggs;
         final List<InternalAggregations> aggregationsList;
+        long aggregationsBytes = bufferedAggsBytes;
         if (bufferedAggs != null) {
             consumeAggs = false;
             // we already have results from intermediate reduces and just need to perform the final reduce
@@ -495,6 +548,7 @@ public final class SearchPhaseController extends AbstractComponent {
                 }
             }
             if (consumeAggs) {
+                aggregationsBytes += result.aggregationsSizeInBytes();
                 aggregationsList.add((InternalAggregations) result.consumeAggs());
             }
             if (hasProfileResults) {
@@ -503,9 +557,18 @@ public final class SearchPhaseController extends AbstractComponent {
             }
         }
         final Suggest suggest = groupedSuggestions.isEmpty() ? null : new Suggest(Suggest.reduce(groupedSuggestions));
-        ReduceContext reduceContext = reduceContextFunction.apply(true);
-        final InternalAggregations aggregations = aggregationsList.isEmpty() ? null : reduceAggs(aggregationsList,
-            firstResult.pipelineAggregators(), reduceContext);
+        ReduceContext reduceContext = reduceContextFunction.apply(true, isCancelled);
+        final InternalAggregations aggregations;
+        if (aggregationsList.isEmpty()) {
+            aggregations = null;
+        } else {
+            breaker.addEstimateBytesAndMaybeBreak(aggregationsBytes, "<reduce_aggs>");
+            try {
+                aggregations = reduceAggs(aggregationsList, firstResult.pipelineAggregators(), reduceContext);
+            } finally {
+                breaker.addWithoutBreaking(-aggregationsBytes);
+            }
+        }
         final SearchProfileShardResults shardResults = profileResults.isEmpty() ? null : new SearchProfileShardResults(profileResults);
         final SortedTopDocs scoreDocs = this.sortDocs(isScrollRequest, queryResults, bufferedTopDocs, topDocsStats, from, size);
         return new ReducedQueryPhase(topDocsStats.totalHits, topDocsStats.fetchHits, topDocsStats.maxScore,
@@ -519,10 +582,18 @@ public final class SearchPhaseController extends AbstractComponent {
      * Performs an intermediate reduce phase on the aggregations. For instance with this reduce phase never prune information
      * that relevant for the final reduce step. For final reduce see {@link #reduceAggs(List, List, ReduceContext)}
      */
-    private InternalAggregations reduceAggsIncrementally(List<InternalAggregations> aggregationsList) {
-        ReduceContext reduceContext = reduceContextFunction.apply(false);
-        return aggregationsList.isEmpty() ? null : reduceAggs(aggregationsList,
-            null, reduceContext);
+    private InternalAggregations reduceAggsIncrementally(List<InternalAggregations> aggregationsList, long aggregationsBytes,
+                                                         BooleanSupplier isCancelled) {
+        ReduceContext reduceContext = reduceContextFunction.apply(false, isCancelled);
+        if (aggregationsList.isEmpty()) {
+            return null;
+        }
+        breaker.addEstimateBytesAndMaybeBreak(aggregationsBytes, "<reduce_aggs>");
+        try {
+            return reduceAggs(aggregationsList, null, reduceContext);
+        } finally {
+            breaker.addWithoutBreaking(-aggregationsBytes);
+        }
     }
 
     private InternalAggregations reduceAggs(List<InternalAggregations> aggregationsList,
@@ -533,6 +604,7 @@ public final class SearchPhaseController extends AbstractComponent {
                 .map((p) -> (InternalAggregation) p)
                 .collect(Collectors.toList());
             for (SiblingPipelineAggregator pipelineAggregator : pipelineAggregators) {
+                reduceContext.checkCancelled();
                 InternalAggregation newAgg = pipelineAggregator.doReduce(new InternalAggregations(newAggs), reduceContext);
                 newAggs.add(newAgg);
             }
@@ -617,7 +689,10 @@ public final class SearchPhaseController extends AbstractComponent {
      * A {@link InitialSearchPhase.ArraySearchPhaseResults} implementation
      * that incrementally reduces aggregation results as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
-     * iff the buffer is exhausted.
+     * iff the buffer is exhausted or the buffered aggregations exceed {@link #MAX_BUFFERED_AGGS_SIZE}. Each reduce
+     * is accounted for in the request circuit breaker. If the breaker trips, or if the search request is cancelled, the buffered
+     * aggregations are dropped and the failure is rethrown by {@link #reduce()} so that the search request fails once all shards
+     * responded.
      */
     static final class QueryPhaseResultConsumer extends InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> {
         private final InternalAggregations[] aggsBuffer;
@@ -629,6 +704,13 @@ public final class SearchPhaseController extends AbstractComponent {
         private final SearchPhaseController controller;
         private int numReducePhases = 0;
         private final TopDocsStats topDocsStats = new TopDocsStats();
+        private final long maxBufferedAggsBytes;
+        // the estimated size of the aggregations in the buffer, including the partially reduced ones
+        private long bufferedAggsBytes;
+        // the largest size of a single buffered aggregations result, used as an estimate of the size of the next partial reduce
+        private long maxAggsBytes;
+        private RuntimeException failure;
+        private final BooleanSupplier isCancelled;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
@@ -636,9 +718,11 @@ public final class SearchPhaseController extends AbstractComponent {
          * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
          * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
+         * @param maxBufferedAggsBytes the number of bytes of buffered aggregations that triggers a reduce before the buffer is full
+         * @param isCancelled supplier of the cancellation flag of the search request
          */
         private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
-                                         boolean hasTopDocs, boolean hasAggs) {
+                                         long maxBufferedAggsBytes, boolean hasTopDocs, boolean hasAggs, BooleanSupplier isCancelled) {
             super(expectedResultSize);
             if (expectedResultSize != 1 && bufferSize < 2) {
                 throw new IllegalArgumentException("buffer size must be >= 2 if there is more than one expected result");
@@ -656,7 +740,8 @@ public final class SearchPhaseController extends AbstractComponent {
             this.hasTopDocs = hasTopDocs;
             this.hasAggs = hasAggs;
             this.bufferSize = bufferSize;
-
+            this.maxBufferedAggsBytes = maxBufferedAggsBytes;
+            this.isCancelled = isCancelled;
         }
 
         @Override
@@ -667,14 +752,23 @@ public final class SearchPhaseController extends AbstractComponent {
         }
 
         private synchronized void consumeInternal(QuerySearchResult querySearchResult) {
-            if (index == bufferSize) {
-                if (hasAggs) {
-                    InternalAggregations reducedAggs = controller.reduceAggsIncrementally(Arrays.asList(aggsBuffer));
-                    Arrays.fill(aggsBuffer, null);
-                    aggsBuffer[0] = reducedAggs;
+            if (index == bufferSize || (hasAggs && index > 1 && bufferedAggsBytes > maxBufferedAggsBytes)) {
+                if (hasAggs && failure == null) {
+                    try {
+                        InternalAggregations reducedAggs =
+                            controller.reduceAggsIncrementally(Arrays.asList(aggsBuffer).subList(0, index), bufferedAggsBytes, isCancelled);
+                        Arrays.fill(aggsBuffer, null);
+                        aggsBuffer[0] = reducedAggs;
+                        // we can't tell how big the reduced aggregations are, assume they are as big as the largest input
+                        bufferedAggsBytes = maxAggsBytes;
+                    } catch (CircuitBreakingException | TaskCancelledException e) {
+                        failure = e;
+                        Arrays.fill(aggsBuffer, null);
+                        bufferedAggsBytes = 0;
+                    }
                 }
                 if (hasTopDocs) {
-                    TopDocs reducedTopDocs = controller.mergeTopDocs(Arrays.asList(topDocsBuffer),
+                    TopDocs reducedTopDocs = controller.mergeTopDocs(Arrays.asList(topDocsBuffer).subList(0, index),
                         querySearchResult.from() + querySearchResult.size() // we have to merge here in the same way we collect on a shard
                         , 0);
                     Arrays.fill(topDocsBuffer, null);
@@ -685,7 +779,13 @@ public final class SearchPhaseController extends AbstractComponent {
             }
             final int i = index++;
             if (hasAggs) {
-                aggsBuffer[i] = (InternalAggregations) querySearchResult.consumeAggs();
+                final InternalAggregations aggs = (InternalAggregations) querySearchResult.consumeAggs();
+                if (failure == null) {
+                    final long aggsBytes = querySearchResult.aggregationsSizeInBytes();
+                    aggsBuffer[i] = aggs;
+                    bufferedAggsBytes += aggsBytes;
+                    maxAggsBytes = Math.max(maxAggsBytes, aggsBytes);
+                }
             }
             if (hasTopDocs) {
                 final TopDocsAndMaxScore topDocs = querySearchResult.consumeTopDocs(); // can't be null
@@ -706,8 +806,15 @@ public final class SearchPhaseController extends AbstractComponent {
 
         @Override
         public ReducedQueryPhase reduce() {
-            return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
-                numReducePhases, false);
+            final long aggsBytes;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                aggsBytes = bufferedAggsBytes;
+            }
+            return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), aggsBytes, getRemainingTopDocs(), topDocsStats,
+                numReducePhases, false, isCancelled);
         }
 
         /**
@@ -718,12 +825,28 @@ public final class SearchPhaseController extends AbstractComponent {
         }
 
         int getNumReducePhases() { return numReducePhases; }
+
+        /**
+         * Returns the estimated size of the buffered aggregations in bytes
+         */
+        synchronized long getBufferedAggsBytes() {
+            return bufferedAggsBytes;
+        }
     }
 
     /**
      * Returns a new ArraySearchPhaseResults instance. This might return an instance that reduces search responses incrementally.
      */
     InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> newSearchPhaseResults(SearchRequest request, int numShards) {
+        return newSearchPhaseResults(request, numShards, () -> false);
+    }
+
+    /**
+     * Returns a new ArraySearchPhaseResults instance. This might return an instance that reduces search responses incrementally.
+     * The reduce of the aggregations stops as soon as the given supplier of the cancellation flag of the request returns true.
+     */
+    InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> newSearchPhaseResults(SearchRequest request, int numShards,
+                                                                                        BooleanSupplier isCancelled) {
         SearchSourceBuilder source = request.source();
         boolean isScrollRequest = request.scroll() != null;
         final boolean hasAggs = source != null && source.aggregations() != null;
@@ -734,13 +857,14 @@ public final class SearchPhaseController extends AbstractComponent {
             // no incremental reduce if scroll is used - we only hit a single shard or sometimes more...
             if (request.getBatchedReduceSize() < numShards) {
                 // only use this if there are aggs and if there are more shards than we should reduce at once
-                return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), hasTopDocs, hasAggs);
+                return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), maxBufferedAggsBytes,
+                    hasTopDocs, hasAggs, isCancelled);
             }
         }
         return new InitialSearchPhase.ArraySearchPhaseResults(numShards) {
             @Override
             public ReducedQueryPhase reduce() {
-                return reducedQueryPhase(results.asList(), isScrollRequest, trackTotalHits);
+                return reducedQueryPhase(results.asList(), isScrollRequest, trackTotalHits, isCancelled);
             }
         };
     }
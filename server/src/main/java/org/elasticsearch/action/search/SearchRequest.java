@@ -188,6 +188,10 @@ public final class SearchRequest extends ActionRequest implements IndicesRequest
             validationException =
                 addValidationError("using [rescore] is not allowed in a scroll context", validationException);
         }
+        if (source != null && source.readerContext() != null && scroll != null) {
+            validationException =
+                addValidationError("using [reader_context] is not allowed in a scroll context", validationException);
+        }
         return validationException;
     }
 
@@ -34,6 +34,7 @@ public final class SearchShardIterator extends PlainShardIterator {
 
     private final OriginalIndices originalIndices;
     private String clusterAlias;
+    private final long readerId;
     private boolean skip = false;
 
     /**
@@ -44,9 +45,21 @@ public final class SearchShardIterator extends PlainShardIterator {
      * @param shards  shards to iterate
      */
     public SearchShardIterator(String clusterAlias, ShardId shardId, List<ShardRouting> shards, OriginalIndices originalIndices) {
+        this(clusterAlias, shardId, shards, originalIndices, -1);
+    }
+
+    /**
+     * Creates a {@link PlainShardIterator} instance that iterates over the given shards, which search the given reader context.
+     *
+     * @param readerId the id of the reader context to search, see
+     *                 {@link org.elasticsearch.search.internal.ShardSearchRequest#readerId()}
+     */
+    public SearchShardIterator(String clusterAlias, ShardId shardId, List<ShardRouting> shards, OriginalIndices originalIndices,
+                               long readerId) {
         super(shardId, shards);
         this.originalIndices = originalIndices;
         this.clusterAlias = clusterAlias;
+        this.readerId = readerId;
     }
 
     /**
@@ -60,6 +73,13 @@ public final class SearchShardIterator extends PlainShardIterator {
         return clusterAlias;
     }
 
+    /**
+     * Returns the id of the reader context that this shard is searched with, or <code>-1</code> to search the latest view of the shard.
+     */
+    public long getReaderId() {
+        return readerId;
+    }
+
     /**
      * Reset the iterator and mark it as skippable
      * @see #skip()
@@ -0,0 +1,209 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.common.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Merges the sorted top docs of many shards into the global top docs with a loser tree: the tree keeps the loser of every match
+ * between the heads of two shards, so that replacing the winner only needs to replay the matches on the path from its shard to the
+ * root, which takes exactly <code>log2(numShards)</code> comparisons where a binary heap needs up to twice as many. The merge stops
+ * as soon as <code>from + size</code> docs are selected and only the docs after <code>from</code> are copied to the result.
+ *
+ * This produces the same result as {@link TopDocs#merge(int, int, TopDocs[], boolean)} and
+ * {@link TopDocs#merge(Sort, int, int, TopFieldDocs[], boolean)} without setting the shard index, including the tie breaking on
+ * {@link ScoreDoc#shardIndex} and on the position of the doc in its shard's top docs.
+ */
+final class TopDocsMerger {
+
+    private final TopDocs[] shardHits;
+    @Nullable
+    private final FieldComparator<?>[] comparators;
+    private final int[] reverseMul;
+    /** the shard that each leaf of the tree pulls docs from, only shards that have hits get a leaf */
+    private final int[] leafShards;
+    /** the position of the next doc to merge in each leaf's shard */
+    private final int[] leafCursors;
+    /** the winning leaf at index 0 and the losing leaf of the match of every inner node otherwise */
+    private final int[] tree;
+
+    private TopDocsMerger(@Nullable Sort sort, TopDocs[] shardHits, int[] leafShards) {
+        this.shardHits = shardHits;
+        this.leafShards = leafShards;
+        this.leafCursors = new int[leafShards.length];
+        if (sort == null) {
+            comparators = null;
+            reverseMul = null;
+        } else {
+            final SortField[] sortFields = sort.getSort();
+            comparators = new FieldComparator<?>[sortFields.length];
+            reverseMul = new int[sortFields.length];
+            for (int i = 0; i < sortFields.length; i++) {
+                comparators[i] = sortFields[i].getComparator(1, i);
+                reverseMul[i] = sortFields[i].getReverse() ? -1 : 1;
+            }
+        }
+        this.tree = new int[Math.max(1, leafShards.length)];
+        Arrays.fill(tree, -1);
+        for (int leaf = 0; leaf < leafShards.length; leaf++) {
+            // the winner of a subtree parks at the first inner node that has no match yet, it is complete once all leaves were added
+            int winner = leaf;
+            int node = (leaf + leafShards.length) >>> 1;
+            for (; node > 0; node >>>= 1) {
+                if (tree[node] == -1) {
+                    tree[node] = winner;
+                    break;
+                }
+                winner = play(node, winner);
+            }
+            if (node == 0) {
+                tree[0] = winner;
+            }
+        }
+    }
+
+    /**
+     * Returns the docs ranked <code>from</code> to <code>from + size</code> of the given shard top docs, sorted by score if
+     * <code>sort</code> is <code>null</code> and by the sort otherwise, in which case a {@link TopFieldDocs} is returned.
+     */
+    static TopDocs merge(@Nullable Sort sort, int from, int size, TopDocs[] shardHits) {
+        long totalHitCount = 0;
+        TotalHits.Relation totalHitsRelation = TotalHits.Relation.EQUAL_TO;
+        int availHitCount = 0;
+        int numLeaves = 0;
+        final int[] leafShards = new int[shardHits.length];
+        for (int shardIndex = 0; shardIndex < shardHits.length; shardIndex++) {
+            final TopDocs shard = shardHits[shardIndex];
+            totalHitCount += shard.totalHits.value;
+            if (shard.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO) {
+                totalHitsRelation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+            }
+            if (shard.scoreDocs != null && shard.scoreDocs.length > 0) {
+                if (sort != null) {
+                    for (ScoreDoc scoreDoc : shard.scoreDocs) {
+                        if (((FieldDoc) scoreDoc).fields == null) {
+                            throw new IllegalArgumentException("shard " + shardIndex + " did not set sort field values " +
+                                "(FieldDoc.fields is null)");
+                        }
+                    }
+                }
+                availHitCount += shard.scoreDocs.length;
+                leafShards[numLeaves++] = shardIndex;
+            }
+        }
+
+        final ScoreDoc[] hits;
+        if (availHitCount <= from) {
+            hits = new ScoreDoc[0];
+        } else {
+            hits = new ScoreDoc[Math.min(size, availHitCount - from)];
+            final TopDocsMerger merger = new TopDocsMerger(sort, shardHits, Arrays.copyOf(leafShards, numLeaves));
+            final int numHits = from + hits.length;
+            for (int hitUpto = 0; hitUpto < numHits; hitUpto++) {
+                final ScoreDoc hit = merger.pop();
+                if (hitUpto >= from) {
+                    hits[hitUpto - from] = hit;
+                }
+            }
+        }
+
+        final TotalHits totalHits = new TotalHits(totalHitCount, totalHitsRelation);
+        if (sort == null) {
+            return new TopDocs(totalHits, hits);
+        } else {
+            return new TopFieldDocs(totalHits, hits, sort.getSort());
+        }
+    }
+
+    /**
+     * Takes the best doc that wasn't merged yet and replays the matches of the leaf it came from against its next doc.
+     */
+    private ScoreDoc pop() {
+        final int leaf = tree[0];
+        assert leaf >= 0 && isExhausted(leaf) == false : "no docs left to merge";
+        final ScoreDoc doc = shardHits[leafShards[leaf]].scoreDocs[leafCursors[leaf]++];
+        int winner = leaf;
+        for (int node = (leaf + leafShards.length) >>> 1; node > 0; node >>>= 1) {
+            winner = play(node, winner);
+        }
+        tree[0] = winner;
+        return doc;
+    }
+
+    /**
+     * Plays the match of the given inner node against the given leaf, keeps the loser at the node and returns the winner.
+     */
+    private int play(int node, int leaf) {
+        final int opponent = tree[node];
+        if (beats(opponent, leaf)) {
+            tree[node] = leaf;
+            return opponent;
+        }
+        return leaf;
+    }
+
+    private boolean isExhausted(int leaf) {
+        return leafCursors[leaf] == shardHits[leafShards[leaf]].scoreDocs.length;
+    }
+
+    /**
+     * Returns whether the next doc of the first leaf ranks before the next doc of the second leaf, leaves without docs left lose.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private boolean beats(int first, int second) {
+        if (isExhausted(first)) {
+            return false;
+        } else if (isExhausted(second)) {
+            return true;
+        }
+        final ScoreDoc firstDoc = shardHits[leafShards[first]].scoreDocs[leafCursors[first]];
+        final ScoreDoc secondDoc = shardHits[leafShards[second]].scoreDocs[leafCursors[second]];
+        if (comparators == null) {
+            if (firstDoc.score > secondDoc.score) {
+                return true;
+            } else if (firstDoc.score < secondDoc.score) {
+                return false;
+            }
+        } else {
+            final FieldDoc firstFieldDoc = (FieldDoc) firstDoc;
+            final FieldDoc secondFieldDoc = (FieldDoc) secondDoc;
+            for (int i = 0; i < comparators.length; i++) {
+                final FieldComparator comparator = comparators[i];
+                final int cmp = reverseMul[i] * comparator.compareValues(firstFieldDoc.fields[i], secondFieldDoc.fields[i]);
+                if (cmp != 0) {
+                    return cmp < 0;
+                }
+            }
+        }
+        if (firstDoc.shardIndex != secondDoc.shardIndex) {
+            return firstDoc.shardIndex < secondDoc.shardIndex;
+        }
+        return leafCursors[first] < leafCursors[second];
+    }
+}
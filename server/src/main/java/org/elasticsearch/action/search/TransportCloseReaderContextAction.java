@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransportCloseReaderContextAction extends HandledTransportAction<CloseReaderContextRequest, ClearScrollResponse> {
+
+    private final ClusterService clusterService;
+    private final SearchTransportService searchTransportService;
+
+    @Inject
+    public TransportCloseReaderContextAction(Settings settings, TransportService transportService, ClusterService clusterService,
+                                             ActionFilters actionFilters, SearchTransportService searchTransportService) {
+        super(settings, CloseReaderContextAction.NAME, transportService, actionFilters,
+            (Writeable.Reader<CloseReaderContextRequest>) CloseReaderContextRequest::new);
+        this.clusterService = clusterService;
+        this.searchTransportService = searchTransportService;
+    }
+
+    @Override
+    protected void doExecute(Task task, CloseReaderContextRequest request, ActionListener<ClearScrollResponse> listener) {
+        final List<ReaderContextId.ShardReaderId> shards = ReaderContextId.decode(request.getReaderContextId()).shards();
+        if (shards.isEmpty()) {
+            listener.onResponse(new ClearScrollResponse(true, 0));
+            return;
+        }
+        final DiscoveryNodes nodes = clusterService.state().nodes();
+        final CountDown countDown = new CountDown(shards.size());
+        final AtomicBoolean hasFailed = new AtomicBoolean(false);
+        final AtomicInteger numFreed = new AtomicInteger(0);
+        final Runnable onShardDone = () -> {
+            if (countDown.countDown()) {
+                listener.onResponse(new ClearScrollResponse(hasFailed.get() == false, numFreed.get()));
+            }
+        };
+        for (ReaderContextId.ShardReaderId shard : shards) {
+            final DiscoveryNode node = nodes.get(shard.getNodeId());
+            if (node == null) {
+                // the node left the cluster and took the reader context with it
+                onShardDone.run();
+                continue;
+            }
+            final OriginalIndices originalIndices = new OriginalIndices(new String[] {shard.getShardId().getIndexName()},
+                IndicesOptions.strictSingleIndexNoExpandForbidClosed());
+            try {
+                Transport.Connection connection = searchTransportService.getConnection(null, node);
+                searchTransportService.sendFreeReaderContext(connection, shard.getReaderId(), originalIndices, ActionListener.wrap(
+                    response -> {
+                        if (response.isFreed()) {
+                            numFreed.incrementAndGet();
+                        }
+                        onShardDone.run();
+                    }, e -> {
+                        logger.warn(() -> new ParameterizedMessage("failed to close reader context on node [{}]", node), e);
+                        // set the failure marker before counting down so that the last shard to finish sees it
+                        hasFailed.set(true);
+                        onShardDone.run();
+                    }));
+            } catch (Exception e) {
+                logger.warn(() -> new ParameterizedMessage("failed to close reader context on node [{}]", node), e);
+                hasFailed.set(true);
+                onShardDone.run();
+            }
+        }
+    }
+}
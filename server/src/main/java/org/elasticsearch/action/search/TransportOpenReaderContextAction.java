@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.NoShardAvailableActionException;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Opens a reader context on one copy of every shard of the requested indices. If opening it on a copy fails the next copy is tried,
+ * if it fails on all copies of a shard the reader contexts that were opened on the other shards are freed and the request fails.
+ */
+public class TransportOpenReaderContextAction extends HandledTransportAction<OpenReaderContextRequest, OpenReaderContextResponse> {
+
+    private final ClusterService clusterService;
+    private final SearchTransportService searchTransportService;
+    private final IndexNameExpressionResolver indexNameExpressionResolver;
+
+    @Inject
+    public TransportOpenReaderContextAction(Settings settings, TransportService transportService, ClusterService clusterService,
+                                            ActionFilters actionFilters, SearchTransportService searchTransportService,
+                                            IndexNameExpressionResolver indexNameExpressionResolver) {
+        super(settings, OpenReaderContextAction.NAME, transportService, actionFilters,
+            (Writeable.Reader<OpenReaderContextRequest>) OpenReaderContextRequest::new);
+        this.clusterService = clusterService;
+        this.searchTransportService = searchTransportService;
+        this.indexNameExpressionResolver = indexNameExpressionResolver;
+    }
+
+    @Override
+    protected void doExecute(Task task, OpenReaderContextRequest request, ActionListener<OpenReaderContextResponse> listener) {
+        final ClusterState clusterState = clusterService.state();
+        clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
+        final String[] concreteIndices = indexNameExpressionResolver.concreteIndexNames(clusterState, request);
+        for (String index : concreteIndices) {
+            clusterState.blocks().indexBlockedRaiseException(ClusterBlockLevel.READ, index);
+        }
+        final GroupShardsIterator<ShardIterator> shardIterators = clusterService.operationRouting().searchShards(clusterState,
+            concreteIndices, null, null);
+        final DiscoveryNodes nodes = clusterState.nodes();
+        final OriginalIndices originalIndices = new OriginalIndices(request);
+        final AtomicArray<ReaderContextId.ShardReaderId> shards = new AtomicArray<>(shardIterators.size());
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDown countDown = new CountDown(shardIterators.size());
+        final Runnable onShardDone = () -> {
+            if (countDown.countDown()) {
+                if (failure.get() == null) {
+                    listener.onResponse(new OpenReaderContextResponse(ReaderContextId.encode(request.indices(), shards.asList())));
+                } else {
+                    for (ReaderContextId.ShardReaderId shard : shards.asList()) {
+                        freeReaderContext(nodes, shard, originalIndices);
+                    }
+                    listener.onFailure(failure.get());
+                }
+            }
+        };
+        if (shardIterators.size() == 0) {
+            listener.onResponse(new OpenReaderContextResponse(ReaderContextId.encode(request.indices(), shards.asList())));
+            return;
+        }
+        int shardIndex = 0;
+        for (ShardIterator shardIterator : shardIterators) {
+            final int index = shardIndex++;
+            openReaderContext(shardIterator, nodes, originalIndices, request.keepAlive(), null, ActionListener.wrap(shard -> {
+                shards.set(index, shard);
+                onShardDone.run();
+            }, e -> {
+                // set the failure before counting down so that the last shard to finish sees it
+                failure.accumulateAndGet(e, (previous, current) -> {
+                    if (previous == null) {
+                        return current;
+                    }
+                    previous.addSuppressed(current);
+                    return previous;
+                });
+                onShardDone.run();
+            }));
+        }
+    }
+
+    private void openReaderContext(ShardIterator shardIterator, DiscoveryNodes nodes, OriginalIndices originalIndices, TimeValue keepAlive,
+                                   Exception lastFailure, ActionListener<ReaderContextId.ShardReaderId> listener) {
+        final ShardRouting shard = shardIterator.nextOrNull();
+        if (shard == null) {
+            listener.onFailure(lastFailure == null ? new NoShardAvailableActionException(shardIterator.shardId()) : lastFailure);
+            return;
+        }
+        try {
+            final DiscoveryNode node = nodes.get(shard.currentNodeId());
+            if (node == null) {
+                throw new NoShardAvailableActionException(shard.shardId(), "no node found for id [" + shard.currentNodeId() + "]");
+            }
+            final Transport.Connection connection = searchTransportService.getConnection(null, node);
+            searchTransportService.sendOpenReaderContext(connection, shard.shardId(), originalIndices, keepAlive, ActionListener.wrap(
+                response -> listener.onResponse(new ReaderContextId.ShardReaderId(shard.shardId(), node.getId(), response.getReaderId())),
+                e -> {
+                    logger.debug(() -> new ParameterizedMessage("{} failed to open reader context on [{}]", shard.shardId(), node), e);
+                    openReaderContext(shardIterator, nodes, originalIndices, keepAlive, e, listener);
+                }));
+        } catch (Exception e) {
+            openReaderContext(shardIterator, nodes, originalIndices, keepAlive, e, listener);
+        }
+    }
+
+    private void freeReaderContext(DiscoveryNodes nodes, ReaderContextId.ShardReaderId shard, OriginalIndices originalIndices) {
+        final DiscoveryNode node = nodes.get(shard.getNodeId());
+        try {
+            final Transport.Connection connection = searchTransportService.getConnection(null, node);
+            searchTransportService.sendFreeReaderContext(connection, shard.getReaderId(), originalIndices,
+                ActionListener.wrap(response -> {}, e -> onFreeFailure(shard, node, e)));
+        } catch (Exception e) {
+            onFreeFailure(shard, node, e);
+        }
+    }
+
+    private void onFreeFailure(ReaderContextId.ShardReaderId shard, DiscoveryNode node, Exception e) {
+        logger.debug(() -> new ParameterizedMessage("{} failed to free reader context on [{}]", shard.getShardId(), node), e);
+    }
+}
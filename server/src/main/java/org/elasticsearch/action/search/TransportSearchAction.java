@@ -32,14 +32,19 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchService;
@@ -56,6 +61,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +77,18 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /** The maximum number of shard field ranges that the coordinating node caches to skip shards in the can-match phase. */
+    public static final Setting<Integer> FIELD_RANGE_CACHE_SIZE_SETTING = Setting.intSetting(
+            "action.search.can_match.field_range_cache.size", 10_000, 0, Property.NodeScope);
+
+    /** Whether shard requests that take unusually long are also sent to another copy of the shard, see {@link HedgingPolicy}. */
+    public static final Setting<Boolean> HEDGED_REQUESTS_ENABLED_SETTING = Setting.boolSetting(
+            "action.search.hedged_requests.enabled", false, Property.Dynamic, Property.NodeScope);
+
+    /** The minimum time to wait for the response of a shard before sending the request to another copy of the shard. */
+    public static final Setting<TimeValue> HEDGED_REQUESTS_MIN_DELAY_SETTING = Setting.positiveTimeSetting(
+            "action.search.hedged_requests.min_delay", TimeValue.timeValueMillis(50), Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -78,6 +96,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final SearchPhaseController searchPhaseController;
     private final SearchService searchService;
     private final IndexNameExpressionResolver indexNameExpressionResolver;
+    private final FieldRangeCache fieldRangeCache;
 
     @Inject
     public TransportSearchAction(Settings settings, ThreadPool threadPool, TransportService transportService, SearchService searchService,
@@ -93,6 +112,7 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         this.clusterService = clusterService;
         this.searchService = searchService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
+        this.fieldRangeCache = new FieldRangeCache(clusterService::state, FIELD_RANGE_CACHE_SIZE_SETTING.get(settings));
     }
 
     private Map<String, AliasFilter> buildPerIndexAliasFilter(SearchRequest request, ClusterState clusterState,
@@ -190,6 +210,10 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 searchRequest.source(source);
             }
             final ClusterState clusterState = clusterService.state();
+            if (searchRequest.source() != null && searchRequest.source().readerContext() != null) {
+                executeReaderContextSearch((SearchTask) task, timeProvider, searchRequest, clusterState, listener);
+                return;
+            }
             final Map<String, OriginalIndices> remoteClusterIndices = remoteClusterService.groupIndices(searchRequest.indicesOptions(),
                 searchRequest.indices(), idx -> indexNameExpressionResolver.hasIndexOrAlias(idx, clusterState));
             OriginalIndices localIndices = remoteClusterIndices.remove(RemoteClusterAware.LOCAL_CLUSTER_GROUP_KEY);
@@ -313,7 +337,59 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 concreteIndices, routingMap, searchRequest.preference(), searchService.getResponseCollectorService(), nodeSearchCounts);
         GroupShardsIterator<SearchShardIterator> shardIterators = mergeShardsIterators(localShardsIterator, localIndices,
             remoteShardIterators);
+        executeSearchOnShards(task, timeProvider, searchRequest, shardIterators, aliasFilter, routingMap, remoteConnections,
+            clusterState, listener, clusters);
+    }
+
+    /**
+     * Searches the reader contexts that the search request refers to, see {@link SearchSourceBuilder#readerContext()}. Every shard is
+     * only searched on the node that holds its reader context, the indices of the search request are ignored. The shard requests are
+     * authorized against the index expressions of the reader context id, so every shard of the id must belong to one of the indices
+     * that these expressions resolve to.
+     */
+    private void executeReaderContextSearch(SearchTask task, SearchTimeProvider timeProvider, SearchRequest searchRequest,
+                                            ClusterState clusterState, ActionListener<SearchResponse> listener) {
+        clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
+        final ReaderContextId readerContextId = ReaderContextId.decode(searchRequest.source().readerContext());
+        final OriginalIndices originalIndices = new OriginalIndices(readerContextId.indices(), searchRequest.indicesOptions());
+        final Set<Index> resolvedIndices = new HashSet<>(Arrays.asList(
+            indexNameExpressionResolver.concreteIndices(clusterState, originalIndices)));
+        final Map<String, AliasFilter> aliasFilter = new HashMap<>();
+        final List<SearchShardIterator> shards = new ArrayList<>();
+        for (ReaderContextId.ShardReaderId shard : readerContextId.shards()) {
+            final Index index = shard.getShardId().getIndex();
+            if (resolvedIndices.contains(index) == false) {
+                throw new IllegalArgumentException("reader context id refers to shard " + shard.getShardId()
+                    + " of an index that is not one of its indices " + Arrays.toString(readerContextId.indices()));
+            }
+            if (aliasFilter.containsKey(index.getUUID()) == false) {
+                if (clusterState.metaData().index(index) == null) {
+                    throw new IndexNotFoundException(index);
+                }
+                clusterState.blocks().indexBlockedRaiseException(ClusterBlockLevel.READ, index.getName());
+                aliasFilter.put(index.getUUID(), searchService.buildAliasFilter(clusterState, index.getName(),
+                    readerContextId.indices()));
+            }
+            final List<ShardRouting> copies = new ArrayList<>(1);
+            final IndexShardRoutingTable shardRoutingTable = clusterState.routingTable().shardRoutingTableOrNull(shard.getShardId());
+            if (shardRoutingTable != null) {
+                for (ShardRouting copy : shardRoutingTable.activeShards()) {
+                    if (copy.currentNodeId().equals(shard.getNodeId())) {
+                        copies.add(copy);
+                    }
+                }
+            }
+            shards.add(new SearchShardIterator(null, shard.getShardId(), copies, originalIndices, shard.getReaderId()));
+        }
+        executeSearchOnShards(task, timeProvider, searchRequest, new GroupShardsIterator<>(shards), aliasFilter,
+            Collections.emptyMap(), (clusterName, nodeId) -> null, clusterState, listener, SearchResponse.Clusters.EMPTY);
+    }
 
+    private void executeSearchOnShards(SearchTask task, SearchTimeProvider timeProvider, SearchRequest searchRequest,
+                                       GroupShardsIterator<SearchShardIterator> shardIterators, Map<String, AliasFilter> aliasFilter,
+                                       Map<String, Set<String>> routingMap, BiFunction<String, String, DiscoveryNode> remoteConnections,
+                                       ClusterState clusterState, ActionListener<SearchResponse> listener,
+                                       SearchResponse.Clusters clusters) {
         failIfOverShardCountLimit(clusterService, shardIterators.size());
 
         Map<String, Float> concreteIndexBoosts = resolveIndexBoosts(searchRequest, clusterState);
@@ -353,7 +429,9 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
 
     private boolean shouldPreFilterSearchShards(SearchRequest searchRequest, GroupShardsIterator<SearchShardIterator> shardIterators) {
         SearchSourceBuilder source = searchRequest.source();
+        // the shard level field ranges that the can match phase caches do not hold for the older readers of reader contexts
         return searchRequest.searchType() == QUERY_THEN_FETCH && // we can't do this for DFS it needs to fan out to all shards all the time
+                (source == null || source.readerContext() == null) &&
                 SearchService.canRewriteToMatchNone(source) &&
                 searchRequest.getPreFilterShardSize() < shardIterators.size();
     }
@@ -392,20 +470,20 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                         action.start();
                     }
                 };
-            }, clusters);
+            }, clusters, fieldRangeCache);
         } else {
             AbstractSearchAsyncAction searchAsyncAction;
             switch (searchRequest.searchType()) {
                 case DFS_QUERY_THEN_FETCH:
                     searchAsyncAction = new SearchDfsQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, indexRoutings, searchPhaseController, executor, searchRequest, listener,
-                        shardIterators, timeProvider, clusterStateVersion, task, clusters);
+                        shardIterators, timeProvider, clusterStateVersion, task, clusters, hedgingPolicy());
                     break;
                 case QUERY_AND_FETCH:
                 case QUERY_THEN_FETCH:
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, indexRoutings, searchPhaseController, executor, searchRequest, listener,
-                        shardIterators, timeProvider, clusterStateVersion, task, clusters);
+                        shardIterators, timeProvider, clusterStateVersion, task, clusters, hedgingPolicy());
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
@@ -414,6 +492,15 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         }
     }
 
+    private HedgingPolicy hedgingPolicy() {
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        if (clusterSettings.get(HEDGED_REQUESTS_ENABLED_SETTING) == false) {
+            return null;
+        }
+        return new HedgingPolicy(threadPool, searchService.getResponseCollectorService(),
+            clusterSettings.get(HEDGED_REQUESTS_MIN_DELAY_SETTING));
+    }
+
     private static void failIfOverShardCountLimit(ClusterService clusterService, int shardCount) {
         final long shardCountLimit = clusterService.getClusterSettings().get(SHARD_COUNT_LIMIT_SETTING);
         if (shardCount > shardCountLimit) {
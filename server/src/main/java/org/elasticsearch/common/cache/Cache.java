@@ -99,6 +99,23 @@ public class Cache<K, V> {
 
     // use CacheBuilder to construct
     Cache() {
+        this(true);
+    }
+
+    /**
+     * Constructor for subclasses that replace the storage of this cache and override all of its public operations, in which
+     * case the segments of this cache are never allocated.
+     */
+    @SuppressWarnings("unchecked")
+    Cache(boolean allocateSegments) {
+        if (allocateSegments) {
+            segments = new CacheSegment[NUMBER_OF_SEGMENTS];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new CacheSegment<>();
+            }
+        } else {
+            segments = null;
+        }
     }
 
     void setExpireAfterAccessNanos(long expireAfterAccessNanos) {
@@ -336,13 +353,7 @@ public class Cache<K, V> {
     }
 
     public static final int NUMBER_OF_SEGMENTS = 256;
-    @SuppressWarnings("unchecked") private final CacheSegment<K, V>[] segments = new CacheSegment[NUMBER_OF_SEGMENTS];
-
-    {
-        for (int i = 0; i < segments.length; i++) {
-            segments[i] = new CacheSegment<>();
-        }
-    }
+    private final CacheSegment<K, V>[] segments;
 
     Entry<K, V> head;
     Entry<K, V> tail;
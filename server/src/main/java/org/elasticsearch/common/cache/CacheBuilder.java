@@ -30,6 +30,7 @@ public class CacheBuilder<K, V> {
     private long expireAfterWriteNanos = -1;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
+    private boolean frequencyAware = false;
 
     public static <K, V> CacheBuilder<K, V> builder() {
         return new CacheBuilder<>();
@@ -90,8 +91,19 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Sets whether to build a {@link TinyLfuCache}, whose reads never take a lock and whose evictions take the access frequency of
+     * entries into account, instead of a plain LRU {@link Cache}.
+     *
+     * @param frequencyAware {@code true} to build a {@link TinyLfuCache}
+     */
+    public CacheBuilder<K, V> setFrequencyAware(boolean frequencyAware) {
+        this.frequencyAware = frequencyAware;
+        return this;
+    }
+
     public Cache<K, V> build() {
-        Cache<K, V> cache = new Cache<>();
+        Cache<K, V> cache = frequencyAware ? new TinyLfuCache<>() : new Cache<>();
         if (maximumWeight != -1) {
             cache.setMaximumWeight(maximumWeight);
         }
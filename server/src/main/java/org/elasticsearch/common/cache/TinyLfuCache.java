@@ -0,0 +1,971 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A concurrent cache whose reads never take a lock and whose evictions are frequency-aware.
+ * <p>
+ * Entries live in a single {@link ConcurrentHashMap}, so a cache hit is a lock-free map lookup. The eviction policy is split into
+ * independent segments, each protected by its own lock and owning its share of the maximum weight. Instead of reordering an LRU list
+ * on every hit, reads are recorded into small, striped and lossy ring buffers. The buffers are replayed against the policy in
+ * batches by whichever thread next holds the segment lock: a writer, or a reader that finds a buffer full and manages to
+ * {@link ReentrantLock#tryLock() try-lock} the segment. Readers never wait for the lock, and a read that cannot be recorded because
+ * its buffer is full is simply dropped; the policy only needs an approximation of the access pattern.
+ * <p>
+ * The policy of each segment is W-TinyLFU: new entries enter a small LRU admission window. Entries leaving the window become
+ * candidates for the main space, a segmented LRU made of a probationary and a protected region. When the segment is over its
+ * weight budget a candidate is only admitted if the {@link FrequencySketch} estimates that it has been used more often than the
+ * entry it would replace. This keeps one-hit wonders, such as the entries touched by a scan, from flushing the hot entries of the
+ * cache.
+ * <p>
+ * Size-based and time-based evictions occur after a write to a segment, when a segment's read buffer is replayed, or after an
+ * explicit call to {@link #refresh()}. Expired entries are never returned by {@link #get(Object)}. Unlike {@link Cache},
+ * {@link #keys()} and {@link #values()} are not LRU-ordered, and the weight budget is enforced per segment rather than globally.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class TinyLfuCache<K, V> extends Cache<K, V> {
+
+    // the maximum number of policy segments
+    static final int MAX_SEGMENTS = 16;
+
+    // the weight budget is not split into segments smaller than this
+    static final long MIN_SEGMENT_WEIGHT = 1024;
+
+    // the share of a segment's weight budget used by the admission window
+    private static final double WINDOW_PERCENTAGE = 0.01;
+
+    // the share of the main space reserved for entries that were accessed while on probation
+    private static final double PROTECTED_PERCENTAGE = 0.8;
+
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+    private Segment[] segments;
+
+    private long maximumWeight = -1;
+
+    private boolean entriesExpireAfterAccess;
+    private long expireAfterAccessNanos = -1;
+
+    private boolean entriesExpireAfterWrite;
+    private long expireAfterWriteNanos = -1;
+
+    private ToLongBiFunction<K, V> weigher = (k, v) -> 1;
+
+    // true if entries have custom weights
+    private boolean weighted;
+
+    private RemovalListener<K, V> removalListener = notification -> {
+    };
+
+    // use CacheBuilder to construct
+    TinyLfuCache() {
+        super(false);
+        this.segments = createSegments(-1);
+    }
+
+    @Override
+    void setMaximumWeight(long maximumWeight) {
+        super.setMaximumWeight(maximumWeight);
+        this.maximumWeight = maximumWeight;
+        this.segments = createSegments(maximumWeight);
+    }
+
+    @Override
+    void setExpireAfterAccessNanos(long expireAfterAccessNanos) {
+        super.setExpireAfterAccessNanos(expireAfterAccessNanos);
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.entriesExpireAfterAccess = true;
+    }
+
+    @Override
+    void setExpireAfterWriteNanos(long expireAfterWriteNanos) {
+        super.setExpireAfterWriteNanos(expireAfterWriteNanos);
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.entriesExpireAfterWrite = true;
+    }
+
+    @Override
+    void setWeigher(ToLongBiFunction<K, V> weigher) {
+        super.setWeigher(weigher);
+        this.weigher = weigher;
+        this.weighted = true;
+    }
+
+    @Override
+    void setRemovalListener(RemovalListener<K, V> removalListener) {
+        super.setRemovalListener(removalListener);
+        this.removalListener = removalListener;
+    }
+
+    // pkg-private for testing
+    long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    // pkg-private for testing
+    int getNumberOfSegments() {
+        return segments.length;
+    }
+
+    private Segment[] createSegments(long maximumWeight) {
+        int numberOfSegments = MAX_SEGMENTS;
+        if (maximumWeight != -1) {
+            while (numberOfSegments > 1 && maximumWeight / numberOfSegments < MIN_SEGMENT_WEIGHT) {
+                numberOfSegments >>>= 1;
+            }
+        }
+        @SuppressWarnings("unchecked") Segment[] segments = (Segment[]) new TinyLfuCache.Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new Segment(maximumWeight == -1 ? -1 : maximumWeight / numberOfSegments);
+        }
+        return segments;
+    }
+
+    // the state of an entry with respect to the eviction policy
+    enum State {
+        NEW, LINKED, DELETED
+    }
+
+    // the region of the eviction policy an entry is linked into
+    enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    static final class Node<K, V> {
+        final K key;
+        final int hash;
+        final long writeTime;
+        // only set for entries computed by a loader, completed once the value is known
+        final CompletableFuture<V> loading;
+        volatile V value;
+        volatile long accessTime;
+
+        // the fields below are guarded by the lock of the segment owning this entry
+        long weight;
+        State state = State.NEW;
+        Region region;
+        RemovalNotification.RemovalReason removalReason;
+        Node<K, V> before;
+        Node<K, V> after;
+
+        Node(K key, int hash, V value, long now) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.loading = null;
+            this.writeTime = this.accessTime = now;
+        }
+
+        Node(K key, int hash, long now) {
+            this.key = key;
+            this.hash = hash;
+            this.loading = new CompletableFuture<>();
+            this.writeTime = this.accessTime = now;
+        }
+    }
+
+    /**
+     * An access-ordered doubly-linked list of entries, least recently used first.
+     */
+    static final class AccessOrder<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void linkLast(Node<K, V> node) {
+            node.before = tail;
+            node.after = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.after = node;
+            }
+            tail = node;
+        }
+
+        void unlink(Node<K, V> node) {
+            if (node.before == null) {
+                head = node.after;
+            } else {
+                node.before.after = node.after;
+            }
+            if (node.after == null) {
+                tail = node.before;
+            } else {
+                node.after.before = node.before;
+            }
+            node.before = node.after = null;
+        }
+
+        void moveToTail(Node<K, V> node) {
+            if (tail != node) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * A bounded, lossy, multiple-producer single-consumer buffer of reads. Producers are spread over stripes by thread so that
+     * concurrent readers rarely contend on the same counters; a read that hits a full or contended stripe is dropped.
+     */
+    static final class ReadBuffer<E> {
+
+        static final int STRIPE_SIZE = 16;
+        private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+        static final int NUMBER_OF_STRIPES = Math.min(16, 1 << -Integer.numberOfLeadingZeros(
+            Math.max(1, Runtime.getRuntime().availableProcessors()) - 1));
+
+        private final AtomicLong[] writeCounters = new AtomicLong[NUMBER_OF_STRIPES];
+        private final AtomicLong[] readCounters = new AtomicLong[NUMBER_OF_STRIPES];
+        private final AtomicReferenceArray<E>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        ReadBuffer() {
+            stripes = new AtomicReferenceArray[NUMBER_OF_STRIPES];
+            for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+                writeCounters[i] = new AtomicLong();
+                readCounters[i] = new AtomicLong();
+                stripes[i] = new AtomicReferenceArray<>(STRIPE_SIZE);
+            }
+        }
+
+        /**
+         * Records an element.
+         *
+         * @return true if the stripe the element was offered to is full and the buffer should be drained
+         */
+        boolean offer(E e) {
+            final int stripe = stripe();
+            final AtomicLong writeCounter = writeCounters[stripe];
+            final long head = readCounters[stripe].get();
+            final long tail = writeCounter.get();
+            final long size = tail - head;
+            if (size >= STRIPE_SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                stripes[stripe].lazySet((int) tail & STRIPE_MASK, e);
+                return size == STRIPE_SIZE - 1;
+            }
+            return false;
+        }
+
+        /**
+         * Drains all stripes into the consumer. Must only be called by a single thread at a time.
+         */
+        void drainTo(Consumer<E> consumer) {
+            for (int stripe = 0; stripe < NUMBER_OF_STRIPES; stripe++) {
+                final AtomicReferenceArray<E> buffer = stripes[stripe];
+                final AtomicLong readCounter = readCounters[stripe];
+                long head = readCounter.get();
+                final long tail = writeCounters[stripe].get();
+                while (head != tail) {
+                    final int index = (int) head & STRIPE_MASK;
+                    final E e = buffer.get(index);
+                    if (e == null) {
+                        // the producer has claimed the slot but not published into it yet
+                        break;
+                    }
+                    buffer.lazySet(index, null);
+                    consumer.accept(e);
+                    head++;
+                }
+                readCounter.lazySet(head);
+            }
+        }
+
+        private static int stripe() {
+            // thread ids are sequential, multiplying by the golden ratio spreads neighbouring ids across stripes
+            final int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+            return (h >>> 16) & (NUMBER_OF_STRIPES - 1);
+        }
+    }
+
+    /**
+     * A segment of the eviction policy. All fields except the buffer and the statistics are guarded by the segment lock.
+     */
+    private final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+        final FrequencySketch sketch = new FrequencySketch();
+
+        final AccessOrder<K, V> window = new AccessOrder<>();
+        final AccessOrder<K, V> probation = new AccessOrder<>();
+        final AccessOrder<K, V> protectedRegion = new AccessOrder<>();
+
+        final long maximumWeight;
+        final long windowMaximum;
+        final long protectedMaximum;
+
+        long windowWeight;
+        long protectedWeight;
+        long weight;
+        int count;
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        Segment(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            if (maximumWeight == -1) {
+                this.windowMaximum = Long.MAX_VALUE;
+                this.protectedMaximum = Long.MAX_VALUE;
+            } else {
+                this.windowMaximum = (long) (maximumWeight * WINDOW_PERCENTAGE);
+                this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_PERCENTAGE);
+            }
+        }
+
+        void drainReadBuffer() {
+            assert lock.isHeldByCurrentThread();
+            readBuffer.drainTo(this::onAccess);
+        }
+
+        private void onAccess(Node<K, V> node) {
+            if (node.state != State.LINKED) {
+                return;
+            }
+            sketch.increment(node.hash);
+            switch (node.region) {
+                case WINDOW:
+                    window.moveToTail(node);
+                    break;
+                case PROBATION:
+                    probation.unlink(node);
+                    protectedRegion.linkLast(node);
+                    node.region = Region.PROTECTED;
+                    protectedWeight += node.weight;
+                    demoteFromProtected();
+                    break;
+                case PROTECTED:
+                    protectedRegion.moveToTail(node);
+                    break;
+            }
+        }
+
+        private void demoteFromProtected() {
+            while (protectedWeight > protectedMaximum && protectedRegion.head != null) {
+                final Node<K, V> demoted = protectedRegion.head;
+                protectedRegion.unlink(demoted);
+                probation.linkLast(demoted);
+                demoted.region = Region.PROBATION;
+                protectedWeight -= demoted.weight;
+            }
+        }
+
+        void link(Node<K, V> node) {
+            assert lock.isHeldByCurrentThread();
+            if (node.state != State.NEW) {
+                // removed from the map before it could be linked
+                return;
+            }
+            node.weight = weigher.applyAsLong(node.key, node.value);
+            node.state = State.LINKED;
+            node.region = Region.WINDOW;
+            window.linkLast(node);
+            windowWeight += node.weight;
+            weight += node.weight;
+            count++;
+            if (count > sketch.capacity()) {
+                // growing the sketch discards its history, so if entries have a unit weight we size it for all the entries the
+                // segment can hold at once
+                sketch.ensureCapacity(weighted || maximumWeight == -1 ? 2L * count : maximumWeight);
+            }
+            sketch.increment(node.hash);
+        }
+
+        void unlink(Node<K, V> node) {
+            assert lock.isHeldByCurrentThread();
+            if (node.state == State.LINKED) {
+                switch (node.region) {
+                    case WINDOW:
+                        window.unlink(node);
+                        windowWeight -= node.weight;
+                        break;
+                    case PROBATION:
+                        probation.unlink(node);
+                        break;
+                    case PROTECTED:
+                        protectedRegion.unlink(node);
+                        protectedWeight -= node.weight;
+                        break;
+                }
+                weight -= node.weight;
+                count--;
+            }
+            node.state = State.DELETED;
+        }
+
+        /**
+         * Detaches an entry that the calling thread removed from the map, queueing a removal notification if it had a value.
+         */
+        void retire(Node<K, V> node, RemovalNotification.RemovalReason reason, List<RemovalNotification<K, V>> notifications) {
+            assert lock.isHeldByCurrentThread();
+            unlink(node);
+            final V value = node.value;
+            if (value == null) {
+                // still loading, the loader will notify once the value is known
+                node.removalReason = reason;
+            } else {
+                notifications.add(new RemovalNotification<>(node.key, value, reason));
+            }
+        }
+
+        /**
+         * Evicts an entry chosen by the policy.
+         */
+        void evict(Node<K, V> node, List<RemovalNotification<K, V>> notifications) {
+            if (map.remove(node.key, node)) {
+                evictions.increment();
+                retire(node, RemovalNotification.RemovalReason.EVICTED, notifications);
+            } else {
+                // lost a race against a concurrent removal, which will notify
+                unlink(node);
+            }
+        }
+
+        void maintain(long now, List<RemovalNotification<K, V>> notifications) {
+            assert lock.isHeldByCurrentThread();
+            drainReadBuffer();
+            if (entriesExpireAfterAccess || entriesExpireAfterWrite) {
+                expireHead(window, now, notifications);
+                expireHead(probation, now, notifications);
+                expireHead(protectedRegion, now, notifications);
+            }
+            if (maximumWeight != -1) {
+                evictFromMain(evictFromWindow(), notifications);
+            }
+        }
+
+        private void expireHead(AccessOrder<K, V> order, long now, List<RemovalNotification<K, V>> notifications) {
+            while (order.head != null && isExpired(order.head, now)) {
+                evict(order.head, notifications);
+            }
+        }
+
+        void expireAll(long now, List<RemovalNotification<K, V>> notifications) {
+            assert lock.isHeldByCurrentThread();
+            if (entriesExpireAfterAccess || entriesExpireAfterWrite) {
+                expireAll(window, now, notifications);
+                expireAll(probation, now, notifications);
+                expireAll(protectedRegion, now, notifications);
+            }
+        }
+
+        private void expireAll(AccessOrder<K, V> order, long now, List<RemovalNotification<K, V>> notifications) {
+            Node<K, V> node = order.head;
+            while (node != null) {
+                final Node<K, V> next = node.after;
+                if (isExpired(node, now)) {
+                    evict(node, notifications);
+                }
+                node = next;
+            }
+        }
+
+        // moves entries from the window into probation, returning the first of them
+        private Node<K, V> evictFromWindow() {
+            Node<K, V> first = null;
+            while (windowWeight > windowMaximum && window.head != null) {
+                final Node<K, V> node = window.head;
+                window.unlink(node);
+                probation.linkLast(node);
+                node.region = Region.PROBATION;
+                windowWeight -= node.weight;
+                if (first == null) {
+                    first = node;
+                }
+            }
+            return first;
+        }
+
+        // evicts from the main space, letting each candidate from the window compete against the probation victim
+        private void evictFromMain(Node<K, V> candidate, List<RemovalNotification<K, V>> notifications) {
+            Node<K, V> victim = probation.head;
+            while (weight > maximumWeight) {
+                if (victim == null && candidate == null) {
+                    // probation is exhausted, fall back to the protected region and then to the window
+                    final Node<K, V> node = protectedRegion.head != null ? protectedRegion.head : window.head;
+                    if (node == null) {
+                        break;
+                    }
+                    evict(node, notifications);
+                } else if (victim == null || victim == candidate) {
+                    final Node<K, V> next = candidate.after;
+                    evict(candidate, notifications);
+                    candidate = next;
+                    victim = victim == null ? null : next;
+                } else if (candidate == null) {
+                    final Node<K, V> next = victim.after;
+                    evict(victim, notifications);
+                    victim = next;
+                } else if (candidate.weight > maximumWeight || admit(candidate, victim) == false) {
+                    final Node<K, V> next = candidate.after;
+                    evict(candidate, notifications);
+                    candidate = next;
+                } else {
+                    final Node<K, V> next = victim.after;
+                    evict(victim, notifications);
+                    victim = next;
+                    candidate = candidate.after;
+                }
+            }
+        }
+
+        private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+            return sketch.frequency(candidate.hash) > sketch.frequency(victim.hash);
+        }
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or null if this map contains no mapping for the key
+     */
+    @Override
+    public V get(K key) {
+        final long now = now();
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        final Node<K, V> node = map.get(key);
+        if (node != null) {
+            V value = node.value;
+            if (value == null) {
+                try {
+                    value = awaitLoad(node);
+                } catch (ExecutionException e) {
+                    segment.misses.increment();
+                    return null;
+                }
+            }
+            if (isExpired(node, now) == false) {
+                onHit(segment, node, now);
+                return value;
+            }
+        }
+        segment.misses.increment();
+        return null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value, attempts to compute its value using the given mapping
+     * function and enters it into this map. The load method for a given key will be invoked at most once, and the lock of the
+     * policy segment is never held while it runs.
+     *
+     * @param key    the key whose associated value is to be returned or computed for if non-existent
+     * @param loader the function to compute a value given a key
+     * @return the current (existing or computed) non-null value associated with the specified key
+     * @throws ExecutionException thrown if loader throws an exception or returns a null value
+     */
+    @Override
+    public V computeIfAbsent(K key, CacheLoader<K, V> loader) throws ExecutionException {
+        final long now = now();
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        while (true) {
+            Node<K, V> node = map.get(key);
+            if (node == null) {
+                final Node<K, V> loading = new Node<>(key, hash, now);
+                node = map.putIfAbsent(key, loading);
+                if (node == null) {
+                    segment.misses.increment();
+                    return load(segment, loading, loader, now);
+                }
+            }
+            // a concurrent load is in flight: wait for it and share its result, including its failure
+            final V value = node.value == null ? awaitLoad(node) : node.value;
+            if (isExpired(node, now) == false) {
+                onHit(segment, node, now);
+                return value;
+            }
+            // we have to eagerly evict the expired entry or our putIfAbsent call above will never succeed
+            if (map.remove(key, node)) {
+                afterRemoval(segment, node, RemovalNotification.RemovalReason.EVICTED, now);
+            }
+        }
+    }
+
+    private V load(Segment segment, Node<K, V> node, CacheLoader<K, V> loader, long now) throws ExecutionException {
+        final V loaded;
+        try {
+            loaded = loader.load(node.key);
+        } catch (Exception e) {
+            map.remove(node.key, node);
+            node.loading.completeExceptionally(e);
+            throw new ExecutionException(e);
+        }
+        if (loaded == null) {
+            NullPointerException npe = new NullPointerException("loader returned a null value");
+            map.remove(node.key, node);
+            node.loading.completeExceptionally(npe);
+            throw new ExecutionException(npe);
+        }
+        final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+        segment.lock.lock();
+        try {
+            // the value is published under the segment lock so that it is visible to a concurrent retire
+            node.value = loaded;
+            if (node.state == State.DELETED) {
+                if (node.removalReason != null) {
+                    notifications.add(new RemovalNotification<>(node.key, loaded, node.removalReason));
+                }
+            } else {
+                segment.link(node);
+            }
+            segment.maintain(now, notifications);
+        } finally {
+            segment.lock.unlock();
+        }
+        node.loading.complete(loaded);
+        notifyRemovals(notifications);
+        return loaded;
+    }
+
+    private V awaitLoad(Node<K, V> node) throws ExecutionException {
+        try {
+            return node.loading.get();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void onHit(Segment segment, Node<K, V> node, long now) {
+        segment.hits.increment();
+        if (entriesExpireAfterAccess) {
+            node.accessTime = now;
+        }
+        if (segment.readBuffer.offer(node) && segment.lock.tryLock()) {
+            final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+            try {
+                segment.maintain(now, notifications);
+            } finally {
+                segment.lock.unlock();
+            }
+            notifyRemovals(notifications);
+        }
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If the map previously contained a mapping for
+     * the key, the old value is replaced.
+     *
+     * @param key   key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     */
+    @Override
+    public void put(K key, V value) {
+        final long now = now();
+        final int hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        final Node<K, V> node = new Node<>(key, hash, value, now);
+        final Node<K, V> existing = map.put(key, node);
+        final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+        segment.lock.lock();
+        try {
+            if (existing != null) {
+                segment.retire(existing, RemovalNotification.RemovalReason.REPLACED, notifications);
+            }
+            segment.link(node);
+            segment.maintain(now, notifications);
+        } finally {
+            segment.lock.unlock();
+        }
+        notifyRemovals(notifications);
+    }
+
+    /**
+     * Invalidate the association for the specified key. A removal notification will be issued for invalidated
+     * entries with {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
+     *
+     * @param key the key whose mapping is to be invalidated from the cache
+     */
+    @Override
+    public void invalidate(K key) {
+        final Node<K, V> node = map.remove(key);
+        if (node != null) {
+            final Segment segment = segmentFor(node.hash);
+            segment.evictions.increment();
+            afterRemoval(segment, node, RemovalNotification.RemovalReason.INVALIDATED, now());
+        }
+    }
+
+    /**
+     * Invalidate the entry for the specified key and value. If the value provided is not equal to the value in
+     * the cache, no removal will occur. A removal notification will be issued for invalidated
+     * entries with {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
+     *
+     * @param key the key whose mapping is to be invalidated from the cache
+     * @param value the expected value that should be associated with the key
+     */
+    @Override
+    public void invalidate(K key, V value) {
+        final Node<K, V> node = map.get(key);
+        if (node != null) {
+            invalidate(node, value);
+        }
+    }
+
+    private void invalidate(Node<K, V> node, V expectedValue) {
+        final V value = node.value;
+        if (value != null && Objects.equals(expectedValue, value) && map.remove(node.key, node)) {
+            final Segment segment = segmentFor(node.hash);
+            segment.evictions.increment();
+            afterRemoval(segment, node, RemovalNotification.RemovalReason.INVALIDATED, now());
+        }
+    }
+
+    private void afterRemoval(Segment segment, Node<K, V> node, RemovalNotification.RemovalReason reason, long now) {
+        final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+        segment.lock.lock();
+        try {
+            segment.retire(node, reason, notifications);
+            segment.maintain(now, notifications);
+        } finally {
+            segment.lock.unlock();
+        }
+        notifyRemovals(notifications);
+    }
+
+    /**
+     * Invalidate all cache entries. A removal notification will be issued for invalidated entries with
+     * {@link org.elasticsearch.common.cache.RemovalNotification.RemovalReason} INVALIDATED.
+     */
+    @Override
+    public void invalidateAll() {
+        final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.drainReadBuffer();
+                invalidateAll(segment, segment.window, notifications);
+                invalidateAll(segment, segment.probation, notifications);
+                invalidateAll(segment, segment.protectedRegion, notifications);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        // entries that are being loaded or whose insertion raced with the above are not linked yet
+        for (Node<K, V> node : map.values()) {
+            if (map.remove(node.key, node)) {
+                final Segment segment = segmentFor(node.hash);
+                segment.lock.lock();
+                try {
+                    segment.retire(node, RemovalNotification.RemovalReason.INVALIDATED, notifications);
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+        }
+        notifyRemovals(notifications);
+    }
+
+    private void invalidateAll(Segment segment, AccessOrder<K, V> order, List<RemovalNotification<K, V>> notifications) {
+        Node<K, V> node = order.head;
+        while (node != null) {
+            final Node<K, V> next = node.after;
+            if (map.remove(node.key, node)) {
+                segment.retire(node, RemovalNotification.RemovalReason.INVALIDATED, notifications);
+            } else {
+                segment.unlink(node);
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Force any outstanding size-based and time-based evictions to occur
+     */
+    @Override
+    public void refresh() {
+        final long now = now();
+        final List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.drainReadBuffer();
+                segment.expireAll(now, notifications);
+                segment.maintain(now, notifications);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        notifyRemovals(notifications);
+    }
+
+    /**
+     * The number of entries in the cache.
+     *
+     * @return the number of entries in the cache
+     */
+    @Override
+    public int count() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    /**
+     * The weight of the entries in the cache.
+     *
+     * @return the weight of the entries in the cache
+     */
+    @Override
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+
+    /**
+     * A weakly consistent sequencing of the keys in the cache that supports removal. Unlike {@link Cache#keys()} the order of
+     * the keys is unspecified.
+     *
+     * @return an {@link Iterable} over the keys in the cache
+     */
+    @Override
+    public Iterable<K> keys() {
+        return () -> new CacheIterator<>((key, value) -> key);
+    }
+
+    /**
+     * A weakly consistent sequencing of the values in the cache that supports removal. Unlike {@link Cache#values()} the order
+     * of the values is unspecified.
+     *
+     * @return an {@link Iterable} over the values in the cache
+     */
+    @Override
+    public Iterable<V> values() {
+        return () -> new CacheIterator<>((key, value) -> value);
+    }
+
+    private class CacheIterator<T> implements Iterator<T> {
+        private final Iterator<Node<K, V>> iterator = map.values().iterator();
+        private final BiFunction<K, V, T> mapper;
+        private Node<K, V> current;
+        private V currentValue;
+        private Node<K, V> next;
+        private V nextValue;
+
+        CacheIterator(BiFunction<K, V, T> mapper) {
+            this.mapper = mapper;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (iterator.hasNext()) {
+                final Node<K, V> node = iterator.next();
+                final V value = node.value;
+                if (value != null) {
+                    next = node;
+                    nextValue = value;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            currentValue = nextValue;
+            advance();
+            return mapper.apply(current.key, currentValue);
+        }
+
+        @Override
+        public void remove() {
+            if (current != null) {
+                invalidate(current, currentValue);
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * The cache statistics tracking hits, misses and evictions. These are taken on a best-effort basis meaning that
+     * they could be out-of-date mid-flight.
+     *
+     * @return the current cache statistics
+     */
+    @Override
+    public CacheStats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        for (Segment segment : segments) {
+            hits += segment.hits.longValue();
+            misses += segment.misses.longValue();
+            evictions += segment.evictions.longValue();
+        }
+        return new CacheStats(hits, misses, evictions);
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (entriesExpireAfterAccess && now - node.accessTime > expireAfterAccessNanos) ||
+            (entriesExpireAfterWrite && now - node.writeTime > expireAfterWriteNanos);
+    }
+
+    private void notifyRemovals(List<RemovalNotification<K, V>> notifications) {
+        for (RemovalNotification<K, V> notification : notifications) {
+            removalListener.onRemoval(notification);
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static int hash(Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
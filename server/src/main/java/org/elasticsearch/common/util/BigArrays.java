@@ -369,7 +369,9 @@ public class BigArrays implements Releasable {
     final PageCacheRecycler recycler;
     final CircuitBreakerService breakerService;
     final boolean checkBreaker;
+    final boolean offHeap;
     private final BigArrays circuitBreakingInstance;
+    private final BigArrays offHeapInstance;
 
     public BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService) {
         // Checking the breaker is disabled if not specified
@@ -378,13 +380,25 @@ public class BigArrays implements Releasable {
 
     // public for tests
     public BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, boolean checkBreaker) {
+        this(recycler, breakerService, checkBreaker, false);
+    }
+
+    protected BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, boolean checkBreaker,
+                        boolean offHeap) {
         this.checkBreaker = checkBreaker;
         this.recycler = recycler;
         this.breakerService = breakerService;
+        // off-heap pages can only be provided by a recycler that has them enabled
+        this.offHeap = offHeap && recycler != null && recycler.offHeapPages();
         if (checkBreaker) {
             this.circuitBreakingInstance = this;
         } else {
-            this.circuitBreakingInstance = new BigArrays(recycler, breakerService, true);
+            this.circuitBreakingInstance = new BigArrays(recycler, breakerService, true, this.offHeap);
+        }
+        if (this.offHeap || recycler == null || recycler.offHeapPages() == false) {
+            this.offHeapInstance = this;
+        } else {
+            this.offHeapInstance = new BigArrays(recycler, breakerService, checkBreaker, true);
         }
     }
 
@@ -433,6 +447,15 @@ public class BigArrays implements Releasable {
         return this.circuitBreakingInstance;
     }
 
+    /**
+     * Return an instance of this BigArrays class that stores the pages of byte, int, long and double arrays in direct buffers
+     * instead of on the heap, or this instance if the page recycler does not have off-heap pages enabled. Off-heap arrays are
+     * accounted for in the circuit breaker the same way as heap arrays.
+     */
+    public BigArrays withOffHeapPages() {
+        return this.offHeapInstance;
+    }
+
     public CircuitBreakerService breakerService() {
         return this.circuitBreakingInstance.breakerService;
     }
@@ -468,7 +491,11 @@ public class BigArrays implements Releasable {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public ByteArray newByteArray(long size, boolean clearOnResize) {
-        if (size > BYTE_PAGE_SIZE) {
+        if (offHeap && size >= BYTE_PAGE_SIZE / 2) {
+            // off-heap arrays are always paged, check with the circuit breaker before allocating like for big arrays
+            adjustBreaker(DirectBigByteArray.estimateRamBytes(size), false);
+            return new DirectBigByteArray(size, this, clearOnResize);
+        } else if (size > BYTE_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigByteArray.estimateRamBytes(size), false);
@@ -493,6 +520,8 @@ public class BigArrays implements Releasable {
     public ByteArray resize(ByteArray array, long size) {
         if (array instanceof BigByteArray) {
             return resizeInPlace((BigByteArray) array, size);
+        } else if (array instanceof DirectBigByteArray) {
+            return resizeInPlace((DirectBigByteArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final ByteArray newArray = newByteArray(size, arr.clearOnResize);
@@ -551,7 +580,11 @@ public class BigArrays implements Releasable {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public IntArray newIntArray(long size, boolean clearOnResize) {
-        if (size > INT_PAGE_SIZE) {
+        if (offHeap && size >= INT_PAGE_SIZE / 2) {
+            // off-heap arrays are always paged, check with the circuit breaker before allocating like for big arrays
+            adjustBreaker(DirectBigIntArray.estimateRamBytes(size), false);
+            return new DirectBigIntArray(size, this, clearOnResize);
+        } else if (size > INT_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigIntArray.estimateRamBytes(size), false);
@@ -576,6 +609,8 @@ public class BigArrays implements Releasable {
     public IntArray resize(IntArray array, long size) {
         if (array instanceof BigIntArray) {
             return resizeInPlace((BigIntArray) array, size);
+        } else if (array instanceof DirectBigIntArray) {
+            return resizeInPlace((DirectBigIntArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final IntArray newArray = newIntArray(size, arr.clearOnResize);
@@ -602,7 +637,11 @@ public class BigArrays implements Releasable {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public LongArray newLongArray(long size, boolean clearOnResize) {
-        if (size > LONG_PAGE_SIZE) {
+        if (offHeap && size >= LONG_PAGE_SIZE / 2) {
+            // off-heap arrays are always paged, check with the circuit breaker before allocating like for big arrays
+            adjustBreaker(DirectBigLongArray.estimateRamBytes(size), false);
+            return new DirectBigLongArray(size, this, clearOnResize);
+        } else if (size > LONG_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigLongArray.estimateRamBytes(size), false);
@@ -627,6 +666,8 @@ public class BigArrays implements Releasable {
     public LongArray resize(LongArray array, long size) {
         if (array instanceof BigLongArray) {
             return resizeInPlace((BigLongArray) array, size);
+        } else if (array instanceof DirectBigLongArray) {
+            return resizeInPlace((DirectBigLongArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -653,7 +694,11 @@ public class BigArrays implements Releasable {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public DoubleArray newDoubleArray(long size, boolean clearOnResize) {
-        if (size > LONG_PAGE_SIZE) {
+        if (offHeap && size >= LONG_PAGE_SIZE / 2) {
+            // off-heap arrays are always paged, check with the circuit breaker before allocating like for big arrays
+            adjustBreaker(DirectBigDoubleArray.estimateRamBytes(size), false);
+            return new DirectBigDoubleArray(size, this, clearOnResize);
+        } else if (size > LONG_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigDoubleArray.estimateRamBytes(size), false);
@@ -675,6 +720,8 @@ public class BigArrays implements Releasable {
     public DoubleArray resize(DoubleArray array, long size) {
         if (array instanceof BigDoubleArray) {
             return resizeInPlace((BigDoubleArray) array, size);
+        } else if (array instanceof DirectBigDoubleArray) {
+            return resizeInPlace((DirectBigDoubleArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
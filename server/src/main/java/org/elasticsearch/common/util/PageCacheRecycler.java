@@ -30,6 +30,8 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Locale;
 
@@ -54,15 +56,22 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
     // object pages are less useful to us so we give them a lower weight by default
     public static final Setting<Double> WEIGHT_OBJECTS_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.objects", 0.1d, 0d, Property.NodeScope);
+    // whether the arrays of search requests may store their pages in direct buffers, see BigArrays#withOffHeapPages
+    public static final Setting<Boolean> OFF_HEAP_SETTING =
+        Setting.boolSetting("cache.recycler.page.off_heap", false, Property.NodeScope);
+    public static final Setting<ByteSizeValue> LIMIT_OFF_HEAP_SETTING  =
+        Setting.memorySizeSetting("cache.recycler.page.limit.off_heap", "10%", Property.NodeScope);
 
     private final Recycler<byte[]> bytePage;
     private final Recycler<int[]> intPage;
     private final Recycler<long[]> longPage;
     private final Recycler<Object[]> objectPage;
+    // null unless off-heap pages are enabled
+    private final Recycler<ByteBuffer> directPage;
 
     @Override
     public void close() {
-        Releasables.close(true, bytePage, intPage, longPage, objectPage);
+        Releasables.close(true, bytePage, intPage, longPage, objectPage, directPage);
     }
 
     public PageCacheRecycler(Settings settings) {
@@ -141,6 +150,35 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
         });
 
         assert BigArrays.PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount) <= limit;
+
+        // Direct pages are not tied to an element type so they share a single queue that has its own limit since
+        // they are not taken from the heap. Pages that do not fit in the queue are freed right away rather than by
+        // the garbage collector, so that direct memory does not grow beyond the limit when pages are churned.
+        if (OFF_HEAP_SETTING.get(settings)) {
+            final long offHeapLimit = LIMIT_OFF_HEAP_SETTING.get(settings).getBytes();
+            final int maxDirectPageCount = (int) Math.min(Integer.MAX_VALUE, offHeapLimit / BigArrays.PAGE_SIZE_IN_BYTES);
+            directPage = build(type, maxDirectPageCount, availableProcessors, new AbstractRecyclerC<ByteBuffer>() {
+                @Override
+                public ByteBuffer newInstance(int sizing) {
+                    return ByteBuffer.allocateDirect(BigArrays.PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+                }
+                @Override
+                public void recycle(ByteBuffer value) {
+                    // nothing to do
+                }
+                @Override
+                public void destroy(ByteBuffer value) {
+                    ByteBufferCleaner.clean(value);
+                }
+            });
+        } else {
+            directPage = null;
+        }
+    }
+
+    /** Whether this recycler can provide pages that are stored outside of the heap, see {@link #directPage(boolean)}. */
+    public boolean offHeapPages() {
+        return directPage != null;
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -172,6 +210,25 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
         return objectPage.obtain();
     }
 
+    /**
+     * Obtain a direct {@link ByteBuffer} of {@link BigArrays#PAGE_SIZE_IN_BYTES} bytes in native byte order.
+     *
+     * @throws IllegalStateException if off-heap pages are not enabled
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        if (directPage == null) {
+            throw new IllegalStateException("off-heap pages are disabled, see [" + OFF_HEAP_SETTING.getKey() + "]");
+        }
+        final Recycler.V<ByteBuffer> v = directPage.obtain();
+        if (v.isRecycled() && clear) {
+            final ByteBuffer page = v.v();
+            for (int i = 0; i < BigArrays.PAGE_SIZE_IN_BYTES; i += Long.BYTES) {
+                page.putLong(i, 0L);
+            }
+        }
+        return v;
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
@@ -102,6 +102,10 @@ public final class IndexModule {
     public static final Setting<Boolean> INDEX_QUERY_CACHE_ENABLED_SETTING =
             Setting.boolSetting("index.queries.cache.enabled", true, Property.IndexScope);
 
+    // whether the query cache admits filters based on how expensive they are to compute rather than only on how often they are used
+    public static final Setting<Boolean> INDEX_QUERY_CACHE_COST_AWARE_SETTING =
+            Setting.boolSetting("index.queries.cache.cost_aware", false, Property.IndexScope);
+
     // for test purposes only
     public static final Setting<Boolean> INDEX_QUERY_CACHE_EVERYTHING_SETTING =
         Setting.boolSetting("index.queries.cache.everything", false, Property.IndexScope);
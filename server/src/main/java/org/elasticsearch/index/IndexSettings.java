@@ -66,9 +66,39 @@ public final class IndexSettings {
     public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER =
         Setting.timeSetting("index.search.idle.after", TimeValue.timeValueSeconds(30),
             TimeValue.timeValueMinutes(0), Property.IndexScope, Property.Dynamic);
+    /**
+     * The maximum number of slices of segments that the query phase of a shard searches concurrently on the
+     * {@link org.elasticsearch.threadpool.ThreadPool.Names#SEARCH_WORKER search_worker} thread pool.
+     */
+    public static final Setting<Integer> INDEX_SEARCH_CONCURRENCY_SETTING =
+        Setting.intSetting("index.search.concurrency", 1, 1, 64, Property.Dynamic, Property.IndexScope);
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         new Setting<>("index.translog.durability", Translog.Durability.REQUEST.name(),
             (value) -> Translog.Durability.valueOf(value.toUpperCase(Locale.ROOT)), Property.Dynamic, Property.IndexScope);
+    /**
+     * The maximum time that a request waits before fsyncing the translog so that concurrent requests can share the same fsync.
+     * The actual wait adapts to the fsync latency and to the concurrency of writes, {@code 0} disables waiting.
+     */
+    public static final Setting<TimeValue> INDEX_TRANSLOG_GROUP_COMMIT_MAX_LINGER_SETTING =
+        Setting.timeSetting("index.translog.group_commit.max_linger", TimeValue.ZERO, TimeValue.ZERO,
+            Property.Dynamic, Property.IndexScope);
+    /**
+     * Whether snapshots of immutable translog generations, as used by peer recovery and the changes API, read operations from a
+     * memory mapping of the generation file rather than through positional reads on its file channel.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_MMAP_SETTING =
+        Setting.boolSetting("index.translog.mmap", false, Property.Dynamic, Property.IndexScope);
+    /**
+     * The number of threads that replay translog operations when a shard recovers from its local store. Operations are partitioned
+     * by document id so that the operations on a given document are still applied in translog order.
+     */
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_THREADS_SETTING =
+        Setting.intSetting("index.translog.recovery.threads", 1, 1, 32, Property.Dynamic, Property.IndexScope);
+    /**
+     * The number of threads that parse the documents of a bulk shard request on the primary before they are indexed in order.
+     */
+    public static final Setting<Integer> INDEX_BULK_PARSE_PARALLELISM_SETTING =
+        Setting.intSetting("index.bulk.parse_parallelism", 1, 1, 32, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING =
         Setting.boolSetting("index.warmer.enabled", true, Property.Dynamic, Property.IndexScope);
     public static final Setting<String> INDEX_CHECK_ON_STARTUP = new Setting<>("index.shard.check_on_startup", "false", (s) -> {
@@ -298,6 +328,10 @@ public final class IndexSettings {
     private final boolean queryStringAllowLeadingWildcard;
     private final boolean defaultAllowUnmappedFields;
     private volatile Translog.Durability durability;
+    private volatile TimeValue translogGroupCommitMaxLinger;
+    private volatile boolean translogMmap;
+    private volatile int translogRecoveryThreads;
+    private volatile int bulkParseParallelism;
     private final TimeValue syncInterval;
     private volatile TimeValue refreshInterval;
     private volatile ByteSizeValue flushThresholdSize;
@@ -322,6 +356,7 @@ public final class IndexSettings {
     private volatile int maxNgramDiff;
     private volatile int maxShingleDiff;
     private volatile TimeValue searchIdleAfter;
+    private volatile int searchConcurrency;
     private volatile int maxAnalyzedOffset;
     private volatile int maxTermsCount;
     private volatile String defaultPipeline;
@@ -415,6 +450,10 @@ public final class IndexSettings {
         this.queryStringAllowLeadingWildcard = QUERY_STRING_ALLOW_LEADING_WILDCARD.get(nodeSettings);
         this.defaultAllowUnmappedFields = scopedSettings.get(ALLOW_UNMAPPED);
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
+        translogGroupCommitMaxLinger = scopedSettings.get(INDEX_TRANSLOG_GROUP_COMMIT_MAX_LINGER_SETTING);
+        translogMmap = scopedSettings.get(INDEX_TRANSLOG_MMAP_SETTING);
+        translogRecoveryThreads = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_THREADS_SETTING);
+        bulkParseParallelism = scopedSettings.get(INDEX_BULK_PARSE_PARALLELISM_SETTING);
         defaultFields = scopedSettings.get(DEFAULT_FIELD_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
@@ -444,6 +483,7 @@ public final class IndexSettings {
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
         this.indexSortConfig = new IndexSortConfig(this);
         searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER);
+        searchConcurrency = scopedSettings.get(INDEX_SEARCH_CONCURRENCY_SETTING);
         defaultPipeline = scopedSettings.get(DEFAULT_PIPELINE);
 
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING, mergePolicyConfig::setNoCFSRatio);
@@ -459,6 +499,11 @@ public final class IndexSettings {
             mergeSchedulerConfig::setMaxThreadAndMergeCount);
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.AUTO_THROTTLE_SETTING, mergeSchedulerConfig::setAutoThrottle);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DURABILITY_SETTING, this::setTranslogDurability);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_GROUP_COMMIT_MAX_LINGER_SETTING,
+            this::setTranslogGroupCommitMaxLinger);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_MMAP_SETTING, this::setTranslogMmap);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_RECOVERY_THREADS_SETTING, this::setTranslogRecoveryThreads);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_BULK_PARSE_PARALLELISM_SETTING, this::setBulkParseParallelism);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
         scopedSettings.addSettingsUpdateConsumer(MAX_INNER_RESULT_WINDOW_SETTING, this::setMaxInnerResultWindow);
         scopedSettings.addSettingsUpdateConsumer(MAX_ADJACENCY_MATRIX_FILTERS_SETTING, this::setMaxAdjacencyMatrixFilters);
@@ -483,6 +528,7 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MAX_SLICES_PER_SCROLL, this::setMaxSlicesPerScroll);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_FIELD_SETTING, this::setDefaultFields);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER, this::setSearchIdleAfter);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_CONCURRENCY_SETTING, this::setSearchConcurrency);
         scopedSettings.addSettingsUpdateConsumer(MAX_REGEX_LENGTH_SETTING, this::setMaxRegexLength);
         scopedSettings.addSettingsUpdateConsumer(DEFAULT_PIPELINE, this::setDefaultPipeline);
         scopedSettings.addSettingsUpdateConsumer(INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING, this::setSoftDeleteRetentionOperations);
@@ -491,6 +537,8 @@ public final class IndexSettings {
 
     private void setSearchIdleAfter(TimeValue searchIdleAfter) { this.searchIdleAfter = searchIdleAfter; }
 
+    private void setSearchConcurrency(int searchConcurrency) { this.searchConcurrency = searchConcurrency; }
+
     private void setTranslogFlushThresholdSize(ByteSizeValue byteSizeValue) {
         this.flushThresholdSize = byteSizeValue;
     }
@@ -637,6 +685,50 @@ public final class IndexSettings {
         this.durability = durability;
     }
 
+    /**
+     * Returns the maximum time that a request waits for concurrent requests before fsyncing the translog.
+     */
+    public TimeValue getTranslogGroupCommitMaxLinger() {
+        return translogGroupCommitMaxLinger;
+    }
+
+    private void setTranslogGroupCommitMaxLinger(TimeValue translogGroupCommitMaxLinger) {
+        this.translogGroupCommitMaxLinger = translogGroupCommitMaxLinger;
+    }
+
+    /**
+     * Returns <code>true</code> if snapshots of immutable translog generations read operations from a memory mapping of the file.
+     */
+    public boolean isTranslogMmap() {
+        return translogMmap;
+    }
+
+    private void setTranslogMmap(boolean translogMmap) {
+        this.translogMmap = translogMmap;
+    }
+
+    /**
+     * Returns the number of threads that replay translog operations when recovering from the local store.
+     */
+    public int getTranslogRecoveryThreads() {
+        return translogRecoveryThreads;
+    }
+
+    private void setTranslogRecoveryThreads(int translogRecoveryThreads) {
+        this.translogRecoveryThreads = translogRecoveryThreads;
+    }
+
+    /**
+     * Returns the number of threads that parse the documents of a bulk shard request on the primary.
+     */
+    public int getBulkParseParallelism() {
+        return bulkParseParallelism;
+    }
+
+    private void setBulkParseParallelism(int bulkParseParallelism) {
+        this.bulkParseParallelism = bulkParseParallelism;
+    }
+
     /**
      * Returns true if index warmers are enabled, otherwise <code>false</code>
      */
@@ -874,6 +966,11 @@ public final class IndexSettings {
      */
     public TimeValue getSearchIdleAfter() { return searchIdleAfter; }
 
+    /**
+     * Returns the maximum number of slices of segments that the query phase of a shard searches concurrently
+     */
+    public int getSearchConcurrency() { return searchConcurrency; }
+
     public String getDefaultPipeline() {
         return defaultPipeline;
     }
@@ -0,0 +1,233 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.Matches;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link UsageTrackingQueryCachingPolicy} that also takes into account how expensive filters are to compute. Filters that are
+ * wrapped with {@link #trackCost(Weight)} are occasionally evaluated eagerly on a segment, the same way as the query cache would
+ * do it, in order to record how long it takes to compute their matching documents and how much memory caching them would take.
+ * Filters that save a lot of time per cached byte are then cached as soon as they are reused, while filters that are cheap to
+ * compute need to be used more often than the usage tracking policy requires before they get cached. The cheapest filters get
+ * cached once they made up all of the {@link #HISTORY_SIZE} most recent uses of filters.
+ */
+public class CostAwareQueryCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+    /**
+     * The time that the recent uses of a filter must have spent computing its matching documents, per byte that caching them
+     * takes, for the filter to be cached.
+     */
+    static final double MIN_SAVED_NANOS_PER_BYTE = 16;
+
+    /**
+     * The number of recent uses of filters that the parent policy remembers, which bounds the frequency that a filter can reach.
+     */
+    static final int HISTORY_SIZE = 256;
+    // the number of filters whose cost is tracked, at most one per recent use of the parent policy
+    private static final int MAX_TRACKED_FILTERS = HISTORY_SIZE;
+    // the number of first uses of a filter that are sampled, then only one use out of SAMPLING_INTERVAL is sampled
+    private static final int MIN_SAMPLES = 4;
+    private static final int SAMPLING_INTERVAL = 64;
+
+    private final Map<Query, FilterCost> costs = new LinkedHashMap<Query, FilterCost>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Query, FilterCost> eldest) {
+            return size() > MAX_TRACKED_FILTERS;
+        }
+    };
+
+    public CostAwareQueryCachingPolicy() {
+        super(HISTORY_SIZE);
+    }
+
+    @Override
+    protected int minFrequencyToCache(Query query) {
+        final int minFrequency = super.minFrequencyToCache(query);
+        final double nanosPerByte = nanosPerByte(query);
+        if (nanosPerByte < 0) {
+            // not sampled yet
+            return minFrequency;
+        }
+        // a filter is never cached on its first use, and a frequency above the size of the history could never be reached
+        return (int) Math.max(2, Math.min(HISTORY_SIZE, Math.ceil(MIN_SAVED_NANOS_PER_BYTE / nanosPerByte)));
+    }
+
+    /**
+     * Returns the average time that it took to compute the matching documents of the given filter, per byte of the doc id sets
+     * that hold them, or {@code -1} if the filter has not been sampled yet.
+     */
+    synchronized double nanosPerByte(Query query) {
+        final FilterCost cost = costs.get(query);
+        if (cost == null || cost.samples == 0) {
+            return -1;
+        }
+        return (double) cost.nanos / Math.max(1, cost.bytes);
+    }
+
+    synchronized void recordCost(Query query, long nanos, long bytes) {
+        final FilterCost cost = costs.computeIfAbsent(query, q -> new FilterCost());
+        cost.samples++;
+        cost.nanos += nanos;
+        cost.bytes += bytes;
+    }
+
+    private synchronized boolean shouldSample(Query query) {
+        final FilterCost cost = costs.computeIfAbsent(query, q -> new FilterCost());
+        return cost.samples < MIN_SAMPLES || cost.uses++ % SAMPLING_INTERVAL == 0;
+    }
+
+    /**
+     * Wrap the given weight, which is about to be passed to the query cache, so that the cost of the filter is recorded on some
+     * of the segments where it is not cached.
+     */
+    public Weight trackCost(Weight weight) {
+        if (weight instanceof CostTrackingWeight) {
+            return weight;
+        }
+        return new CostTrackingWeight(weight);
+    }
+
+    private static class FilterCost {
+        long uses;
+        long samples;
+        long nanos;
+        long bytes;
+    }
+
+    private class CostTrackingWeight extends Weight {
+
+        private final Weight in;
+
+        CostTrackingWeight(Weight in) {
+            super(in.getQuery());
+            this.in = in;
+        }
+
+        @Override
+        public void extractTerms(Set<Term> terms) {
+            in.extractTerms(terms);
+        }
+
+        @Override
+        public Matches matches(LeafReaderContext context, int doc) throws IOException {
+            return in.matches(context, doc);
+        }
+
+        @Override
+        public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+            return in.explain(context, doc);
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            final ScorerSupplier scorerSupplier = scorerSupplier(context);
+            if (scorerSupplier == null) {
+                return null;
+            }
+            return scorerSupplier.get(Long.MAX_VALUE);
+        }
+
+        @Override
+        public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+            final ScorerSupplier supplier = in.scorerSupplier(context);
+            if (supplier == null || shouldSample(getQuery()) == false) {
+                return supplier;
+            }
+            return new ScorerSupplier() {
+                @Override
+                public Scorer get(long leadCost) throws IOException {
+                    return sampleCost(supplier, context);
+                }
+
+                @Override
+                public long cost() {
+                    return supplier.cost();
+                }
+            };
+        }
+
+        @Override
+        public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+            if (shouldSample(getQuery()) == false) {
+                return in.bulkScorer(context);
+            }
+            final ScorerSupplier supplier = in.scorerSupplier(context);
+            if (supplier == null) {
+                return null;
+            }
+            return new DefaultBulkScorer(sampleCost(supplier, context));
+        }
+
+        /**
+         * Compute the matching documents of the filter on the given segment and record how long it took.
+         */
+        private Scorer sampleCost(ScorerSupplier supplier, LeafReaderContext context) throws IOException {
+            final long start = System.nanoTime();
+            final DocIdSet docIdSet = computeDocIdSet(supplier.get(Long.MAX_VALUE), context.reader().maxDoc());
+            recordCost(getQuery(), System.nanoTime() - start, docIdSet.ramBytesUsed());
+            final DocIdSetIterator iterator = docIdSet.iterator();
+            return new ConstantScoreScorer(this, 0f, ScoreMode.COMPLETE_NO_SCORES, iterator == null ? DocIdSetIterator.empty() : iterator);
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+            return in.isCacheable(ctx);
+        }
+    }
+
+    /**
+     * Collect the matching documents of the given scorer into a doc id set, using the same representations as the query cache.
+     */
+    static DocIdSet computeDocIdSet(Scorer scorer, int maxDoc) throws IOException {
+        final DocIdSetIterator iterator = scorer.iterator();
+        if (iterator.cost() * 100 >= maxDoc) {
+            final FixedBitSet bits = new FixedBitSet(maxDoc);
+            bits.or(iterator);
+            return new BitDocIdSet(bits);
+        } else {
+            final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                builder.add(doc);
+            }
+            return builder.build();
+        }
+    }
+}
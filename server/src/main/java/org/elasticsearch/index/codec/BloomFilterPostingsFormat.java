@@ -0,0 +1,373 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.NormsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.elasticsearch.common.hash.MurmurHash3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link PostingsFormat} that writes postings with the default Lucene format, and that also writes a Bloom filter of the terms
+ * of every field of the segment, on flush and on merge. {@link TermsEnum#seekExact(BytesRef)} consults the filter before it
+ * seeks the terms dictionary, so that term lookups skip most segments that do not contain the term without touching the
+ * terms index.
+ */
+public final class BloomFilterPostingsFormat extends PostingsFormat {
+
+    public static final String NAME = "ESBloomFilter";
+
+    static final String BLOOM_EXTENSION = "blm";
+    static final String CODEC_NAME = "ESBloomFilter";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    private final PostingsFormat delegate = new Lucene50PostingsFormat();
+    private final ToDoubleFunction<String> falsePositiveProbabilities;
+
+    /**
+     * Constructor used by SPI in order to read segments. Segments that it writes do not have filters.
+     */
+    public BloomFilterPostingsFormat() {
+        this(field -> 0);
+    }
+
+    /**
+     * @param falsePositiveProbabilities the false positive probability of the filter of a field, no filter is written for a field
+     *                                   if it returns a value that is not strictly between {@code 0} and {@code 1}
+     */
+    public BloomFilterPostingsFormat(ToDoubleFunction<String> falsePositiveProbabilities) {
+        super(NAME);
+        this.falsePositiveProbabilities = falsePositiveProbabilities;
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new BloomFilterFieldsConsumer(delegate.fieldsConsumer(state), state, falsePositiveProbabilities);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        final FieldsProducer in = delegate.fieldsProducer(state);
+        boolean success = false;
+        try {
+            final Map<String, BloomFilter> filters = readFilters(state);
+            success = true;
+            return new BloomFilterFieldsProducer(in, filters);
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(in);
+            }
+        }
+    }
+
+    private static Map<String, BloomFilter> readFilters(SegmentReadState state) throws IOException {
+        final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+        final Map<String, BloomFilter> filters = new HashMap<>();
+        try (ChecksumIndexInput in = state.directory.openChecksumInput(fileName, state.context)) {
+            CodecUtil.checkIndexHeader(in, CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+            final int numFields = in.readVInt();
+            for (int i = 0; i < numFields; i++) {
+                final String field = in.readString();
+                final int numHashFunctions = in.readVInt();
+                final long[] bits = new long[in.readVInt()];
+                for (int j = 0; j < bits.length; j++) {
+                    bits[j] = in.readLong();
+                }
+                filters.put(field, new BloomFilter(bits, numHashFunctions));
+            }
+            CodecUtil.checkFooter(in);
+        }
+        return filters;
+    }
+
+    private static class BloomFilterFieldsConsumer extends FieldsConsumer {
+
+        private final FieldsConsumer in;
+        private final SegmentWriteState state;
+        private final ToDoubleFunction<String> falsePositiveProbabilities;
+
+        BloomFilterFieldsConsumer(FieldsConsumer in, SegmentWriteState state, ToDoubleFunction<String> falsePositiveProbabilities) {
+            this.in = in;
+            this.state = state;
+            this.falsePositiveProbabilities = falsePositiveProbabilities;
+        }
+
+        @Override
+        public void write(Fields fields, NormsProducer norms) throws IOException {
+            in.write(fields, norms);
+            final List<String> fieldNames = new ArrayList<>();
+            final List<BloomFilter> filters = new ArrayList<>();
+            for (String field : fields) {
+                final Terms terms = fields.terms(field);
+                final double fpp = falsePositiveProbabilities.applyAsDouble(field);
+                if (terms == null || fpp <= 0 || fpp >= 1) {
+                    continue;
+                }
+                fieldNames.add(field);
+                filters.add(buildFilter(terms, fpp));
+            }
+            final String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+            try (IndexOutput out = state.directory.createOutput(fileName, state.context)) {
+                CodecUtil.writeIndexHeader(out, CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                out.writeVInt(fieldNames.size());
+                for (int i = 0; i < fieldNames.size(); i++) {
+                    final BloomFilter filter = filters.get(i);
+                    out.writeString(fieldNames.get(i));
+                    out.writeVInt(filter.numHashFunctions);
+                    out.writeVInt(filter.bits.length);
+                    for (long bits : filter.bits) {
+                        out.writeLong(bits);
+                    }
+                }
+                CodecUtil.writeFooter(out);
+            }
+        }
+
+        private static BloomFilter buildFilter(Terms terms, double fpp) throws IOException {
+            // terms that are being flushed or merged do not know their count
+            long numTerms = 0;
+            for (TermsEnum termsEnum = terms.iterator(); termsEnum.next() != null; ) {
+                numTerms++;
+            }
+            final BloomFilter filter = BloomFilter.create(numTerms, fpp);
+            final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+            final TermsEnum termsEnum = terms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                filter.add(term, hash);
+            }
+            return filter;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static class BloomFilterFieldsProducer extends FieldsProducer {
+
+        private final FieldsProducer in;
+        private final Map<String, BloomFilter> filters;
+
+        BloomFilterFieldsProducer(FieldsProducer in, Map<String, BloomFilter> filters) {
+            this.in = in;
+            this.filters = filters;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return in.iterator();
+        }
+
+        @Override
+        public Terms terms(String field) throws IOException {
+            final Terms terms = in.terms(field);
+            final BloomFilter filter = filters.get(field);
+            if (terms == null || filter == null) {
+                return terms;
+            }
+            return new BloomFilteredTerms(terms, filter);
+        }
+
+        @Override
+        public int size() {
+            return in.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            // the filters are verified when they are read
+            in.checkIntegrity();
+        }
+
+        @Override
+        public FieldsProducer getMergeInstance() throws IOException {
+            // merges iterate over all terms, the filters would not help
+            return in.getMergeInstance();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            long ramBytesUsed = in.ramBytesUsed();
+            for (BloomFilter filter : filters.values()) {
+                ramBytesUsed += filter.ramBytesUsed();
+            }
+            return ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            final List<Accountable> resources = new ArrayList<>(Accountables.namedAccountables("bloom filter", filters));
+            resources.add(Accountables.namedAccountable("delegate", in));
+            return Collections.unmodifiableList(resources);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(fields=" + filters.size() + ",delegate=" + in + ")";
+        }
+    }
+
+    private static class BloomFilteredTerms extends FilterLeafReader.FilterTerms {
+
+        private final BloomFilter filter;
+
+        BloomFilteredTerms(Terms in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public TermsEnum iterator() throws IOException {
+            return new BloomFilteredTermsEnum(in.iterator(), filter);
+        }
+
+        @Override
+        public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+            return in.intersect(compiled, startTerm);
+        }
+
+        @Override
+        public BytesRef getMin() throws IOException {
+            return in.getMin();
+        }
+
+        @Override
+        public BytesRef getMax() throws IOException {
+            return in.getMax();
+        }
+    }
+
+    private static class BloomFilteredTermsEnum extends FilterLeafReader.FilterTermsEnum {
+
+        private final BloomFilter filter;
+        private final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+
+        BloomFilteredTermsEnum(TermsEnum in, BloomFilter filter) {
+            super(in);
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean seekExact(BytesRef text) throws IOException {
+            if (filter.mightContain(text, hash) == false) {
+                return false;
+            }
+            return in.seekExact(text);
+        }
+    }
+
+    /**
+     * A Bloom filter over the hashes of terms. The hash functions are derived from the two halves of the 128 bits murmur3 hash
+     * of a term through double hashing.
+     */
+    static final class BloomFilter implements Accountable {
+
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BloomFilter.class);
+
+        // the maximum number of hash functions, more hash functions only pay off with very low false positive probabilities
+        static final int MAX_HASH_FUNCTIONS = 16;
+
+        private final long[] bits;
+        private final int numHashFunctions;
+
+        BloomFilter(long[] bits, int numHashFunctions) {
+            this.bits = bits;
+            this.numHashFunctions = numHashFunctions;
+        }
+
+        /**
+         * Create a filter that has the given false positive probability once {@code numTerms} terms have been added.
+         */
+        static BloomFilter create(long numTerms, double fpp) {
+            final long n = Math.max(1, numTerms);
+            final double numBits = -n * Math.log(fpp) / (Math.log(2) * Math.log(2));
+            final int numLongs = (int) Math.min(ArrayUtil.MAX_ARRAY_LENGTH, Math.max(1, (long) Math.ceil(numBits / Long.SIZE)));
+            final long actualNumBits = (long) numLongs * Long.SIZE;
+            final long optimalNumHashFunctions = Math.round((double) actualNumBits / n * Math.log(2));
+            final int numHashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS, optimalNumHashFunctions));
+            return new BloomFilter(new long[numLongs], numHashFunctions);
+        }
+
+        void add(BytesRef term, MurmurHash3.Hash128 hash) {
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, hash);
+            final long numBits = (long) bits.length * Long.SIZE;
+            long combinedHash = hash.h1;
+            for (int i = 0; i < numHashFunctions; i++) {
+                final long index = (combinedHash & Long.MAX_VALUE) % numBits;
+                bits[(int) (index >>> 6)] |= 1L << index;
+                combinedHash += hash.h2;
+            }
+        }
+
+        boolean mightContain(BytesRef term, MurmurHash3.Hash128 hash) {
+            MurmurHash3.hash128(term.bytes, term.offset, term.length, 0, hash);
+            final long numBits = (long) bits.length * Long.SIZE;
+            long combinedHash = hash.h1;
+            for (int i = 0; i < numHashFunctions; i++) {
+                final long index = (combinedHash & Long.MAX_VALUE) % numBits;
+                if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+                combinedHash += hash.h2;
+            }
+            return true;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(bits);
+        }
+    }
+}
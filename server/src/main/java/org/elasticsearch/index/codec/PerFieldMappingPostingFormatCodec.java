@@ -21,13 +21,16 @@ package org.elasticsearch.index.codec;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene80.Lucene80Codec;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.mapper.CompletionFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 
 /**
  * {@link PerFieldMappingPostingFormatCodec This postings format} is the default
@@ -40,6 +43,8 @@ import org.elasticsearch.index.mapper.MapperService;
 public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
     private final Logger logger;
     private final MapperService mapperService;
+    private final DocValuesFormat segmentStatsDocValuesFormat;
+    private final PostingsFormat bloomFilterPostingsFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) : "PerFieldMappingPostingFormatCodec must subclass the latest lucene codec: " + Lucene.LATEST_CODEC;
@@ -49,6 +54,14 @@ public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        this.segmentStatsDocValuesFormat = new SegmentStatsDocValuesFormat(field -> {
+            final NumberFieldMapper.NumberFieldType fieldType = segmentStatsFieldType(field);
+            return fieldType == null ? null : fieldType.numericType();
+        });
+        this.bloomFilterPostingsFormat = new BloomFilterPostingsFormat(field -> {
+            final KeywordFieldMapper.KeywordFieldType fieldType = bloomFilterFieldType(field);
+            return fieldType == null ? 0 : fieldType.bloomFilterFpp();
+        });
     }
 
     @Override
@@ -58,8 +71,40 @@ public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
             logger.warn("no index mapper found for field: [{}] returning default postings format", field);
         } else if (fieldType instanceof CompletionFieldMapper.CompletionFieldType) {
             return CompletionFieldMapper.CompletionFieldType.postingsFormat();
+        } else if (bloomFilterFieldType(field) != null) {
+            return bloomFilterPostingsFormat;
         }
         return super.getPostingsFormatForField(field);
     }
 
+    @Override
+    public DocValuesFormat getDocValuesFormatForField(String field) {
+        if (segmentStatsFieldType(field) != null) {
+            return segmentStatsDocValuesFormat;
+        }
+        return super.getDocValuesFormatForField(field);
+    }
+
+    private NumberFieldMapper.NumberFieldType segmentStatsFieldType(String field) {
+        final MappedFieldType fieldType = mapperService.fullName(field);
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType && fieldType.hasDocValues()) {
+            final NumberFieldMapper.NumberFieldType numberFieldType = (NumberFieldMapper.NumberFieldType) fieldType;
+            if (numberFieldType.segmentStats()) {
+                return numberFieldType;
+            }
+        }
+        return null;
+    }
+
+    private KeywordFieldMapper.KeywordFieldType bloomFilterFieldType(String field) {
+        final MappedFieldType fieldType = mapperService.fullName(field);
+        if (fieldType instanceof KeywordFieldMapper.KeywordFieldType) {
+            final KeywordFieldMapper.KeywordFieldType keywordFieldType = (KeywordFieldMapper.KeywordFieldType) fieldType;
+            if (keywordFieldType.bloomFilter()) {
+                return keywordFieldType;
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.codec;
+
+/**
+ * The number of values, sum, min and max of the doc values of a numeric field in a segment.
+ *
+ * @see SegmentStatsDocValuesFormat#getStats
+ */
+public final class SegmentStats {
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    SegmentStats(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /** The number of values. */
+    public long getCount() {
+        return count;
+    }
+
+    /** The sum of the values, computed with Kahan summation. */
+    public double getSum() {
+        return sum;
+    }
+
+    /** The minimum value, or {@link Double#POSITIVE_INFINITY} if there are no values. */
+    public double getMin() {
+        return min;
+    }
+
+    /** The maximum value, or {@link Double#NEGATIVE_INFINITY} if there are no values. */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return count + "," + sum + "," + min + "," + max;
+    }
+
+    static SegmentStats parse(String value) {
+        final String[] parts = value.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid segment stats [" + value + "]");
+        }
+        return new SegmentStats(Long.parseLong(parts[0]), Double.parseDouble(parts[1]),
+            Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+    }
+
+    static class Builder {
+        private long count;
+        private double sum;
+        private double compensation;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            // same as the sum aggregation so that the result does not depend on whether the stats are used
+            if (Double.isFinite(value) == false) {
+                sum += value;
+            } else if (Double.isFinite(sum)) {
+                double corrected = value - compensation;
+                double newSum = sum + corrected;
+                compensation = (newSum - sum) - corrected;
+                sum = newSum;
+            }
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        SegmentStats build() {
+            return new SegmentStats(count, sum, min, max);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat;
+import org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat;
+import org.apache.lucene.document.HalfFloatPoint;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * A {@link DocValuesFormat} that writes doc values with the default Lucene format, and that records the {@link SegmentStats} of
+ * the values of numeric fields in the {@link FieldInfo} attributes of every segment that it writes, on flush and on merge.
+ */
+public final class SegmentStatsDocValuesFormat extends DocValuesFormat {
+
+    public static final String NAME = "ESSegmentStats";
+
+    static final String STATS_KEY = SegmentStatsDocValuesFormat.class.getSimpleName() + ".stats";
+
+    private final DocValuesFormat delegate = new Lucene80DocValuesFormat();
+    private final Function<String, NumericType> numericTypes;
+
+    /**
+     * Constructor used by SPI in order to read segments. Segments that it writes do not have stats.
+     */
+    public SegmentStatsDocValuesFormat() {
+        this(field -> null);
+    }
+
+    /**
+     * @param numericTypes how to decode the doc values of a field, the stats of a field are not recorded if it returns null
+     */
+    public SegmentStatsDocValuesFormat(Function<String, NumericType> numericTypes) {
+        super(NAME);
+        this.numericTypes = numericTypes;
+    }
+
+    @Override
+    public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new StatsDocValuesConsumer(delegate.fieldsConsumer(state), numericTypes);
+    }
+
+    @Override
+    public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return delegate.fieldsProducer(state);
+    }
+
+    /**
+     * Returns the stats of the given field that were recorded when the segment of the given reader was written, or null if they
+     * were not recorded. The stats take all documents of the segment into account, including the deleted ones.
+     */
+    @Nullable
+    public static SegmentStats getStats(LeafReader reader, String field) {
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            return null;
+        }
+        // the attribute is inherited from the merged segments if the merged segment was written with another format
+        if (NAME.equals(fieldInfo.getAttribute(PerFieldDocValuesFormat.PER_FIELD_FORMAT_KEY)) == false) {
+            return null;
+        }
+        final String stats = fieldInfo.getAttribute(STATS_KEY);
+        if (stats == null || stats.isEmpty()) {
+            return null;
+        }
+        return SegmentStats.parse(stats);
+    }
+
+    private static class StatsDocValuesConsumer extends DocValuesConsumer {
+
+        private final DocValuesConsumer in;
+        private final Function<String, NumericType> numericTypes;
+
+        StatsDocValuesConsumer(DocValuesConsumer in, Function<String, NumericType> numericTypes) {
+            this.in = in;
+            this.numericTypes = numericTypes;
+        }
+
+        @Override
+        public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addNumericField(field, valuesProducer);
+        }
+
+        @Override
+        public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addBinaryField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addSortedField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            final NumericType numericType = numericTypes.apply(field.name);
+            if (numericType == null) {
+                // there is no way to remove an attribute that was inherited from a merged segment
+                field.putAttribute(STATS_KEY, "");
+            } else {
+                field.putAttribute(STATS_KEY, computeStats(valuesProducer.getSortedNumeric(field), numericType).toString());
+            }
+            in.addSortedNumericField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            in.addSortedSetField(field, valuesProducer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static SegmentStats computeStats(SortedNumericDocValues values, NumericType numericType) throws IOException {
+        final SegmentStats.Builder builder = new SegmentStats.Builder();
+        for (int doc = values.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = values.nextDoc()) {
+            for (int i = 0, count = values.docValueCount(); i < count; i++) {
+                builder.add(decode(values.nextValue(), numericType));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decode a doc value the same way as the field data of the given numeric type.
+     */
+    private static double decode(long value, NumericType numericType) {
+        switch (numericType) {
+            case HALF_FLOAT:
+                return HalfFloatPoint.sortableShortToHalfFloat((short) value);
+            case FLOAT:
+                return NumericUtils.sortableIntToFloat((int) value);
+            case DOUBLE:
+                return NumericUtils.sortableLongToDouble(value);
+            default:
+                return value;
+        }
+    }
+}
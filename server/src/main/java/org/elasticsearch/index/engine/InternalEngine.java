@@ -2374,7 +2374,7 @@ public class InternalEngine extends Engine {
     }
 
     int getVersionMapSize() {
-        return versionMap.getAllCurrent().size();
+        return versionMap.getCurrentSize();
     }
 
     boolean isSafeAccessRequired() {
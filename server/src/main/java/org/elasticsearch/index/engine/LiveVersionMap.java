@@ -22,14 +22,13 @@ package org.elasticsearch.index.engine;
 import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.lease.Releasable;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -40,12 +39,10 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
     private static final class VersionLookup {
 
-        /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones, we only account
-         *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM. */
-        final AtomicLong ramBytesUsed = new AtomicLong();
-
-        private static final VersionLookup EMPTY = new VersionLookup(Collections.emptyMap());
-        private final Map<BytesRef, VersionValue> map;
+        private static final VersionLookup EMPTY = new VersionLookup(new PackedVersionMap(1));
+        // Tracks the bytes used by the map, i.e. what is freed on refresh. Deletes are removed from the map and only kept in the
+        // tombstones, since refresh would not clear their RAM.
+        private final PackedVersionMap map;
 
         // each version map has a notion of safe / unsafe which allows us to apply certain optimization in the auto-generated ID usecase
         // where we know that documents can't have any duplicates so we can skip the version map entirely. This reduces
@@ -63,7 +60,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // the tombstone
         private final AtomicLong minDeleteTimestamp = new AtomicLong(Long.MAX_VALUE);
 
-        private VersionLookup(Map<BytesRef, VersionValue> map) {
+        private VersionLookup(PackedVersionMap map) {
             this.map = map;
         }
 
@@ -71,8 +68,9 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             return map.get(key);
         }
 
-        VersionValue put(BytesRef key, VersionValue value) {
-            return map.put(key, value);
+        void put(BytesRef key, VersionValue value) {
+            assert this != EMPTY : "the empty lookup must not be modified";
+            map.put(key, value);
         }
 
         boolean isEmpty() {
@@ -91,10 +89,14 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             unsafe = true;
         }
 
-        public VersionValue remove(BytesRef uid) {
+        public boolean remove(BytesRef uid) {
             return map.remove(uid);
         }
 
+        long ramBytesUsed() {
+            return map.ramBytesUsed();
+        }
+
         public void updateMinDeletedTimestamp(DeleteVersionValue delete) {
             long time = delete.time;
             minDeleteTimestamp.updateAndGet(prev -> Math.min(time, prev));
@@ -123,7 +125,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         }
 
         Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()), VersionLookup.EMPTY, false);
+            this(new VersionLookup(new PackedVersionMap()), VersionLookup.EMPTY, false);
         }
 
         boolean isSafeAccessMode() {
@@ -141,8 +143,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
          * Builds a new map for the refresh transition this should be called in beforeRefresh()
          */
         Maps buildTransitionMap() {
-            return new Maps(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())), current,
-                shouldInheritSafeAccess());
+            return new Maps(new VersionLookup(new PackedVersionMap()), current, shouldInheritSafeAccess());
         }
 
         /**
@@ -153,27 +154,12 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         }
 
         void put(BytesRef uid, VersionValue version) {
-            long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-            long ramAccounting = BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed;
-            VersionValue previousValue = current.put(uid, version);
-            ramAccounting += previousValue == null ? 0 : -(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed);
-            adjustRam(ramAccounting);
-        }
-
-        void adjustRam(long value) {
-            if (value != 0) {
-                long v = current.ramBytesUsed.addAndGet(value);
-                assert v >= 0 : "bytes=" + v;
-            }
+            current.put(uid, version);
         }
 
         void remove(BytesRef uid, DeleteVersionValue deleted) {
-            VersionValue previousValue = current.remove(uid);
+            current.remove(uid);
             current.updateMinDeletedTimestamp(deleted);
-            if (previousValue != null) {
-                long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-                adjustRam(-(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed));
-            }
             if (old != VersionLookup.EMPTY) {
                 // we also need to remove it from the old map here to make sure we don't read this stale value while
                 // we are in the middle of a refresh. Most of the time the old map is an empty map so we can skip it there.
@@ -187,53 +173,13 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     }
 
     // All deletes also go here, and delete "tombstones" are retained after refresh:
-    private final Map<BytesRef, DeleteVersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    private final PackedVersionMap tombstones = new PackedVersionMap();
 
     private volatile Maps maps = new Maps();
     // we maintain a second map that only receives the updates that we skip on the actual map (unsafe ops)
     // this map is only maintained if assertions are enabled
     private volatile Maps unsafeKeysMap = new Maps();
 
-    /**
-     * Bytes consumed for each BytesRef UID:
-     * In this base value, we account for the {@link BytesRef} object itself as
-     * well as the header of the byte[] array it holds, and some lost bytes due
-     * to object alignment. So consumers of this constant just have to add the
-     * length of the byte[] (assuming it is not shared between multiple
-     * instances).
-     */
-    private static final long BASE_BYTES_PER_BYTESREF =
-        // shallow memory usage of the BytesRef object
-        RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) +
-            // header of the byte[] array
-            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER +
-            // with an alignment size (-XX:ObjectAlignmentInBytes) of 8 (default),
-            // there could be between 0 and 7 lost bytes, so we account for 3
-            // lost bytes on average
-            3;
-
-    /**
-     * Bytes used by having CHM point to a key/value.
-     */
-    private static final long BASE_BYTES_PER_CHM_ENTRY;
-
-    static {
-        // use the same impl as the Maps does
-        Map<Integer, Integer> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
-        map.put(0, 0);
-        long chmEntryShallowSize = RamUsageEstimator.shallowSizeOf(map.entrySet().iterator().next());
-        // assume a load factor of 50%
-        // for each entry, we need two object refs, one for the entry itself
-        // and one for the free space that is due to the fact hash tables can
-        // not be fully loaded
-        BASE_BYTES_PER_CHM_ENTRY = chmEntryShallowSize + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
-    }
-
-    /**
-     * Tracks bytes used by tombstones (deletes)
-     */
-    final AtomicLong ramBytesUsedTombstones = new AtomicLong();
-
     @Override
     public void beforeRefresh() throws IOException {
         // Start sending all updates after this point to the new
@@ -280,7 +226,9 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             return value;
         }
 
-        return tombstones.get(uid);
+        value = tombstones.get(uid);
+        assert value == null || value.isDelete() : "tombstone must be a delete but was " + value;
+        return value;
     }
 
     VersionValue getVersionForAssert(final BytesRef uid) {
@@ -343,18 +291,8 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     }
 
     private void putTombstone(BytesRef uid, DeleteVersionValue version) {
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-        // Also enroll the delete into tombstones, and account for its RAM too:
-        final VersionValue prevTombstone = tombstones.put(uid, version);
-        long accountRam = (BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
-        // Deduct tombstones bytes used for the version we just removed or replaced:
-        if (prevTombstone != null) {
-            accountRam -= (BASE_BYTES_PER_CHM_ENTRY + prevTombstone.ramBytesUsed() + uidRAMBytesUsed);
-        }
-        if (accountRam != 0) {
-            long v = ramBytesUsedTombstones.addAndGet(accountRam);
-            assert v >= 0: "bytes=" + v;
-        }
+        // Also enroll the delete into tombstones, which account for its RAM too:
+        tombstones.put(uid, version);
     }
 
     /**
@@ -362,13 +300,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      */
     void removeTombstoneUnderLock(BytesRef uid) {
         assert assertKeyedLockHeldByCurrentThread(uid);
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-        final VersionValue prev = tombstones.remove(uid);
-        if (prev != null) {
-            assert prev.isDelete();
-            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
-            assert v >= 0 : "bytes=" + v;
-        }
+        tombstones.remove(uid);
     }
 
     private boolean canRemoveTombstone(long maxTimestampToPrune, long maxSeqNoToPrune, DeleteVersionValue versionValue) {
@@ -385,23 +317,21 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * Try to prune tombstones whose timestamp is less than maxTimestampToPrune and seqno at most the maxSeqNoToPrune.
      */
     void pruneTombstones(long maxTimestampToPrune, long maxSeqNoToPrune) {
-        for (Map.Entry<BytesRef, DeleteVersionValue> entry : tombstones.entrySet()) {
-            // we do check before we actually lock the key - this way we don't need to acquire the lock for tombstones that are not
-            // prune-able. If the tombstone changes concurrently we will re-read and step out below since if we can't collect it now w
-            // we won't collect the tombstone below since it must be newer than this one.
-            if (canRemoveTombstone(maxTimestampToPrune, maxSeqNoToPrune, entry.getValue())) {
-                final BytesRef uid = entry.getKey();
-                try (Releasable lock = keyedLock.tryAcquire(uid)) {
-                    // we use tryAcquire here since this is a best effort and we try to be least disruptive
-                    // this method is also called under lock in the engine under certain situations such that this can lead to deadlocks
-                    // if we do use a blocking acquire. see #28714
-                    if (lock != null) { // did we get the lock?
-                        // Must re-get it here, vs using entry.getValue(), in case the uid was indexed/deleted since we pulled the iterator:
-                        final DeleteVersionValue versionValue = tombstones.get(uid);
-                        if (versionValue != null) {
-                            if (canRemoveTombstone(maxTimestampToPrune, maxSeqNoToPrune, versionValue)) {
-                                removeTombstoneUnderLock(uid);
-                            }
+        // we do check before we actually lock the key - this way we don't need to acquire the lock for tombstones that are not
+        // prune-able. If the tombstone changes concurrently we will re-read and step out below since if we can't collect it now w
+        // we won't collect the tombstone below since it must be newer than this one.
+        final long maxTimestamp = Math.min(maxTimestampToPrune, maps.getMinDeleteTimestamp());
+        for (BytesRef uid : tombstones.getDeletes(maxTimestamp, maxSeqNoToPrune)) {
+            try (Releasable lock = keyedLock.tryAcquire(uid)) {
+                // we use tryAcquire here since this is a best effort and we try to be least disruptive
+                // this method is also called under lock in the engine under certain situations such that this can lead to deadlocks
+                // if we do use a blocking acquire. see #28714
+                if (lock != null) { // did we get the lock?
+                    // Must re-get it here, vs using the candidate's value, in case the uid was indexed/deleted since we collected it:
+                    final DeleteVersionValue versionValue = (DeleteVersionValue) tombstones.get(uid);
+                    if (versionValue != null) {
+                        if (canRemoveTombstone(maxTimestampToPrune, maxSeqNoToPrune, versionValue)) {
+                            removeTombstoneUnderLock(uid);
                         }
                     }
                 }
@@ -415,15 +345,11 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     synchronized void clear() {
         maps = new Maps();
         tombstones.clear();
-        // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
-        // and this will lead to an assert trip.  Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the index
-        // is being closed:
-        //ramBytesUsedTombstones.set(0);
     }
 
     @Override
     public long ramBytesUsed() {
-        return maps.current.ramBytesUsed.get() + ramBytesUsedTombstones.get();
+        return maps.current.ramBytesUsed() + tombstones.ramBytesUsed();
     }
 
     /**
@@ -431,7 +357,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * don't clear on refresh.
      */
     long ramBytesUsedForRefresh() {
-        return maps.current.ramBytesUsed.get();
+        return maps.current.ramBytesUsed();
     }
 
     /**
@@ -439,7 +365,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * except does not include tombstones because they don't clear on refresh.
      */
     long getRefreshingBytes() {
-        return maps.old.ramBytesUsed.get();
+        return maps.old.ramBytesUsed();
     }
 
     @Override
@@ -449,15 +375,29 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     }
 
     /**
-     * Returns the current internal versions as a point in time snapshot
+     * Returns a copy of the current internal versions
      */
     Map<BytesRef, VersionValue> getAllCurrent() {
-        return maps.current.map;
+        final Map<BytesRef, VersionValue> current = new HashMap<>();
+        maps.current.map.forEach(current::put);
+        return current;
     }
 
-    /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones (exposed via reader but not yet GC'd). */
+    /**
+     * Returns the number of current internal versions
+     */
+    int getCurrentSize() {
+        return maps.current.size();
+    }
+
+    /**
+     * Returns a copy of all deleted versions, including new ones (not yet exposed via reader) and old ones (exposed via reader but not
+     * yet GC'd).
+     */
     Map<BytesRef, DeleteVersionValue> getAllTombstones() {
-        return tombstones;
+        final Map<BytesRef, DeleteVersionValue> deletes = new HashMap<>();
+        tombstones.forEach((uid, versionValue) -> deletes.put(uid, (DeleteVersionValue) versionValue));
+        return deletes;
     }
 
     /**
@@ -0,0 +1,427 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FutureArrays;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * A concurrent map from _uid bytes to {@link VersionValue}s that stores the values of all entries in parallel primitive arrays rather than
+ * as one object per entry. Both index versions and delete tombstones are stored. The map is split into segments that are each an open
+ * addressing hash table with linear probing, guarded by the segment's monitor. {@link VersionValue} instances are only materialized when
+ * they are read, so an entry costs its uid bytes and one slot in each of the arrays, which relieves the garbage collector from tracing and
+ * promoting an object graph per indexed document until the next refresh.
+ */
+final class PackedVersionMap implements Accountable {
+
+    /** kind of index entries with a translog location */
+    private static final byte INDEX = 0;
+    /** kind of index entries whose translog location isn't tracked */
+    private static final byte INDEX_WITHOUT_LOCATION = 1;
+    /** kind of delete tombstones */
+    private static final byte DELETE = 2;
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+
+    /** bytes used by each slot of a segment across all of its arrays */
+    static final long BYTES_PER_SLOT = RamUsageEstimator.NUM_BYTES_OBJECT_REF + Integer.BYTES + 5 * Long.BYTES + Integer.BYTES + Byte.BYTES;
+
+    /** bytes used by the headers of the arrays of a segment */
+    private static final long BYTES_PER_SEGMENT_ARRAYS = 9 * RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+
+    private static final int NUMBER_OF_SEGMENTS;
+
+    static {
+        // same concurrency as ConcurrentCollections#newConcurrentMapWithAggressiveConcurrency
+        final int concurrency = Math.max(Runtime.getRuntime().availableProcessors() * 2, 16);
+        NUMBER_OF_SEGMENTS = Integer.highestOneBit(concurrency - 1) << 1;
+    }
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    PackedVersionMap() {
+        this(NUMBER_OF_SEGMENTS);
+    }
+
+    PackedVersionMap(int numberOfSegments) {
+        if (numberOfSegments < 1 || Integer.bitCount(numberOfSegments) != 1) {
+            throw new IllegalArgumentException("number of segments must be a power of two but was [" + numberOfSegments + "]");
+        }
+        segments = new Segment[numberOfSegments];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(numberOfSegments);
+    }
+
+    private Segment segment(int hash) {
+        // the low bits of the hash select the slot in the segment, so the segment is selected by the high bits
+        return segmentShift == Integer.SIZE ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * Returns the value for the given uid, or <code>null</code> if there is none.
+     */
+    VersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return segment(hash).get(uid, hash);
+    }
+
+    /**
+     * Associates the given value with the uid, replacing any previous value. The bytes of the uid are not copied if the uid spans its
+     * whole array, they must not be modified afterwards.
+     */
+    void put(BytesRef uid, VersionValue value) {
+        final int hash = uid.hashCode();
+        segment(hash).put(uid, hash, value);
+    }
+
+    /**
+     * Removes the value for the given uid and returns <code>true</code> if there was one.
+     */
+    boolean remove(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return segment(hash).remove(uid, hash);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /**
+     * Calls the consumer for every entry of the map. Entries are visited segment by segment while the segment is locked, so the consumer
+     * must not modify this map. Entries that are concurrently added or removed in other segments may or may not be visited.
+     */
+    void forEach(BiConsumer<BytesRef, VersionValue> consumer) {
+        for (Segment segment : segments) {
+            segment.forEach(consumer);
+        }
+    }
+
+    /**
+     * Returns the uids of the delete tombstones whose timestamp is less than <code>maxTimestamp</code> and whose seq# is at most
+     * <code>maxSeqNo</code>. Tombstones that are concurrently added or removed may or may not be returned.
+     */
+    List<BytesRef> getDeletes(long maxTimestamp, long maxSeqNo) {
+        final List<BytesRef> deletes = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.collectDeletes(maxTimestamp, maxSeqNo, deletes);
+        }
+        return deletes;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the bytes used by the entries of this map. Segments only allocate memory once they hold entries, so the small constant
+     * overhead of the map itself is not accounted.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    private static long keyBytesUsed(byte[] key) {
+        return RamUsageEstimator.sizeOf(key);
+    }
+
+    private final class Segment {
+        // keys[slot] == null marks a free slot, the other arrays hold the entry of the slot
+        private byte[][] keys;
+        private int[] hashes;
+        private long[] versions;
+        private long[] seqNos;
+        private long[] terms;
+        // translog generation and offset of index entries, the first holds the timestamp of delete tombstones
+        private long[] generationsOrTimes;
+        private long[] offsets;
+        // size of the translog operation of index entries
+        private int[] sizes;
+        private byte[] kinds;
+        private int size;
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            if (keys == null) {
+                return null;
+            }
+            final int slot = find(uid, hash);
+            return keys[slot] == null ? null : valueAt(slot);
+        }
+
+        synchronized void put(BytesRef uid, int hash, VersionValue value) {
+            if (keys == null) {
+                resize(INITIAL_CAPACITY);
+            }
+            int slot = find(uid, hash);
+            if (keys[slot] == null) {
+                if (size + 1 > keys.length * MAX_LOAD_FACTOR) {
+                    resize(keys.length << 1);
+                    slot = find(uid, hash);
+                }
+                final byte[] key;
+                if (uid.offset == 0 && uid.length == uid.bytes.length) {
+                    key = uid.bytes;
+                } else {
+                    key = BytesRef.deepCopyOf(uid).bytes;
+                }
+                keys[slot] = key;
+                hashes[slot] = hash;
+                size++;
+                PackedVersionMap.this.size.incrementAndGet();
+                adjustRamBytesUsed(keyBytesUsed(key));
+            }
+            versions[slot] = value.version;
+            seqNos[slot] = value.seqNo;
+            terms[slot] = value.term;
+            if (value.isDelete()) {
+                generationsOrTimes[slot] = ((DeleteVersionValue) value).time;
+                offsets[slot] = 0;
+                sizes[slot] = 0;
+                kinds[slot] = DELETE;
+            } else {
+                final Translog.Location location = value.getLocation();
+                if (location == null) {
+                    generationsOrTimes[slot] = 0;
+                    offsets[slot] = 0;
+                    sizes[slot] = 0;
+                    kinds[slot] = INDEX_WITHOUT_LOCATION;
+                } else {
+                    generationsOrTimes[slot] = location.generation;
+                    offsets[slot] = location.translogLocation;
+                    sizes[slot] = location.size;
+                    kinds[slot] = INDEX;
+                }
+            }
+        }
+
+        synchronized boolean remove(BytesRef uid, int hash) {
+            if (keys == null) {
+                return false;
+            }
+            final int slot = find(uid, hash);
+            if (keys[slot] == null) {
+                return false;
+            }
+            adjustRamBytesUsed(-keyBytesUsed(keys[slot]));
+            size--;
+            PackedVersionMap.this.size.decrementAndGet();
+            deleteSlot(slot);
+            if (keys.length > INITIAL_CAPACITY && size < keys.length >>> 3) {
+                // give back memory of tables that lost most of their entries, this happens when tombstones are pruned
+                resize(keys.length >>> 1);
+            }
+            return true;
+        }
+
+        synchronized void forEach(BiConsumer<BytesRef, VersionValue> consumer) {
+            if (keys == null) {
+                return;
+            }
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null) {
+                    consumer.accept(new BytesRef(keys[slot]), valueAt(slot));
+                }
+            }
+        }
+
+        synchronized void collectDeletes(long maxTimestamp, long maxSeqNo, List<BytesRef> deletes) {
+            if (keys == null) {
+                return;
+            }
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != null && kinds[slot] == DELETE && generationsOrTimes[slot] < maxTimestamp && seqNos[slot] <= maxSeqNo) {
+                    deletes.add(new BytesRef(keys[slot]));
+                }
+            }
+        }
+
+        synchronized void clear() {
+            if (keys == null) {
+                return;
+            }
+            long freed = BYTES_PER_SEGMENT_ARRAYS + keys.length * BYTES_PER_SLOT;
+            for (byte[] key : keys) {
+                if (key != null) {
+                    freed += keyBytesUsed(key);
+                }
+            }
+            PackedVersionMap.this.size.addAndGet(-size);
+            size = 0;
+            keys = null;
+            hashes = null;
+            versions = null;
+            seqNos = null;
+            terms = null;
+            generationsOrTimes = null;
+            offsets = null;
+            sizes = null;
+            kinds = null;
+            adjustRamBytesUsed(-freed);
+        }
+
+        /**
+         * Returns the slot that holds the given uid, or the free slot where it would be inserted.
+         */
+        private int find(BytesRef uid, int hash) {
+            final int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (true) {
+                final byte[] key = keys[slot];
+                if (key == null || (hashes[slot] == hash &&
+                    FutureArrays.equals(key, 0, key.length, uid.bytes, uid.offset, uid.offset + uid.length))) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private VersionValue valueAt(int slot) {
+            if (kinds[slot] == DELETE) {
+                return new DeleteVersionValue(versions[slot], seqNos[slot], terms[slot], generationsOrTimes[slot]);
+            }
+            final Translog.Location location;
+            if (kinds[slot] == INDEX_WITHOUT_LOCATION) {
+                location = null;
+            } else {
+                location = new Translog.Location(generationsOrTimes[slot], offsets[slot], sizes[slot]);
+            }
+            return new IndexVersionValue(location, versions[slot], seqNos[slot], terms[slot]);
+        }
+
+        /**
+         * Frees the given slot and shifts back the entries of the probe sequence that follows it so that lookups don't need to skip
+         * over deleted slots.
+         */
+        private void deleteSlot(int free) {
+            final int mask = keys.length - 1;
+            keys[free] = null;
+            int slot = free;
+            while (true) {
+                slot = (slot + 1) & mask;
+                if (keys[slot] == null) {
+                    return;
+                }
+                final int ideal = hashes[slot] & mask;
+                // the entry may move to the free slot unless its ideal slot lies cyclically within (free, slot]
+                final boolean reachable = free <= slot ? (free < ideal && ideal <= slot) : (free < ideal || ideal <= slot);
+                if (reachable == false) {
+                    moveSlot(slot, free);
+                    free = slot;
+                }
+            }
+        }
+
+        private void moveSlot(int from, int to) {
+            keys[to] = keys[from];
+            hashes[to] = hashes[from];
+            versions[to] = versions[from];
+            seqNos[to] = seqNos[from];
+            terms[to] = terms[from];
+            generationsOrTimes[to] = generationsOrTimes[from];
+            offsets[to] = offsets[from];
+            sizes[to] = sizes[from];
+            kinds[to] = kinds[from];
+            keys[from] = null;
+        }
+
+        private void resize(int capacity) {
+            assert Integer.bitCount(capacity) == 1 : "capacity must be a power of two but was " + capacity;
+            final byte[][] oldKeys = keys;
+            final int[] oldHashes = hashes;
+            final long[] oldVersions = versions;
+            final long[] oldSeqNos = seqNos;
+            final long[] oldTerms = terms;
+            final long[] oldGenerationsOrTimes = generationsOrTimes;
+            final long[] oldOffsets = offsets;
+            final int[] oldSizes = sizes;
+            final byte[] oldKinds = kinds;
+            keys = new byte[capacity][];
+            hashes = new int[capacity];
+            versions = new long[capacity];
+            seqNos = new long[capacity];
+            terms = new long[capacity];
+            generationsOrTimes = new long[capacity];
+            offsets = new long[capacity];
+            sizes = new int[capacity];
+            kinds = new byte[capacity];
+            if (oldKeys == null) {
+                adjustRamBytesUsed(BYTES_PER_SEGMENT_ARRAYS + capacity * BYTES_PER_SLOT);
+                return;
+            }
+            adjustRamBytesUsed((capacity - oldKeys.length) * BYTES_PER_SLOT);
+            final int mask = capacity - 1;
+            for (int from = 0; from < oldKeys.length; from++) {
+                if (oldKeys[from] != null) {
+                    int to = oldHashes[from] & mask;
+                    while (keys[to] != null) {
+                        to = (to + 1) & mask;
+                    }
+                    keys[to] = oldKeys[from];
+                    hashes[to] = oldHashes[from];
+                    versions[to] = oldVersions[from];
+                    seqNos[to] = oldSeqNos[from];
+                    terms[to] = oldTerms[from];
+                    generationsOrTimes[to] = oldGenerationsOrTimes[from];
+                    offsets[to] = oldOffsets[from];
+                    sizes[to] = oldSizes[from];
+                    kinds[to] = oldKinds[from];
+                }
+            }
+        }
+    }
+
+    private void adjustRamBytesUsed(long delta) {
+        if (delta != 0) {
+            final long bytes = ramBytesUsed.addAndGet(delta);
+            assert bytes >= 0 : "bytes=" + bytes;
+        }
+    }
+}
@@ -33,6 +33,22 @@ public interface IndexFieldDataCache {
 
     <FD extends AtomicFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(DirectoryReader indexReader, IFD indexFieldData) throws Exception;
 
+    /**
+     * Returns whether the global field data of the given reader is in the cache, without loading it.
+     */
+    default boolean isCached(DirectoryReader indexReader) {
+        return false;
+    }
+
+    /**
+     * Returns the global field data that was loaded last for the shard of the given reader if it is still in the cache, or null
+     * otherwise. Global field data that is loaded for a new reader of the same shard may reuse it as a whole if it was built
+     * from exactly the same segments.
+     */
+    default Accountable getLastLoadedGlobal(DirectoryReader indexReader) {
+        return null;
+    }
+
     /**
      * Clears all the field data stored cached in on this index.
      */
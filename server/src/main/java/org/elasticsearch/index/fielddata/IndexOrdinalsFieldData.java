@@ -47,4 +47,12 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<AtomicOrdi
      * or null if global ordinals are not needed (constant value or single segment).
      */
     OrdinalMap getOrdinalMap();
+
+    /**
+     * Returns whether the global ordinals of the given {@link IndexReader} can be used without building them first,
+     * either because they are loaded already or because they are the same as the segment ordinals.
+     */
+    default boolean isGlobalLoaded(DirectoryReader indexReader) {
+        return true;
+    }
 }
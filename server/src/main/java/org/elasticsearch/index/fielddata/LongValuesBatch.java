@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.IOException;
+
+/**
+ * Reusable buffer that holds the long values of a batch of documents so that consumers can process them in a tight loop over
+ * primitive arrays rather than calling {@link SortedNumericDocValues#advanceExact(int)} and
+ * {@link SortedNumericDocValues#nextValue()} for every document.
+ * <p>
+ * After a call to {@link #read(SortedNumericDocValues, int[], int)}, the values of the {@code i}-th document of the batch are
+ * stored in {@link #values()} between {@code offsets()[i]} inclusive and {@code offsets()[i + 1]} exclusive, in the same order as
+ * they would be returned by {@link SortedNumericDocValues#nextValue()}.
+ */
+public final class LongValuesBatch {
+
+    private long[] values = new long[16];
+    private int[] offsets = new int[17];
+    private int numDocs;
+    // unwrapping is only allowed before the iterator is used, so it is done once per source
+    private SortedNumericDocValues source;
+    private NumericDocValues singleton;
+
+    /**
+     * Read the values of the first {@code count} documents of {@code docs}, which must be in increasing order and not before the
+     * document that {@code source} is currently positioned on. The first batch of a given {@code source} must be read before
+     * the source is advanced by anything else.
+     */
+    public void read(SortedNumericDocValues source, int[] docs, int count) throws IOException {
+        offsets = ArrayUtil.grow(offsets, count + 1);
+        numDocs = count;
+        if (source != this.source) {
+            this.source = source;
+            this.singleton = DocValues.unwrapSingleton(source);
+        }
+        if (singleton != null) {
+            values = ArrayUtil.grow(values, count);
+            int numValues = 0;
+            for (int i = 0; i < count; ++i) {
+                offsets[i] = numValues;
+                if (singleton.advanceExact(docs[i])) {
+                    values[numValues++] = singleton.longValue();
+                }
+            }
+            offsets[count] = numValues;
+        } else {
+            int numValues = 0;
+            for (int i = 0; i < count; ++i) {
+                offsets[i] = numValues;
+                if (source.advanceExact(docs[i])) {
+                    final int docValueCount = source.docValueCount();
+                    values = ArrayUtil.grow(values, numValues + docValueCount);
+                    for (int j = 0; j < docValueCount; ++j) {
+                        values[numValues++] = source.nextValue();
+                    }
+                }
+            }
+            offsets[count] = numValues;
+        }
+    }
+
+    /** The number of documents of the last batch. */
+    public int numDocs() {
+        return numDocs;
+    }
+
+    /** The number of values of the last batch, across all documents. */
+    public int numValues() {
+        return offsets[numDocs];
+    }
+
+    /** The values of the last batch, only the first {@link #numValues()} entries are valid. */
+    public long[] values() {
+        return values;
+    }
+
+    /** The offsets of the values of each document of the last batch in {@link #values()}, {@link #numDocs()} + 1 entries are valid. */
+    public int[] offsets() {
+        return offsets;
+    }
+}
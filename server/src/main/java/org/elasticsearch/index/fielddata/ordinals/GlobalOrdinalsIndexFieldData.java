@@ -19,6 +19,7 @@
 package org.elasticsearch.index.fielddata.ordinals;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -35,6 +36,7 @@ import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
 import org.elasticsearch.search.MultiValueMode;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.function.Function;
@@ -48,17 +50,19 @@ public class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent impleme
     private final long memorySizeInBytes;
 
     private final OrdinalMap ordinalMap;
+    private final IndexReader.CacheKey[] segmentKeys;
     private final Atomic[] atomicReaders;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
 
 
     protected GlobalOrdinalsIndexFieldData(IndexSettings indexSettings, String fieldName, AtomicOrdinalsFieldData[] segmentAfd,
-                                           OrdinalMap ordinalMap, long memorySizeInBytes, Function<SortedSetDocValues,
-                                           ScriptDocValues<?>> scriptFunction) {
+                                           OrdinalMap ordinalMap, @Nullable IndexReader.CacheKey[] segmentKeys,
+                                           long memorySizeInBytes, Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
         super(indexSettings);
         this.fieldName = fieldName;
         this.memorySizeInBytes = memorySizeInBytes;
         this.ordinalMap = ordinalMap;
+        this.segmentKeys = segmentKeys;
         this.atomicReaders = new Atomic[segmentAfd.length];
         for (int i = 0; i < segmentAfd.length; i++) {
             atomicReaders[i] = new Atomic(segmentAfd[i], ordinalMap, i);
@@ -117,6 +121,13 @@ public class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent impleme
         return ordinalMap;
     }
 
+    /**
+     * Returns whether these global ordinals were built from the segments that have the provided core cache keys, in the same order.
+     */
+    boolean isBuiltFrom(IndexReader.CacheKey[] otherSegmentKeys) {
+        return segmentKeys != null && Arrays.equals(segmentKeys, otherSegmentKeys);
+    }
+
     private final class Atomic extends AbstractAtomicOrdinalsFieldData {
 
         private final AtomicOrdinalsFieldData afd;
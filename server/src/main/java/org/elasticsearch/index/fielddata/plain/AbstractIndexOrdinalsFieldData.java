@@ -92,10 +92,16 @@ public abstract class AbstractIndexOrdinalsFieldData extends AbstractIndexFieldD
         }
     }
 
+    @Override
+    public boolean isGlobalLoaded(DirectoryReader indexReader) {
+        // ordinals of a single segment are already global
+        return indexReader.leaves().size() <= 1 || cache.isCached(indexReader);
+    }
+
     @Override
     public IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader) throws Exception {
         return GlobalOrdinalsBuilder.build(indexReader, this, indexSettings, breakerService, logger,
-                AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+                AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION, cache.getLastLoadedGlobal(indexReader));
     }
 
     @Override
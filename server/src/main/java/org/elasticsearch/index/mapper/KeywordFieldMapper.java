@@ -71,6 +71,7 @@ public final class KeywordFieldMapper extends FieldMapper {
 
         public static final String NULL_VALUE = null;
         public static final int IGNORE_ABOVE = Integer.MAX_VALUE;
+        public static final double BLOOM_FILTER_FPP = 0.01;
     }
 
     public static class Builder extends FieldMapper.Builder<Builder, KeywordFieldMapper> {
@@ -117,6 +118,19 @@ public final class KeywordFieldMapper extends FieldMapper {
             return builder;
         }
 
+        public Builder bloomFilter(boolean bloomFilter) {
+            fieldType().setBloomFilter(bloomFilter);
+            return builder;
+        }
+
+        public Builder bloomFilterFpp(double bloomFilterFpp) {
+            if (bloomFilterFpp <= 0 || bloomFilterFpp >= 1) {
+                throw new IllegalArgumentException("[bloom_filter_fpp] must be greater than 0 and less than 1, got " + bloomFilterFpp);
+            }
+            fieldType().setBloomFilterFpp(bloomFilterFpp);
+            return builder;
+        }
+
         public Builder normalizer(IndexAnalyzers indexAnalyzers, String name) {
             this.indexAnalyzers = indexAnalyzers;
             this.normalizerName = name;
@@ -126,6 +140,9 @@ public final class KeywordFieldMapper extends FieldMapper {
         @Override
         public KeywordFieldMapper build(BuilderContext context) {
             setupFieldType(context);
+            if (fieldType().bloomFilter() && fieldType().indexOptions() == IndexOptions.NONE) {
+                throw new MapperParsingException("[bloom_filter] requires the field [" + name + "] to be indexed");
+            }
             if (normalizerName != null) {
                 NamedAnalyzer normalizer = indexAnalyzers.getNormalizer(normalizerName);
                 if (normalizer == null) {
@@ -180,6 +197,12 @@ public final class KeywordFieldMapper extends FieldMapper {
                 } else if (propName.equals("split_queries_on_whitespace")) {
                     builder.splitQueriesOnWhitespace(XContentMapValues.nodeBooleanValue(propNode, "split_queries_on_whitespace"));
                     iterator.remove();
+                } else if (propName.equals("bloom_filter")) {
+                    builder.bloomFilter(XContentMapValues.nodeBooleanValue(propNode, "bloom_filter"));
+                    iterator.remove();
+                } else if (propName.equals("bloom_filter_fpp")) {
+                    builder.bloomFilterFpp(XContentMapValues.nodeDoubleValue(propNode));
+                    iterator.remove();
                 }
             }
             return builder;
@@ -190,6 +213,8 @@ public final class KeywordFieldMapper extends FieldMapper {
 
         private NamedAnalyzer normalizer = null;
         private boolean splitQueriesOnWhitespace;
+        private boolean bloomFilter;
+        private double bloomFilterFpp = Defaults.BLOOM_FILTER_FPP;
 
         public KeywordFieldType() {
             setIndexAnalyzer(Lucene.KEYWORD_ANALYZER);
@@ -200,6 +225,8 @@ public final class KeywordFieldMapper extends FieldMapper {
             super(ref);
             this.normalizer = ref.normalizer;
             this.splitQueriesOnWhitespace = ref.splitQueriesOnWhitespace;
+            this.bloomFilter = ref.bloomFilter;
+            this.bloomFilterFpp = ref.bloomFilterFpp;
         }
 
         public KeywordFieldType clone() {
@@ -213,7 +240,9 @@ public final class KeywordFieldMapper extends FieldMapper {
             }
             KeywordFieldType other = (KeywordFieldType) o;
             return Objects.equals(normalizer, other.normalizer) &&
-                splitQueriesOnWhitespace == other.splitQueriesOnWhitespace;
+                splitQueriesOnWhitespace == other.splitQueriesOnWhitespace &&
+                bloomFilter == other.bloomFilter &&
+                bloomFilterFpp == other.bloomFilterFpp;
         }
 
         @Override
@@ -227,7 +256,7 @@ public final class KeywordFieldMapper extends FieldMapper {
 
         @Override
         public int hashCode() {
-            return 31 * super.hashCode() + Objects.hash(normalizer, splitQueriesOnWhitespace);
+            return 31 * super.hashCode() + Objects.hash(normalizer, splitQueriesOnWhitespace, bloomFilter, bloomFilterFpp);
         }
 
         @Override
@@ -253,6 +282,29 @@ public final class KeywordFieldMapper extends FieldMapper {
             this.splitQueriesOnWhitespace = splitQueriesOnWhitespace;
         }
 
+        /**
+         * Whether a Bloom filter of the terms of this field is written with every segment, so that term lookups can skip the
+         * segments that do not contain a term without seeking their terms dictionary.
+         */
+        public boolean bloomFilter() {
+            return bloomFilter;
+        }
+
+        public void setBloomFilter(boolean bloomFilter) {
+            checkIfFrozen();
+            this.bloomFilter = bloomFilter;
+        }
+
+        /** The false positive probability of the Bloom filters of this field. */
+        public double bloomFilterFpp() {
+            return bloomFilterFpp;
+        }
+
+        public void setBloomFilterFpp(double bloomFilterFpp) {
+            checkIfFrozen();
+            this.bloomFilterFpp = bloomFilterFpp;
+        }
+
         @Override
         public Query existsQuery(QueryShardContext context) {
             if (hasDocValues()) {
@@ -414,5 +466,13 @@ public final class KeywordFieldMapper extends FieldMapper {
         if (includeDefaults || fieldType().splitQueriesOnWhitespace) {
             builder.field("split_queries_on_whitespace", fieldType().splitQueriesOnWhitespace);
         }
+
+        if (includeDefaults || fieldType().bloomFilter()) {
+            builder.field("bloom_filter", fieldType().bloomFilter());
+        }
+
+        if (includeDefaults || fieldType().bloomFilterFpp() != Defaults.BLOOM_FILTER_FPP) {
+            builder.field("bloom_filter_fpp", fieldType().bloomFilterFpp());
+        }
     }
 }
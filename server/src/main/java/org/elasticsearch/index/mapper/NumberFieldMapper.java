@@ -110,6 +110,16 @@ public class NumberFieldMapper extends FieldMapper {
             return builder;
         }
 
+        public Builder segmentStats(boolean segmentStats) {
+            fieldType().setSegmentStats(segmentStats);
+            return builder;
+        }
+
+        @Override
+        public NumberFieldType fieldType() {
+            return (NumberFieldType) super.fieldType();
+        }
+
         protected Explicit<Boolean> coerce(BuilderContext context) {
             if (coerce != null) {
                 return new Explicit<>(coerce, true);
@@ -162,6 +172,9 @@ public class NumberFieldMapper extends FieldMapper {
                 } else if (propName.equals("coerce")) {
                     builder.coerce(XContentMapValues.nodeBooleanValue(propNode, name + ".coerce"));
                     iterator.remove();
+                } else if (propName.equals("segment_stats")) {
+                    builder.segmentStats(XContentMapValues.nodeBooleanValue(propNode, name + ".segment_stats"));
+                    iterator.remove();
                 }
             }
             return builder;
@@ -883,6 +896,7 @@ public class NumberFieldMapper extends FieldMapper {
     public static final class NumberFieldType extends SimpleMappedFieldType {
 
         private final NumberType type;
+        private boolean segmentStats;
 
         public NumberFieldType(NumberType type) {
             super();
@@ -895,6 +909,7 @@ public class NumberFieldMapper extends FieldMapper {
         private NumberFieldType(NumberFieldType other) {
             super(other);
             this.type = other.type;
+            this.segmentStats = other.segmentStats;
         }
 
         @Override
@@ -907,6 +922,24 @@ public class NumberFieldMapper extends FieldMapper {
             return type.name;
         }
 
+        /** The type of the values that are stored in doc values. */
+        public NumericType numericType() {
+            return type.numericType();
+        }
+
+        /**
+         * Whether the sum, min, max and count of the doc values of this field are computed when segments are written, so that
+         * aggregations can use them instead of visiting every document when the query matches all documents of a segment.
+         */
+        public boolean segmentStats() {
+            return segmentStats;
+        }
+
+        public void setSegmentStats(boolean segmentStats) {
+            checkIfFrozen();
+            this.segmentStats = segmentStats;
+        }
+
         @Override
         public Query existsQuery(QueryShardContext context) {
             if (hasDocValues()) {
@@ -983,12 +1016,13 @@ public class NumberFieldMapper extends FieldMapper {
                 return false;
             }
             NumberFieldType that = (NumberFieldType) o;
-            return type == that.type;
+            return type == that.type
+                && segmentStats == that.segmentStats;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(super.hashCode(), type);
+            return Objects.hash(super.hashCode(), type, segmentStats);
         }
     }
 
@@ -1096,6 +1130,9 @@ public class NumberFieldMapper extends FieldMapper {
         if (includeDefaults || coerce.explicit()) {
             builder.field("coerce", coerce.value());
         }
+        if (includeDefaults || fieldType().segmentStats()) {
+            builder.field("segment_stats", fieldType().segmentStats());
+        }
 
         if (includeDefaults || fieldType().nullValue() != null) {
             builder.field("null_value", fieldType().nullValue());
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.search.stats;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -50,6 +51,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
         private long scrollTimeInMillis;
         private long scrollCurrent;
 
+        private long readerContextCount;
+        private long readerContextTimeInMillis;
+        private long readerContextCurrent;
+
         private long suggestCount;
         private long suggestTimeInMillis;
         private long suggestCurrent;
@@ -62,6 +67,7 @@ public class SearchStats implements Writeable, ToXContentFragment {
                 long queryCount, long queryTimeInMillis, long queryCurrent,
                 long fetchCount, long fetchTimeInMillis, long fetchCurrent,
                 long scrollCount, long scrollTimeInMillis, long scrollCurrent,
+                long readerContextCount, long readerContextTimeInMillis, long readerContextCurrent,
                 long suggestCount, long suggestTimeInMillis, long suggestCurrent
         ) {
             this.queryCount = queryCount;
@@ -76,6 +82,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
             this.scrollTimeInMillis = scrollTimeInMillis;
             this.scrollCurrent = scrollCurrent;
 
+            this.readerContextCount = readerContextCount;
+            this.readerContextTimeInMillis = readerContextTimeInMillis;
+            this.readerContextCurrent = readerContextCurrent;
+
             this.suggestCount = suggestCount;
             this.suggestTimeInMillis = suggestTimeInMillis;
             this.suggestCurrent = suggestCurrent;
@@ -97,6 +107,12 @@ public class SearchStats implements Writeable, ToXContentFragment {
             suggestCount = in.readVLong();
             suggestTimeInMillis = in.readVLong();
             suggestCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                readerContextCount = in.readVLong();
+                readerContextTimeInMillis = in.readVLong();
+                readerContextCurrent = in.readVLong();
+            }
         }
 
         public void add(Stats stats) {
@@ -112,6 +128,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
             scrollTimeInMillis += stats.scrollTimeInMillis;
             scrollCurrent += stats.scrollCurrent;
 
+            readerContextCount += stats.readerContextCount;
+            readerContextTimeInMillis += stats.readerContextTimeInMillis;
+            readerContextCurrent += stats.readerContextCurrent;
+
             suggestCount += stats.suggestCount;
             suggestTimeInMillis += stats.suggestTimeInMillis;
             suggestCurrent += stats.suggestCurrent;
@@ -165,6 +185,22 @@ public class SearchStats implements Writeable, ToXContentFragment {
             return scrollCurrent;
         }
 
+        public long getReaderContextCount() {
+            return readerContextCount;
+        }
+
+        public TimeValue getReaderContextTime() {
+            return new TimeValue(readerContextTimeInMillis);
+        }
+
+        public long getReaderContextTimeInMillis() {
+            return readerContextTimeInMillis;
+        }
+
+        public long getReaderContextCurrent() {
+            return readerContextCurrent;
+        }
+
         public long getSuggestCount() {
             return suggestCount;
         }
@@ -202,6 +238,12 @@ public class SearchStats implements Writeable, ToXContentFragment {
             out.writeVLong(suggestCount);
             out.writeVLong(suggestTimeInMillis);
             out.writeVLong(suggestCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                out.writeVLong(readerContextCount);
+                out.writeVLong(readerContextTimeInMillis);
+                out.writeVLong(readerContextCurrent);
+            }
         }
 
         @Override
@@ -218,6 +260,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
             builder.humanReadableField(Fields.SCROLL_TIME_IN_MILLIS, Fields.SCROLL_TIME, getScrollTime());
             builder.field(Fields.SCROLL_CURRENT, scrollCurrent);
 
+            builder.field(Fields.READER_CONTEXT_TOTAL, readerContextCount);
+            builder.humanReadableField(Fields.READER_CONTEXT_TIME_IN_MILLIS, Fields.READER_CONTEXT_TIME, getReaderContextTime());
+            builder.field(Fields.READER_CONTEXT_CURRENT, readerContextCurrent);
+
             builder.field(Fields.SUGGEST_TOTAL, suggestCount);
             builder.humanReadableField(Fields.SUGGEST_TIME_IN_MILLIS, Fields.SUGGEST_TIME, getSuggestTime());
             builder.field(Fields.SUGGEST_CURRENT, suggestCurrent);
@@ -326,6 +372,10 @@ public class SearchStats implements Writeable, ToXContentFragment {
         static final String SCROLL_TIME = "scroll_time";
         static final String SCROLL_TIME_IN_MILLIS = "scroll_time_in_millis";
         static final String SCROLL_CURRENT = "scroll_current";
+        static final String READER_CONTEXT_TOTAL = "reader_context_total";
+        static final String READER_CONTEXT_TIME = "reader_context_time";
+        static final String READER_CONTEXT_TIME_IN_MILLIS = "reader_context_time_in_millis";
+        static final String READER_CONTEXT_CURRENT = "reader_context_current";
         static final String SUGGEST_TOTAL = "suggest_total";
         static final String SUGGEST_TIME = "suggest_time";
         static final String SUGGEST_TIME_IN_MILLIS = "suggest_time_in_millis";
@@ -24,6 +24,7 @@ import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.util.HashMap;
@@ -183,6 +184,18 @@ public final class ShardSearchStats implements SearchOperationListener {
         totalStats.scrollMetric.inc(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.getOriginNanoTime()));
     }
 
+    @Override
+    public void onNewReaderContext(ReaderContext context) {
+        totalStats.readerContextCurrent.inc();
+    }
+
+    @Override
+    public void onFreeReaderContext(ReaderContext context) {
+        totalStats.readerContextCurrent.dec();
+        assert totalStats.readerContextCurrent.count() >= 0;
+        totalStats.readerContextMetric.inc(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - context.getOriginNanoTime()));
+    }
+
     static final class StatsHolder {
         public final MeanMetric queryMetric = new MeanMetric();
         public final MeanMetric fetchMetric = new MeanMetric();
@@ -194,10 +207,13 @@ public final class ShardSearchStats implements SearchOperationListener {
          * for one-thousand times as long (i.e., scrolls that execute for almost twelve days on average).
          */
         public final MeanMetric scrollMetric = new MeanMetric();
+        // in microseconds for the same reason as scrolls
+        public final MeanMetric readerContextMetric = new MeanMetric();
         public final MeanMetric suggestMetric = new MeanMetric();
         public final CounterMetric queryCurrent = new CounterMetric();
         public final CounterMetric fetchCurrent = new CounterMetric();
         public final CounterMetric scrollCurrent = new CounterMetric();
+        public final CounterMetric readerContextCurrent = new CounterMetric();
         public final CounterMetric suggestCurrent = new CounterMetric();
 
         public SearchStats.Stats stats() {
@@ -205,18 +221,21 @@ public final class ShardSearchStats implements SearchOperationListener {
                     queryMetric.count(), TimeUnit.NANOSECONDS.toMillis(queryMetric.sum()), queryCurrent.count(),
                     fetchMetric.count(), TimeUnit.NANOSECONDS.toMillis(fetchMetric.sum()), fetchCurrent.count(),
                     scrollMetric.count(), TimeUnit.MICROSECONDS.toMillis(scrollMetric.sum()), scrollCurrent.count(),
+                    readerContextMetric.count(), TimeUnit.MICROSECONDS.toMillis(readerContextMetric.sum()), readerContextCurrent.count(),
                     suggestMetric.count(), TimeUnit.NANOSECONDS.toMillis(suggestMetric.sum()), suggestCurrent.count()
             );
         }
 
         public long totalCurrent() {
-            return queryCurrent.count() + fetchCurrent.count() + scrollCurrent.count() + suggestCurrent.count();
+            return queryCurrent.count() + fetchCurrent.count() + scrollCurrent.count() + readerContextCurrent.count()
+                + suggestCurrent.count();
         }
 
         public void clear() {
             queryMetric.clear();
             fetchMetric.clear();
             scrollMetric.clear();
+            readerContextMetric.clear();
             suggestMetric.clear();
         }
     }
@@ -72,6 +72,7 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.cache.IndexCache;
 import org.elasticsearch.index.cache.bitset.ShardBitsetFilterCache;
+import org.elasticsearch.index.cache.query.CostAwareQueryCachingPolicy;
 import org.elasticsearch.index.cache.request.ShardRequestCache;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.engine.CommitStats;
@@ -144,11 +145,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -218,6 +222,16 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
 
     private final IndexShardOperationPermits indexShardOperationPermits;
 
+    /**
+     * The number of operations that may be queued for each thread when replaying the translog concurrently.
+     */
+    private static final int TRANSLOG_RECOVERY_QUEUE_SIZE = 1024;
+
+    /**
+     * Marks the end of the translog in the queues of threads that replay the translog concurrently.
+     */
+    private static final Translog.Operation END_OF_TRANSLOG = new Translog.NoOp(0, 0, "end of translog");
+
     private static final EnumSet<IndexShardState> readAllowedStates = EnumSet.of(IndexShardState.STARTED, IndexShardState.POST_RECOVERY);
     // for primaries, we only allow to write when actually started (so the cluster has decided we started)
     // in case we have a relocation of a primary, we also allow to write after phase 2 completed, where the shard may be
@@ -315,6 +329,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                     return true;
                 }
             };
+        } else if (IndexModule.INDEX_QUERY_CACHE_COST_AWARE_SETTING.get(settings)) {
+            cachingPolicy = new CostAwareQueryCachingPolicy();
         } else {
             cachingPolicy = new UsageTrackingQueryCachingPolicy();
         }
@@ -675,29 +691,91 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
 
     public Engine.IndexResult applyIndexOperationOnPrimary(long version, VersionType versionType, SourceToParse sourceToParse,
                                                            long autoGeneratedTimestamp, boolean isRetry) throws IOException {
+        return applyIndexOperationOnPrimary(version, versionType, sourceToParse, autoGeneratedTimestamp, isRetry, null);
+    }
+
+    /**
+     * Applies an index operation on the primary, reusing the given document if it was parsed with the current mapping of its type.
+     *
+     * @param preParsed the document returned by {@link #preParseIndexOperationOnPrimary(SourceToParse)} for the same source, or
+     *                  <code>null</code> to parse the source
+     */
+    public Engine.IndexResult applyIndexOperationOnPrimary(long version, VersionType versionType, SourceToParse sourceToParse,
+                                                           long autoGeneratedTimestamp, boolean isRetry,
+                                                           @Nullable PreParsedDocument preParsed) throws IOException {
         assert versionType.validateVersionForWrites(version);
         return applyIndexOperation(UNASSIGNED_SEQ_NO, operationPrimaryTerm, version, versionType, autoGeneratedTimestamp,
-            isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse);
+            isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse, preParsed);
+    }
+
+    /**
+     * Parses the source of an index operation with the current mapping so that the operation can later be applied with
+     * {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, boolean, PreParsedDocument)} without parsing it
+     * again. This allows to parse the documents of a bulk request concurrently and may be called from any thread. Returns
+     * <code>null</code> if the document requires a mapping update or cannot be parsed, such documents are parsed again when the
+     * operation is applied, which updates the mapping or reports the failure.
+     */
+    @Nullable
+    public PreParsedDocument preParseIndexOperationOnPrimary(SourceToParse sourceToParse) {
+        final DocumentMapperForType docMapper = docMapper(sourceToParse.type());
+        if (docMapper.getMapping() != null) {
+            // the type does not exist yet
+            return null;
+        }
+        final long startTime = System.nanoTime();
+        final ParsedDocument doc;
+        try {
+            doc = docMapper.getDocumentMapper().parse(sourceToParse);
+        } catch (Exception e) {
+            return null;
+        }
+        if (doc.dynamicMappingsUpdate() != null) {
+            return null;
+        }
+        return new PreParsedDocument(docMapper.getDocumentMapper(), doc, System.nanoTime() - startTime);
+    }
+
+    /**
+     * A document that was parsed before its index operation is applied, see {@link #preParseIndexOperationOnPrimary(SourceToParse)}.
+     */
+    public static final class PreParsedDocument {
+        private final DocumentMapper mapper;
+        private final ParsedDocument doc;
+        private final long parseTimeInNanos;
+
+        private PreParsedDocument(DocumentMapper mapper, ParsedDocument doc, long parseTimeInNanos) {
+            this.mapper = mapper;
+            this.doc = doc;
+            this.parseTimeInNanos = parseTimeInNanos;
+        }
     }
 
     public Engine.IndexResult applyIndexOperationOnReplica(long seqNo, long version, long autoGeneratedTimeStamp,
                                                            boolean isRetry, SourceToParse sourceToParse)
         throws IOException {
         return applyIndexOperation(seqNo, operationPrimaryTerm, version, null, autoGeneratedTimeStamp, isRetry,
-            Engine.Operation.Origin.REPLICA, sourceToParse);
+            Engine.Operation.Origin.REPLICA, sourceToParse, null);
     }
 
     private Engine.IndexResult applyIndexOperation(long seqNo, long opPrimaryTerm, long version, @Nullable VersionType versionType,
                                                    long autoGeneratedTimeStamp, boolean isRetry, Engine.Operation.Origin origin,
-                                                   SourceToParse sourceToParse) throws IOException {
+                                                   SourceToParse sourceToParse, @Nullable PreParsedDocument preParsed) throws IOException {
         assert opPrimaryTerm <= this.operationPrimaryTerm: "op term [ " + opPrimaryTerm + " ] > shard term [" + this.operationPrimaryTerm
             + "]";
         ensureWriteAllowed(origin);
         Engine.Index operation;
         try {
-            operation = prepareIndex(docMapper(sourceToParse.type()), indexSettings.getIndexVersionCreated(), sourceToParse, seqNo,
-                    opPrimaryTerm, version, versionType, origin,
-                autoGeneratedTimeStamp, isRetry);
+            final DocumentMapperForType docMapper = docMapper(sourceToParse.type());
+            if (preParsed != null && docMapper.getMapping() == null && docMapper.getDocumentMapper() == preParsed.mapper) {
+                // the mapping did not change since the document was parsed, account for the parsing in the indexing time
+                final long startTime = System.nanoTime() - preParsed.parseTimeInNanos;
+                final Term uid = new Term(IdFieldMapper.NAME, Uid.encodeId(preParsed.doc.id()));
+                operation = new Engine.Index(uid, preParsed.doc, seqNo, opPrimaryTerm, version, versionType, origin, startTime,
+                    autoGeneratedTimeStamp, isRetry);
+            } else {
+                operation = prepareIndex(docMapper, indexSettings.getIndexVersionCreated(), sourceToParse, seqNo,
+                    opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry);
+            }
             Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 return new Engine.IndexResult(update);
@@ -1259,7 +1337,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 result = applyIndexOperation(index.seqNo(), index.primaryTerm(), index.version(),
                     versionType, index.getAutoGeneratedIdTimestamp(), true, origin,
                     source(shardId.getIndexName(), index.type(), index.id(), index.source(),
-                        XContentHelper.xContentType(index.source())).routing(index.routing()));
+                        XContentHelper.xContentType(index.source())).routing(index.routing()), null);
                 break;
             case DELETE:
                 final Translog.Delete delete = (Translog.Delete) operation;
@@ -1282,35 +1360,149 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
      */
     int runTranslogRecovery(Engine engine, Translog.Snapshot snapshot, Engine.Operation.Origin origin,
                             Runnable onOperationRecovered) throws IOException {
+        final int threads = origin == Engine.Operation.Origin.LOCAL_TRANSLOG_RECOVERY ? indexSettings.getTranslogRecoveryThreads() : 1;
+        if (threads > 1) {
+            return runConcurrentTranslogRecovery(snapshot, origin, onOperationRecovered, threads);
+        }
         int opsRecovered = 0;
         Translog.Operation operation;
         while ((operation = snapshot.next()) != null) {
-            try {
-                logger.trace("[translog] recover op {}", operation);
-                Engine.Result result = applyTranslogOperation(operation, origin);
-                switch (result.getResultType()) {
-                    case FAILURE:
-                        throw result.getFailure();
-                    case MAPPING_UPDATE_REQUIRED:
-                        throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
-                    case SUCCESS:
-                        break;
-                    default:
-                        throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
-                }
-
+            if (recoverTranslogOperation(operation, origin)) {
                 opsRecovered++;
                 onOperationRecovered.run();
-            } catch (Exception e) {
-                if (ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
+            }
+        }
+        return opsRecovered;
+    }
+
+    /**
+     * Replays translog operations like {@link #runTranslogRecovery(Engine, Translog.Snapshot, Engine.Operation.Origin, Runnable)} but
+     * on the given number of threads of the generic thread pool. The calling thread reads the snapshot and hands each operation to
+     * the worker that owns its document id so that operations on the same document are still applied in translog order. Operations
+     * on different documents may be applied in any order, which the engine handles like out of order operations on replicas.
+     */
+    private int runConcurrentTranslogRecovery(Translog.Snapshot snapshot, Engine.Operation.Origin origin, Runnable onOperationRecovered,
+                                              int threads) throws IOException {
+        final AtomicInteger opsRecovered = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch workersDone = new CountDownLatch(threads);
+        final List<BlockingQueue<Translog.Operation>> queues = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            queues.add(new ArrayBlockingQueue<>(TRANSLOG_RECOVERY_QUEUE_SIZE));
+        }
+        int startedWorkers = 0;
+        try {
+            // start the workers under the try so that every started worker is handed an end marker even if starting another fails
+            for (; startedWorkers < threads; startedWorkers++) {
+                final BlockingQueue<Translog.Operation> queue = queues.get(startedWorkers);
+                threadPool.generic().execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        Translog.Operation operation;
+                        while ((operation = queue.take()) != END_OF_TRANSLOG) {
+                            // keep draining the queue after a failure so that the reading thread never blocks on it
+                            if (failure.get() == null && recoverTranslogOperation(operation, origin)) {
+                                opsRecovered.incrementAndGet();
+                                onOperationRecovered.run();
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onTranslogRecoveryFailure(failure, e);
+                    }
+
+                    @Override
+                    public void onAfter() {
+                        workersDone.countDown();
+                    }
+                });
+            }
+            Translog.Operation operation;
+            while (failure.get() == null && (operation = snapshot.next()) != null) {
+                final int worker;
+                if (operation.opType() == Translog.Operation.Type.INDEX) {
+                    worker = Math.floorMod(((Translog.Index) operation).id().hashCode(), threads);
+                } else if (operation.opType() == Translog.Operation.Type.DELETE) {
+                    worker = Math.floorMod(((Translog.Delete) operation).id().hashCode(), threads);
                 } else {
-                    throw ExceptionsHelper.convertToRuntime(e);
+                    worker = (int) Math.floorMod(operation.seqNo(), (long) threads);
+                }
+                // wait for the worker to catch up unless another worker failed in the meantime
+                boolean queued = false;
+                while (queued == false && failure.get() == null) {
+                    queued = queues.get(worker).offer(operation, 100, TimeUnit.MILLISECONDS);
                 }
             }
+        } catch (Exception e) {
+            onTranslogRecoveryFailure(failure, e);
+        } finally {
+            // workers that were never started won't count down
+            for (int i = startedWorkers; i < threads; i++) {
+                workersDone.countDown();
+            }
+            for (BlockingQueue<Translog.Operation> queue : queues.subList(0, startedWorkers)) {
+                try {
+                    while (queue.offer(END_OF_TRANSLOG, 100, TimeUnit.MILLISECONDS) == false) {
+                        if (failure.get() != null) {
+                            // only this thread adds to the queue, so the next offer succeeds even if the worker never started
+                            queue.clear();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ThreadInterruptedException(e);
+                }
+            }
+            try {
+                workersDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+        }
+        if (failure.get() != null) {
+            throw ExceptionsHelper.convertToRuntime(failure.get());
+        }
+        return opsRecovered.get();
+    }
+
+    private static void onTranslogRecoveryFailure(AtomicReference<Exception> failure, Exception e) {
+        if (failure.compareAndSet(null, e) == false) {
+            failure.get().addSuppressed(e);
+        }
+    }
+
+    /**
+     * Applies a single translog operation during recovery.
+     *
+     * @return <code>true</code> if the operation was applied, <code>false</code> if it was a corrupt entry that was ignored
+     */
+    private boolean recoverTranslogOperation(Translog.Operation operation, Engine.Operation.Origin origin) {
+        try {
+            logger.trace("[translog] recover op {}", operation);
+            Engine.Result result = applyTranslogOperation(operation, origin);
+            switch (result.getResultType()) {
+                case FAILURE:
+                    throw result.getFailure();
+                case MAPPING_UPDATE_REQUIRED:
+                    throw new IllegalArgumentException("unexpected mapping update: " + result.getRequiredMappingUpdate());
+                case SUCCESS:
+                    break;
+                default:
+                    throw new AssertionError("Unknown result type [" + result.getResultType() + "]");
+            }
+            return true;
+        } catch (Exception e) {
+            if (ExceptionsHelper.status(e) == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw ExceptionsHelper.convertToRuntime(e);
+            }
         }
-        return opsRecovered;
     }
 
     /**
@@ -2565,6 +2757,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return replicationTracker;
     }
 
+    /**
+     * Returns <code>true</code> if the shard received operations that are not visible to searches yet.
+     */
+    public boolean isRefreshNeeded() {
+        return getEngine().refreshNeeded();
+    }
+
     /**
      * Executes a scheduled refresh if necessary.
      *
@@ -21,6 +21,7 @@ package org.elasticsearch.index.shard;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.transport.TransportRequest;
 
@@ -105,6 +106,20 @@ public interface SearchOperationListener {
      */
     default void onFreeScrollContext(SearchContext context) {};
 
+    /**
+     * Executed when a new point in time {@link ReaderContext} was opened
+     * @param context the opened reader context
+     */
+    default void onNewReaderContext(ReaderContext context) {};
+
+    /**
+     * Executed when a point in time {@link ReaderContext} is freed.
+     * This happens either when it is closed explicitly or if it was idle
+     * for longer than its keep alive.
+     * @param context the freed reader context
+     */
+    default void onFreeReaderContext(ReaderContext context) {};
+
     /**
      * Executed prior to using a {@link SearchContext} that has been retrieved
      * from the active contexts. If the context is deemed invalid a runtime
@@ -114,6 +129,15 @@ public interface SearchOperationListener {
      */
     default void validateSearchContext(SearchContext context, TransportRequest transportRequest) {}
 
+    /**
+     * Executed prior to using a point in time {@link ReaderContext} that has been retrieved
+     * from the active reader contexts, either to search it or to free it. If the reader context
+     * is deemed invalid a runtime exception can be thrown, which will prevent it from being used.
+     * @param context the reader context retrieved from the active reader contexts
+     * @param transportRequest the request that is going to use the reader context
+     */
+    default void validateReaderContext(ReaderContext context, TransportRequest transportRequest) {}
+
     /**
      * A Composite listener that multiplexes calls to each of the listeners methods.
      */
@@ -236,6 +260,28 @@ public interface SearchOperationListener {
             }
         }
 
+        @Override
+        public void onNewReaderContext(ReaderContext context) {
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.onNewReaderContext(context);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("onNewReaderContext listener [{}] failed", listener), e);
+                }
+            }
+        }
+
+        @Override
+        public void onFreeReaderContext(ReaderContext context) {
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.onFreeReaderContext(context);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("onFreeReaderContext listener [{}] failed", listener), e);
+                }
+            }
+        }
+
         @Override
         public void validateSearchContext(SearchContext context, TransportRequest request) {
             Exception exception = null;
@@ -248,5 +294,18 @@ public interface SearchOperationListener {
             }
             ExceptionsHelper.reThrowIfNotNull(exception);
         }
+
+        @Override
+        public void validateReaderContext(ReaderContext context, TransportRequest request) {
+            Exception exception = null;
+            for (SearchOperationListener listener : listeners) {
+                try {
+                    listener.validateReaderContext(context, request);
+                } catch (Exception e) {
+                    exception = ExceptionsHelper.useOrSuppress(exception, e);
+                }
+            }
+            ExceptionsHelper.reThrowIfNotNull(exception);
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.translog;
+
+/**
+ * Keeps track of the fsyncs of a {@link Translog} and decides how long a sync that was requested to make an operation durable
+ * should wait before flushing the translog, so that operations that concurrent writers are about to add are made durable by the
+ * same fsync (group commit).
+ * <p>
+ * A sync only waits if operations were added to the translog while the recent syncs were waiting or fsyncing, which means that
+ * there are concurrent writers that are going to need a sync too. It then waits for half of the average fsync duration, bounded
+ * by the configured maximum, which bounds the added latency while giving other writers a chance to join. If waiting stops
+ * paying off, the moving average of the operations added during syncs drops below one and syncs stop waiting.
+ */
+final class GroupCommit {
+
+    // the weight of the latest sample in the moving averages
+    private static final double ALPHA = 0.3;
+
+    private double averageSyncNanos;
+    private double averageConcurrentOperations;
+    private long lastSyncedGeneration = -1;
+    private int lastSyncedOperations;
+
+    private long syncCount;
+    private long syncedOperations;
+    private long syncTimeInNanos;
+    private long syncWaitTimeInNanos;
+
+    /**
+     * Returns how long a sync should wait before flushing the translog.
+     */
+    synchronized long lingerNanos(long maxLingerNanos) {
+        if (maxLingerNanos <= 0 || averageConcurrentOperations < 1) {
+            return 0;
+        }
+        return Math.min(maxLingerNanos, (long) (averageSyncNanos / 2));
+    }
+
+    /**
+     * Records that a sync waited for the given time before flushing the translog.
+     */
+    synchronized void onWait(long waitNanos) {
+        syncWaitTimeInNanos += waitNanos;
+    }
+
+    /**
+     * Records a sync of the given generation.
+     *
+     * @param generation            the generation that was synced
+     * @param syncedOperations      the number of operations of the generation that are synced
+     * @param writtenOperations     the number of operations that were added to the generation when the sync completed
+     * @param syncNanos             how long it took to flush and fsync the translog
+     * @param operationsDuringWait  the number of operations that were added while the sync was waiting
+     */
+    synchronized void onSync(long generation, int syncedOperations, int writtenOperations, long syncNanos, int operationsDuringWait) {
+        syncCount++;
+        if (generation == lastSyncedGeneration) {
+            this.syncedOperations += Math.max(0, syncedOperations - lastSyncedOperations);
+        } else {
+            this.syncedOperations += syncedOperations;
+        }
+        lastSyncedGeneration = generation;
+        lastSyncedOperations = syncedOperations;
+        syncTimeInNanos += syncNanos;
+
+        final int concurrentOperations = Math.max(0, writtenOperations - syncedOperations) + operationsDuringWait;
+        if (syncCount == 1) {
+            averageSyncNanos = syncNanos;
+            averageConcurrentOperations = concurrentOperations;
+        } else {
+            averageSyncNanos = ALPHA * syncNanos + (1 - ALPHA) * averageSyncNanos;
+            averageConcurrentOperations = ALPHA * concurrentOperations + (1 - ALPHA) * averageConcurrentOperations;
+        }
+    }
+
+    synchronized long syncCount() {
+        return syncCount;
+    }
+
+    synchronized long syncedOperations() {
+        return syncedOperations;
+    }
+
+    synchronized long syncTimeInNanos() {
+        return syncTimeInNanos;
+    }
+
+    synchronized long syncWaitTimeInNanos() {
+        return syncWaitTimeInNanos;
+    }
+}
@@ -61,8 +61,10 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.LongSupplier;
 import java.util.regex.Matcher;
@@ -126,6 +128,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final LongSupplier primaryTermSupplier;
     private final String translogUUID;
     private final TranslogDeletionPolicy deletionPolicy;
+    private final GroupCommit groupCommit = new GroupCommit();
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogGeneration} is
@@ -590,10 +593,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 throw new IllegalArgumentException("requested snapshot generation [" + fromFileGen + "] is not available. " +
                     "Min referenced generation is [" + getMinFileGeneration() + "]");
             }
-            TranslogSnapshot[] snapshots = Stream.concat(readers.stream(), Stream.of(current))
+            BaseTranslogReader[] snapshotReaders = Stream.concat(readers.stream(), Stream.of(current))
                 .filter(reader -> reader.getGeneration() >= fromFileGen && reader.getCheckpoint().minSeqNo <= upToSeqNo)
-                .map(BaseTranslogReader::newSnapshot).toArray(TranslogSnapshot[]::new);
-            final Snapshot snapshot = newMultiSnapshot(snapshots);
+                .toArray(BaseTranslogReader[]::new);
+            final Snapshot snapshot = newMultiSnapshot(snapshotReaders);
             if (upToSeqNo == Long.MAX_VALUE) {
                 return snapshot;
             } else {
@@ -635,13 +638,29 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public Snapshot newSnapshotFromMinSeqNo(long minSeqNo) throws IOException {
         try (ReleasableLock ignored = readLock.acquire()) {
             ensureOpen();
-            TranslogSnapshot[] snapshots = readersAboveMinSeqNo(minSeqNo).map(BaseTranslogReader::newSnapshot)
-                .toArray(TranslogSnapshot[]::new);
-            return newMultiSnapshot(snapshots);
+            return newMultiSnapshot(readersAboveMinSeqNo(minSeqNo).toArray(BaseTranslogReader[]::new));
         }
     }
 
-    private Snapshot newMultiSnapshot(TranslogSnapshot[] snapshots) throws IOException {
+    private Snapshot newMultiSnapshot(BaseTranslogReader[] snapshotReaders) throws IOException {
+        // immutable generations may be read through a memory mapping, the current writer still has buffered operations
+        final boolean mmap = indexSettings.isTranslogMmap();
+        final TranslogSnapshot[] snapshots = new TranslogSnapshot[snapshotReaders.length];
+        boolean created = false;
+        try {
+            for (int i = 0; i < snapshotReaders.length; i++) {
+                if (mmap && snapshotReaders[i] instanceof TranslogReader) {
+                    snapshots[i] = ((TranslogReader) snapshotReaders[i]).newMappedSnapshot();
+                } else {
+                    snapshots[i] = snapshotReaders[i].newSnapshot();
+                }
+            }
+            created = true;
+        } finally {
+            if (created == false) {
+                IOUtils.closeWhileHandlingException(snapshots);
+            }
+        }
         final Closeable onClose;
         if (snapshots.length == 0) {
             onClose = () -> {};
@@ -657,7 +676,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return result;
         } finally {
             if (success == false) {
-                onClose.close();
+                IOUtils.close(() -> IOUtils.close(snapshots), onClose);
             }
         }
     }
@@ -702,7 +721,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public void sync() throws IOException {
         try (ReleasableLock lock = readLock.acquire()) {
             if (closed.get() == false) {
-                current.sync();
+                syncCurrent(Long.MAX_VALUE, 0);
             }
         } catch (final Exception ex) {
             closeOnTragicEvent(ex);
@@ -771,10 +790,23 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
      * @return Returns <code>true</code> iff this call caused an actual sync operation otherwise <code>false</code>
      */
     public boolean ensureSynced(Location location) throws IOException {
+        final TranslogWriter writer;
+        try (ReleasableLock lock = readLock.acquire()) {
+            if (location.generation != current.getGeneration()) { // if we have a new one it's already synced
+                return false;
+            }
+            ensureOpen();
+            writer = current;
+        } catch (final Exception ex) {
+            closeOnTragicEvent(ex);
+            throw ex;
+        }
+        // linger without holding the read lock so that rolling or trimming generations isn't blocked by the group commit
+        final int operationsDuringWait = awaitGroupCommit(writer, location.translogLocation + location.size);
         try (ReleasableLock lock = readLock.acquire()) {
-            if (location.generation == current.getGeneration()) { // if we have a new one it's already synced
+            if (location.generation == current.getGeneration()) {
                 ensureOpen();
-                return current.syncUpTo(location.translogLocation + location.size);
+                return syncCurrent(location.translogLocation + location.size, operationsDuringWait);
             }
         } catch (final Exception ex) {
             closeOnTragicEvent(ex);
@@ -783,6 +815,43 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         return false;
     }
 
+    /**
+     * Waits for operations of concurrent writers so that they can be synced all at once, see {@link GroupCommit}. Must not be
+     * called under the read lock since the wait would otherwise block rolling the generation.
+     *
+     * @return the number of operations that were added to the given writer while waiting
+     */
+    private int awaitGroupCommit(TranslogWriter writer, long offset) {
+        final long maxLingerNanos = indexSettings.getTranslogGroupCommitMaxLinger().nanos();
+        final long lingerNanos = groupCommit.lingerNanos(maxLingerNanos);
+        if (lingerNanos > 0 && writer.getLastSyncedCheckpoint().offset < offset) {
+            assert readLock.isHeldByCurrentThread() == false : "must not linger while holding the read lock";
+            final int operationsBeforeWait = writer.totalOperations();
+            final long startNanos = System.nanoTime();
+            LockSupport.parkNanos(lingerNanos);
+            groupCommit.onWait(System.nanoTime() - startNanos);
+            return writer.totalOperations() - operationsBeforeWait;
+        }
+        return 0;
+    }
+
+    /**
+     * Syncs the current writer up to the given offset, must be called under the read lock.
+     *
+     * @param operationsDuringWait the number of operations that were added while lingering for the group commit
+     * @return <code>true</code> iff this call caused an actual sync operation
+     */
+    private boolean syncCurrent(long offset, int operationsDuringWait) throws IOException {
+        final TranslogWriter writer = current;
+        final long startNanos = System.nanoTime();
+        final boolean synced = writer.syncUpTo(offset);
+        if (synced) {
+            this.groupCommit.onSync(writer.getGeneration(), writer.getLastSyncedCheckpoint().numOps, writer.totalOperations(),
+                System.nanoTime() - startNanos, operationsDuringWait);
+        }
+        return synced;
+    }
+
     /**
      * Ensures that all locations in the given stream have been synced / written to the underlying storage.
      * This method allows for internal optimization to minimize the amount of fsync operations if multiple
@@ -835,7 +904,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         // acquire lock to make the two numbers roughly consistent (no file change half way)
         try (ReleasableLock lock = readLock.acquire()) {
             final long uncommittedGen = deletionPolicy.getTranslogGenerationOfLastCommit();
-            return new TranslogStats(totalOperations(), sizeInBytes(), totalOperationsByMinGen(uncommittedGen), sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge());
+            return new TranslogStats(totalOperations(), sizeInBytes(), totalOperationsByMinGen(uncommittedGen),
+                sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge(), groupCommit.syncCount(), groupCommit.syncedOperations(),
+                TimeUnit.NANOSECONDS.toMillis(groupCommit.syncTimeInNanos()),
+                TimeUnit.NANOSECONDS.toMillis(groupCommit.syncWaitTimeInNanos()));
         }
     }
 
@@ -21,6 +21,7 @@ package org.elasticsearch.index.translog;
 
 import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.util.ByteBufferCleaner;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 
@@ -108,6 +109,21 @@ public class TranslogReader extends BaseTranslogReader implements Closeable {
         }
     }
 
+    /**
+     * Creates a snapshot that reads operations from a read-only memory mapping of this generation rather than through its file
+     * channel, which avoids a positional read and a copy per operation when replaying large generations. The mapping is owned by
+     * the snapshot and unmapped when it is closed. Falls back to a regular snapshot if the JVM does not allow unmapping, for
+     * generations that are too large to be mapped into a single buffer, and for generations whose file is shorter than its
+     * checkpoint, so that truncation is reported as an {@link EOFException} rather than by faulting on the mapping.
+     */
+    TranslogSnapshot newMappedSnapshot() throws IOException {
+        ensureOpen();
+        if (ByteBufferCleaner.isSupported() == false || length > Integer.MAX_VALUE || channel.size() < length) {
+            return newSnapshot();
+        }
+        return new TranslogSnapshot(this, length, channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+    }
+
     public long sizeInBytes() {
         return length;
     }
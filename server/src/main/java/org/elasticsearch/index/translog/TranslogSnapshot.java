@@ -18,31 +18,52 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.common.util.ByteBufferCleaner;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
-final class TranslogSnapshot extends BaseTranslogReader {
+final class TranslogSnapshot extends BaseTranslogReader implements Closeable {
 
     private final int totalOperations;
     private final Checkpoint checkpoint;
     protected final long length;
 
     private final ByteBuffer reusableBuffer;
+    private final ByteBuffer mapped;
     private long position;
     private int skippedOperations;
     private int readOperations;
     private BufferedChecksumStreamInput reuse;
+    private boolean closed;
 
     /**
      * Create a snapshot of translog file channel.
      */
     TranslogSnapshot(final BaseTranslogReader reader, final long length) {
+        this(reader, length, null);
+    }
+
+    /**
+     * Create a snapshot of a translog file that reads operations from the given read-only mapping of the file instead of its
+     * channel. Operations are parsed straight from the mapping without copying them to an intermediate buffer. The mapping is
+     * unmapped when the snapshot is closed.
+     *
+     * @param mapped a mapping of the translog file starting at offset 0 and covering at least <code>length</code> bytes, or
+     *               <code>null</code> to read through the file channel
+     */
+    TranslogSnapshot(final BaseTranslogReader reader, final long length, final ByteBuffer mapped) {
         super(reader.generation, reader.channel, reader.path, reader.header);
+        assert mapped == null || mapped.capacity() >= length :
+            "mapping of size [" + mapped.capacity() + "] is smaller than [" + length + "]";
         this.length = length;
+        this.mapped = mapped;
         this.totalOperations = reader.totalOperations();
         this.checkpoint = reader.getCheckpoint();
         this.reusableBuffer = ByteBuffer.allocate(1024);
@@ -66,6 +87,7 @@ final class TranslogSnapshot extends BaseTranslogReader {
     }
 
     public Translog.Operation next() throws IOException {
+        ensureOpen();
         while (readOperations < totalOperations) {
             final Translog.Operation operation = readOperation();
             if (operation.seqNo() <= checkpoint.trimmedAboveSeqNo || checkpoint.trimmedAboveSeqNo == SequenceNumbers.UNASSIGNED_SEQ_NO) {
@@ -78,7 +100,15 @@ final class TranslogSnapshot extends BaseTranslogReader {
 
     protected Translog.Operation readOperation() throws IOException {
         final int opSize = readSize(reusableBuffer, position);
-        reuse = checksummedStream(reusableBuffer, position, opSize, reuse);
+        if (mapped == null) {
+            reuse = checksummedStream(reusableBuffer, position, opSize, reuse);
+        } else {
+            // readSize made sure that the operation ends before the end of the snapshot
+            final ByteBuffer slice = mapped.duplicate();
+            slice.limit(Math.toIntExact(position + opSize));
+            slice.position(Math.toIntExact(position));
+            reuse = new BufferedChecksumStreamInput(new ByteBufferStreamInput(slice.slice()), path.toString(), reuse);
+        }
         Translog.Operation op = read(reuse);
         position += opSize;
         readOperations++;
@@ -99,7 +129,37 @@ final class TranslogSnapshot extends BaseTranslogReader {
         if (position < getFirstOperationOffset()) {
             throw new IOException("read requested before position of first ops. pos [" + position + "] first op on: [" + getFirstOperationOffset() + "], generation: [" + getGeneration() + "], path: [" + path + "]");
         }
-        Channels.readFromFileChannelWithEofException(channel, position, buffer);
+        if (mapped == null) {
+            Channels.readFromFileChannelWithEofException(channel, position, buffer);
+        } else {
+            if (position + buffer.remaining() > length) {
+                throw new EOFException("read requested past EOF. pos [" + position + "] length [" + buffer.remaining() + "] end: [" + length
+                    + "], generation: [" + getGeneration() + "], path: [" + path + "]");
+            }
+            final ByteBuffer source = mapped.duplicate();
+            source.limit(Math.toIntExact(position + buffer.remaining()));
+            source.position(Math.toIntExact(position));
+            buffer.put(source);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new AlreadyClosedException(toString() + " is already closed");
+        }
+    }
+
+    /**
+     * Unmaps the mapping this snapshot reads from, if any. The snapshot must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed == false) {
+            closed = true;
+            if (mapped != null) {
+                ByteBufferCleaner.clean(mapped);
+            }
+        }
     }
 
     @Override
@@ -111,6 +171,7 @@ final class TranslogSnapshot extends BaseTranslogReader {
                 ", length=" + length +
                 ", generation=" + generation +
                 ", reusableBuffer=" + reusableBuffer +
+                ", mapped=" + (mapped != null) +
                 '}';
     }
 }
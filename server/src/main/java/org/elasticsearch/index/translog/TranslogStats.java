@@ -24,6 +24,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
@@ -36,12 +37,22 @@ public class TranslogStats implements Streamable, ToXContentFragment {
     private long uncommittedSizeInBytes;
     private int  uncommittedOperations;
     private long earliestLastModifiedAge;
+    private long syncCount;
+    private long syncedOperations;
+    private long syncTimeInMillis;
+    private long syncWaitTimeInMillis;
 
     public TranslogStats() {
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
                          long earliestLastModifiedAge) {
+        this(numberOfOperations, translogSizeInBytes, uncommittedOperations, uncommittedSizeInBytes, earliestLastModifiedAge, 0, 0, 0, 0);
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
+                         long earliestLastModifiedAge, long syncCount, long syncedOperations, long syncTimeInMillis,
+                         long syncWaitTimeInMillis) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
@@ -57,11 +68,27 @@ public class TranslogStats implements Streamable, ToXContentFragment {
         if (earliestLastModifiedAge < 0) {
             throw new IllegalArgumentException("earliestLastModifiedAge must be >= 0");
         }
+        if (syncCount < 0) {
+            throw new IllegalArgumentException("syncCount must be >= 0");
+        }
+        if (syncedOperations < 0) {
+            throw new IllegalArgumentException("syncedOperations must be >= 0");
+        }
+        if (syncTimeInMillis < 0) {
+            throw new IllegalArgumentException("syncTimeInMillis must be >= 0");
+        }
+        if (syncWaitTimeInMillis < 0) {
+            throw new IllegalArgumentException("syncWaitTimeInMillis must be >= 0");
+        }
         this.numberOfOperations = numberOfOperations;
         this.translogSizeInBytes = translogSizeInBytes;
         this.uncommittedSizeInBytes = uncommittedSizeInBytes;
         this.uncommittedOperations = uncommittedOperations;
         this.earliestLastModifiedAge = earliestLastModifiedAge;
+        this.syncCount = syncCount;
+        this.syncedOperations = syncedOperations;
+        this.syncTimeInMillis = syncTimeInMillis;
+        this.syncWaitTimeInMillis = syncWaitTimeInMillis;
     }
 
     public void add(TranslogStats translogStats) {
@@ -75,6 +102,10 @@ public class TranslogStats implements Streamable, ToXContentFragment {
         this.uncommittedSizeInBytes += translogStats.uncommittedSizeInBytes;
         this.earliestLastModifiedAge =
             Math.min(this.earliestLastModifiedAge, translogStats.earliestLastModifiedAge);
+        this.syncCount += translogStats.syncCount;
+        this.syncedOperations += translogStats.syncedOperations;
+        this.syncTimeInMillis += translogStats.syncTimeInMillis;
+        this.syncWaitTimeInMillis += translogStats.syncWaitTimeInMillis;
     }
 
     public long getTranslogSizeInBytes() {
@@ -97,6 +128,26 @@ public class TranslogStats implements Streamable, ToXContentFragment {
 
     public long getEarliestLastModifiedAge() { return earliestLastModifiedAge; }
 
+    /** the number of times the translog was fsynced */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /** the number of operations that were made durable by fsyncs, divide by {@link #getSyncCount()} to get the operations per fsync */
+    public long getSyncedOperations() {
+        return syncedOperations;
+    }
+
+    /** the total time spent fsyncing the translog */
+    public long getSyncTimeInMillis() {
+        return syncTimeInMillis;
+    }
+
+    /** the total time that fsyncs waited for concurrent operations, see {@code index.translog.group_commit.max_linger} */
+    public long getSyncWaitTimeInMillis() {
+        return syncWaitTimeInMillis;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("translog");
@@ -105,6 +156,10 @@ public class TranslogStats implements Streamable, ToXContentFragment {
         builder.field("uncommitted_operations", uncommittedOperations);
         builder.humanReadableField("uncommitted_size_in_bytes", "uncommitted_size", new ByteSizeValue(uncommittedSizeInBytes));
         builder.field("earliest_last_modified_age", earliestLastModifiedAge);
+        builder.field("sync_count", syncCount);
+        builder.field("synced_operations", syncedOperations);
+        builder.humanReadableField("sync_time_in_millis", "sync_time", new TimeValue(syncTimeInMillis));
+        builder.humanReadableField("sync_wait_time_in_millis", "sync_wait_time", new TimeValue(syncWaitTimeInMillis));
         builder.endObject();
         return builder;
     }
@@ -128,6 +183,12 @@ public class TranslogStats implements Streamable, ToXContentFragment {
         if (in.getVersion().onOrAfter(Version.V_6_3_0)) {
             earliestLastModifiedAge = in.readVLong();
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            syncCount = in.readVLong();
+            syncedOperations = in.readVLong();
+            syncTimeInMillis = in.readVLong();
+            syncWaitTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
@@ -141,5 +202,11 @@ public class TranslogStats implements Streamable, ToXContentFragment {
         if (out.getVersion().onOrAfter(Version.V_6_3_0)) {
             out.writeVLong(earliestLastModifiedAge);
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(syncCount);
+            out.writeVLong(syncedOperations);
+            out.writeVLong(syncTimeInMillis);
+            out.writeVLong(syncWaitTimeInMillis);
+        }
     }
 }
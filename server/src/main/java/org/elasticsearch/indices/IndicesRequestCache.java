@@ -34,6 +34,7 @@ import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.cache.CacheLoader;
 import org.elasticsearch.common.cache.RemovalListener;
 import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.cache.TinyLfuCache;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Setting;
@@ -74,10 +75,23 @@ public final class IndicesRequestCache extends AbstractComponent implements Remo
      */
     public static final Setting<Boolean> INDEX_CACHE_REQUEST_ENABLED_SETTING =
         Setting.boolSetting("index.requests.cache.enable", true, Property.Dynamic, Property.IndexScope);
+    /**
+     * A setting to also cache the top hits of requests with a size greater than 0 on an index level, when the request does not say
+     * whether it should be cached. Only the ids and sort values of the hits are cached, the hits are fetched for every request.
+     * Like all entries of this cache they are bounded by {@link #INDICES_CACHE_QUERY_SIZE} and not accounted for by the circuit
+     * breakers.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_REQUEST_HITS_ENABLED_SETTING =
+        Setting.boolSetting("index.requests.cache.hits.enable", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE =
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
         Setting.positiveTimeSetting("indices.requests.cache.expire", new TimeValue(0), Property.NodeScope);
+    /**
+     * Whether the cache should use frequency-aware admission and lock-free reads, see {@link TinyLfuCache}.
+     */
+    public static final Setting<Boolean> INDICES_CACHE_QUERY_FREQUENCY_AWARE =
+        Setting.boolSetting("indices.requests.cache.frequency_aware", false, Property.NodeScope);
 
     private static final Logger LOGGER = LogManager.getLogger(IndicesRequestCache.class);
 
@@ -93,7 +107,8 @@ public final class IndicesRequestCache extends AbstractComponent implements Remo
         this.expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
         long sizeInBytes = size.getBytes();
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
-            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this)
+            .setFrequencyAware(INDICES_CACHE_QUERY_FREQUENCY_AWARE.get(settings));
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
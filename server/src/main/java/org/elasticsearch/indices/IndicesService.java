@@ -1158,9 +1158,10 @@ public class IndicesService extends AbstractLifecycleComponent
         if (request.requestCache() == null) {
             if (settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING) == false) {
                 return false;
-            } else if (context.size() != 0) {
+            } else if (context.size() != 0 && settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_HITS_ENABLED_SETTING) == false) {
                 // If no request cache query parameter and shard request cache
                 // is enabled in settings don't cache for requests with size > 0
+                // unless caching hits is enabled too
                 return false;
             }
         } else if (request.requestCache() == false) {
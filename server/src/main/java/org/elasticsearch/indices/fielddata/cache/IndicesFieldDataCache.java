@@ -38,6 +38,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData;
@@ -48,6 +49,7 @@ import org.elasticsearch.index.shard.ShardUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -115,6 +117,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         final String fieldName;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        // the key of the global field data that was loaded last, per shard
+        private final Map<ShardId, Key> lastGlobalKeys = ConcurrentCollections.newConcurrentMap();
 
         IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
             this.logger = logger;
@@ -173,17 +177,35 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                 }
                 return ifd;
             });
+            if (shardId != null) {
+                lastGlobalKeys.put(shardId, key);
+            }
             return (IFD) accountable;
         }
 
+        @Override
+        public Accountable getLastLoadedGlobal(DirectoryReader indexReader) {
+            final ShardId shardId = ShardUtils.extractShardId(indexReader);
+            final Key key = shardId == null ? null : lastGlobalKeys.get(shardId);
+            return key == null ? null : cache.get(key);
+        }
+
+        @Override
+        public boolean isCached(DirectoryReader indexReader) {
+            final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+            return cacheHelper != null && cache.get(new Key(this, cacheHelper.getKey(), null)) != null;
+        }
+
         @Override
         public void onClose(CacheKey key) throws IOException {
             cache.invalidate(new Key(this, key, null));
+            lastGlobalKeys.values().removeIf(lastGlobalKey -> lastGlobalKey.readerKey == key);
             // don't call cache.cleanUp here as it would have bad performance implications
         }
 
         @Override
         public void clear() {
+            lastGlobalKeys.clear();
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     cache.invalidate(key);
@@ -195,6 +217,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
         @Override
         public void clear(String fieldName) {
+            if (this.fieldName.equals(fieldName)) {
+                lastGlobalKeys.clear();
+            }
             for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     if (key.indexCache.fieldName.equals(fieldName)) {
@@ -36,6 +36,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -75,6 +76,8 @@ public final class ResponseCollectorService extends AbstractComponent implements
                 return new NodeStatistics(nodeId, queueEWMA, responseEWMA, avgServiceTimeNanos);
             } else {
                 ns.queueSize.addValue((double) queueSize);
+                double deviation = responseTimeNanos - ns.responseTime.getAverage();
+                ns.responseTimeVariance.addValue(deviation * deviation);
                 ns.responseTime.addValue((double) responseTimeNanos);
                 ns.serviceTime = avgServiceTimeNanos;
                 return ns;
@@ -106,6 +109,19 @@ public final class ResponseCollectorService extends AbstractComponent implements
         return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
     }
 
+    /**
+     * Returns an upper bound in nanoseconds of the response times of the given node that only few responses exceed: the EWMA of the
+     * response time plus the given number of standard deviations, estimated from the EWMA of the squared deviations from it. Returns
+     * an empty {@code OptionalDouble} if no response of the node was recorded.
+     */
+    public OptionalDouble getResponseTimeUpperBound(String nodeId, double numStdDevs) {
+        final NodeStatistics ns = nodeIdToStats.get(nodeId);
+        if (ns == null) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(ns.responseTime.getAverage() + numStdDevs * Math.sqrt(ns.responseTimeVariance.getAverage()));
+    }
+
     /**
      * Struct-like class encapsulating a point-in-time snapshot of a particular
      * node's statistics. This includes the EWMA of queue size, response time,
@@ -213,6 +229,7 @@ public final class ResponseCollectorService extends AbstractComponent implements
         final String nodeId;
         final ExponentiallyWeightedMovingAverage queueSize;
         final ExponentiallyWeightedMovingAverage responseTime;
+        final ExponentiallyWeightedMovingAverage responseTimeVariance;
         double serviceTime;
 
         NodeStatistics(String nodeId,
@@ -222,6 +239,7 @@ public final class ResponseCollectorService extends AbstractComponent implements
             this.nodeId = nodeId;
             this.queueSize = queueSizeEWMA;
             this.responseTime = responseTimeEWMA;
+            this.responseTimeVariance = new ExponentiallyWeightedMovingAverage(ALPHA, 0);
             this.serviceTime = serviceTimeEWMA;
         }
     }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.action.search.CloseReaderContextAction;
+import org.elasticsearch.action.search.CloseReaderContextRequest;
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestStatusToXContentListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.DELETE;
+
+public class RestCloseReaderContextAction extends BaseRestHandler {
+    public RestCloseReaderContextAction(Settings settings, RestController controller) {
+        super(settings);
+
+        controller.registerHandler(DELETE, "/_reader_context", this);
+    }
+
+    @Override
+    public String getName() {
+        return "close_reader_context_action";
+    }
+
+    @Override
+    public RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
+        CloseReaderContextRequest closeRequest = new CloseReaderContextRequest();
+        request.withContentOrSourceParamParserOrNull(xContentParser -> {
+            if (xContentParser != null) {
+                try {
+                    closeRequest.fromXContent(xContentParser);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Failed to parse request body", e);
+                }
+            }
+        });
+        return channel -> client.execute(CloseReaderContextAction.INSTANCE, closeRequest, new RestStatusToXContentListener<>(channel));
+    }
+}
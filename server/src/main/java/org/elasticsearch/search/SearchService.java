@@ -23,11 +23,14 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -45,16 +48,19 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.InnerHitContextBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.MatchNoneQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService.AllocatedIndices.IndexRemovalReason;
 import org.elasticsearch.node.ResponseCollectorService;
@@ -79,6 +85,7 @@ import org.elasticsearch.search.fetch.subphase.ScriptFieldsContext.ScriptField;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
@@ -104,13 +111,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueHours;
@@ -176,6 +186,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
+    private final ConcurrentMapLong<ReaderContext> activeReaders = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
+
     private final MultiBucketConsumerService multiBucketConsumerService;
 
     public SearchService(ClusterService clusterService, IndicesService indicesService,
@@ -273,6 +285,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         for (final SearchContext context : activeContexts.values()) {
             freeContext(context.id());
         }
+        for (final ReaderContext readerContext : activeReaders.values()) {
+            freeReaderContext(readerContext.id());
+        }
     }
 
     @Override
@@ -654,7 +669,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().getId(),
                 indexShard.shardId(), request.getClusterAlias(), OriginalIndices.NONE);
-        Engine.Searcher engineSearcher = indexShard.acquireSearcher("search");
+        Engine.Searcher engineSearcher = acquireSearcher(request, indexShard);
 
         final DefaultSearchContext searchContext = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget,
             engineSearcher, clusterService, indexService, indexShard, bigArrays, threadPool.estimatedTimeInMillisCounter(), timeout,
@@ -676,6 +691,26 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return searchContext;
     }
 
+    private Engine.Searcher acquireSearcher(ShardSearchRequest request, IndexShard indexShard) {
+        if (request.readerId() == -1) {
+            return indexShard.acquireSearcher("search");
+        }
+        final ReaderContext readerContext = activeReaders.get(request.readerId());
+        // the shard might have been recreated on this node since the reader context was opened
+        if (readerContext == null || readerContext.indexShard() != indexShard) {
+            throw new SearchContextMissingException(request.readerId());
+        }
+        if (request instanceof TransportRequest) {
+            indexShard.getSearchOperationListener().validateReaderContext(readerContext, (TransportRequest) request);
+        }
+        readerContext.accessed(threadPool.relativeTimeInMillis());
+        final Engine.Searcher searcher = readerContext.acquireSearcher("search");
+        if (searcher == null) {
+            throw new SearchContextMissingException(request.readerId());
+        }
+        return searcher;
+    }
+
     private void freeAllContextForIndex(Index index) {
         assert index != null;
         for (SearchContext ctx : activeContexts.values()) {
@@ -683,6 +718,57 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 freeContext(ctx.id());
             }
         }
+        for (ReaderContext readerContext : activeReaders.values()) {
+            if (index.equals(readerContext.indexShard().shardId().getIndex())) {
+                freeReaderContext(readerContext.id());
+            }
+        }
+    }
+
+    /**
+     * Opens a point in time view of the given shard that shard level search requests can refer to with
+     * {@link ShardSearchRequest#readerId()}, so that they all see the same documents no matter how the shard changes in the
+     * meantime. It is freed by {@link #freeReaderContext(long)} or once it was not used for longer than the given keep alive.
+     *
+     * @return the id of the reader context
+     */
+    public long openReaderContext(ShardId shardId, TimeValue keepAlive) {
+        checkKeepAliveLimit("point in time reader", keepAlive.millis());
+        final IndexShard indexShard = indicesService.indexServiceSafe(shardId.getIndex()).getShard(shardId.id());
+        final Engine.Searcher searcher = indexShard.acquireSearcher("point_in_time");
+        final ReaderContext readerContext = new ReaderContext(idGenerator.incrementAndGet(), indexShard, searcher, keepAlive.millis(),
+            threadPool.relativeTimeInMillis());
+        // listeners may put state in the reader context so they are notified before it is published to searches
+        indexShard.getSearchOperationListener().onNewReaderContext(readerContext);
+        final ReaderContext previous = activeReaders.put(readerContext.id(), readerContext);
+        assert previous == null;
+        return readerContext.id();
+    }
+
+    /**
+     * Frees the given point in time reader context on behalf of the given request, which must be allowed to use it, see
+     * {@link SearchOperationListener#validateReaderContext(ReaderContext, TransportRequest)}.
+     */
+    public boolean freeReaderContext(long id, TransportRequest request) {
+        final ReaderContext readerContext = activeReaders.get(id);
+        if (readerContext == null) {
+            return false;
+        }
+        readerContext.indexShard().getSearchOperationListener().validateReaderContext(readerContext, request);
+        return freeReaderContext(id);
+    }
+
+    /**
+     * Frees the given point in time reader context, searches that are still running on it complete normally.
+     */
+    public boolean freeReaderContext(long id) {
+        try (ReaderContext readerContext = activeReaders.remove(id)) {
+            if (readerContext != null) {
+                readerContext.indexShard().getSearchOperationListener().onFreeReaderContext(readerContext);
+                return true;
+            }
+            return false;
+        }
     }
 
 
@@ -709,13 +795,17 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     private void contextScrollKeepAlive(SearchContext context, long keepAlive) throws IOException {
+        checkKeepAliveLimit("scroll", keepAlive);
+        context.keepAlive(keepAlive);
+    }
+
+    private void checkKeepAliveLimit(String contextType, long keepAlive) {
         if (keepAlive > maxKeepAlive) {
             throw new IllegalArgumentException(
-                "Keep alive for scroll (" + TimeValue.timeValueMillis(keepAlive) + ") is too large. " +
+                "Keep alive for " + contextType + " (" + TimeValue.timeValueMillis(keepAlive) + ") is too large. " +
                     "It must be less than (" + TimeValue.timeValueMillis(maxKeepAlive) + "). " +
                     "This limit can be set by changing the [" + MAX_KEEPALIVE_SETTING.getKey() + "] cluster level setting.");
         }
-        context.keepAlive(keepAlive);
     }
 
     private void contextProcessing(SearchContext context) {
@@ -979,6 +1069,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return this.activeContexts.size();
     }
 
+    /**
+     * Returns the number of open point in time reader contexts in this SearchService
+     */
+    public int getActiveReaderContexts() {
+        return this.activeReaders.size();
+    }
+
     public ResponseCollectorService getResponseCollectorService() {
         return this.responseCollectorService;
     }
@@ -1000,6 +1097,14 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                     freeContext(context.id());
                 }
             }
+            for (ReaderContext readerContext : activeReaders.values()) {
+                final long lastAccessTime = readerContext.lastAccessTime();
+                if (time - lastAccessTime > readerContext.keepAlive()) {
+                    logger.debug("freeing reader context [{}], time [{}], lastAccessTime [{}], keepAlive [{}]", readerContext.id(), time,
+                        lastAccessTime, readerContext.keepAlive());
+                    freeReaderContext(readerContext.id());
+                }
+            }
         }
     }
 
@@ -1013,21 +1118,73 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
      * shard.
      */
     public boolean canMatch(ShardSearchRequest request) throws IOException {
+        return executeCanMatch(request).canMatch();
+    }
+
+    /**
+     * Like {@link #canMatch(ShardSearchRequest)} but also reports the ranges of the date fields that the query requires a range on if
+     * the shard cannot change, see {@link ShardFieldRange}.
+     */
+    CanMatchResponse executeCanMatch(ShardSearchRequest request) throws IOException {
         assert request.searchType() == SearchType.QUERY_THEN_FETCH : "unexpected search type: " + request.searchType();
+        final IndexShard indexShard = indicesService.indexServiceSafe(request.shardId().getIndex()).getShard(request.shardId().id());
+        // collect the fields before creating the context since that rewrites the query
+        final Set<String> rangeFields = new LinkedHashSet<>();
+        if (request.source() != null) {
+            for (RangeQueryBuilder range : ShardFieldRange.requiredRanges(request.source().query())) {
+                rangeFields.add(range.fieldName());
+            }
+        }
+        final long readOnlyVersion = rangeFields.isEmpty() ? -1 : readOnlyMetaDataVersion(indexShard);
         try (DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, false)) {
             SearchSourceBuilder source = context.request().source();
+            final boolean canMatch;
             if (canRewriteToMatchNone(source)) {
                 QueryBuilder queryBuilder = source.query();
-                return queryBuilder instanceof MatchNoneQueryBuilder == false;
+                canMatch = queryBuilder instanceof MatchNoneQueryBuilder == false;
+            } else {
+                canMatch = true; // null query means match_all
             }
-            return true; // null query means match_all
+            if (readOnlyVersion != -1 && readOnlyMetaDataVersion(indexShard) == readOnlyVersion) {
+                List<ShardFieldRange> fieldRanges = new ArrayList<>();
+                for (String field : rangeFields) {
+                    MappedFieldType fieldType = context.mapperService().fullName(field);
+                    ShardFieldRange fieldRange = null;
+                    if (fieldType != null) {
+                        fieldRange = ShardFieldRange.of(fieldType, context.searcher().getIndexReader());
+                    }
+                    if (fieldRange != null) {
+                        fieldRanges.add(fieldRange);
+                    }
+                }
+                return new CanMatchResponse(canMatch, readOnlyVersion, fieldRanges);
+            }
+            return new CanMatchResponse(canMatch);
         }
     }
 
+    /**
+     * Returns the version of the metadata of the index of the given shard if the index is blocked for writes and all operations that
+     * the shard received are visible to searches, or <code>-1</code> otherwise. The documents of the shard cannot change for as long
+     * as the metadata of its index has this version. Only index write blocks count, no version is reported while there is a
+     * global write block since removing it does not change the metadata of the index.
+     */
+    private long readOnlyMetaDataVersion(IndexShard indexShard) {
+        final ClusterState state = clusterService.state();
+        final Index index = indexShard.shardId().getIndex();
+        final IndexMetaData indexMetaData = state.metaData().index(index);
+        if (indexMetaData == null
+                || state.blocks().hasGlobalBlock(ClusterBlockLevel.WRITE)
+                || state.blocks().indices(ClusterBlockLevel.WRITE).getOrDefault(index.getName(), Collections.emptySet()).isEmpty()
+                || indexShard.getActiveOperationsCount() != 0 || indexShard.isRefreshNeeded()) {
+            return -1;
+        }
+        return indexMetaData.getVersion();
+    }
 
     public void canMatch(ShardSearchRequest request, ActionListener<CanMatchResponse> listener) {
         try {
-            listener.onResponse(new CanMatchResponse(canMatch(request)));
+            listener.onResponse(executeCanMatch(request));
         } catch (IOException e) {
             listener.onFailure(e);
         }
@@ -1091,12 +1248,16 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return indicesService;
     }
 
-    public InternalAggregation.ReduceContext createReduceContext(boolean finalReduce) {
-        return new InternalAggregation.ReduceContext(bigArrays, scriptService, multiBucketConsumerService.create(), finalReduce);
+    public InternalAggregation.ReduceContext createReduceContext(boolean finalReduce, BooleanSupplier isCancelled) {
+        // the arrays that aggregations allocate to reduce shard results trip the request circuit breaker, like on the shards
+        return new InternalAggregation.ReduceContext(bigArrays.withCircuitBreaking(), scriptService, multiBucketConsumerService.create(),
+            finalReduce, isCancelled);
     }
 
     public static final class CanMatchResponse extends SearchPhaseResult {
         private boolean canMatch;
+        private long fieldRangesVersion = -1;
+        private List<ShardFieldRange> fieldRanges = Collections.emptyList();
 
         public CanMatchResponse() {
         }
@@ -1105,20 +1266,50 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             this.canMatch = canMatch;
         }
 
+        public CanMatchResponse(boolean canMatch, long fieldRangesVersion, List<ShardFieldRange> fieldRanges) {
+            this.canMatch = canMatch;
+            this.fieldRangesVersion = fieldRangesVersion;
+            this.fieldRanges = fieldRanges;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
             canMatch = in.readBoolean();
+            if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                fieldRangesVersion = in.readLong();
+                fieldRanges = in.readList(ShardFieldRange::new);
+            }
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
             out.writeBoolean(canMatch);
+            if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                out.writeLong(fieldRangesVersion);
+                out.writeList(fieldRanges);
+            }
         }
 
         public boolean canMatch() {
             return canMatch;
         }
+
+        /**
+         * The version of the index metadata for which {@link #getFieldRanges()} are valid, or <code>-1</code> if the shard did not
+         * report any range.
+         */
+        public long getFieldRangesVersion() {
+            return fieldRangesVersion;
+        }
+
+        /**
+         * The ranges of the date fields that the query requires a range on. These ranges do not change for as long as the metadata
+         * of the index has the version returned by {@link #getFieldRangesVersion()}.
+         */
+        public List<ShardFieldRange> getFieldRanges() {
+            return fieldRanges;
+        }
     }
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PointValues;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.joda.FormatDateTimeFormatter;
+import org.elasticsearch.common.joda.Joda;
+import org.elasticsearch.common.time.DateMathParser;
+import org.elasticsearch.common.util.LocaleUtils;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * The minimum and maximum value of a date field on a shard. Shards that do not accept writes report these ranges with their
+ * can-match responses so that the coordinating node can skip them, without a round trip, for later searches that require a
+ * range on the field that does not intersect the values of the shard.
+ */
+public final class ShardFieldRange implements Writeable {
+
+    private final String field;
+    private final String format;
+    private final String locale;
+    private final long min;
+    private final long max;
+
+    public ShardFieldRange(String field, String format, String locale, long min, long max) {
+        this.field = field;
+        this.format = format;
+        this.locale = locale;
+        this.min = min;
+        this.max = max;
+    }
+
+    public ShardFieldRange(StreamInput in) throws IOException {
+        field = in.readString();
+        format = in.readString();
+        locale = in.readString();
+        min = in.readLong();
+        max = in.readLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(field);
+        out.writeString(format);
+        out.writeString(locale);
+        out.writeLong(min);
+        out.writeLong(max);
+    }
+
+    /**
+     * The name of the field.
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * The smallest value of the field on the shard, greater than {@link #max()} if the shard has no values.
+     */
+    public long min() {
+        return min;
+    }
+
+    /**
+     * The largest value of the field on the shard, smaller than {@link #min()} if the shard has no values.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the range of values of the given field in the given reader, or <code>null</code> if the field is not an indexed date
+     * field.
+     */
+    @Nullable
+    public static ShardFieldRange of(MappedFieldType fieldType, IndexReader reader) throws IOException {
+        if (fieldType instanceof DateFieldMapper.DateFieldType == false || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        FormatDateTimeFormatter formatter = ((DateFieldMapper.DateFieldType) fieldType).dateTimeFormatter();
+        String field = fieldType.name();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        if (PointValues.size(reader, field) > 0) {
+            min = LongPoint.decodeDimension(PointValues.getMinPackedValue(reader, field), 0);
+            max = LongPoint.decodeDimension(PointValues.getMaxPackedValue(reader, field), 0);
+        }
+        return new ShardFieldRange(field, formatter.format(), formatter.locale().toString(), min, max);
+    }
+
+    /**
+     * Returns <code>true</code> if no value of this range can match the given range query, which must be on the same field. The
+     * bounds of the query are resolved the same way as on the shard, using the format of the field unless the query has its own.
+     * Bounds that cannot be parsed are treated as matching so that the shard reports the failure.
+     */
+    public boolean isDisjoint(RangeQueryBuilder query, LongSupplier nowInMillis) {
+        assert field.equals(query.fieldName()) : "expected a range query on [" + field + "] but got [" + query.fieldName() + "]";
+        final long fromInclusive;
+        final long toInclusive;
+        try {
+            FormatDateTimeFormatter formatter = query.format() == null
+                ? Joda.forPattern(format, LocaleUtils.parse(locale)) : Joda.forPattern(query.format());
+            DateMathParser parser = formatter.toDateMathParser();
+            DateTimeZone timeZone = query.timeZone() == null ? null : DateTimeZone.forID(query.timeZone());
+            if (query.from() == null) {
+                fromInclusive = Long.MIN_VALUE;
+            } else {
+                long from = parser.parse(query.from().toString(), nowInMillis, query.includeLower() == false, timeZone);
+                if (query.includeLower() == false) {
+                    if (from == Long.MAX_VALUE) {
+                        return true;
+                    }
+                    ++from;
+                }
+                fromInclusive = from;
+            }
+            if (query.to() == null) {
+                toInclusive = Long.MAX_VALUE;
+            } else {
+                long to = parser.parse(query.to().toString(), nowInMillis, query.includeUpper(), timeZone);
+                if (query.includeUpper() == false) {
+                    if (to == Long.MIN_VALUE) {
+                        return true;
+                    }
+                    --to;
+                }
+                toInclusive = to;
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return min > max || max < fromInclusive || min > toInclusive;
+    }
+
+    /**
+     * Returns the range queries that every document matching the given query must also match, that is range queries that are either
+     * the query itself or required clauses of it.
+     */
+    public static List<RangeQueryBuilder> requiredRanges(@Nullable QueryBuilder query) {
+        List<RangeQueryBuilder> ranges = new ArrayList<>();
+        collectRequiredRanges(query, ranges);
+        return ranges;
+    }
+
+    private static void collectRequiredRanges(QueryBuilder query, List<RangeQueryBuilder> ranges) {
+        if (query instanceof RangeQueryBuilder) {
+            ranges.add((RangeQueryBuilder) query);
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            collectRequiredRanges(((ConstantScoreQueryBuilder) query).innerQuery(), ranges);
+        } else if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            for (QueryBuilder clause : bool.must()) {
+                collectRequiredRanges(clause, ranges);
+            }
+            for (QueryBuilder clause : bool.filter()) {
+                collectRequiredRanges(clause, ranges);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardFieldRange[" + field + ": " + min + " to " + max + "]";
+    }
+}
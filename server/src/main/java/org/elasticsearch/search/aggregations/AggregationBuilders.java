@@ -58,6 +58,7 @@ import org.elasticsearch.search.aggregations.metrics.Avg;
 import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.Cardinality;
 import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ExactCardinalityAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.GeoBounds;
 import org.elasticsearch.search.aggregations.metrics.GeoBoundsAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.GeoCentroid;
@@ -323,6 +324,13 @@ public class AggregationBuilders {
         return new CardinalityAggregationBuilder(name, null);
     }
 
+    /**
+     * Create a new exact {@link Cardinality} aggregation with the given name.
+     */
+    public static ExactCardinalityAggregationBuilder exactCardinality(String name) {
+        return new ExactCardinalityAggregationBuilder(name, null);
+    }
+
     /**
      * Create a new {@link TopHits} aggregation with the given name.
      */
@@ -29,6 +29,7 @@ import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.query.CollectorResult;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
+import org.elasticsearch.search.query.CancellableCollector;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
@@ -101,12 +102,14 @@ public class AggregationPhase implements SearchPhase {
             Query query = context.buildFilteredQuery(Queries.newMatchAllQuery());
 
             try {
+                // the global aggregators are not collected by the query phase, which checks for cancellation
+                final Collector cancellableCollector = new CancellableCollector(context::isCancelled, globalsCollector);
                 final Collector collector;
                 if (context.getProfilers() == null) {
-                    collector = globalsCollector;
+                    collector = cancellableCollector;
                 } else {
                     InternalProfileCollector profileCollector = new InternalProfileCollector(
-                            globalsCollector, CollectorResult.REASON_AGGREGATION_GLOBAL,
+                            cancellableCollector, CollectorResult.REASON_AGGREGATION_GLOBAL,
                             // TODO: report on sub collectors
                             Collections.emptyList());
                     collector = profileCollector;
@@ -27,6 +27,7 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -43,6 +44,9 @@ public abstract class AggregatorBase extends Aggregator {
     /** The default "weight" that a bucket takes when performing an aggregation */
     public static final int DEFAULT_WEIGHT = 1024 * 5; // 5kb
 
+    // the number of documents that are collected between two checks of the cancellation flag of the search
+    private static final int CANCELLATION_CHECK_INTERVAL = 1 << 12;
+
     protected final String name;
     protected final Aggregator parent;
     protected final SearchContext context;
@@ -55,6 +59,10 @@ public abstract class AggregatorBase extends Aggregator {
     private final List<PipelineAggregator> pipelineAggregators;
     private final CircuitBreakerService breakerService;
     private long requestBytesUsed;
+    // buffers the docs that top-level aggregators collect if their leaf collectors prefer batches
+    private int[] batchDocs;
+    private BatchingLeafBucketCollector batchingCollector;
+    private int docsUntilCancellationCheck = CANCELLATION_CHECK_INTERVAL;
 
     /**
      * Constructs a new Aggregator.
@@ -163,9 +171,58 @@ public abstract class AggregatorBase extends Aggregator {
 
     @Override
     public final LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flushBatch();
         preGetSubLeafCollectors();
         final LeafBucketCollector sub = collectableSubAggregators.getLeafCollector(ctx);
-        return getLeafCollector(ctx, sub);
+        final LeafBucketCollector leafCollector = wrapLeafCollector(getLeafCollector(ctx, sub));
+        // sub-aggregators are collected by their parent one doc at a time, and buffering docs would make the scorer
+        // move past the doc that is collected
+        if (parent == null && leafCollector.prefersBatches() && scoreMode().needsScores() == false) {
+            if (batchDocs == null) {
+                batchDocs = new int[BatchingLeafBucketCollector.BATCH_SIZE];
+            }
+            batchingCollector = new BatchingLeafBucketCollector(leafCollector, batchDocs);
+            return batchingCollector;
+        }
+        return leafCollector;
+    }
+
+    /**
+     * Can be overridden by aggregator implementations that need to decorate the leaf collector of every segment, before
+     * docs get batched.
+     */
+    protected LeafBucketCollector wrapLeafCollector(LeafBucketCollector leafCollector) {
+        return leafCollector;
+    }
+
+    /**
+     * Counts {@code docs} collected documents, and checks if the search has been cancelled once every
+     * {@link #CANCELLATION_CHECK_INTERVAL} documents.
+     */
+    protected final void maybeCheckCancelled(int docs) {
+        docsUntilCancellationCheck -= docs;
+        if (docsUntilCancellationCheck <= 0) {
+            docsUntilCancellationCheck = CANCELLATION_CHECK_INTERVAL;
+            checkCancelled();
+        }
+    }
+
+    /**
+     * Throws a {@link TaskCancelledException} if the search has been cancelled. Collection checks it periodically, and so does
+     * the building of the aggregations of every bucket.
+     */
+    protected final void checkCancelled() {
+        if (context.isCancelled()) {
+            throw new TaskCancelledException("cancelled");
+        }
+    }
+
+    private void flushBatch() throws IOException {
+        if (batchingCollector != null) {
+            final BatchingLeafBucketCollector collector = batchingCollector;
+            batchingCollector = null;
+            collector.flush();
+        }
     }
 
     /**
@@ -236,6 +293,7 @@ public abstract class AggregatorBase extends Aggregator {
      */
     @Override
     public final void postCollection() throws IOException {
+        flushBatch();
         // post-collect this agg before subs to make it possible to buffer and then replay in postCollection()
         doPostCollection();
         collectableSubAggregators.postCollection();
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.search.Scorable;
+
+import java.io.IOException;
+
+/**
+ * A {@link LeafBucketCollector} that buffers consecutive docs that are collected in the same bucket and forwards them to
+ * {@link LeafBucketCollector#collect(int[], int, long)} once the buffer is full, the bucket changes or {@link #flush()} is
+ * called. Docs must not be collected after {@link #flush()} since the wrapped collector may depend on the scorer or the
+ * doc values of the segment.
+ */
+final class BatchingLeafBucketCollector extends LeafBucketCollector {
+
+    static final int BATCH_SIZE = 256;
+
+    private final LeafBucketCollector in;
+    private final int[] docs;
+    private int count;
+    private long bucket;
+
+    BatchingLeafBucketCollector(LeafBucketCollector in, int[] docs) {
+        assert docs.length > 0;
+        this.in = in;
+        this.docs = docs;
+    }
+
+    @Override
+    public void setScorer(Scorable scorer) throws IOException {
+        in.setScorer(scorer);
+    }
+
+    @Override
+    public void collect(int doc, long bucket) throws IOException {
+        if (count > 0 && (count == docs.length || bucket != this.bucket)) {
+            flush();
+        }
+        this.bucket = bucket;
+        docs[count++] = doc;
+    }
+
+    @Override
+    public void collect(int[] docs, int count, long bucket) throws IOException {
+        flush();
+        in.collect(docs, count, bucket);
+    }
+
+    @Override
+    public boolean prefersBatches() {
+        return true;
+    }
+
+    /**
+     * Collect the buffered docs.
+     */
+    void flush() throws IOException {
+        if (count > 0) {
+            final int toCollect = count;
+            // reset first so that a failure does not cause the same docs to be collected again
+            count = 0;
+            in.collect(docs, toCollect, bucket);
+        }
+    }
+}
@@ -28,11 +28,13 @@ import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
 import java.util.function.IntConsumer;
 
 /**
@@ -46,16 +48,26 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         private final ScriptService scriptService;
         private final IntConsumer multiBucketConsumer;
         private final boolean isFinalReduce;
+        private final BooleanSupplier isCancelled;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
             this(bigArrays, scriptService, (s) -> {}, isFinalReduce);
         }
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce) {
+            this(bigArrays, scriptService, multiBucketConsumer, isFinalReduce, () -> false);
+        }
+
+        /**
+         * @param isCancelled supplier of the cancellation flag of the request that is being reduced, see {@link #checkCancelled()}
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce,
+                             BooleanSupplier isCancelled) {
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
             this.multiBucketConsumer = multiBucketConsumer;
             this.isFinalReduce = isFinalReduce;
+            this.isCancelled = isCancelled;
         }
 
         /**
@@ -82,6 +94,17 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         public void consumeBucketsAndMaybeBreak(int size) {
             multiBucketConsumer.accept(size);
         }
+
+        /**
+         * Throws a {@link TaskCancelledException} if the request that is being reduced has been cancelled. This is called before
+         * the reduction of every aggregation and of every pipeline aggregation so that the reduce of a cancelled request stops
+         * consuming CPU.
+         */
+        public void checkCancelled() {
+            if (isCancelled.getAsBoolean()) {
+                throw new TaskCancelledException("cancelled");
+            }
+        }
     }
 
     protected final String name;
@@ -135,6 +158,7 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         InternalAggregation aggResult = doReduce(aggregations, reduceContext);
         if (reduceContext.isFinalReduce()) {
             for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
+                reduceContext.checkCancelled();
                 aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
             }
         }
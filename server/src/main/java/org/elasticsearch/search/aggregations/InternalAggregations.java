@@ -68,6 +68,8 @@ public final class InternalAggregations extends Aggregations implements Streamab
         if (aggregationsList.isEmpty()) {
             return null;
         }
+        // this is called for every bucket of every multi-bucket aggregation
+        context.checkCancelled();
 
         // first we collect all aggregations of the same type and list them together
         Map<String, List<InternalAggregation>> aggByName = new HashMap<>();
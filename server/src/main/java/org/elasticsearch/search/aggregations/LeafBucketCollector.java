@@ -77,6 +77,25 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long bucket) throws IOException;
 
+    /**
+     * Collect the first {@code count} docs of {@code docs}, which are in increasing order, in the given bucket. The default
+     * implementation collects docs one by one, collectors that can do better should override it as well as
+     * {@link #prefersBatches()}.
+     */
+    public void collect(int[] docs, int count, long bucket) throws IOException {
+        for (int i = 0; i < count; ++i) {
+            collect(docs[i], bucket);
+        }
+    }
+
+    /**
+     * Whether {@link #collect(int[], int, long)} is more efficient than collecting docs one by one, in which case docs that are
+     * collected by top-level aggregators are buffered and collected in batches.
+     */
+    public boolean prefersBatches() {
+        return false;
+    }
+
     @Override
     public final void collect(int doc) throws IOException {
         collect(doc, 0);
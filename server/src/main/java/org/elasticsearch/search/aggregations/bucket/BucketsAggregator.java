@@ -80,6 +80,7 @@ public abstract class BucketsAggregator extends AggregatorBase {
      * Same as {@link #collectBucket(LeafBucketCollector, int, long)}, but doesn't check if the docCounts needs to be re-sized.
      */
     public final void collectExistingBucket(LeafBucketCollector subCollector, int doc, long bucketOrd) throws IOException {
+        maybeCheckCancelled(1);
         docCounts.increment(bucketOrd, 1);
         subCollector.collect(doc, bucketOrd);
     }
@@ -136,6 +137,7 @@ public abstract class BucketsAggregator extends AggregatorBase {
      * Required method to build the child aggregations of the given bucket (identified by the bucket ordinal).
      */
     protected final InternalAggregations bucketAggregations(long bucket) throws IOException {
+        checkCancelled();
         final InternalAggregation[] aggregations = new InternalAggregation[subAggregators.length];
         for (int i = 0; i < subAggregators.length; i++) {
             aggregations[i] = subAggregators[i].buildAggregation(bucket);
@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations.bucket.composite;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.CollectionTerminatedException;
@@ -28,6 +29,10 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSortField;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.common.lease.Releasables;
@@ -56,6 +61,7 @@ import java.util.stream.Collectors;
 
 final class CompositeAggregator extends BucketsAggregator {
     private final int size;
+    private final CompositeValuesSourceConfig[] sourceConfigs;
     private final SortedDocsProducer sortedDocsProducer;
     private final List<String> sourceNames;
     private final int[] reverseMuls;
@@ -74,6 +80,7 @@ final class CompositeAggregator extends BucketsAggregator {
                         int size, CompositeValuesSourceConfig[] sourceConfigs, CompositeKey rawAfterKey) throws IOException {
         super(name, factories, context, parent, pipelineAggregators, metaData);
         this.size = size;
+        this.sourceConfigs = sourceConfigs;
         this.sourceNames = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::name).collect(Collectors.toList());
         this.reverseMuls = Arrays.stream(sourceConfigs).mapToInt(CompositeValuesSourceConfig::reverseMul).toArray();
         this.formats = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::format).collect(Collectors.toList());
@@ -164,26 +171,123 @@ final class CompositeAggregator extends BucketsAggregator {
               see {@link org.apache.lucene.search.MultiCollector} for more details on how we handle early termination in aggregations.
              */
             throw new CollectionTerminatedException();
-        } else {
-            if (fillDocIdSet) {
-                currentLeaf = ctx;
-                docIdSetBuilder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
-            }
-            final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder));
-            return new LeafBucketCollector() {
-                @Override
-                public void collect(int doc, long zeroBucket) throws IOException {
-                    assert zeroBucket == 0L;
+        }
+        final int numSortedSources = numSourcesSortedByIndexSort(ctx);
+        /*
+          If the documents of this segment are sorted by the leading sources of the composite definition, the documents
+          that sort before the after key are skipped and the collection stops as soon as a document produces a composite
+          bucket that is greater than the lowest composite bucket in the queue.
+         */
+        final int minDoc = numSortedSources > 0 && queue.getLowerValueLeadSource() != null ? seekAfterKey(ctx) : 0;
+        if (minDoc == DocIdSetIterator.NO_MORE_DOCS) {
+            throw new CollectionTerminatedException();
+        }
+        if (fillDocIdSet) {
+            currentLeaf = ctx;
+            docIdSetBuilder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
+        }
+        final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder, numSortedSources));
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long zeroBucket) throws IOException {
+                assert zeroBucket == 0L;
+                if (doc >= minDoc) {
                     inner.collect(doc);
                 }
-            };
+            }
+        };
+    }
+
+    /**
+     * Returns the number of leading sources of the composite definition whose values are sorted in the order of
+     * the documents of the provided segment because they match its index sort, or 0 if the leading source doesn't
+     * match the index sort.
+     */
+    private int numSourcesSortedByIndexSort(LeafReaderContext ctx) throws IOException {
+        final Sort indexSort = ctx.reader().getMetaData().getSort();
+        if (indexSort == null) {
+            return 0;
+        }
+        final SortField[] sortFields = indexSort.getSort();
+        int numSources = 0;
+        while (numSources < Math.min(sortFields.length, sourceConfigs.length)) {
+            final CompositeValuesSourceConfig config = sourceConfigs[numSources];
+            final SortField sortField = sortFields[numSources];
+            if (config.fieldType() == null
+                    || config.missingBucket()
+                    || config.valuesSource() instanceof ValuesSource.WithScript
+                    || config.valuesSource() instanceof ValuesSource.Numeric.WithScript
+                    || config.fieldType().name().equals(sortField.getField()) == false
+                    || (sortField.getReverse() ? -1 : 1) != config.reverseMul()
+                    || isSingleValued(ctx, sortField) == false) {
+                break;
+            }
+            numSources++;
+            if (config.valuesSource() instanceof RoundingValuesSource || config.valuesSource() instanceof HistogramValuesSource) {
+                // documents that round to the same value are not sorted by the next sources
+                break;
+            }
         }
+        return numSources;
+    }
+
+    private static boolean isSingleValued(LeafReaderContext ctx, SortField sortField) throws IOException {
+        // multi-valued fields are sorted by their min or max value but they produce a composite bucket per value
+        if (sortField instanceof SortedSetSortField) {
+            return DocValues.unwrapSingleton(DocValues.getSortedSet(ctx.reader(), sortField.getField())) != null;
+        } else if (sortField instanceof SortedNumericSortField) {
+            return DocValues.unwrapSingleton(DocValues.getSortedNumeric(ctx.reader(), sortField.getField())) != null;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first document of a segment that is sorted by the leading source whose leading value is not before
+     * the after key, or {@link DocIdSetIterator#NO_MORE_DOCS} if there is no such document. Documents without a value
+     * in the leading source are all at the beginning or all at the end of the segment.
+     */
+    private int seekAfterKey(LeafReaderContext ctx) throws IOException {
+        final int maxDoc = ctx.reader().maxDoc();
+        final boolean missingFirst = maxDoc > 0 && isBeforeAfterKey(ctx, 0, null) == null;
+        if (maxDoc == 0 || (missingFirst && isBeforeAfterKey(ctx, maxDoc - 1, null) == null)) {
+            // no document has a value
+            return DocIdSetIterator.NO_MORE_DOCS;
+        }
+        int low = 0;
+        int high = maxDoc;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (isBeforeAfterKey(ctx, mid, missingFirst)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == maxDoc ? DocIdSetIterator.NO_MORE_DOCS : low;
+    }
+
+    /**
+     * Returns whether the value of the leading source of <code>doc</code> sorts before its after value, or
+     * <code>missing</code> if the document has no value.
+     */
+    private Boolean isBeforeAfterKey(LeafReaderContext ctx, int doc, Boolean missing) throws IOException {
+        final SingleDimensionValuesSource<?> source = sources[0];
+        final Boolean[] result = new Boolean[] { missing };
+        source.getLeafCollector(ctx, new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                result[0] = source.compareCurrentWithAfter() < 0;
+            }
+        }).collect(doc);
+        return result[0];
     }
 
     /**
-     * The first pass selects the top composite buckets from all matching documents.
+     * The first pass selects the top composite buckets from all matching documents. If the documents of the segment are
+     * sorted by the first <code>numSortedSources</code> sources, the collection of the segment is terminated at the first
+     * document that is after the lowest composite bucket of the full queue.
      */
-    private LeafBucketCollector getFirstPassCollector(RoaringDocIdSet.Builder builder) {
+    private LeafBucketCollector getFirstPassCollector(RoaringDocIdSet.Builder builder, int numSortedSources) {
         return new LeafBucketCollector() {
             int lastDoc = -1;
 
@@ -195,6 +299,9 @@ final class CompositeAggregator extends BucketsAggregator {
                         builder.add(doc);
                         lastDoc = doc;
                     }
+                } else if (numSortedSources > 0 && queue.isCurrentAfterLast(numSortedSources)) {
+                    // the next documents cannot produce competitive composite buckets
+                    throw new CollectionTerminatedException();
                 }
             }
         };
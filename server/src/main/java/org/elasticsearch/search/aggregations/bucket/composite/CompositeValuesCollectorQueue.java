@@ -193,6 +193,25 @@ final class CompositeValuesCollectorQueue implements Releasable {
         return collector;
     }
 
+    /**
+     * Returns true if the queue is full and the values of the current candidate in the first <code>numSources</code>
+     * sources sort after the values of the last composite bucket in the queue. In that case the candidate is not
+     * competitive and neither is any candidate with greater values in these sources.
+     */
+    boolean isCurrentAfterLast(int numSources) {
+        if (keys.size() < maxSize) {
+            return false;
+        }
+        final int lastSlot = keys.lastKey();
+        for (int i = 0; i < numSources; i++) {
+            int cmp = arrays[i].compareCurrent(lastSlot);
+            if (cmp != 0) {
+                return cmp > 0;
+            }
+        }
+        return false;
+    }
+
     /**
      * Check if the current candidate should be added in the queue.
      * @return The target slot of the candidate or -1 is the candidate is not competitive.
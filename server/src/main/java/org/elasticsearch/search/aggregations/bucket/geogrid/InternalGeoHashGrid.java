@@ -23,6 +23,7 @@ import org.elasticsearch.common.geo.GeoHashUtils;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.LongObjectPagedHashMap;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.Aggregations;
@@ -192,33 +193,39 @@ public class InternalGeoHashGrid extends InternalMultiBucketAggregation<Internal
     @Override
     public InternalGeoHashGrid doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         LongObjectPagedHashMap<List<Bucket>> buckets = null;
-        for (InternalAggregation aggregation : aggregations) {
-            InternalGeoHashGrid grid = (InternalGeoHashGrid) aggregation;
-            if (buckets == null) {
-                buckets = new LongObjectPagedHashMap<>(grid.buckets.size(), reduceContext.bigArrays());
-            }
-            for (Bucket bucket : grid.buckets) {
-                List<Bucket> existingBuckets = buckets.get(bucket.geohashAsLong);
-                if (existingBuckets == null) {
-                    existingBuckets = new ArrayList<>(aggregations.size());
-                    buckets.put(bucket.geohashAsLong, existingBuckets);
+        final BucketPriorityQueue ordered;
+        try {
+            for (InternalAggregation aggregation : aggregations) {
+                InternalGeoHashGrid grid = (InternalGeoHashGrid) aggregation;
+                if (buckets == null) {
+                    buckets = new LongObjectPagedHashMap<>(grid.buckets.size(), reduceContext.bigArrays());
+                }
+                for (Bucket bucket : grid.buckets) {
+                    List<Bucket> existingBuckets = buckets.get(bucket.geohashAsLong);
+                    if (existingBuckets == null) {
+                        existingBuckets = new ArrayList<>(aggregations.size());
+                        buckets.put(bucket.geohashAsLong, existingBuckets);
+                    }
+                    existingBuckets.add(bucket);
                 }
-                existingBuckets.add(bucket);
             }
-        }
 
-        final int size = Math.toIntExact(reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size()));
-        BucketPriorityQueue ordered = new BucketPriorityQueue(size);
-        for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
-            List<Bucket> sameCellBuckets = cursor.value;
-            Bucket removed = ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext));
-            if (removed != null) {
-                reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(removed));
-            } else {
-                reduceContext.consumeBucketsAndMaybeBreak(1);
+            final int size = Math.toIntExact(reduceContext.isFinalReduce() == false ? buckets.size()
+                : Math.min(requiredSize, buckets.size()));
+            ordered = new BucketPriorityQueue(size);
+            for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
+                List<Bucket> sameCellBuckets = cursor.value;
+                Bucket removed = ordered.insertWithOverflow(sameCellBuckets.get(0).reduce(sameCellBuckets, reduceContext));
+                if (removed != null) {
+                    reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(removed));
+                } else {
+                    reduceContext.consumeBucketsAndMaybeBreak(1);
+                }
             }
+        } finally {
+            // the hash map is accounted in the request circuit breaker so it must be released even if the reduce fails
+            Releasables.close(buckets);
         }
-        buckets.close();
         Bucket[] list = new Bucket[ordered.size()];
         for (int i = ordered.size() - 1; i >= 0; i--) {
             list[i] = ordered.pop();
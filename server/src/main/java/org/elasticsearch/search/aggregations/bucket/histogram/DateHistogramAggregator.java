@@ -26,6 +26,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.fielddata.LongValuesBatch;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -64,6 +65,7 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final ExtendedBounds extendedBounds;
 
     private final LongHash bucketOrds;
+    private final LongValuesBatch batch = new LongValuesBatch();
     private long offset;
 
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding shardRounding,
@@ -129,6 +131,38 @@ class DateHistogramAggregator extends BucketsAggregator {
                     }
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                assert bucket == 0;
+                batch.read(values, docs, count);
+                final long[] vals = batch.values();
+                final int[] offsets = batch.offsets();
+                for (int d = 0; d < count; ++d) {
+                    final int doc = docs[d];
+                    long previousRounded = Long.MIN_VALUE;
+                    for (int i = offsets[d]; i < offsets[d + 1]; ++i) {
+                        long rounded = shardRounding.round(vals[i] - offset) + offset;
+                        assert rounded >= previousRounded;
+                        if (rounded == previousRounded) {
+                            continue;
+                        }
+                        long bucketOrd = bucketOrds.add(rounded);
+                        if (bucketOrd < 0) { // already seen
+                            bucketOrd = -1 - bucketOrd;
+                            collectExistingBucket(sub, doc, bucketOrd);
+                        } else {
+                            collectBucket(sub, doc, bucketOrd);
+                        }
+                        previousRounded = rounded;
+                    }
+                }
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return true;
+            }
         };
     }
 
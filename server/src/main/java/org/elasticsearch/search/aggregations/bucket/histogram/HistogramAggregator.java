@@ -25,6 +25,7 @@ import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.fielddata.DoubleValuesBatch;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -63,6 +64,7 @@ class HistogramAggregator extends BucketsAggregator {
     private final double minBound, maxBound;
 
     private final LongHash bucketOrds;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
 
     HistogramAggregator(String name, AggregatorFactories factories, double interval, double offset,
             BucketOrder order, boolean keyed, long minDocCount, double minBound, double maxBound,
@@ -129,6 +131,38 @@ class HistogramAggregator extends BucketsAggregator {
                     }
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                assert bucket == 0;
+                batch.read(values, docs, count);
+                final double[] vals = batch.values();
+                final int[] offsets = batch.offsets();
+                for (int d = 0; d < count; ++d) {
+                    final int doc = docs[d];
+                    double previousKey = Double.NEGATIVE_INFINITY;
+                    for (int i = offsets[d]; i < offsets[d + 1]; ++i) {
+                        double key = Math.floor((vals[i] - offset) / interval);
+                        assert key >= previousKey;
+                        if (key == previousKey) {
+                            continue;
+                        }
+                        long bucketOrd = bucketOrds.add(Double.doubleToLongBits(key));
+                        if (bucketOrd < 0) { // already seen
+                            bucketOrd = -1 - bucketOrd;
+                            collectExistingBucket(sub, doc, bucketOrd);
+                        } else {
+                            collectBucket(sub, doc, bucketOrd);
+                        }
+                        previousKey = key;
+                    }
+                }
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return true;
+            }
         };
     }
 
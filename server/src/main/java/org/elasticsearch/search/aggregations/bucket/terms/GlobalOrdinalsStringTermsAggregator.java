@@ -341,6 +341,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                     @Override
                     public void collect(int doc, long bucket) throws IOException {
                         assert bucket == 0;
+                        maybeCheckCancelled(1);
                         if (singleValues.advanceExact(doc)) {
                             final int ord = singleValues.ordValue();
                             segmentDocCounts.increment(ord + 1, 1);
@@ -352,6 +353,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
                     @Override
                     public void collect(int doc, long bucket) throws IOException {
                         assert bucket == 0;
+                        maybeCheckCancelled(1);
                         if (segmentOrds.advanceExact(doc)) {
                             for (long segmentOrd = segmentOrds.nextOrd(); segmentOrd != NO_MORE_ORDS; segmentOrd = segmentOrds.nextOrd()) {
                                 segmentDocCounts.increment(segmentOrd + 1, 1);
@@ -377,6 +379,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
 
         private void mapSegmentCountsToGlobalCounts(LongUnaryOperator mapping) throws IOException {
             for (long i = 1; i < segmentDocCounts.size(); i++) {
+                maybeCheckCancelled(1);
                 // We use set(...) here, because we need to reset the slow to 0.
                 // segmentDocCounts get reused over the segments and otherwise counts would be too high.
                 final int inc = segmentDocCounts.set(i, 0);
@@ -0,0 +1,114 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator of string values that works on the ordinals of each segment and does not need global ordinals.
+ * The bucket of a segment ordinal is resolved through its term the first time the ordinal is collected and
+ * is remembered until the end of the segment, so terms are only looked up and hashed once per segment.
+ */
+public class SegmentOrdinalsStringTermsAggregator extends StringTermsAggregator {
+
+    // marks segment ordinals whose term is rejected by the include/exclude filter,
+    // bucket ordinals are stored shifted by one so that zero marks ordinals that were not collected yet
+    private static final long EXCLUDED = -1;
+
+    private final ValuesSource.Bytes.WithOrdinals valuesSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    private LongArray segmentToBucketOrds;
+
+    public SegmentOrdinalsStringTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals valuesSource,
+            BucketOrder order, DocValueFormat format, BucketCountThresholds bucketCountThresholds,
+            IncludeExclude.StringFilter includeExclude, SearchContext context,
+            Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent, collectionMode,
+                showTermDocCountError, pipelineAggregators, metaData);
+        this.valuesSource = valuesSource;
+        this.includeExclude = includeExclude;
+        this.segmentToBucketOrds = context.bigArrays().newLongArray(1, true);
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
+            final LeafBucketCollector sub) throws IOException {
+        final SortedSetDocValues values = valuesSource.ordinalsValues(ctx);
+        final long valueCount = values.getValueCount();
+        segmentToBucketOrds = context.bigArrays().grow(segmentToBucketOrds, valueCount);
+        segmentToBucketOrds.fill(0, valueCount, 0);
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                if (values.advanceExact(doc)) {
+                    for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                        final long bucketOrd = segmentToBucketOrds.get(ord);
+                        if (bucketOrd > 0) {
+                            collectExistingBucket(sub, doc, bucketOrd - 1);
+                        } else if (bucketOrd == 0) {
+                            collectNewOrdinal(sub, doc, ord);
+                        }
+                    }
+                }
+            }
+
+            private void collectNewOrdinal(LeafBucketCollector sub, int doc, long ord) throws IOException {
+                final BytesRef term = values.lookupOrd(ord);
+                if (includeExclude != null && includeExclude.accept(term) == false) {
+                    segmentToBucketOrds.set(ord, EXCLUDED);
+                    return;
+                }
+                long bucketOrdinal = bucketOrds.add(term);
+                if (bucketOrdinal < 0) { // already seen in a previous segment
+                    bucketOrdinal = -1 - bucketOrdinal;
+                    segmentToBucketOrds.set(ord, bucketOrdinal + 1);
+                    collectExistingBucket(sub, doc, bucketOrdinal);
+                } else {
+                    segmentToBucketOrds.set(ord, bucketOrdinal + 1);
+                    collectBucket(sub, doc, bucketOrdinal);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void doClose() {
+        Releasables.close(bucketOrds, segmentToBucketOrds);
+    }
+
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.logging.DeprecationLogger;
@@ -134,10 +135,20 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
                 execution = ExecutionMode.MAP;
             }
-            final long maxOrd = getMaxOrd(valuesSource, context.searcher());
+            if (execution == ExecutionMode.SEGMENT_ORDINALS
+                    && useSegmentOrdinals((ValuesSource.Bytes.WithOrdinals) valuesSource, context.searcher()) == false) {
+                execution = ExecutionMode.GLOBAL_ORDINALS;
+            }
             if (execution == null) {
                 execution = ExecutionMode.GLOBAL_ORDINALS;
             }
+            final long maxOrd;
+            if (execution == ExecutionMode.SEGMENT_ORDINALS) {
+                // don't build global ordinals, the total number of segment ordinals is an upper bound of the number of terms
+                maxOrd = getSegmentOrdsSum((ValuesSource.Bytes.WithOrdinals) valuesSource, context.searcher());
+            } else {
+                maxOrd = getMaxOrd(valuesSource, context.searcher());
+            }
             SubAggCollectionMode cm = collectMode;
             if (cm == null) {
                 cm = SubAggCollectionMode.DEPTH_FIRST;
@@ -218,6 +229,27 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         }
     }
 
+    /**
+     * Returns whether the {@link ExecutionMode#SEGMENT_ORDINALS} execution mode that was requested for the provided
+     * {@link ValuesSource} should be used, which is only the case if its global ordinals are not loaded yet. Loaded global
+     * ordinals are cheaper to use than segment ordinals.
+     */
+    static boolean useSegmentOrdinals(ValuesSource.Bytes.WithOrdinals source, IndexSearcher searcher) {
+        return source.isGlobalOrdinalsLoaded(searcher) == false;
+    }
+
+    /**
+     * Get the total number of ordinals of the segments of the provided {@link ValuesSource}, which can be computed
+     * without building global ordinals.
+     */
+    static long getSegmentOrdsSum(ValuesSource.Bytes.WithOrdinals source, IndexSearcher searcher) throws IOException {
+        long segmentOrds = 0;
+        for (LeafReaderContext ctx : searcher.getIndexReader().leaves()) {
+            segmentOrds += source.ordinalsValues(ctx).getValueCount();
+        }
+        return segmentOrds;
+    }
+
     public enum ExecutionMode {
 
         MAP(new ParseField("map")) {
@@ -303,6 +335,28 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         format, bucketCountThresholds, filter, context, parent, remapGlobalOrds, subAggCollectMode, showTermDocCountError,
                         pipelineAggregators, metaData);
             }
+        },
+        SEGMENT_ORDINALS(new ParseField("segment_ordinals")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSource valuesSource,
+                              BucketOrder order,
+                              DocValueFormat format,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              SearchContext context,
+                              Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              List<PipelineAggregator> pipelineAggregators,
+                              Map<String, Object> metaData) throws IOException {
+                final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter(format);
+                return new SegmentOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
+                        format, bucketCountThresholds, filter, context, parent, subAggCollectMode, showTermDocCountError,
+                        pipelineAggregators, metaData);
+            }
         };
 
         public static ExecutionMode fromString(String value, final DeprecationLogger deprecationLogger) {
@@ -311,8 +365,11 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     return GLOBAL_ORDINALS;
                 case "map":
                     return MAP;
+                case "segment_ordinals":
+                    return SEGMENT_ORDINALS;
                 default:
-                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], expected any of [map, global_ordinals]");
+                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], "
+                            + "expected any of [map, global_ordinals, segment_ordinals]");
             }
         }
 
@@ -19,11 +19,14 @@
 package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.codec.SegmentStats;
+import org.elasticsearch.index.fielddata.DoubleValuesBatch;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -45,12 +48,16 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
     LongArray counts;
     DoubleArray sums;
     DoubleArray compensations;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
+    private final SegmentStatsLookup segmentStats;
     DocValueFormat format;
 
-    AvgAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat formatter, SearchContext context,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+    AvgAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat formatter, SegmentStatsLookup segmentStats,
+            SearchContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
         super(name, context, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
+        this.segmentStats = segmentStats;
         this.format = formatter;
         if (valuesSource != null) {
             final BigArrays bigArrays = context.bigArrays();
@@ -71,6 +78,16 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (segmentStats != null) {
+            final SegmentStats stats = segmentStats.get(ctx);
+            if (stats != null) {
+                // there is no parent aggregator (see SegmentStatsLookup#build) so the ordinal for the bucket is always 0
+                counts.increment(0, stats.getCount());
+                SegmentStatsLookup.addSum(stats, sums, compensations);
+                // the sum and count of the segment have been extracted, we don't need to collect hits on this segment.
+                throw new CollectionTerminatedException();
+            }
+        }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
@@ -103,6 +120,40 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     compensations.set(bucket, compensation);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                counts = bigArrays.grow(counts, bucket + 1);
+                sums = bigArrays.grow(sums, bucket + 1);
+                compensations = bigArrays.grow(compensations, bucket + 1);
+
+                batch.read(values, docs, count);
+                final int numValues = batch.numValues();
+                if (numValues > 0) {
+                    counts.increment(bucket, numValues);
+                    final double[] vals = batch.values();
+                    double sum = sums.get(bucket);
+                    double compensation = compensations.get(bucket);
+                    for (int i = 0; i < numValues; i++) {
+                        double value = vals[i];
+                        if (Double.isFinite(value) == false) {
+                            sum += value;
+                        } else if (Double.isFinite(sum)) {
+                            double corrected = value - compensation;
+                            double newSum = sum + corrected;
+                            compensation = (newSum - sum) - corrected;
+                            sum = newSum;
+                        }
+                    }
+                    sums.set(bucket, sum);
+                    compensations.set(bucket, compensation);
+                }
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return true;
+            }
         };
     }
 
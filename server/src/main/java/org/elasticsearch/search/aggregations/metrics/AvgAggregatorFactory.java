@@ -43,12 +43,13 @@ class AvgAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSource.Nu
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
-        return new AvgAggregator(name, null, config.format(), context, parent, pipelineAggregators, metaData);
+        return new AvgAggregator(name, null, config.format(), null, context, parent, pipelineAggregators, metaData);
     }
 
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new AvgAggregator(name, valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
+        return new AvgAggregator(name, valuesSource, config.format(),
+            SegmentStatsLookup.build(context, parent, config), context, parent, pipelineAggregators, metaData);
     }
 }
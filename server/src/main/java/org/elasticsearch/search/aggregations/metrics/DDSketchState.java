@@ -0,0 +1,372 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A DDSketch: a quantile sketch that guarantees a relative error on the values it returns. Values are mapped to buckets whose
+ * bounds grow exponentially by a factor of {@code (1 + relativeAccuracy) / (1 - relativeAccuracy)}, so that every value is
+ * within {@code relativeAccuracy} of the value that represents its bucket. Merging two sketches only sums the counts of their
+ * buckets, which makes the result independent of the order of the merges and its cost independent of the number of values.
+ * The number of buckets is bounded: once it is reached, the buckets that are the closest to zero are collapsed together.
+ */
+public class DDSketchState {
+
+    /**
+     * The maximum number of buckets of each of the positive and negative stores.
+     */
+    static final int MAX_NUM_BUCKETS = 2048;
+
+    /**
+     * The lowest supported relative accuracy, which keeps the bucket indices of all finite values within the range of an int.
+     */
+    public static final double MIN_RELATIVE_ACCURACY = 1e-6;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double multiplier;
+    private final Store positives = new Store();
+    private final Store negatives = new Store();
+    // the number of values whose absolute value is too small to be indexed
+    private long zeroCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public DDSketchState(double relativeAccuracy) {
+        if (relativeAccuracy < MIN_RELATIVE_ACCURACY || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("[relative_accuracy] must be greater than or equal to " + MIN_RELATIVE_ACCURACY
+                    + " and less than 1. Found [" + relativeAccuracy + "]");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.multiplier = 1 / Math.log(gamma);
+    }
+
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * The number of values that have been added to this sketch.
+     */
+    public long size() {
+        return positives.count + negatives.count + zeroCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * The number of bytes this sketch occupies in memory.
+     */
+    public long byteSize() {
+        return RamUsageEstimator.sizeOf(positives.counts) + RamUsageEstimator.sizeOf(negatives.counts);
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    private void add(double value, long count) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to a DDSketch");
+        }
+        if (value >= Double.MIN_NORMAL) {
+            positives.add(index(value), count);
+        } else if (value <= -Double.MIN_NORMAL) {
+            negatives.add(index(-value), count);
+        } else {
+            zeroCount += count;
+        }
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merges the values of another sketch, which must have the same relative accuracy, into this one.
+     */
+    public void add(DDSketchState other) {
+        if (relativeAccuracy != other.relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge a DDSketch with a relative accuracy of [" + other.relativeAccuracy
+                    + "] into a DDSketch with a relative accuracy of [" + relativeAccuracy + "]");
+        }
+        positives.add(other.positives);
+        negatives.add(other.negatives);
+        zeroCount += other.zeroCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    private int index(double absValue) {
+        // infinite values share the bucket of the largest finite value
+        return (int) Math.ceil(Math.log(Math.min(absValue, Double.MAX_VALUE)) * multiplier);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /**
+     * Returns the value at the given quantile, between {@code 0} and {@code 1}, or {@link Double#NaN} if the sketch is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q should be in [0,1], got " + q);
+        }
+        final long size = size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        final double rank = q * (size - 1);
+        // the smallest and largest values are known exactly
+        if (rank < 1) {
+            return min;
+        }
+        if (rank >= size - 1) {
+            return max;
+        }
+        long n = 0;
+        for (int i = negatives.maxIndex; i >= negatives.minIndex; i--) {
+            n += negatives.count(i);
+            if (n > rank) {
+                return clamp(-value(i));
+            }
+        }
+        n += zeroCount;
+        if (n > rank) {
+            return clamp(0);
+        }
+        for (int i = positives.minIndex; i <= positives.maxIndex; i++) {
+            n += positives.count(i);
+            if (n > rank) {
+                return clamp(value(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the fraction of the values that are less than or equal to {@code value}, or {@link Double#NaN} if the sketch is empty.
+     */
+    public double cdf(double value) {
+        final long size = size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value >= max) {
+            return 1;
+        }
+        long n = 0;
+        for (int i = negatives.maxIndex; i >= negatives.minIndex && -value(i) <= value; i--) {
+            n += negatives.count(i);
+        }
+        if (value >= 0) {
+            n += zeroCount;
+            for (int i = positives.minIndex; i <= positives.maxIndex && value(i) <= value; i++) {
+                n += positives.count(i);
+            }
+        }
+        return (double) n / size;
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public static void write(DDSketchState state, StreamOutput out) throws IOException {
+        out.writeDouble(state.relativeAccuracy);
+        out.writeVLong(state.zeroCount);
+        out.writeDouble(state.min);
+        out.writeDouble(state.max);
+        state.positives.writeTo(out);
+        state.negatives.writeTo(out);
+    }
+
+    public static DDSketchState read(StreamInput in) throws IOException {
+        DDSketchState state = new DDSketchState(in.readDouble());
+        state.zeroCount = in.readVLong();
+        state.min = in.readDouble();
+        state.max = in.readDouble();
+        state.positives.readFrom(in);
+        state.negatives.readFrom(in);
+        return state;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj instanceof DDSketchState == false) {
+            return false;
+        }
+        DDSketchState that = (DDSketchState) obj;
+        return relativeAccuracy == that.relativeAccuracy
+                && zeroCount == that.zeroCount
+                && Double.compare(min, that.min) == 0
+                && Double.compare(max, that.max) == 0
+                && positives.equals(that.positives)
+                && negatives.equals(that.negatives);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = getClass().hashCode();
+        h = 31 * h + Double.hashCode(relativeAccuracy);
+        h = 31 * h + Long.hashCode(zeroCount);
+        h = 31 * h + Double.hashCode(min);
+        h = 31 * h + Double.hashCode(max);
+        h = 31 * h + positives.hashCode();
+        h = 31 * h + negatives.hashCode();
+        return h;
+    }
+
+    /**
+     * The counts of the buckets of either the positive or the negative values, indexed by the bucket index of their absolute value.
+     */
+    private static final class Store {
+
+        private long[] counts = new long[0];
+        // the bucket index of counts[0]
+        private int offset;
+        // the range of bucket indices in use, empty if minIndex > maxIndex
+        private int minIndex = Integer.MAX_VALUE;
+        private int maxIndex = Integer.MIN_VALUE;
+        private long count;
+
+        long count(int index) {
+            return counts[index - offset];
+        }
+
+        void add(int index, long n) {
+            if (n == 0) {
+                return;
+            }
+            if (count == 0) {
+                extendRange(index, index);
+            } else if (index < minIndex || index > maxIndex) {
+                extendRange(Math.min(index, minIndex), Math.max(index, maxIndex));
+            }
+            // indices below the range have been collapsed into its lowest bucket
+            counts[Math.max(index, minIndex) - offset] += n;
+            count += n;
+        }
+
+        void add(Store other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (count == 0) {
+                extendRange(other.minIndex, other.maxIndex);
+            } else {
+                extendRange(Math.min(other.minIndex, minIndex), Math.max(other.maxIndex, maxIndex));
+            }
+            for (int i = other.minIndex; i <= other.maxIndex; i++) {
+                add(i, other.count(i));
+            }
+        }
+
+        private void extendRange(int newMinIndex, int newMaxIndex) {
+            if ((long) newMaxIndex - newMinIndex + 1 > MAX_NUM_BUCKETS) {
+                newMinIndex = newMaxIndex - MAX_NUM_BUCKETS + 1;
+            }
+            if (newMinIndex < offset || newMaxIndex >= offset + counts.length) {
+                final int length = Math.min(MAX_NUM_BUCKETS, ArrayUtil.oversize(newMaxIndex - newMinIndex + 1, Long.BYTES));
+                // leave the free space on the side the range grows towards
+                final int newOffset = count > 0 && newMaxIndex == maxIndex ? newMaxIndex - length + 1 : newMinIndex;
+                final long[] newCounts = new long[length];
+                for (int i = minIndex; i <= maxIndex; i++) {
+                    newCounts[Math.max(i, newMinIndex) - newOffset] += counts[i - offset];
+                }
+                counts = newCounts;
+                offset = newOffset;
+            } else {
+                for (int i = minIndex; i < newMinIndex; i++) {
+                    counts[newMinIndex - offset] += counts[i - offset];
+                    counts[i - offset] = 0;
+                }
+            }
+            minIndex = newMinIndex;
+            maxIndex = newMaxIndex;
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            if (count == 0) {
+                out.writeVInt(0);
+                return;
+            }
+            out.writeVInt(maxIndex - minIndex + 1);
+            out.writeZLong(minIndex);
+            for (int i = minIndex; i <= maxIndex; i++) {
+                out.writeVLong(count(i));
+            }
+        }
+
+        void readFrom(StreamInput in) throws IOException {
+            final int numBuckets = in.readVInt();
+            if (numBuckets == 0) {
+                return;
+            }
+            final int first = Math.toIntExact(in.readZLong());
+            for (int i = 0; i < numBuckets; i++) {
+                add(first + i, in.readVLong());
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            Store that = (Store) obj;
+            if (count != that.count) {
+                return false;
+            }
+            if (count == 0) {
+                return true;
+            }
+            if (minIndex != that.minIndex || maxIndex != that.maxIndex) {
+                return false;
+            }
+            for (int i = minIndex; i <= maxIndex; i++) {
+                if (count(i) != that.count(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = Long.hashCode(count);
+            for (int i = minIndex; i <= maxIndex; i++) {
+                h = 31 * h + Long.hashCode(count(i));
+            }
+            return h;
+        }
+    }
+}
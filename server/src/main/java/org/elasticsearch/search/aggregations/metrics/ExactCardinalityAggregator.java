@@ -0,0 +1,291 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.SparseFixedBitSet;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.common.util.ObjectArray;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator that computes exact counts of unique values. The global ordinals of a bucket are collected
+ * in a {@link SparseFixedBitSet} that only allocates the blocks of ordinals that are used, other values are
+ * collected in a hash set backed by {@link BigArrays}. Both are accounted in the request circuit breaker.
+ */
+class ExactCardinalityAggregator extends NumericMetricsAggregator.SingleValue {
+
+    private final ValuesSource valuesSource;
+    private final boolean floatingPoint;
+
+    // the global ordinals of each bucket if the values source has ordinals
+    private ObjectArray<SparseFixedBitSet> ordinalSets;
+    private SortedSetDocValues globalOrds;
+    // the numeric values of each bucket, doubles are stored as sortable longs
+    private ObjectArray<LongHash> numericSets;
+    // the binary values of each bucket if the values source has no ordinals
+    private ObjectArray<BytesRefHash> bytesSets;
+
+    ExactCardinalityAggregator(String name,
+                               ValuesSource valuesSource,
+                               SearchContext context,
+                               Aggregator parent,
+                               List<PipelineAggregator> pipelineAggregators,
+                               Map<String, Object> metaData) throws IOException {
+        super(name, context, parent, pipelineAggregators, metaData);
+        this.valuesSource = valuesSource;
+        if (valuesSource instanceof ValuesSource.Numeric) {
+            floatingPoint = ((ValuesSource.Numeric) valuesSource).isFloatingPoint();
+            numericSets = context.bigArrays().newObjectArray(1);
+        } else {
+            floatingPoint = false;
+            if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals) {
+                ordinalSets = context.bigArrays().newObjectArray(1);
+            } else if (valuesSource != null) {
+                bytesSets = context.bigArrays().newObjectArray(1);
+            }
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return valuesSource != null && valuesSource.needsScores() ? ScoreMode.COMPLETE : ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        if (valuesSource == null) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        if (numericSets != null) {
+            return floatingPoint ? getDoubleLeafCollector(ctx, sub) : getLongLeafCollector(ctx, sub);
+        } else if (ordinalSets != null) {
+            return getOrdinalsLeafCollector(ctx, sub);
+        } else {
+            return getBytesLeafCollector(ctx, sub);
+        }
+    }
+
+    private LeafBucketCollector getLongLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        final SortedNumericDocValues values = ((ValuesSource.Numeric) valuesSource).longValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if (values.advanceExact(doc)) {
+                    final LongHash set = numericSet(bucket);
+                    final int valueCount = values.docValueCount();
+                    for (int i = 0; i < valueCount; i++) {
+                        set.add(values.nextValue());
+                    }
+                }
+            }
+        };
+    }
+
+    private LeafBucketCollector getDoubleLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        final SortedNumericDoubleValues values = ((ValuesSource.Numeric) valuesSource).doubleValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if (values.advanceExact(doc)) {
+                    final LongHash set = numericSet(bucket);
+                    final int valueCount = values.docValueCount();
+                    for (int i = 0; i < valueCount; i++) {
+                        set.add(NumericUtils.doubleToSortableLong(values.nextValue()));
+                    }
+                }
+            }
+        };
+    }
+
+    private LeafBucketCollector getOrdinalsLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        final SortedSetDocValues values = ((ValuesSource.Bytes.WithOrdinals) valuesSource).globalOrdinalsValues(ctx);
+        if (values.getValueCount() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("[" + ExactCardinalityAggregationBuilder.NAME + "] aggregation [" + name
+                + "] cannot count the values of a field with more than [" + Integer.MAX_VALUE + "] terms per shard, got ["
+                + values.getValueCount() + "]");
+        }
+        final int maxOrd = (int) values.getValueCount();
+        globalOrds = values;
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if (values.advanceExact(doc)) {
+                    final SparseFixedBitSet bits = ordinalSet(bucket, maxOrd);
+                    final long ramBytesUsed = bits.ramBytesUsed();
+                    for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                        bits.set((int) ord);
+                    }
+                    if (bits.ramBytesUsed() != ramBytesUsed) {
+                        addRequestCircuitBreakerBytes(bits.ramBytesUsed() - ramBytesUsed);
+                    }
+                }
+            }
+        };
+    }
+
+    private LeafBucketCollector getBytesLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        final SortedBinaryDocValues values = valuesSource.bytesValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if (values.advanceExact(doc)) {
+                    final BytesRefHash set = bytesSet(bucket);
+                    final int valueCount = values.docValueCount();
+                    for (int i = 0; i < valueCount; i++) {
+                        set.add(values.nextValue());
+                    }
+                }
+            }
+        };
+    }
+
+    private LongHash numericSet(long bucket) {
+        numericSets = context.bigArrays().grow(numericSets, bucket + 1);
+        LongHash set = numericSets.get(bucket);
+        if (set == null) {
+            set = new LongHash(1, context.bigArrays());
+            numericSets.set(bucket, set);
+        }
+        return set;
+    }
+
+    private BytesRefHash bytesSet(long bucket) {
+        bytesSets = context.bigArrays().grow(bytesSets, bucket + 1);
+        BytesRefHash set = bytesSets.get(bucket);
+        if (set == null) {
+            set = new BytesRefHash(1, context.bigArrays());
+            bytesSets.set(bucket, set);
+        }
+        return set;
+    }
+
+    private SparseFixedBitSet ordinalSet(long bucket, int maxOrd) {
+        ordinalSets = context.bigArrays().grow(ordinalSets, bucket + 1);
+        SparseFixedBitSet bits = ordinalSets.get(bucket);
+        if (bits == null) {
+            bits = new SparseFixedBitSet(maxOrd);
+            // the bit sets are allocated on the heap so they are accounted separately
+            addRequestCircuitBreakerBytes(bits.ramBytesUsed());
+            ordinalSets.set(bucket, bits);
+        }
+        return bits;
+    }
+
+    private static <T> T get(ObjectArray<T> sets, long bucket) {
+        return sets == null || bucket >= sets.size() ? null : sets.get(bucket);
+    }
+
+    @Override
+    public double metric(long owningBucketOrd) {
+        final LongHash numericSet = get(numericSets, owningBucketOrd);
+        if (numericSet != null) {
+            return numericSet.size();
+        }
+        final SparseFixedBitSet bits = get(ordinalSets, owningBucketOrd);
+        if (bits != null) {
+            return bits.cardinality();
+        }
+        final BytesRefHash bytesSet = get(bytesSets, owningBucketOrd);
+        return bytesSet == null ? 0 : bytesSet.size();
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        final LongHash numericSet = get(numericSets, owningBucketOrdinal);
+        if (numericSet != null) {
+            final long[] values = new long[Math.toIntExact(numericSet.size())];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = numericSet.get(i);
+            }
+            Arrays.sort(values);
+            return buildAggregation(values, null);
+        }
+        final SparseFixedBitSet bits = get(ordinalSets, owningBucketOrdinal);
+        if (bits != null) {
+            // global ordinals are sorted like their terms
+            final BytesRef[] terms = new BytesRef[bits.cardinality()];
+            int i = 0;
+            for (int ord = bits.nextSetBit(0); ord != DocIdSetIterator.NO_MORE_DOCS;
+                    ord = ord + 1 < bits.length() ? bits.nextSetBit(ord + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+                terms[i++] = BytesRef.deepCopyOf(globalOrds.lookupOrd(ord));
+            }
+            return buildAggregation(null, terms);
+        }
+        final BytesRefHash bytesSet = get(bytesSets, owningBucketOrdinal);
+        if (bytesSet != null) {
+            final BytesRef[] terms = new BytesRef[Math.toIntExact(bytesSet.size())];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = BytesRef.deepCopyOf(bytesSet.get(i, new BytesRef()));
+            }
+            Arrays.sort(terms);
+            return buildAggregation(null, terms);
+        }
+        return buildEmptyAggregation();
+    }
+
+    private InternalAggregation buildAggregation(long[] numbers, BytesRef[] terms) {
+        // the materialized values are accounted until this aggregator is closed
+        addRequestCircuitBreakerBytes(InternalExactCardinality.ramBytesUsed(numbers, terms));
+        return new InternalExactCardinality(name, numbers, numbers != null && floatingPoint, terms, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalExactCardinality(name, null, false, null, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    protected void doClose() {
+        closeSets(numericSets);
+        closeSets(bytesSets);
+        Releasables.close(numericSets, bytesSets, ordinalSets);
+    }
+
+    private static void closeSets(ObjectArray<? extends Releasable> sets) {
+        if (sets != null) {
+            for (long i = 0; i < sets.size(); i++) {
+                Releasables.close(sets.get(i));
+            }
+        }
+    }
+}
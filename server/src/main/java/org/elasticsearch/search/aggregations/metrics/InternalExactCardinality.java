@@ -0,0 +1,308 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FutureArrays;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of the {@code exact_cardinality} aggregation. It holds the sorted distinct values that were
+ * collected so that the results of several shards can be unioned, numeric values are delta-encoded and
+ * binary values are prefix-encoded on the wire.
+ */
+public final class InternalExactCardinality extends InternalNumericMetricsAggregation.SingleValue implements Cardinality {
+    private static final byte EMPTY = 0;
+    private static final byte LONGS = 1;
+    private static final byte DOUBLES = 2;
+    private static final byte TERMS = 3;
+
+    private static final long BYTES_REF_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
+
+    @Nullable
+    private final long[] numbers;
+    private final boolean floatingPoint;
+    @Nullable
+    private final BytesRef[] terms;
+
+    /**
+     * @param numbers the sorted distinct numeric values or <code>null</code>
+     * @param floatingPoint whether the numeric values are doubles encoded with {@link NumericUtils#doubleToSortableLong(double)}
+     * @param terms the sorted distinct binary values or <code>null</code>
+     */
+    InternalExactCardinality(String name, long[] numbers, boolean floatingPoint, BytesRef[] terms,
+                             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        assert numbers == null || terms == null;
+        this.numbers = numbers;
+        this.floatingPoint = floatingPoint;
+        this.terms = terms;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalExactCardinality(StreamInput in) throws IOException {
+        super(in);
+        format = in.readNamedWriteable(DocValueFormat.class);
+        final byte type = in.readByte();
+        switch (type) {
+            case EMPTY:
+                numbers = null;
+                terms = null;
+                break;
+            case LONGS:
+            case DOUBLES:
+                numbers = new long[in.readVInt()];
+                long previous = 0;
+                for (int i = 0; i < numbers.length; i++) {
+                    previous += in.readZLong();
+                    numbers[i] = previous;
+                }
+                terms = null;
+                break;
+            case TERMS:
+                numbers = null;
+                terms = new BytesRef[in.readVInt()];
+                BytesRef previousTerm = new BytesRef();
+                for (int i = 0; i < terms.length; i++) {
+                    final int prefixLength = in.readVInt();
+                    final int suffixLength = in.readVInt();
+                    final byte[] bytes = new byte[prefixLength + suffixLength];
+                    System.arraycopy(previousTerm.bytes, previousTerm.offset, bytes, 0, prefixLength);
+                    in.readBytes(bytes, prefixLength, suffixLength);
+                    terms[i] = previousTerm = new BytesRef(bytes);
+                }
+                break;
+            default:
+                throw new IOException("Unknown values type [" + type + "]");
+        }
+        floatingPoint = type == DOUBLES;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeNamedWriteable(format);
+        if (numbers != null) {
+            out.writeByte(floatingPoint ? DOUBLES : LONGS);
+            out.writeVInt(numbers.length);
+            long previous = 0;
+            for (long number : numbers) {
+                // the values are sorted so the deltas are small when the values are dense
+                out.writeZLong(number - previous);
+                previous = number;
+            }
+        } else if (terms != null) {
+            out.writeByte(TERMS);
+            out.writeVInt(terms.length);
+            BytesRef previous = new BytesRef();
+            for (BytesRef term : terms) {
+                // the values are sorted so consecutive values often share a prefix
+                int prefixLength = FutureArrays.mismatch(previous.bytes, previous.offset, previous.offset + previous.length,
+                    term.bytes, term.offset, term.offset + term.length);
+                if (prefixLength == -1) {
+                    prefixLength = term.length;
+                }
+                out.writeVInt(prefixLength);
+                out.writeVInt(term.length - prefixLength);
+                out.writeBytes(term.bytes, term.offset + prefixLength, term.length - prefixLength);
+                previous = term;
+            }
+        } else {
+            out.writeByte(EMPTY);
+        }
+    }
+
+    @Override
+    public String getWriteableName() {
+        return ExactCardinalityAggregationBuilder.NAME;
+    }
+
+    @Override
+    public double value() {
+        return getValue();
+    }
+
+    @Override
+    public long getValue() {
+        if (numbers != null) {
+            return numbers.length;
+        }
+        return terms == null ? 0 : terms.length;
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        boolean hasNumbers = false;
+        boolean hasFloatingPoint = false;
+        boolean hasTerms = false;
+        for (InternalAggregation aggregation : aggregations) {
+            final InternalExactCardinality cardinality = (InternalExactCardinality) aggregation;
+            hasNumbers |= cardinality.numbers != null;
+            hasFloatingPoint |= cardinality.numbers != null && cardinality.floatingPoint;
+            hasTerms |= cardinality.terms != null;
+        }
+        if (hasNumbers && hasTerms) {
+            throw new AggregationExecutionException("[" + ExactCardinalityAggregationBuilder.NAME + "] aggregation [" + name
+                + "] cannot count the distinct values of numeric and non-numeric fields together");
+        }
+        if (hasNumbers == false && hasTerms == false) {
+            // all empty
+            return aggregations.get(0);
+        }
+        // the union is at most as large as the values that are reduced, so twice their size is reserved while reducing
+        long reservedBytes = 0;
+        for (InternalAggregation aggregation : aggregations) {
+            final InternalExactCardinality cardinality = (InternalExactCardinality) aggregation;
+            reservedBytes += 2 * ramBytesUsed(cardinality.numbers, cardinality.terms);
+        }
+        final CircuitBreakerService breakerService = reduceContext.bigArrays().breakerService();
+        final CircuitBreaker breaker = breakerService == null ? null : breakerService.getBreaker(CircuitBreaker.REQUEST);
+        if (breaker != null) {
+            breaker.addEstimateBytesAndMaybeBreak(reservedBytes, "<reduce_agg [" + name + "]>");
+        }
+        try {
+            if (hasNumbers) {
+                return new InternalExactCardinality(name, reduceNumbers(aggregations, hasFloatingPoint, reduceContext.bigArrays()),
+                    hasFloatingPoint, null, pipelineAggregators(), getMetaData());
+            } else {
+                return new InternalExactCardinality(name, null, false, reduceTerms(aggregations, reduceContext.bigArrays()),
+                    pipelineAggregators(), getMetaData());
+            }
+        } finally {
+            if (breaker != null) {
+                breaker.addWithoutBreaking(-reservedBytes);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes that the given distinct values use on the heap.
+     */
+    static long ramBytesUsed(@Nullable long[] numbers, @Nullable BytesRef[] terms) {
+        long bytes = 0;
+        if (numbers != null) {
+            bytes += RamUsageEstimator.sizeOf(numbers);
+        }
+        if (terms != null) {
+            bytes += RamUsageEstimator.shallowSizeOf(terms);
+            for (BytesRef term : terms) {
+                bytes += BYTES_REF_SHALLOW_SIZE + RamUsageEstimator.sizeOf(term.bytes);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Unions the numeric values of all aggregations in a hash set that is accounted in the request circuit breaker.
+     * Long values are converted to doubles if any of the aggregations counted doubles.
+     */
+    private static long[] reduceNumbers(List<InternalAggregation> aggregations, boolean floatingPoint, BigArrays bigArrays) {
+        try (LongHash set = new LongHash(1, bigArrays)) {
+            for (InternalAggregation aggregation : aggregations) {
+                final InternalExactCardinality cardinality = (InternalExactCardinality) aggregation;
+                if (cardinality.numbers != null) {
+                    final boolean convert = floatingPoint && cardinality.floatingPoint == false;
+                    for (long number : cardinality.numbers) {
+                        set.add(convert ? NumericUtils.doubleToSortableLong((double) number) : number);
+                    }
+                }
+            }
+            final long[] numbers = new long[Math.toIntExact(set.size())];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = set.get(i);
+            }
+            Arrays.sort(numbers);
+            return numbers;
+        }
+    }
+
+    /**
+     * Unions the binary values of all aggregations in a hash set that is accounted in the request circuit breaker.
+     */
+    private static BytesRef[] reduceTerms(List<InternalAggregation> aggregations, BigArrays bigArrays) {
+        try (BytesRefHash set = new BytesRefHash(1, bigArrays)) {
+            for (InternalAggregation aggregation : aggregations) {
+                final InternalExactCardinality cardinality = (InternalExactCardinality) aggregation;
+                if (cardinality.terms != null) {
+                    for (BytesRef term : cardinality.terms) {
+                        set.add(term);
+                    }
+                }
+            }
+            final BytesRef[] terms = new BytesRef[Math.toIntExact(set.size())];
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = BytesRef.deepCopyOf(set.get(i, new BytesRef()));
+            }
+            Arrays.sort(terms);
+            return terms;
+        }
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(CommonFields.VALUE.getPreferredName(), getValue());
+        return builder;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(Arrays.hashCode(numbers), floatingPoint, Arrays.hashCode(terms));
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        InternalExactCardinality other = (InternalExactCardinality) obj;
+        return Arrays.equals(numbers, other.numbers)
+            && floatingPoint == other.floatingPoint
+            && Arrays.equals(terms, other.terms);
+    }
+
+    long[] getNumbers() {
+        return numbers;
+    }
+
+    boolean isFloatingPoint() {
+        return floatingPoint;
+    }
+
+    BytesRef[] getTerms() {
+        return terms;
+    }
+}
@@ -19,9 +19,11 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.search.Scorable;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorBase;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -35,4 +37,35 @@ public abstract class MetricsAggregator extends AggregatorBase {
             Map<String, Object> metaData) throws IOException {
         super(name, AggregatorFactories.EMPTY, context, parent, pipelineAggregators, metaData);
     }
+
+    @Override
+    protected LeafBucketCollector wrapLeafCollector(LeafBucketCollector leafCollector) {
+        // metrics under a bucket aggregation are collected by their parent, which checks for cancellation
+        if (parent != null || leafCollector == LeafBucketCollector.NO_OP_COLLECTOR) {
+            return leafCollector;
+        }
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                leafCollector.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                maybeCheckCancelled(1);
+                leafCollector.collect(doc, bucket);
+            }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeCheckCancelled(count);
+                leafCollector.collect(docs, count, bucket);
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return leafCollector.prefersBatches();
+            }
+        };
+    }
 }
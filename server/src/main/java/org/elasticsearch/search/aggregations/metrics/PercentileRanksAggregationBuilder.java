@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -73,6 +74,17 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
                 new ParseField("number_of_significant_value_digits"));
     }
 
+    private static class DDSketchOptions {
+        Double relativeAccuracy;
+    }
+
+    private static final ObjectParser<DDSketchOptions, String> DDSKETCH_OPTIONS_PARSER =
+            new ObjectParser<>(PercentilesMethod.DDSKETCH.getParseField().getPreferredName(), DDSketchOptions::new);
+    static {
+        DDSKETCH_OPTIONS_PARSER.declareDouble((opts, relativeAccuracy) -> opts.relativeAccuracy = relativeAccuracy,
+                PercentilesAggregationBuilder.RELATIVE_ACCURACY_FIELD);
+    }
+
     // The builder requires two parameters for the constructor: aggregation name and values array.  The
     // agg name is supplied externally via the Parser's context (as a String), while the values array
     // is parsed from the request and supplied to the ConstructingObjectParser as a ctor argument
@@ -97,6 +109,13 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
                 b.numberOfSignificantValueDigits(v.numberOfSigDigits);
             }
         }, HDR_OPTIONS_PARSER::parse, PercentilesMethod.HDR.getParseField(), ObjectParser.ValueType.OBJECT);
+
+        PARSER.declareField((b, v) -> {
+            b.method(PercentilesMethod.DDSKETCH);
+            if (v.relativeAccuracy != null) {
+                b.relativeAccuracy(v.relativeAccuracy);
+            }
+        }, DDSKETCH_OPTIONS_PARSER::parse, PercentilesMethod.DDSKETCH.getParseField(), ObjectParser.ValueType.OBJECT);
     }
 
     public static AggregationBuilder parse(String aggregationName, XContentParser parser) throws IOException {
@@ -108,6 +127,7 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
     private PercentilesMethod method = PercentilesMethod.TDIGEST;
     private int numberOfSignificantValueDigits = 3;
     private double compression = 100.0;
+    private double relativeAccuracy = 0.01;
     private boolean keyed = true;
 
     private PercentileRanksAggregationBuilder(String name, List<Double> values) {
@@ -135,6 +155,7 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         this.method = clone.method;
         this.numberOfSignificantValueDigits = clone.numberOfSignificantValueDigits;
         this.compression = clone.compression;
+        this.relativeAccuracy = clone.relativeAccuracy;
         this.keyed = clone.keyed;
     }
 
@@ -153,6 +174,9 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         numberOfSignificantValueDigits = in.readVInt();
         compression = in.readDouble();
         method = PercentilesMethod.readFromStream(in);
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            relativeAccuracy = in.readDouble();
+        }
     }
 
     @Override
@@ -162,6 +186,9 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         out.writeVInt(numberOfSignificantValueDigits);
         out.writeDouble(compression);
         method.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeDouble(relativeAccuracy);
+        }
     }
 
     /**
@@ -227,6 +254,28 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         return compression;
     }
 
+    /**
+     * Expert: set the relative accuracy, between 0 and 1, of the returned values.
+     * Lower values improve accuracy but also memory usage. Only relevant when
+     * using {@link PercentilesMethod#DDSKETCH}.
+     */
+    public PercentileRanksAggregationBuilder relativeAccuracy(double relativeAccuracy) {
+        if (relativeAccuracy < DDSketchState.MIN_RELATIVE_ACCURACY || relativeAccuracy >= 1.0) {
+            throw new IllegalArgumentException("[relativeAccuracy] must be greater than or equal to " + DDSketchState.MIN_RELATIVE_ACCURACY
+                    + " and less than 1. Found [" + relativeAccuracy + "] in [" + name + "]");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        return this;
+    }
+
+    /**
+     * Expert: get the relative accuracy of the returned values. Only relevant
+     * when using {@link PercentilesMethod#DDSKETCH}.
+     */
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
     public PercentileRanksAggregationBuilder method(PercentilesMethod method) {
         if (method == null) {
             throw new IllegalArgumentException("[method] must not be null: [" + name + "]");
@@ -249,6 +298,9 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         case HDR:
             return new HDRPercentileRanksAggregatorFactory(name, config, values, numberOfSignificantValueDigits, keyed, context,
                     parent, subFactoriesBuilder, metaData);
+        case DDSKETCH:
+            return new DDSketchPercentileRanksAggregatorFactory(name, config, values, relativeAccuracy, keyed, context, parent,
+                    subFactoriesBuilder, metaData);
         default:
             throw new IllegalStateException("Illegal method [" + method + "]");
         }
@@ -261,6 +313,8 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         builder.startObject(method.toString());
         if (method == PercentilesMethod.TDIGEST) {
             builder.field(PercentilesAggregationBuilder.COMPRESSION_FIELD.getPreferredName(), compression);
+        } else if (method == PercentilesMethod.DDSKETCH) {
+            builder.field(PercentilesAggregationBuilder.RELATIVE_ACCURACY_FIELD.getPreferredName(), relativeAccuracy);
         } else {
             builder.field(PercentilesAggregationBuilder.NUMBER_SIGNIFICANT_DIGITS_FIELD.getPreferredName(), numberOfSignificantValueDigits);
         }
@@ -282,6 +336,9 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
         case TDIGEST:
             equalSettings = Objects.equals(compression, other.compression);
             break;
+        case DDSKETCH:
+            equalSettings = Objects.equals(relativeAccuracy, other.relativeAccuracy);
+            break;
         default:
             throw new IllegalStateException("Illegal method [" + method + "]");
         }
@@ -298,6 +355,8 @@ public class PercentileRanksAggregationBuilder extends LeafOnly<ValuesSource.Num
             return Objects.hash(Arrays.hashCode(values), keyed, numberOfSignificantValueDigits, method);
         case TDIGEST:
             return Objects.hash(Arrays.hashCode(values), keyed, compression, method);
+        case DDSKETCH:
+            return Objects.hash(Arrays.hashCode(values), keyed, relativeAccuracy, method);
         default:
             throw new IllegalStateException("Illegal method [" + method + "]");
         }
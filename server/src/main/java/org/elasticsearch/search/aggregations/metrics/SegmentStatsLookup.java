@@ -0,0 +1,101 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.codec.SegmentStats;
+import org.elasticsearch.index.codec.SegmentStatsDocValuesFormat;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.internal.SearchContext;
+
+/**
+ * Looks up the {@link SegmentStats} that were recorded for the field of a metric aggregation, so that the aggregation does not
+ * need to visit the documents of segments that are fully matched.
+ */
+final class SegmentStatsLookup {
+
+    private final String field;
+
+    private SegmentStatsLookup(String field) {
+        this.field = field;
+    }
+
+    /**
+     * Returns a lookup if the aggregation collects all documents of the shard from a field that has
+     * {@link NumberFieldMapper.NumberFieldType#segmentStats() segment stats}, or <code>null</code> otherwise.
+     *
+     * @param context The {@link SearchContext} of the aggregation.
+     * @param parent The parent aggregator.
+     * @param config The config for the values source metric.
+     */
+    static SegmentStatsLookup build(SearchContext context, Aggregator parent, ValuesSourceConfig<?> config) {
+        if (context.query() != null &&
+                context.query().getClass() != MatchAllDocsQuery.class) {
+            return null;
+        }
+        if (parent != null) {
+            return null;
+        }
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType
+                && ((NumberFieldMapper.NumberFieldType) fieldType).segmentStats()) {
+            return new SegmentStatsLookup(config.fieldContext().field());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the stats of the given segment, or <code>null</code> if they were not recorded or if the segment has deleted documents.
+     */
+    SegmentStats get(LeafReaderContext ctx) {
+        if (ctx.reader().numDeletedDocs() > 0) {
+            return null;
+        }
+        return SegmentStatsDocValuesFormat.getStats(ctx.reader(), field);
+    }
+
+    /**
+     * Adds the sum of the given segment stats to the sum of the only bucket, using the same Kahan summation as the collection
+     * of values so that the result does not depend on whether segments were collected or read from their stats.
+     */
+    static void addSum(SegmentStats stats, DoubleArray sums, DoubleArray compensations) {
+        // there is no parent aggregator (see #build) so the ordinal for the bucket is always 0
+        double sum = sums.get(0);
+        double compensation = compensations.get(0);
+        final double value = stats.getSum();
+        if (Double.isFinite(value) == false) {
+            sum += value;
+        } else if (Double.isFinite(sum)) {
+            double corrected = value - compensation;
+            double newSum = sum + corrected;
+            compensation = (newSum - sum) - corrected;
+            sum = newSum;
+        }
+        sums.set(0, sum);
+        compensations.set(0, compensation);
+    }
+}
@@ -19,11 +19,14 @@
 package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.codec.SegmentStats;
+import org.elasticsearch.index.fielddata.DoubleValuesBatch;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -48,13 +51,16 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
     DoubleArray compensations;
     DoubleArray mins;
     DoubleArray maxes;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
+    private final SegmentStatsLookup segmentStats;
 
 
-    StatsAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat format,
+    StatsAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat format, SegmentStatsLookup segmentStats,
                         SearchContext context, Aggregator parent,
                         List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
         super(name, context, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
+        this.segmentStats = segmentStats;
         if (valuesSource != null) {
             final BigArrays bigArrays = context.bigArrays();
             counts = bigArrays.newLongArray(1, true);
@@ -79,11 +85,23 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (segmentStats != null) {
+            final SegmentStats stats = segmentStats.get(ctx);
+            if (stats != null) {
+                // there is no parent aggregator (see SegmentStatsLookup#build) so the ordinal for the bucket is always 0
+                counts.increment(0, stats.getCount());
+                mins.set(0, Math.min(mins.get(0), stats.getMin()));
+                maxes.set(0, Math.max(maxes.get(0), stats.getMax()));
+                SegmentStatsLookup.addSum(stats, sums, compensations);
+                // the stats of the segment have been extracted, we don't need to collect hits on this segment.
+                throw new CollectionTerminatedException();
+            }
+        }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
-            @Override
-            public void collect(int doc, long bucket) throws IOException {
+
+            private void maybeGrow(long bucket) {
                 if (bucket >= counts.size()) {
                     final long from = counts.size();
                     final long overSize = BigArrays.overSize(bucket + 1);
@@ -95,7 +113,11 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     mins.fill(from, overSize, Double.POSITIVE_INFINITY);
                     maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
                 }
+            }
 
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                maybeGrow(bucket);
                 if (values.advanceExact(doc)) {
                     final int valuesCount = values.docValueCount();
                     counts.increment(bucket, valuesCount);
@@ -125,6 +147,43 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.set(bucket, max);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeGrow(bucket);
+                batch.read(values, docs, count);
+                final int numValues = batch.numValues();
+                if (numValues > 0) {
+                    counts.increment(bucket, numValues);
+                    final double[] vals = batch.values();
+                    double min = mins.get(bucket);
+                    double max = maxes.get(bucket);
+                    double sum = sums.get(bucket);
+                    double compensation = compensations.get(bucket);
+                    for (int i = 0; i < numValues; i++) {
+                        double value = vals[i];
+                        if (Double.isFinite(value) == false) {
+                            sum += value;
+                        } else if (Double.isFinite(sum)) {
+                            double corrected = value - compensation;
+                            double newSum = sum + corrected;
+                            compensation = (newSum - sum) - corrected;
+                            sum = newSum;
+                        }
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                    sums.set(bucket, sum);
+                    compensations.set(bucket, compensation);
+                    mins.set(bucket, min);
+                    maxes.set(bucket, max);
+                }
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return true;
+            }
         };
     }
 
@@ -19,10 +19,13 @@
 package org.elasticsearch.search.aggregations.metrics;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.codec.SegmentStats;
+import org.elasticsearch.index.fielddata.DoubleValuesBatch;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -44,11 +47,15 @@ class SumAggregator extends NumericMetricsAggregator.SingleValue {
 
     private DoubleArray sums;
     private DoubleArray compensations;
+    private final DoubleValuesBatch batch = new DoubleValuesBatch();
+    private final SegmentStatsLookup segmentStats;
 
-    SumAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat formatter, SearchContext context,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+    SumAggregator(String name, ValuesSource.Numeric valuesSource, DocValueFormat formatter, SegmentStatsLookup segmentStats,
+            SearchContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
         super(name, context, parent, pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
+        this.segmentStats = segmentStats;
         this.format = formatter;
         if (valuesSource != null) {
             sums = context.bigArrays().newDoubleArray(1, true);
@@ -67,6 +74,14 @@ class SumAggregator extends NumericMetricsAggregator.SingleValue {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (segmentStats != null) {
+            final SegmentStats stats = segmentStats.get(ctx);
+            if (stats != null) {
+                SegmentStatsLookup.addSum(stats, sums, compensations);
+                // the sum of the segment has been extracted, we don't need to collect hits on this segment.
+                throw new CollectionTerminatedException();
+            }
+        }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
@@ -96,6 +111,38 @@ class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.set(bucket, sum);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                sums = bigArrays.grow(sums, bucket + 1);
+                compensations = bigArrays.grow(compensations, bucket + 1);
+
+                batch.read(values, docs, count);
+                final int numValues = batch.numValues();
+                if (numValues > 0) {
+                    final double[] vals = batch.values();
+                    double sum = sums.get(bucket);
+                    double compensation = compensations.get(bucket);
+                    for (int i = 0; i < numValues; i++) {
+                        double value = vals[i];
+                        if (Double.isFinite(value) == false) {
+                            sum += value;
+                        } else if (Double.isFinite(sum)) {
+                            double corrected = value - compensation;
+                            double newSum = sum + corrected;
+                            compensation = (newSum - sum) - corrected;
+                            sum = newSum;
+                        }
+                    }
+                    compensations.set(bucket, compensation);
+                    sums.set(bucket, sum);
+                }
+            }
+
+            @Override
+            public boolean prefersBatches() {
+                return true;
+            }
         };
     }
 
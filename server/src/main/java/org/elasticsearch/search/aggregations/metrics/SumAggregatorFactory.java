@@ -43,12 +43,13 @@ class SumAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSource.Nu
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
-        return new SumAggregator(name, null, config.format(), context, parent, pipelineAggregators, metaData);
+        return new SumAggregator(name, null, config.format(), null, context, parent, pipelineAggregators, metaData);
     }
 
     @Override
     protected Aggregator doCreateInternal(ValuesSource.Numeric valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new SumAggregator(name, valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
+        return new SumAggregator(name, valuesSource, config.format(),
+            SegmentStatsLookup.build(context, parent, config), context, parent, pipelineAggregators, metaData);
     }
 }
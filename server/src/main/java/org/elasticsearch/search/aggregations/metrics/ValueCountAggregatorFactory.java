@@ -42,12 +42,13 @@ class ValueCountAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSo
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
-        return new ValueCountAggregator(name, null, context, parent, pipelineAggregators, metaData);
+        return new ValueCountAggregator(name, null, null, context, parent, pipelineAggregators, metaData);
     }
 
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
-        return new ValueCountAggregator(name, valuesSource, context, parent, pipelineAggregators, metaData);
+        return new ValueCountAggregator(name, valuesSource, SegmentStatsLookup.build(context, parent, config), context, parent,
+            pipelineAggregators, metaData);
     }
 }
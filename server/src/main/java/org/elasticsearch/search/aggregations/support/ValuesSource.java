@@ -126,6 +126,13 @@ public abstract class ValuesSource {
                 }
             }
 
+            /**
+             * Returns whether the global ordinals of the given searcher can be used without building them first.
+             */
+            public boolean isGlobalOrdinalsLoaded(IndexSearcher indexSearcher) {
+                return true;
+            }
+
             public static class FieldData extends WithOrdinals {
 
                 protected final IndexOrdinalsFieldData indexFieldData;
@@ -164,6 +171,12 @@ public abstract class ValuesSource {
                     final org.apache.lucene.util.LongValues segmentToGlobalOrd = map.getGlobalOrds(context.ord);
                     return segmentToGlobalOrd::get;
                 }
+
+                @Override
+                public boolean isGlobalOrdinalsLoaded(IndexSearcher indexSearcher) {
+                    final IndexReader indexReader = indexSearcher.getIndexReader();
+                    return indexReader instanceof DirectoryReader == false || indexFieldData.isGlobalLoaded((DirectoryReader) indexReader);
+                }
             }
         }
 
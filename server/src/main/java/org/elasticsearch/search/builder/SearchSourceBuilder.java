@@ -110,6 +110,7 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
     public static final ParseField SEARCH_AFTER = new ParseField("search_after");
     public static final ParseField COLLAPSE = new ParseField("collapse");
     public static final ParseField SLICE = new ParseField("slice");
+    public static final ParseField READER_CONTEXT = new ParseField("reader_context");
     public static final ParseField ALL_FIELDS_FIELDS = new ParseField("all_fields");
 
     public static SearchSourceBuilder fromXContent(XContentParser parser) throws IOException {
@@ -186,6 +187,8 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
 
     private CollapseBuilder collapse = null;
 
+    private String readerContext = null;
+
     /**
      * Constructs a new search source builder.
      */
@@ -254,6 +257,9 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         } else {
             trackTotalHits = true;
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            readerContext = in.readOptionalString();
+        }
     }
 
     @Override
@@ -315,6 +321,9 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         if (out.getVersion().onOrAfter(Version.V_6_0_0_beta1)) {
             out.writeBoolean(trackTotalHits);
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeOptionalString(readerContext);
+        }
     }
 
     /**
@@ -591,6 +600,22 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         return this;
     }
 
+    /**
+     * Returns the id of the reader contexts to search, see {@link #readerContext(String)}.
+     */
+    public String readerContext() {
+        return readerContext;
+    }
+
+    /**
+     * Searches the reader contexts that {@link org.elasticsearch.action.search.OpenReaderContextAction} returned the given id for
+     * instead of the indices of the search request, so that subsequent searches see the same documents.
+     */
+    public SearchSourceBuilder readerContext(String readerContextId) {
+        this.readerContext = readerContextId;
+        return this;
+    }
+
     /**
      * Add an aggregation to perform as part of the search.
      */
@@ -947,6 +972,25 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         return shallowCopy(queryBuilder, postQueryBuilder, aggregations, slice, sorts, rescoreBuilders, highlightBuilder);
     }
 
+    /**
+     * Create a shallow copy of this builder without the options that only apply to the fetch phase, like the fields to return and
+     * the highlighting, and without the stats groups and the reader context id, which the shard request already carries as its
+     * {@link org.elasticsearch.search.internal.ShardSearchRequest#readerId()}. The query phase produces the same result with or without
+     * them.
+     */
+    public SearchSourceBuilder copyWithoutFetchOptions() {
+        SearchSourceBuilder copy = shallowCopy(queryBuilder, postQueryBuilder, aggregations, sliceBuilder, sorts, rescoreBuilders, null);
+        copy.explain = null;
+        copy.version = null;
+        copy.fetchSourceContext = null;
+        copy.docValueFields = null;
+        copy.storedFieldsContext = null;
+        copy.scriptFields = null;
+        copy.stats = null;
+        copy.readerContext = null;
+        return copy;
+    }
+
     /**
      * Create a shallow copy of this source replaced {@link #queryBuilder}, {@link #postQueryBuilder}, and {@link #sliceBuilder}. Used by
      * {@link #rewrite(QueryRewriteContext)} and {@link #copyWithNewSlice(SliceBuilder)}.
@@ -982,6 +1026,7 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         rewrittenBuilder.trackTotalHits = trackTotalHits;
         rewrittenBuilder.version = version;
         rewrittenBuilder.collapse = collapse;
+        rewrittenBuilder.readerContext = readerContext;
         return rewrittenBuilder;
     }
 
@@ -1035,6 +1080,8 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
                     sort(parser.text());
                 } else if (PROFILE_FIELD.match(currentFieldName, parser.getDeprecationHandler())) {
                     profile = parser.booleanValue();
+                } else if (READER_CONTEXT.match(currentFieldName, parser.getDeprecationHandler())) {
+                    readerContext = parser.text();
                 } else {
                     throw new ParsingException(parser.getTokenLocation(), "Unknown key for a " + token + " in [" + currentFieldName + "].",
                             parser.getTokenLocation());
@@ -1288,6 +1335,10 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         if (collapse != null) {
             builder.field(COLLAPSE.getPreferredName(), collapse);
         }
+
+        if (readerContext != null) {
+            builder.field(READER_CONTEXT.getPreferredName(), readerContext);
+        }
         return builder;
     }
 
@@ -1500,7 +1551,7 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
         return Objects.hash(aggregations, explain, fetchSourceContext, docValueFields, storedFieldsContext, from, highlightBuilder,
                 indexBoosts, minScore, postQueryBuilder, queryBuilder, rescoreBuilders, scriptFields, size,
                 sorts, searchAfterBuilder, sliceBuilder, stats, suggestBuilder, terminateAfter, timeout, trackScores, version,
-                profile, extBuilders, collapse, trackTotalHits);
+                profile, extBuilders, collapse, trackTotalHits, readerContext);
     }
 
     @Override
@@ -1538,7 +1589,8 @@ public final class SearchSourceBuilder implements Writeable, ToXContentObject, R
                 && Objects.equals(profile, other.profile)
                 && Objects.equals(extBuilders, other.extBuilders)
                 && Objects.equals(collapse, other.collapse)
-                && Objects.equals(trackTotalHits, other.trackTotalHits);
+                && Objects.equals(trackTotalHits, other.trackTotalHits)
+                && Objects.equals(readerContext, other.readerContext);
     }
 
     @Override
@@ -35,7 +35,9 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.Timer;
@@ -45,8 +47,13 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -177,6 +184,109 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         super.search(leaves, cancellableWeight, collector);
     }
 
+    /**
+     * Searches the provided segments of the reader in the provided order, which may differ from the order of the reader.
+     */
+    public void search(Query query, List<LeafReaderContext> leaves, Collector collector) throws IOException {
+        final Weight weight = createWeight(rewrite(query), collector.scoreMode(), 1f);
+        search(leaves, weight, collector);
+    }
+
+    /**
+     * Searches every slice of segments with its own collector. The first slice is searched on the calling thread and the other
+     * slices are submitted to the given executor. The calling thread then searches the slices that the executor did not start
+     * yet, so that the search does not wait on a busy executor, and waits for the others to complete. All collectors must have
+     * the same {@link ScoreMode}.
+     *
+     * @param slices     the slices of segments to search, as returned by {@link #slices(List, int)}
+     * @param collectors the collector of each slice
+     */
+    public void search(Query query, List<List<LeafReaderContext>> slices, List<Collector> collectors,
+                       Executor executor) throws IOException {
+        assert slices.size() == collectors.size() : "got " + collectors.size() + " collectors for " + slices.size() + " slices";
+        assert collectors.stream().map(Collector::scoreMode).distinct().count() == 1 : "collectors must have the same score mode";
+        final Weight weight = createWeight(rewrite(query), collectors.get(0).scoreMode(), 1f);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final Collector collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                search(leaves, weight, collector);
+                return null;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                executor.execute(tasks.get(i));
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread searches the slice below
+            }
+        }
+        for (FutureTask<Void> task : tasks) {
+            // this is a no-op if the executor already started the task
+            task.run();
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Groups the given segments into at most <code>maxSlices</code> slices of consecutive segments with roughly the same
+     * number of documents. Since the segments of a slice are consecutive, the slice order is also the order of the documents.
+     */
+    public static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices) {
+        final int numSlices = Math.min(maxSlices, leaves.size());
+        if (numSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (int i = 0; i < leaves.size(); i++) {
+            final LeafReaderContext leaf = leaves.get(i);
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            final int remainingLeaves = leaves.size() - i - 1;
+            final int remainingSlices = numSlices - slices.size() - 1;
+            // close the slice once it holds its share of the documents, or if the remaining slices need all remaining segments
+            if (remainingSlices > 0 && (sliceDocs * numSlices >= totalDocs || remainingLeaves == remainingSlices)) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        assert slice.isEmpty() == false;
+        slices.add(slice);
+        return slices;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         if (aggregatedDfs != null) {
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.internal;
+
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A point in time view of a shard that searches can be executed against repeatedly, for instance to page through the results with
+ * <code>search_after</code>. Unlike a scroll, which keeps a whole {@link SearchContext} open between requests, a reader context only
+ * holds on to the {@link Engine.Searcher} of the shard, every search creates its own short lived {@link SearchContext} on top of it.
+ * The searcher is released once the reader context is closed and the last search that uses it completed.
+ */
+public final class ReaderContext extends AbstractRefCounted implements Releasable {
+
+    private final long id;
+    private final IndexShard indexShard;
+    private final Engine.Searcher engineSearcher;
+    private final long originNanoTime = System.nanoTime();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile long keepAlive;
+    private volatile long lastAccessTime;
+    private Map<String, Object> context = null;
+
+    public ReaderContext(long id, IndexShard indexShard, Engine.Searcher engineSearcher, long keepAlive, long lastAccessTime) {
+        super("reader_context");
+        this.id = id;
+        this.indexShard = indexShard;
+        this.engineSearcher = engineSearcher;
+        this.keepAlive = keepAlive;
+        this.lastAccessTime = lastAccessTime;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public IndexShard indexShard() {
+        return indexShard;
+    }
+
+    /**
+     * Returns a searcher over the point in time view of the shard that must be closed once the search completed, or
+     * <code>null</code> if this reader context is already closed.
+     */
+    public Engine.Searcher acquireSearcher(String source) {
+        if (tryIncRef() == false) {
+            return null;
+        }
+        return new Engine.Searcher(source, engineSearcher.searcher(), this::decRef);
+    }
+
+    /**
+     * The time this reader context was opened, in nanoseconds.
+     */
+    public long getOriginNanoTime() {
+        return originNanoTime;
+    }
+
+    public void accessed(long accessTime) {
+        this.lastAccessTime = accessTime;
+    }
+
+    public long lastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public long keepAlive() {
+        return keepAlive;
+    }
+
+    public void keepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Returns the object or <code>null</code> if the given key does not have a
+     * value in the context
+     */
+    @SuppressWarnings("unchecked") // (T)object
+    public <T> T getFromContext(String key) {
+        return context != null ? (T) context.get(key) : null;
+    }
+
+    /**
+     * Puts the object into the context, this must only be done before the reader context is used by any search, see
+     * {@link org.elasticsearch.index.shard.SearchOperationListener#onNewReaderContext(ReaderContext)}
+     */
+    public void putInContext(String key, Object value) {
+        if (context == null) {
+            context = new HashMap<>();
+        }
+        context.put(key, value);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) { // prevent double closing
+            decRef();
+        }
+    }
+
+    @Override
+    protected void closeInternal() {
+        engineSearcher.close();
+    }
+}
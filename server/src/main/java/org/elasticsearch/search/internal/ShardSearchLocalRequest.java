@@ -72,6 +72,7 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
     private String[] indexRoutings = Strings.EMPTY_ARRAY;
     private String preference;
     private boolean profile;
+    private long readerId = -1;
 
     ShardSearchLocalRequest() {
     }
@@ -190,6 +191,16 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         return preference;
     }
 
+    @Override
+    public long readerId() {
+        return readerId;
+    }
+
+    @Override
+    public void readerId(long readerId) {
+        this.readerId = readerId;
+    }
+
     @Override
     public void setProfile(boolean profile) {
         this.profile = profile;
@@ -226,6 +237,9 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
             indexRoutings = Strings.EMPTY_ARRAY;
             preference = null;
         }
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            readerId = in.readZLong();
+        }
     }
 
     protected void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
@@ -235,7 +249,12 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
             out.writeVInt(numberOfShards);
         }
         out.writeOptionalWriteable(scroll);
-        out.writeOptionalWriteable(source);
+        if (asKey && source != null) {
+            // the query phase result, which is what gets cached, does not depend on the fetch options
+            out.writeOptionalWriteable(source.copyWithoutFetchOptions());
+        } else {
+            out.writeOptionalWriteable(source);
+        }
         out.writeStringArray(types);
         aliasFilter.writeTo(out);
         out.writeFloat(indexBoost);
@@ -252,6 +271,10 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
                 out.writeStringArray(indexRoutings);
                 out.writeOptionalString(preference);
             }
+            // the reader context is not part of the cache key, the cache entries are bound to the version of the searched reader
+            if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                out.writeZLong(readerId);
+            }
         }
     }
 
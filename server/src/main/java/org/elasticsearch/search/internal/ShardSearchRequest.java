@@ -82,6 +82,16 @@ public interface ShardSearchRequest {
      */
     String preference();
 
+    /**
+     * Returns the id of the {@link ReaderContext} to search, or <code>-1</code> to search the latest view of the shard.
+     */
+    long readerId();
+
+    /**
+     * Sets the id of the {@link ReaderContext} to search, or <code>-1</code> to search the latest view of the shard.
+     */
+    void readerId(long readerId);
+
     /**
      * Sets if this shard search needs to be profiled or not
      * @param profile True if the shard should be profiled
@@ -170,6 +170,16 @@ public class ShardSearchTransportRequest extends TransportRequest implements Sha
         return shardSearchLocalRequest.preference();
     }
 
+    @Override
+    public long readerId() {
+        return shardSearchLocalRequest.readerId();
+    }
+
+    @Override
+    public void readerId(long readerId) {
+        shardSearchLocalRequest.readerId(readerId);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
@@ -24,6 +24,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.Weight;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
@@ -41,6 +42,7 @@ import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEAR
 import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEARCH_MIN_SCORE;
 import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEARCH_MULTI;
 import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEARCH_POST_FILTER;
+import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEARCH_SKIP_SEGMENTS;
 import static org.elasticsearch.search.profile.query.CollectorResult.REASON_SEARCH_TERMINATE_AFTER_COUNT;
 
 abstract class QueryCollectorContext {
@@ -64,6 +66,16 @@ abstract class QueryCollectorContext {
         return new InternalProfileCollector(collector, profilerName, in != null ? Collections.singletonList(in) : Collections.emptyList());
     }
 
+    /**
+     * Returns true if {@link #create(Collector)} can be called once per slice of segments that are searched concurrently,
+     * every call returning a collector that is independent from the others. {@link #postProcess(QuerySearchResult)} must then
+     * merge the results of all these collectors. Aggregations don't support it since their aggregators are created once per
+     * shard, before the query phase, and would need to be created per slice and reduced into a single shard result.
+     */
+    boolean supportsConcurrentCollection() {
+        return false;
+    }
+
     /**
      * Post-process <code>result</code> after search execution.
      *
@@ -105,6 +117,11 @@ abstract class QueryCollectorContext {
             Collector create(Collector in) {
                 return new MinimumScoreCollector(in, minScore);
             }
+
+            @Override
+            boolean supportsConcurrentCollection() {
+                return true;
+            }
         };
     }
 
@@ -118,6 +135,11 @@ abstract class QueryCollectorContext {
                 final Weight filterWeight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
                 return new FilteredCollector(in, filterWeight);
             }
+
+            @Override
+            boolean supportsConcurrentCollection() {
+                return true;
+            }
         };
     }
 
@@ -159,6 +181,37 @@ abstract class QueryCollectorContext {
             Collector create(Collector in) throws IOException {
                 return new CancellableCollector(cancelled, in);
             }
+
+            @Override
+            boolean supportsConcurrentCollection() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Creates a collector that skips the segments that cannot compete with the top hits of a search sorted by <code>sortField</code>
+     * @param numHits The number of top hits
+     * @param bestValues The best value of the sort field in each segment, see {@link SegmentSkippingCollector#bestValues}
+     */
+    static QueryCollectorContext createSegmentSkippingCollectorContext(SortedNumericSortField sortField, int numHits,
+                                                                       long[] bestValues) {
+        return new QueryCollectorContext(REASON_SEARCH_SKIP_SEGMENTS) {
+            private SegmentSkippingCollector collector;
+
+            @Override
+            Collector create(Collector in) {
+                assert collector == null;
+                collector = new SegmentSkippingCollector(in, sortField, numHits, bestValues);
+                return collector;
+            }
+
+            @Override
+            void postProcess(QuerySearchResult result) {
+                if (collector != null) {
+                    collector.logSkippedSegments(result.getSearchShardTarget());
+                }
+            }
         };
     }
 
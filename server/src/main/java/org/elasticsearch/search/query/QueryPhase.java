@@ -33,6 +33,8 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.util.Counter;
@@ -58,7 +60,10 @@ import org.elasticsearch.search.suggest.SuggestPhase;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import static org.elasticsearch.search.query.QueryCollectorContext.createCancellableCollectorContext;
@@ -66,6 +71,7 @@ import static org.elasticsearch.search.query.QueryCollectorContext.createEarlyTe
 import static org.elasticsearch.search.query.QueryCollectorContext.createFilteredCollectorContext;
 import static org.elasticsearch.search.query.QueryCollectorContext.createMinScoreCollectorContext;
 import static org.elasticsearch.search.query.QueryCollectorContext.createMultiCollectorContext;
+import static org.elasticsearch.search.query.QueryCollectorContext.createSegmentSkippingCollectorContext;
 import static org.elasticsearch.search.query.TopDocsCollectorContext.createTopDocsCollectorContext;
 
 
@@ -252,22 +258,52 @@ public class QueryPhase implements SearchPhase {
             collectors.add(createCancellableCollectorContext(searchContext.getTask()::isCancelled));
 
             final boolean doProfile = searchContext.getProfilers() != null;
+            final SortedNumericSortField skippingSortField = segmentSkippingSortField(searchContext, reader);
             // create the top docs collector last when the other collectors are known
-            final TopDocsCollectorContext topDocsFactory = createTopDocsCollectorContext(searchContext, reader, hasFilterCollector);
+            final TopDocsCollectorContext topDocsFactory =
+                createTopDocsCollectorContext(searchContext, reader, hasFilterCollector, skippingSortField != null);
             // add the top docs collector, the first collector context in the chain
             collectors.addFirst(topDocsFactory);
 
+            final List<LeafReaderContext> sortedLeaves;
+            if (skippingSortField != null) {
+                final long[] bestValues = SegmentSkippingCollector.bestValues(reader.leaves(), skippingSortField);
+                // wrap the top docs collector directly so that only the top hits candidates are tracked
+                collectors.add(1, createSegmentSkippingCollectorContext(skippingSortField, topDocsFactory.numHits(), bestValues));
+                // search the most competitive segments first
+                sortedLeaves = SegmentSkippingCollector.sortLeaves(reader.leaves(), bestValues, skippingSortField.getReverse());
+            } else {
+                sortedLeaves = null;
+            }
+
+            final List<List<LeafReaderContext>> slices = doProfile ? null : concurrentSlices(searchContext, searcher, collectors);
             final Collector queryCollector;
-            if (doProfile) {
+            final List<Collector> sliceCollectors;
+            if (slices != null) {
+                queryCollector = null;
+                sliceCollectors = new ArrayList<>(slices.size());
+                for (int i = 0; i < slices.size(); i++) {
+                    sliceCollectors.add(QueryCollectorContext.createQueryCollector(collectors));
+                }
+            } else if (doProfile) {
                 InternalProfileCollector profileCollector = QueryCollectorContext.createQueryCollectorWithProfiler(collectors);
                 searchContext.getProfilers().getCurrentQueryProfiler().setCollector(profileCollector);
                 queryCollector = profileCollector;
+                sliceCollectors = null;
             } else {
-               queryCollector = QueryCollectorContext.createQueryCollector(collectors);
+                queryCollector = QueryCollectorContext.createQueryCollector(collectors);
+                sliceCollectors = null;
             }
 
             try {
-                searcher.search(query, queryCollector);
+                if (slices != null) {
+                    final Executor executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH_WORKER);
+                    ((ContextIndexSearcher) searcher).search(query, slices, sliceCollectors, executor);
+                } else if (sortedLeaves != null && searcher instanceof ContextIndexSearcher) {
+                    ((ContextIndexSearcher) searcher).search(query, sortedLeaves, queryCollector);
+                } else {
+                    searcher.search(query, queryCollector);
+                }
             } catch (EarlyTerminatingCollector.EarlyTerminationException e) {
                 queryResult.terminatedEarly(true);
             } catch (TimeExceededException e) {
@@ -303,6 +339,50 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns the slices of segments that the query should be searched on concurrently, or <code>null</code> if it should be
+     * searched sequentially because the index is not configured to search concurrently or one of the <code>collectors</code>,
+     * like aggregations, does not support concurrent collection.
+     */
+    static List<List<LeafReaderContext>> concurrentSlices(SearchContext searchContext, IndexSearcher searcher,
+                                                          List<QueryCollectorContext> collectors) {
+        if (searcher instanceof ContextIndexSearcher == false || searchContext.indexShard() == null) {
+            return null;
+        }
+        final int concurrency = searchContext.indexShard().indexSettings().getSearchConcurrency();
+        if (concurrency <= 1 || collectors.stream().allMatch(QueryCollectorContext::supportsConcurrentCollection) == false) {
+            return null;
+        }
+        final List<List<LeafReaderContext>> slices = ContextIndexSearcher.slices(searcher.getIndexReader().leaves(), concurrency);
+        return slices.size() > 1 ? slices : null;
+    }
+
+    /**
+     * Returns the primary sort field of the search if it sorts on long values, like integer and date fields do, and the segments
+     * that cannot compete with the top hits can be skipped, or <code>null</code> otherwise. Segments can only be skipped if their
+     * documents do not need to be counted or aggregated and if the request does not page through the hits with
+     * <code>search_after</code> or a scroll.
+     */
+    static SortedNumericSortField segmentSkippingSortField(SearchContext searchContext, IndexReader reader) {
+        if (reader.leaves().size() <= 1
+                || searchContext.sort() == null
+                || searchContext.size() == 0
+                || searchContext.trackTotalHits()
+                || searchContext.scrollContext() != null
+                || searchContext.searchAfter() != null
+                || searchContext.collapse() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.queryCollectors().isEmpty() == false) {
+            return null;
+        }
+        final SortField sortField = searchContext.sort().sort.getSort()[0];
+        if (sortField.getClass() != SortedNumericSortField.class
+                || ((SortedNumericSortField) sortField).getNumericType() != SortField.Type.LONG) {
+            return null;
+        }
+        return (SortedNumericSortField) sortField;
+    }
+
     /**
      * Returns true if the provided <code>query</code> returns docs in index order (internal doc ids).
      * @param query The query to execute
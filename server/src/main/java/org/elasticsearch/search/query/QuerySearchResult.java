@@ -54,6 +54,7 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private DocValueFormat[] sortValueFormats;
     private InternalAggregations aggregations;
     private boolean hasAggs;
+    private long aggregationsSizeInBytes;
     private List<SiblingPipelineAggregator> pipelineAggregators;
     private Suggest suggest;
     private boolean searchTimedOut;
@@ -163,6 +164,15 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return aggs;
     }
 
+    /**
+     * Returns the number of bytes the aggregations of this result were read from, or <code>0</code> if this result was not
+     * read from a stream or the stream could not tell. This is used as an estimate of the memory the aggregations hold until
+     * they are reduced.
+     */
+    public long aggregationsSizeInBytes() {
+        return aggregationsSizeInBytes;
+    }
+
     public void aggregations(InternalAggregations aggregations) {
         this.aggregations = aggregations;
         hasAggs = aggregations != null;
@@ -289,7 +299,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
         }
         setTopDocs(readTopDocs(in));
         if (hasAggs = in.readBoolean()) {
+            final int available = in.available();
             aggregations = InternalAggregations.readAggregations(in);
+            aggregationsSizeInBytes = Math.max(0, available - in.available());
         }
         pipelineAggregators = in.readNamedWriteableList(PipelineAggregator.class).stream().map(a -> (SiblingPipelineAggregator) a)
                 .collect(Collectors.toList());
@@ -0,0 +1,221 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.elasticsearch.search.SearchShardTarget;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link Collector} for searches that are sorted by a long field that skips the segments whose documents cannot compete
+ * with the top hits collected so far. The best value of the sort field in each segment is bounded by the minimum and maximum
+ * values of the points of the field, so once <code>numHits</code> documents have been collected, a segment whose best value
+ * is worse than the worst of the top hits is not searched at all. Segments should be searched in the order returned by
+ * {@link #sortLeaves(List, long[], boolean)} so that the best segments fill the top hits first.
+ */
+public class SegmentSkippingCollector extends FilterCollector {
+    private static final Logger logger = LogManager.getLogger(SegmentSkippingCollector.class);
+
+    private final String field;
+    private final SortedNumericSelector.Type selector;
+    private final boolean reverse;
+    private final long missingValue;
+    private final int numHits;
+    private final long[] bestValues;
+    // the values of the top hits in a binary heap whose head is the worst of them
+    private final long[] topValues;
+    private int numTopValues;
+    private int numSegments;
+    private int numSkippedSegments;
+
+    /**
+     * Ctr
+     * @param in The delegate collector, that collects the top hits
+     * @param sortField The primary sort of the search
+     * @param numHits The number of top hits
+     * @param bestValues The best value of the sort field in each segment, indexed by the ordinal of the segment
+     */
+    SegmentSkippingCollector(Collector in, SortedNumericSortField sortField, int numHits, long[] bestValues) {
+        super(in);
+        assert sortField.getNumericType() == SortField.Type.LONG;
+        assert numHits > 0;
+        this.field = sortField.getField();
+        this.selector = sortField.getSelector();
+        this.reverse = sortField.getReverse();
+        this.missingValue = missingValue(sortField);
+        this.numHits = numHits;
+        this.bestValues = bestValues;
+        this.topValues = new long[numHits];
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        numSegments++;
+        if (numTopValues >= numHits && isBetter(topValues[0], bestValues[context.ord])) {
+            numSkippedSegments++;
+            throw new CollectionTerminatedException();
+        }
+        final NumericDocValues values =
+            SortedNumericSelector.wrap(DocValues.getSortedNumeric(context.reader(), field), selector, SortField.Type.LONG);
+        return new FilterLeafCollector(super.getLeafCollector(context)) {
+            @Override
+            public void collect(int doc) throws IOException {
+                super.collect(doc);
+                final long value = values.advanceExact(doc) ? values.longValue() : missingValue;
+                addTopValue(value);
+            }
+        };
+    }
+
+    private void addTopValue(long value) {
+        if (numTopValues < numHits) {
+            // sift the new value up while its parent is better
+            int i = numTopValues++;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (isBetter(topValues[parent], value) == false) {
+                    break;
+                }
+                topValues[i] = topValues[parent];
+                i = parent;
+            }
+            topValues[i] = value;
+        } else if (isBetter(value, topValues[0])) {
+            // replace the worst value and sift the new value down while its worst child is worse
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= numTopValues) {
+                    break;
+                }
+                if (child + 1 < numTopValues && isBetter(topValues[child], topValues[child + 1])) {
+                    child++;
+                }
+                if (isBetter(value, topValues[child]) == false) {
+                    break;
+                }
+                topValues[i] = topValues[child];
+                i = child;
+            }
+            topValues[i] = value;
+        }
+    }
+
+    private boolean isBetter(long value, long other) {
+        return reverse ? value > other : value < other;
+    }
+
+    /**
+     * Returns the number of segments that were skipped
+     */
+    int getNumSkippedSegments() {
+        return numSkippedSegments;
+    }
+
+    /**
+     * Logs how many of the searched segments were skipped at debug level
+     */
+    void logSkippedSegments(SearchShardTarget shardTarget) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} skipped [{}] of [{}] segments that could not compete on [{}]", shardTarget, numSkippedSegments,
+                numSegments, field);
+        }
+    }
+
+    /**
+     * Returns the best value that a document of each segment of the reader can have for the provided <code>sortField</code>,
+     * indexed by the ordinal of the segment.
+     */
+    static long[] bestValues(List<LeafReaderContext> leaves, SortedNumericSortField sortField) throws IOException {
+        final long missingValue = missingValue(sortField);
+        final boolean reverse = sortField.getReverse();
+        final long[] bestValues = new long[leaves.size()];
+        for (LeafReaderContext leaf : leaves) {
+            bestValues[leaf.ord] = bestValue(leaf.reader(), sortField.getField(), reverse, missingValue);
+        }
+        return bestValues;
+    }
+
+    private static long bestValue(LeafReader reader, String field, boolean reverse, long missingValue) throws IOException {
+        final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null) {
+            // no document of the segment has a value
+            return missingValue;
+        }
+        final PointValues points = reader.getPointValues(field);
+        if (fieldInfo.getPointDataDimensionCount() != 1 || points == null) {
+            // the values of the field are not indexed as points, every segment may compete
+            return reverse ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        final long min;
+        final long max;
+        if (fieldInfo.getPointNumBytes() == Long.BYTES) {
+            min = LongPoint.decodeDimension(points.getMinPackedValue(), 0);
+            max = LongPoint.decodeDimension(points.getMaxPackedValue(), 0);
+        } else if (fieldInfo.getPointNumBytes() == Integer.BYTES) {
+            min = IntPoint.decodeDimension(points.getMinPackedValue(), 0);
+            max = IntPoint.decodeDimension(points.getMaxPackedValue(), 0);
+        } else {
+            return reverse ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        if (points.getDocCount() < reader.maxDoc()) {
+            // some documents use the missing value
+            return reverse ? Math.max(max, missingValue) : Math.min(min, missingValue);
+        }
+        return reverse ? max : min;
+    }
+
+    /**
+     * Returns the provided segments ordered by their best value, the most competitive segment first.
+     */
+    static List<LeafReaderContext> sortLeaves(List<LeafReaderContext> leaves, long[] bestValues, boolean reverse) {
+        final List<LeafReaderContext> sorted = new ArrayList<>(leaves);
+        final Comparator<LeafReaderContext> comparator = Comparator.comparingLong(leaf -> bestValues[leaf.ord]);
+        sorted.sort(reverse ? comparator.reversed() : comparator);
+        return sorted;
+    }
+
+    private static long missingValue(SortedNumericSortField sortField) {
+        final Object missingValue = sortField.getMissingValue();
+        // documents without value sort as 0 if the sort field has no missing value
+        return missingValue == null ? 0L : ((Number) missingValue).longValue();
+    }
+}
@@ -31,10 +31,12 @@ import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
@@ -53,6 +55,9 @@ import org.elasticsearch.search.rescore.RescoreContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -85,7 +90,8 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
     }
 
     static class EmptyTopDocsCollectorContext extends TopDocsCollectorContext {
-        private final Collector collector;
+        private final List<TotalHitCountCollector> hitCountCollectors = new ArrayList<>();
+        private final boolean countHits;
         private final Supplier<TotalHits> hitCountSupplier;
 
         /**
@@ -99,18 +105,23 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                              boolean trackTotalHits, boolean hasFilterCollector) throws IOException {
             super(REASON_SEARCH_COUNT, 0);
             if (trackTotalHits) {
-                TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
                 // implicit total hit counts are valid only when there is no filter collector in the chain
                 int hitCount =  hasFilterCollector ? -1 : shortcutTotalHitCount(reader, query);
                 if (hitCount == -1) {
-                    this.collector = hitCountCollector;
-                    this.hitCountSupplier = () -> new TotalHits(hitCountCollector.getTotalHits(), TotalHits.Relation.EQUAL_TO);
+                    this.countHits = true;
+                    this.hitCountSupplier = () -> {
+                        long totalHits = 0;
+                        for (TotalHitCountCollector hitCountCollector : hitCountCollectors) {
+                            totalHits += hitCountCollector.getTotalHits();
+                        }
+                        return new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO);
+                    };
                 } else {
-                    this.collector = new EarlyTerminatingCollector(hitCountCollector, 0, false);
+                    this.countHits = false;
                     this.hitCountSupplier = () -> new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
                 }
             } else {
-                this.collector = new EarlyTerminatingCollector(new TotalHitCountCollector(), 0, false);
+                this.countHits = false;
                 // for bwc hit count is set to 0, it will be converted to -1 by the coordinating node
                 this.hitCountSupplier = () -> new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
             }
@@ -118,7 +129,14 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
 
         Collector create(Collector in) {
             assert in == null;
-            return collector;
+            TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+            hitCountCollectors.add(hitCountCollector);
+            return countHits ? hitCountCollector : new EarlyTerminatingCollector(hitCountCollector, 0, false);
+        }
+
+        @Override
+        boolean supportsConcurrentCollection() {
+            return true;
         }
 
         @Override
@@ -175,17 +193,23 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
 
     abstract static class SimpleTopDocsCollectorContext extends TopDocsCollectorContext {
 
-        private static TopDocsCollector<?> createCollector(@Nullable SortAndFormats sortAndFormats, int numHits,
+        private static TopDocsCollector<?> createCollector(@Nullable Sort sort, int numHits,
                 @Nullable ScoreDoc searchAfter, int hitCountThreshold) {
-            if (sortAndFormats == null) {
+            if (sort == null) {
                 return TopScoreDocCollector.create(numHits, searchAfter, hitCountThreshold);
             } else {
-                return TopFieldCollector.create(sortAndFormats.sort, numHits, (FieldDoc) searchAfter, hitCountThreshold);
+                return TopFieldCollector.create(sort, numHits, (FieldDoc) searchAfter, hitCountThreshold);
             }
         }
 
         private final @Nullable SortAndFormats sortAndFormats;
-        private final Collector collector;
+        // the sort of the collectors, which breaks ties on the doc id explicitly if segments are not searched in order
+        private final @Nullable Sort collectorSort;
+        private final @Nullable ScoreDoc searchAfter;
+        private final int hitCountThreshold;
+        private final boolean trackMaxScore;
+        private final List<TopDocsCollector<?>> topDocsCollectors = new ArrayList<>();
+        private final List<MaxScoreCollector> maxScoreCollectors = new ArrayList<>();
         private final Supplier<TotalHits> totalHitsSupplier;
         private final Supplier<TopDocs> topDocsSupplier;
         private final Supplier<Float> maxScoreSupplier;
@@ -200,6 +224,7 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
          * @param trackMaxScore True if max score should be tracked
          * @param trackTotalHits True if the total number of hits should be tracked
          * @param hasFilterCollector True if the collector chain contains at least one collector that can filters document
+         * @param outOfOrderLeaves True if the segments may not be searched in the order of the reader
          */
         private SimpleTopDocsCollectorContext(IndexReader reader,
                                               Query query,
@@ -208,20 +233,29 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                               int numHits,
                                               boolean trackMaxScore,
                                               boolean trackTotalHits,
-                                              boolean hasFilterCollector) throws IOException {
+                                              boolean hasFilterCollector,
+                                              boolean outOfOrderLeaves) throws IOException {
             super(REASON_SEARCH_TOP_HITS, numHits);
             this.sortAndFormats = sortAndFormats;
+            if (sortAndFormats != null && outOfOrderLeaves) {
+                // top field collectors keep the first of tied hits, which is only the one with the lowest doc id if segments
+                // are searched in order
+                final SortField[] sortFields = Arrays.copyOf(sortAndFormats.sort.getSort(), sortAndFormats.sort.getSort().length + 1);
+                sortFields[sortFields.length - 1] = SortField.FIELD_DOC;
+                this.collectorSort = new Sort(sortFields);
+            } else {
+                this.collectorSort = sortAndFormats == null ? null : sortAndFormats.sort;
+            }
+            this.searchAfter = searchAfter;
+            this.topDocsSupplier = new CachedSupplier<>(this::mergeTopDocs);
 
             // implicit total hit counts are valid only when there is no filter collector in the chain
             final int hitCount = hasFilterCollector ? -1 : shortcutTotalHitCount(reader, query);
-            final TopDocsCollector<?> topDocsCollector;
             if (hitCount == -1 && trackTotalHits) {
-                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, Integer.MAX_VALUE);
-                topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
+                hitCountThreshold = Integer.MAX_VALUE;
                 totalHitsSupplier = () -> topDocsSupplier.get().totalHits;
             } else {
-                topDocsCollector = createCollector(sortAndFormats, numHits, searchAfter, 1); // don't compute hit counts via the collector
-                topDocsSupplier = new CachedSupplier<>(topDocsCollector::topDocs);
+                hitCountThreshold = 1; // don't compute hit counts via the collector
                 if (hitCount == -1) {
                     assert trackTotalHits == false;
                     totalHitsSupplier = () -> new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
@@ -229,8 +263,8 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                     totalHitsSupplier = () -> new TotalHits(hitCount, TotalHits.Relation.EQUAL_TO);
                 }
             }
-            MaxScoreCollector maxScoreCollector = null;
             if (sortAndFormats == null) {
+                this.trackMaxScore = false;
                 maxScoreSupplier = () -> {
                     TopDocs topDocs = topDocsSupplier.get();
                     if (topDocs.scoreDocs.length == 0) {
@@ -240,18 +274,83 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                     }
                 };
             } else if (trackMaxScore) {
-                maxScoreCollector = new MaxScoreCollector();
-                maxScoreSupplier = maxScoreCollector::getMaxScore;
+                this.trackMaxScore = true;
+                maxScoreSupplier = () -> {
+                    float maxScore = Float.NaN;
+                    for (MaxScoreCollector maxScoreCollector : maxScoreCollectors) {
+                        final float score = maxScoreCollector.getMaxScore();
+                        if (Float.isNaN(maxScore) || score > maxScore) {
+                            maxScore = score;
+                        }
+                    }
+                    return maxScore;
+                };
             } else {
+                this.trackMaxScore = false;
                 maxScoreSupplier = () -> Float.NaN;
             }
-            this.collector = MultiCollector.wrap(topDocsCollector, maxScoreCollector);
         }
 
         @Override
         Collector create(Collector in) {
             assert in == null;
-            return collector;
+            final TopDocsCollector<?> topDocsCollector = createCollector(collectorSort, numHits, searchAfter, hitCountThreshold);
+            topDocsCollectors.add(topDocsCollector);
+            MaxScoreCollector maxScoreCollector = null;
+            if (trackMaxScore) {
+                maxScoreCollector = new MaxScoreCollector();
+                maxScoreCollectors.add(maxScoreCollector);
+            }
+            return MultiCollector.wrap(topDocsCollector, maxScoreCollector);
+        }
+
+        @Override
+        boolean supportsConcurrentCollection() {
+            return true;
+        }
+
+        /**
+         * Merges the top docs of the collectors that were created for each slice of segments
+         */
+        private TopDocs mergeTopDocs() {
+            assert topDocsCollectors.isEmpty() == false;
+            if (topDocsCollectors.size() == 1) {
+                return removeDocTieBreak(topDocsCollectors.get(0).topDocs());
+            }
+            final TopDocs merged;
+            if (sortAndFormats == null) {
+                final TopDocs[] topDocs = new TopDocs[topDocsCollectors.size()];
+                for (int i = 0; i < topDocs.length; i++) {
+                    topDocs[i] = topDocsCollectors.get(i).topDocs();
+                }
+                merged = TopDocs.merge(0, numHits, topDocs, true);
+            } else {
+                final TopFieldDocs[] topDocs = new TopFieldDocs[topDocsCollectors.size()];
+                for (int i = 0; i < topDocs.length; i++) {
+                    topDocs[i] = (TopFieldDocs) topDocsCollectors.get(i).topDocs();
+                }
+                merged = TopDocs.merge(collectorSort, 0, numHits, topDocs, true);
+            }
+            // ties are broken on the slice index, which follows the doc ids since slices hold consecutive segments
+            for (ScoreDoc scoreDoc : merged.scoreDocs) {
+                scoreDoc.shardIndex = -1;
+            }
+            return removeDocTieBreak(merged);
+        }
+
+        /**
+         * Removes the doc id that the collectors sorted on to break ties, if any, from the sort values of the provided top docs
+         */
+        private TopDocs removeDocTieBreak(TopDocs topDocs) {
+            if (collectorSort == null || collectorSort == sortAndFormats.sort) {
+                return topDocs;
+            }
+            final SortField[] sortFields = sortAndFormats.sort.getSort();
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                final FieldDoc fieldDoc = (FieldDoc) scoreDoc;
+                fieldDoc.fields = Arrays.copyOf(fieldDoc.fields, sortFields.length);
+            }
+            return new TopFieldDocs(topDocs.totalHits, topDocs.scoreDocs, sortFields);
         }
 
         @Override
@@ -276,11 +375,16 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                                                  boolean trackTotalHits,
                                                  boolean hasFilterCollector) throws IOException {
             super(reader, query, sortAndFormats, scrollContext.lastEmittedDoc, numHits, trackMaxScore,
-                trackTotalHits, hasFilterCollector);
+                trackTotalHits, hasFilterCollector, false);
             this.scrollContext = Objects.requireNonNull(scrollContext);
             this.numberOfShards = numberOfShards;
         }
 
+        @Override
+        boolean supportsConcurrentCollection() {
+            return false;
+        }
+
         @Override
         void postProcess(QuerySearchResult result) throws IOException {
             super.postProcess(result);
@@ -342,10 +446,12 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
     /**
      * Creates a {@link TopDocsCollectorContext} from the provided <code>searchContext</code>.
      * @param hasFilterCollector True if the collector chain contains at least one collector that can filters document.
+     * @param outOfOrderLeaves True if the segments may not be searched in the order of the reader.
      */
     static TopDocsCollectorContext createTopDocsCollectorContext(SearchContext searchContext,
                                                                  IndexReader reader,
-                                                                 boolean hasFilterCollector) throws IOException {
+                                                                 boolean hasFilterCollector,
+                                                                 boolean outOfOrderLeaves) throws IOException {
         final Query query = searchContext.query();
         // top collectors don't like a size of 0
         final int totalNumDocs = Math.max(1, reader.numDocs());
@@ -372,7 +478,8 @@ abstract class TopDocsCollectorContext extends QueryCollectorContext {
                 }
             }
             return new SimpleTopDocsCollectorContext(reader, query, searchContext.sort(), searchContext.searchAfter(), numDocs,
-                                                     searchContext.trackScores(), searchContext.trackTotalHits(), hasFilterCollector) {
+                                                     searchContext.trackScores(), searchContext.trackTotalHits(), hasFilterCollector,
+                                                     outOfOrderLeaves) {
                 @Override
                 boolean shouldRescore() {
                     return rescore;
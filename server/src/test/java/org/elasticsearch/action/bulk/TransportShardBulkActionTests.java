@@ -50,6 +50,7 @@ import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -253,6 +254,80 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         closeShards(shard);
     }
 
+    public void testPreParseIndexRequests() throws Exception {
+        final IndexMetaData metaData = IndexMetaData.builder(indexMetaData())
+            .settings(Settings.builder().put(idxSettings).put(IndexSettings.INDEX_BULK_PARSE_PARALLELISM_SETTING.getKey(), 4))
+            .build();
+        IndexShard shard = newShard(shardId, true, "n1", metaData, null);
+        recoverShardFromStore(shard);
+
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(4, 64)];
+        boolean[] parsable = new boolean[items.length];
+        for (int i = 0; i < items.length; i++) {
+            DocWriteRequest<?> writeRequest;
+            switch (randomInt(2)) {
+                case 0:
+                    writeRequest = new IndexRequest("index", "_doc", "id_" + i).source(Requests.INDEX_CONTENT_TYPE, "foo", "bar" + i);
+                    parsable[i] = true;
+                    break;
+                case 1:
+                    // requires a mapping update, so it must be parsed again when it executes
+                    writeRequest = new IndexRequest("index", "_doc", "id_" + i).source(Requests.INDEX_CONTENT_TYPE, "new_field", i);
+                    break;
+                default:
+                    writeRequest = new DeleteRequest("index", "_doc", "id_" + i);
+                    break;
+            }
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkItemRequest abortedItem = randomFrom(items);
+        abortedItem.abort("index", new ElasticsearchStatusException("testing rejection", RestStatus.CONFLICT));
+        parsable[abortedItem.id()] = false;
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        IndexShard.PreParsedDocument[] preParsed = TransportShardBulkAction.preParseIndexRequests(bulkShardRequest, shard,
+            randomIntBetween(2, 8), threadPool.executor(ThreadPool.Names.WRITE));
+        int expectedIndexItems = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].request() instanceof IndexRequest && i != abortedItem.id()) {
+                expectedIndexItems++;
+            }
+        }
+        if (expectedIndexItems < 2) {
+            assertThat(preParsed, nullValue());
+        } else {
+            assertThat(preParsed, arrayWithSize(items.length));
+            for (int i = 0; i < items.length; i++) {
+                assertThat("item " + i, preParsed[i] != null, equalTo(parsable[i]));
+            }
+        }
+
+        // a single thread does not parse ahead
+        assertThat(TransportShardBulkAction.preParseIndexRequests(bulkShardRequest, shard, 1,
+            threadPool.executor(ThreadPool.Names.WRITE)), nullValue());
+
+        // the pre-parsed documents are indexed in order
+        BulkItemRequest[] parsableItems = new BulkItemRequest[randomIntBetween(2, 32)];
+        for (int i = 0; i < parsableItems.length; i++) {
+            // index some documents twice to check that the operations are applied in order
+            DocWriteRequest<IndexRequest> writeRequest = new IndexRequest("index", "_doc", "id_" + (i % 5))
+                .source(Requests.INDEX_CONTENT_TYPE, "foo", "bar" + i);
+            parsableItems[i] = new BulkItemRequest(i, writeRequest);
+        }
+        WritePrimaryResult<BulkShardRequest, BulkShardResponse> result = TransportShardBulkAction.performOnPrimary(
+            new BulkShardRequest(shardId, RefreshPolicy.NONE, parsableItems), shard, null, threadPool::absoluteTimeInMillis,
+            new NoopMappingUpdatePerformer(), () -> {}, threadPool.executor(ThreadPool.Names.WRITE));
+        assertThat(result.finalResponseIfSuccessful.getResponses(), arrayWithSize(parsableItems.length));
+        for (int i = 0; i < parsableItems.length; i++) {
+            BulkItemResponse response = result.finalResponseIfSuccessful.getResponses()[i];
+            assertFalse(response.isFailed());
+            assertThat(response.getResponse().getSeqNo(), equalTo((long) i));
+            assertThat(response.getResponse().getVersion(), equalTo(1L + i / 5));
+        }
+        assertDocCount(shard, Math.min(5, parsableItems.length));
+        closeShards(shard);
+    }
+
     public void testExecuteBulkIndexRequestWithMappingUpdates() throws Exception {
 
         BulkItemRequest[] items = new BulkItemRequest[1];
@@ -73,7 +73,7 @@ public class AbstractSearchAsyncActionTests extends ESTestCase {
                     )
                 ), timeProvider, 0, null,
                 new InitialSearchPhase.ArraySearchPhaseResults<>(10), request.getMaxConcurrentShardRequests(),
-                SearchResponse.Clusters.EMPTY) {
+                SearchResponse.Clusters.EMPTY, null) {
             @Override
             protected SearchPhase getNextPhase(final SearchPhaseResults<SearchPhaseResult> results, final SearchPhaseContext context) {
                 return null;
@@ -22,15 +22,22 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.ShardFieldRange;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
 import org.elasticsearch.test.ESTestCase;
@@ -43,6 +50,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
@@ -90,7 +98,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
                     public void run() throws IOException {
                         result.set(iter);
                         latch.countDown();
-                    }}, SearchResponse.Clusters.EMPTY);
+                    }}, SearchResponse.Clusters.EMPTY, new FieldRangeCache(() -> null, 0));
 
         canMatchPhase.start();
         latch.await();
@@ -160,7 +168,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
                 public void run() throws IOException {
                     result.set(iter);
                     latch.countDown();
-                }}, SearchResponse.Clusters.EMPTY);
+                }}, SearchResponse.Clusters.EMPTY, new FieldRangeCache(() -> null, 0));
 
         canMatchPhase.start();
         latch.await();
@@ -220,7 +228,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
                 0,
                 null,
                 (iter) -> new InitialSearchPhase<SearchPhaseResult>("test", searchRequest,
-                        iter, logger, randomIntBetween(1, 32), executor) {
+                        iter, logger, randomIntBetween(1, 32), executor, null) {
                     @Override
                     void onPhaseDone() {
                         latch.countDown();
@@ -247,10 +255,94 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
                             listener.onFailure(new Exception("failure"));
                         }
                     }
-                }, SearchResponse.Clusters.EMPTY);
+                }, SearchResponse.Clusters.EMPTY, new FieldRangeCache(() -> null, 0));
 
         canMatchPhase.start();
         latch.await();
         executor.shutdown();
     }
+
+    public void testSkipShardsWithCachedFieldRanges() throws InterruptedException {
+        final TransportSearchAction.SearchTimeProvider timeProvider = new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(),
+            System::nanoTime);
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        lookup.put("node_1", new SearchAsyncActionTests.MockConnection(
+            new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT)));
+        AtomicInteger numRequests = new AtomicInteger();
+        SearchTransportService searchTransportService = new SearchTransportService(
+            Settings.builder().put("cluster.remote.connect", false).build(), null, null) {
+
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<SearchService.CanMatchResponse> listener) {
+                numRequests.incrementAndGet();
+                long min = request.shardId().id() == 0 ? 0 : 2000;
+                listener.onResponse(new SearchService.CanMatchResponse(true, 5,
+                    Collections.singletonList(new ShardFieldRange("timestamp", "epoch_millis", "", min, min + 1000))));
+            }
+        };
+        AtomicReference<ClusterState> clusterState = new AtomicReference<>(clusterStateWithIndexMetaDataVersion("idx", 5));
+        FieldRangeCache fieldRangeCache = new FieldRangeCache(clusterState::get, 100);
+        final SearchRequest searchRequest = new SearchRequest();
+        searchRequest.allowPartialSearchResults(true);
+        searchRequest.source(new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+            .filter(QueryBuilders.rangeQuery("timestamp").gte(1500).lte(2500))));
+
+        // the first search needs to ask both shards and caches their ranges
+        GroupShardsIterator<SearchShardIterator> result = runCanMatchPhase(searchTransportService, lookup, searchRequest, timeProvider,
+            fieldRangeCache);
+        assertEquals(2, numRequests.get());
+        assertFalse(result.get(0).skip());
+        assertFalse(result.get(1).skip());
+        assertEquals(2, fieldRangeCache.count());
+
+        // the first shard can be skipped without asking it
+        numRequests.set(0);
+        result = runCanMatchPhase(searchTransportService, lookup, searchRequest, timeProvider, fieldRangeCache);
+        assertEquals(1, numRequests.get());
+        assertTrue(result.get(0).skip());
+        assertFalse(result.get(1).skip());
+
+        // once the index metadata changed the cached ranges can no longer be trusted
+        clusterState.set(clusterStateWithIndexMetaDataVersion("idx", 6));
+        numRequests.set(0);
+        result = runCanMatchPhase(searchTransportService, lookup, searchRequest, timeProvider, fieldRangeCache);
+        assertEquals(2, numRequests.get());
+        assertFalse(result.get(0).skip());
+        assertFalse(result.get(1).skip());
+    }
+
+    private static ClusterState clusterStateWithIndexMetaDataVersion(String index, long version) {
+        IndexMetaData indexMetaData = IndexMetaData.builder(index)
+            .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+            .numberOfShards(2).numberOfReplicas(0).version(version).build();
+        return ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .metaData(MetaData.builder().put(indexMetaData, false)).build();
+    }
+
+    private GroupShardsIterator<SearchShardIterator> runCanMatchPhase(SearchTransportService searchTransportService,
+                                                                      Map<String, Transport.Connection> lookup, SearchRequest searchRequest,
+                                                                      TransportSearchAction.SearchTimeProvider timeProvider,
+                                                                      FieldRangeCache fieldRangeCache) throws InterruptedException {
+        AtomicReference<GroupShardsIterator<SearchShardIterator>> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator<SearchShardIterator> shardsIter = SearchAsyncActionTests.getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed()),
+            2, false, new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT), null);
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), Collections.emptyMap(), EsExecutors.newDirectExecutorService(),
+            searchRequest, null, shardsIter, timeProvider, 0, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() {
+                    result.set(iter);
+                    latch.countDown();
+                }}, SearchResponse.Clusters.EMPTY, fieldRangeCache);
+        canMatchPhase.start();
+        latch.await();
+        return result.get();
+    }
 }
@@ -60,7 +60,7 @@ public class DfsQueryPhaseTests extends ESTestCase {
         results.get(1).termsStatistics(new Term[0], new TermStatistics[0]);
 
         SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY,
-            (b) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
         SearchTransportService searchTransportService = new SearchTransportService(
             Settings.builder().put("cluster.remote.connect", false).build(), null, null) {
 
@@ -122,7 +122,7 @@ public class DfsQueryPhaseTests extends ESTestCase {
         results.get(1).termsStatistics(new Term[0], new TermStatistics[0]);
 
         SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY,
-            (b) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
         SearchTransportService searchTransportService = new SearchTransportService(
             Settings.builder().put("cluster.remote.connect", false).build(), null, null) {
 
@@ -181,7 +181,7 @@ public class DfsQueryPhaseTests extends ESTestCase {
         results.get(1).termsStatistics(new Term[0], new TermStatistics[0]);
 
         SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY,
-            (b) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
         SearchTransportService searchTransportService = new SearchTransportService(
             Settings.builder().put("cluster.remote.connect", false).build(), null, null) {
 
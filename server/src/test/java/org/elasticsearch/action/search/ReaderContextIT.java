@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ReaderContextIT extends ESIntegTestCase {
+
+    public void testSearchReaderContext() throws Exception {
+        final int numShards = randomIntBetween(1, 5);
+        assertAcked(prepareCreate("test").setSettings(Settings.builder()
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, numShards)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, randomIntBetween(0, 1))));
+        ensureGreen("test");
+        final int numDocs = randomIntBetween(10, 50);
+        indexDocs(0, numDocs);
+
+        final String readerContextId = openReaderContext("test");
+        assertThat(activeReaderContexts(), equalTo(numShards));
+
+        final int numNewDocs = randomIntBetween(1, 20);
+        indexDocs(numDocs, numNewDocs);
+        client().prepareDelete("test", "_doc", "0").get();
+        refresh("test");
+        assertHitCount(client().prepareSearch("test").get(), numDocs + numNewDocs - 1);
+
+        assertHitCount(searchReaderContext(readerContextId, new SearchSourceBuilder()), numDocs);
+
+        // page through the reader context with search_after, the documents that were changed in the meantime do not show up
+        final Set<String> ids = new HashSet<>();
+        final int pageSize = randomIntBetween(1, 10);
+        Object[] searchAfter = null;
+        while (true) {
+            SearchSourceBuilder source = new SearchSourceBuilder().size(pageSize).sort("value", SortOrder.ASC);
+            if (searchAfter != null) {
+                source.searchAfter(searchAfter);
+            }
+            SearchResponse response = searchReaderContext(readerContextId, source);
+            assertThat(response.getFailedShards(), equalTo(0));
+            SearchHit[] hits = response.getHits().getHits();
+            if (hits.length == 0) {
+                break;
+            }
+            for (SearchHit hit : hits) {
+                assertTrue(ids.add(hit.getId()));
+            }
+            searchAfter = hits[hits.length - 1].getSortValues();
+        }
+        final Set<String> expectedIds = new HashSet<>();
+        for (int i = 0; i < numDocs; i++) {
+            expectedIds.add(Integer.toString(i));
+        }
+        assertThat(ids, equalTo(expectedIds));
+
+        ClearScrollResponse closeResponse = client().execute(CloseReaderContextAction.INSTANCE,
+            new CloseReaderContextRequest(readerContextId)).get();
+        assertTrue(closeResponse.isSucceeded());
+        assertThat(closeResponse.getNumFreed(), equalTo(numShards));
+        assertThat(activeReaderContexts(), equalTo(0));
+
+        expectThrows(SearchPhaseExecutionException.class, () -> searchReaderContext(readerContextId, new SearchSourceBuilder()));
+    }
+
+    public void testReaderContextWithFilteredAlias() throws Exception {
+        assertAcked(prepareCreate("test").addAlias(new Alias("filtered")
+            .filter(QueryBuilders.rangeQuery("value").lt(5))));
+        indexDocs(0, 10);
+
+        final String readerContextId = openReaderContext("filtered");
+        assertHitCount(searchReaderContext(readerContextId, new SearchSourceBuilder()), 5);
+        assertTrue(client().execute(CloseReaderContextAction.INSTANCE, new CloseReaderContextRequest(readerContextId)).get()
+            .isSucceeded());
+    }
+
+    public void testReaderContextIdWithShardsOfOtherIndices() throws Exception {
+        assertAcked(prepareCreate("test"));
+        assertAcked(prepareCreate("other"));
+        indexDocs(0, 10);
+
+        final String readerContextId = openReaderContext("test");
+        // an id that claims to be opened on "other" but refers to the reader contexts of "test"
+        final String forgedId = ReaderContextId.encode(new String[] { "other" }, ReaderContextId.decode(readerContextId).shards());
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> searchReaderContext(forgedId, new SearchSourceBuilder()));
+        assertThat(e.getMessage(), containsString("is not one of its indices [other]"));
+        assertTrue(client().execute(CloseReaderContextAction.INSTANCE, new CloseReaderContextRequest(readerContextId)).get()
+            .isSucceeded());
+    }
+
+    public void testOpenReaderContextOnMissingIndex() {
+        expectThrows(IndexNotFoundException.class, () -> openReaderContext("missing"));
+        assertThat(activeReaderContexts(), equalTo(0));
+    }
+
+    private void indexDocs(int from, int numDocs) throws Exception {
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = from; i < from + numDocs; i++) {
+            docs.add(client().prepareIndex("test", "_doc", Integer.toString(i)).setSource("value", i));
+        }
+        indexRandom(true, false, docs);
+    }
+
+    private String openReaderContext(String index) {
+        OpenReaderContextRequest request = new OpenReaderContextRequest(index).keepAlive(TimeValue.timeValueMinutes(1));
+        return client().execute(OpenReaderContextAction.INSTANCE, request).actionGet().getReaderContextId();
+    }
+
+    private SearchResponse searchReaderContext(String readerContextId, SearchSourceBuilder source) {
+        return client().search(new SearchRequest().source(source.readerContext(readerContextId))).actionGet();
+    }
+
+    private int activeReaderContexts() {
+        int activeReaderContexts = 0;
+        for (SearchService searchService : internalCluster().getInstances(SearchService.class)) {
+            activeReaderContexts += searchService.getActiveReaderContexts();
+        }
+        return activeReaderContexts;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class ReaderContextIdTests extends ESTestCase {
+
+    public void testEncodeAndDecode() {
+        final String[] indices = generateRandomStringArray(5, 10, false, true);
+        final List<ReaderContextId.ShardReaderId> shards = new ArrayList<>();
+        final int numShards = randomIntBetween(0, 10);
+        for (int i = 0; i < numShards; i++) {
+            ShardId shardId = new ShardId(randomAlphaOfLength(10), randomAlphaOfLength(10), randomIntBetween(0, 5));
+            shards.add(new ReaderContextId.ShardReaderId(shardId, randomAlphaOfLength(10), randomNonNegativeLong()));
+        }
+        final ReaderContextId decoded = ReaderContextId.decode(ReaderContextId.encode(indices, shards));
+        assertArrayEquals(indices, decoded.indices());
+        assertThat(decoded.shards().size(), equalTo(numShards));
+        for (int i = 0; i < numShards; i++) {
+            assertThat(decoded.shards().get(i).getShardId(), equalTo(shards.get(i).getShardId()));
+            assertThat(decoded.shards().get(i).getNodeId(), equalTo(shards.get(i).getNodeId()));
+            assertThat(decoded.shards().get(i).getReaderId(), equalTo(shards.get(i).getReaderId()));
+        }
+    }
+
+    public void testDecodeInvalidId() {
+        final String id;
+        if (randomBoolean()) {
+            id = "!" + randomAlphaOfLength(10);
+        } else {
+            ShardId shardId = new ShardId(randomAlphaOfLength(10), randomAlphaOfLength(10), randomIntBetween(0, 5));
+            String validId = ReaderContextId.encode(new String[] {randomAlphaOfLength(10)},
+                Collections.singletonList(new ReaderContextId.ShardReaderId(shardId, randomAlphaOfLength(10), randomNonNegativeLong())));
+            byte[] bytes = Base64.getUrlDecoder().decode(validId);
+            id = Base64.getUrlEncoder().encodeToString(Arrays.copyOf(bytes, bytes.length - 1));
+        }
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> ReaderContextId.decode(id));
+        assertThat(e.getMessage(), equalTo("Cannot parse reader context id"));
+        assertNotNull(e.getCause());
+    }
+}
@@ -27,15 +27,21 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -46,12 +52,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -120,7 +128,8 @@ public class SearchAsyncActionTests extends ESTestCase {
                 null,
                 new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
                 request.getMaxConcurrentShardRequests(),
-                SearchResponse.Clusters.EMPTY) {
+                SearchResponse.Clusters.EMPTY,
+                null) {
 
                 @Override
                 protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
@@ -214,7 +223,8 @@ public class SearchAsyncActionTests extends ESTestCase {
                 null,
                 new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
                 request.getMaxConcurrentShardRequests(),
-                SearchResponse.Clusters.EMPTY) {
+                SearchResponse.Clusters.EMPTY,
+                null) {
 
                 @Override
                 protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
@@ -321,7 +331,8 @@ public class SearchAsyncActionTests extends ESTestCase {
                         null,
                         new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
                         request.getMaxConcurrentShardRequests(),
-                        SearchResponse.Clusters.EMPTY) {
+                        SearchResponse.Clusters.EMPTY,
+                        null) {
             TestSearchResponse response = new TestSearchResponse();
 
             @Override
@@ -373,6 +384,218 @@ public class SearchAsyncActionTests extends ESTestCase {
         executor.shutdown();
     }
 
+    public void testHedgeSlowShards() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        DiscoveryNode slowNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode fastNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed()),
+            randomIntBetween(1, 10), true, slowNode, fastNode);
+        // requests to the slow node hold on to their permits until it responds, don't let them block the other shards
+        request.setMaxConcurrentShardRequests(shardsIter.size());
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        Set<Long> freedContexts = newConcurrentSet();
+        SearchTransportService transportService = new SearchTransportService(Settings.EMPTY, null, null) {
+            @Override
+            public void sendFreeContext(Transport.Connection connection, long contextId, OriginalIndices originalIndices) {
+                assertEquals(slowNode, connection.getNode());
+                assertTrue(freedContexts.add(contextId));
+            }
+        };
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            ClusterService clusterService = new ClusterService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+            ResponseCollectorService responseCollectorService = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            responseCollectorService.addNodeStatistics(slowNode.getId(), 0, TimeValue.timeValueMillis(1).nanos(), 1);
+            HedgingPolicy hedgingPolicy = new HedgingPolicy(threadPool, responseCollectorService, TimeValue.timeValueMillis(1));
+            // the slow node only responds once the search completed
+            List<Runnable> slowResponses = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<TestSearchPhaseResult[]> results = new AtomicReference<>();
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+                new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                    "test",
+                    logger,
+                    transportService,
+                    (cluster, node) -> lookup.get(node),
+                    aliasFilters,
+                    Collections.emptyMap(),
+                    Collections.emptyMap(),
+                    null,
+                    request,
+                    null,
+                    shardsIter,
+                    new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                    0,
+                    null,
+                    new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                    request.getMaxConcurrentShardRequests(),
+                    SearchResponse.Clusters.EMPTY,
+                    hedgingPolicy) {
+
+                    @Override
+                    protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                       SearchActionListener<TestSearchPhaseResult> listener) {
+                        DiscoveryNode node = getConnection(null, shard.currentNodeId()).getNode();
+                        TestSearchPhaseResult result = new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(), node);
+                        if (node.equals(slowNode)) {
+                            slowResponses.add(() -> listener.onResponse(result));
+                        } else {
+                            new Thread(() -> listener.onResponse(result)).start();
+                        }
+                    }
+
+                    @Override
+                    protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> phaseResults,
+                                                       SearchPhaseContext context) {
+                        return new SearchPhase("test") {
+                            @Override
+                            public void run() {
+                                TestSearchPhaseResult[] shardResults = new TestSearchPhaseResult[phaseResults.getNumShards()];
+                                for (int i = 0; i < shardResults.length; i++) {
+                                    shardResults[i] = phaseResults.getAtomicArray().get(i);
+                                }
+                                results.set(shardResults);
+                                latch.countDown();
+                            }
+                        };
+                    }
+                };
+            asyncAction.start();
+            latch.await();
+            for (TestSearchPhaseResult result : results.get()) {
+                assertEquals(fastNode, result.node);
+            }
+            SearchResponse searchResponse = asyncAction.buildSearchResponse(null, null);
+            assertEquals(shardsIter.size(), searchResponse.getSuccessfulShards());
+            assertEquals(0, searchResponse.getFailedShards());
+
+            // the late responses of the slow node are discarded and their contexts released
+            synchronized (slowResponses) {
+                for (Runnable slowResponse : slowResponses) {
+                    Thread thread = new Thread(slowResponse);
+                    thread.start();
+                    thread.join();
+                }
+                assertEquals(slowResponses.size(), freedContexts.size());
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testHedgedRequestFailures() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, IndicesOptions.strictExpandOpenAndForbidClosed()),
+            randomIntBetween(1, 10), true, primaryNode, replicaNode);
+        request.setMaxConcurrentShardRequests(shardsIter.size());
+        // the first shard succeeds so that the search goes on to the next phase
+        boolean[] hedgeSucceeds = new boolean[shardsIter.size()];
+        int successfulShards = 0;
+        for (int i = 0; i < hedgeSucceeds.length; i++) {
+            hedgeSucceeds[i] = i == 0 || randomBoolean();
+            successfulShards += hedgeSucceeds[i] ? 1 : 0;
+        }
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        SearchTransportService transportService = new SearchTransportService(Settings.EMPTY, null, null);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(primaryNode.getId(), new MockConnection(primaryNode));
+        lookup.put(replicaNode.getId(), new MockConnection(replicaNode));
+        Map<String, AliasFilter> aliasFilters = Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY));
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            ClusterService clusterService = new ClusterService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), threadPool);
+            ResponseCollectorService responseCollectorService = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            responseCollectorService.addNodeStatistics(primaryNode.getId(), 0, TimeValue.timeValueMillis(1).nanos(), 1);
+            responseCollectorService.addNodeStatistics(replicaNode.getId(), 0, TimeValue.timeValueMillis(1).nanos(), 1);
+            HedgingPolicy hedgingPolicy = new HedgingPolicy(threadPool, responseCollectorService, TimeValue.timeValueMillis(1));
+            // the first request for every shard only fails once the shard has been hedged
+            Map<Integer, SearchActionListener<TestSearchPhaseResult>> firstListeners = newConcurrentMap();
+            CountDownLatch latch = new CountDownLatch(1);
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction =
+                new AbstractSearchAsyncAction<TestSearchPhaseResult>(
+                    "test",
+                    logger,
+                    transportService,
+                    (cluster, node) -> lookup.get(node),
+                    aliasFilters,
+                    Collections.emptyMap(),
+                    Collections.emptyMap(),
+                    null,
+                    request,
+                    null,
+                    shardsIter,
+                    new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                    0,
+                    null,
+                    new InitialSearchPhase.ArraySearchPhaseResults<>(shardsIter.size()),
+                    request.getMaxConcurrentShardRequests(),
+                    SearchResponse.Clusters.EMPTY,
+                    hedgingPolicy) {
+
+                    @Override
+                    protected void executePhaseOnShard(SearchShardIterator shardIt, ShardRouting shard,
+                                                       SearchActionListener<TestSearchPhaseResult> listener) {
+                        final int shardId = shardIt.shardId().id();
+                        DiscoveryNode node = getConnection(null, shard.currentNodeId()).getNode();
+                        if (firstListeners.putIfAbsent(shardId, listener) == null) {
+                            return;
+                        }
+                        // the first request fails while the hedged request is still running
+                        Thread firstFailure = new Thread(() -> firstListeners.remove(shardId).onFailure(new RuntimeException("first")));
+                        firstFailure.start();
+                        try {
+                            firstFailure.join();
+                        } catch (InterruptedException e) {
+                            throw new AssertionError(e);
+                        }
+                        new Thread(() -> {
+                            if (hedgeSucceeds[shardId]) {
+                                listener.onResponse(new TestSearchPhaseResult(contextIdGenerator.incrementAndGet(), node));
+                            } else {
+                                listener.onFailure(new RuntimeException("hedge"));
+                            }
+                        }).start();
+                    }
+
+                    @Override
+                    protected SearchPhase getNextPhase(SearchPhaseResults<TestSearchPhaseResult> phaseResults,
+                                                       SearchPhaseContext context) {
+                        return new SearchPhase("test") {
+                            @Override
+                            public void run() {
+                                latch.countDown();
+                            }
+                        };
+                    }
+                };
+            asyncAction.start();
+            latch.await();
+            // the failure of the first request is only recorded if the hedged request fails as well
+            SearchResponse searchResponse = asyncAction.buildSearchResponse(null, null);
+            assertEquals(successfulShards, searchResponse.getSuccessfulShards());
+            assertEquals(shardsIter.size() - successfulShards, searchResponse.getFailedShards());
+            for (ShardSearchFailure failure : searchResponse.getShardFailures()) {
+                assertEquals("hedge", failure.getCause().getMessage());
+                assertEquals(1, failure.getCause().getSuppressed().length);
+                assertEquals("first", failure.getCause().getSuppressed()[0].getMessage());
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
     static GroupShardsIterator<SearchShardIterator> getShardsIter(String index, OriginalIndices originalIndices, int numShards,
                                                      boolean doReplicas, DiscoveryNode primaryNode, DiscoveryNode replicaNode) {
         ArrayList<SearchShardIterator> list = new ArrayList<>();
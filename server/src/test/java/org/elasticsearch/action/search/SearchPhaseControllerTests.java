@@ -24,13 +24,20 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchModule;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
@@ -45,6 +52,7 @@ import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
@@ -56,11 +64,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
@@ -71,7 +81,7 @@ public class SearchPhaseControllerTests extends ESTestCase {
     @Before
     public void setup() {
         searchPhaseController = new SearchPhaseController(Settings.EMPTY,
-            (b) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, s -> {}, b, isCancelled));
     }
 
     public void testSort() throws Exception {
@@ -338,6 +348,31 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertEquals(3.0D, max.getValue(), 0.0D);
     }
 
+    public void testConsumerCancelled() {
+        int expectedNumResults = randomIntBetween(2, 100);
+        int bufferSize = randomIntBetween(2, 200);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(bufferSize);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            searchPhaseController.newSearchPhaseResults(request, expectedNumResults, cancelled::get);
+        int cancelAfter = randomIntBetween(0, expectedNumResults - 1);
+        for (int i = 0; i < expectedNumResults; i++) {
+            if (i == cancelAfter) {
+                cancelled.set(true);
+            }
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new Index("a", "b"), i, null));
+            result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), Float.NaN),
+                new DocValueFormat[0]);
+            result.aggregations(new InternalAggregations(Arrays.asList(new InternalMax("test", (double) i,
+                DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap()))));
+            result.setShardIndex(i);
+            consumer.consumeResult(result);
+        }
+        expectThrows(TaskCancelledException.class, consumer::reduce);
+    }
+
     public void testConsumerConcurrently() throws InterruptedException {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
@@ -442,6 +477,73 @@ public class SearchPhaseControllerTests extends ESTestCase {
     }
 
 
+    public void testConsumerReducesOnBufferedAggsSize() throws IOException {
+        int expectedNumResults = randomIntBetween(3, 20);
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder().put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false).build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        // every shard result exceeds the limit so results are reduced as they arrive
+        SearchPhaseController controller = new SearchPhaseController(
+            Settings.builder().put(SearchPhaseController.MAX_BUFFERED_AGGS_SIZE.getKey(), "0b").build(),
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b), breakerService);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(expectedNumResults - 1);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < expectedNumResults; i++) {
+            double value = randomDouble();
+            max = Math.max(max, value);
+            consumer.consumeResult(serializedResultWithMax(i, value));
+            assertThat(((SearchPhaseController.QueryPhaseResultConsumer) consumer).getBufferedAggsBytes(), greaterThan(0L));
+        }
+        assertEquals(expectedNumResults - 2, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases());
+        assertEquals(2, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumBuffered());
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertEquals(expectedNumResults - 1, reduce.numReducePhases);
+        assertEquals(max, ((InternalMax) reduce.aggregations.asList().get(0)).getValue(), 0.0D);
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    public void testConsumerTripsBreaker() throws IOException {
+        int expectedNumResults = randomIntBetween(3, 20);
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), "1b")
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY,
+            (b, isCancelled) -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b), breakerService);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")).size(0));
+        request.setBatchedReduceSize(2);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            // a tripped breaker must not prevent other shard results from being consumed
+            consumer.consumeResult(serializedResultWithMax(i, randomDouble()));
+        }
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    private static QuerySearchResult serializedResultWithMax(int shardIndex, double value) throws IOException {
+        NamedWriteableRegistry registry = new NamedWriteableRegistry(
+            new SearchModule(Settings.EMPTY, false, Collections.emptyList()).getNamedWriteables());
+        QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("a", "b"), shardIndex, null));
+        result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), Float.NaN),
+            new DocValueFormat[0]);
+        result.aggregations(new InternalAggregations(Arrays.asList(new InternalMax("test", value, DocValueFormat.RAW,
+            Collections.emptyList(), Collections.emptyMap()))));
+        QuerySearchResult copy = copyStreamable(result, registry, QuerySearchResult::new, Version.CURRENT);
+        copy.setSearchShardTarget(result.getSearchShardTarget());
+        copy.setShardIndex(shardIndex);
+        return copy;
+    }
+
     public void testNewSearchPhaseResults() {
         for (int i = 0; i < 10; i++) {
             int expectedNumResults = randomIntBetween(1, 10);
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class TopDocsMergerTests extends ESTestCase {
+
+    public void testMergeByScore() {
+        int numShards = randomIntBetween(1, 200);
+        TopDocs[] shardHits = new TopDocs[numShards];
+        for (int shardIndex = 0; shardIndex < numShards; shardIndex++) {
+            ScoreDoc[] scoreDocs = new ScoreDoc[randomIntBetween(0, 50)];
+            for (int i = 0; i < scoreDocs.length; i++) {
+                // few distinct scores to exercise the tie breaking
+                scoreDocs[i] = new ScoreDoc(randomIntBetween(0, 1000), randomIntBetween(0, 10), shardIndex);
+            }
+            Arrays.sort(scoreDocs, (a, b) -> Float.compare(b.score, a.score));
+            shardHits[shardIndex] = new TopDocs(randomTotalHits(scoreDocs.length), scoreDocs);
+        }
+        int from = randomIntBetween(0, 100);
+        int size = randomIntBetween(0, 500);
+
+        TopDocs expected = TopDocs.merge(from, size, shardHits, false);
+        TopDocs merged = TopDocsMerger.merge(null, from, size, shardHits);
+        assertFalse(merged instanceof TopFieldDocs);
+        assertEquals(expected.totalHits, merged.totalHits);
+        assertSameDocs(expected.scoreDocs, merged.scoreDocs);
+    }
+
+    public void testMergeBySort() {
+        Sort sort = new Sort(new SortField("long", SortField.Type.LONG, randomBoolean()),
+            new SortField("keyword", SortField.Type.STRING, randomBoolean()));
+        Comparator<FieldDoc> shardOrder = Comparator.comparing(
+            (FieldDoc doc) -> (Long) doc.fields[0], sort.getSort()[0].getReverse() ? Comparator.reverseOrder() : Comparator.naturalOrder())
+            .thenComparing((FieldDoc doc) -> (BytesRef) doc.fields[1],
+                sort.getSort()[1].getReverse() ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        int numShards = randomIntBetween(1, 200);
+        TopFieldDocs[] shardHits = new TopFieldDocs[numShards];
+        for (int shardIndex = 0; shardIndex < numShards; shardIndex++) {
+            FieldDoc[] fieldDocs = new FieldDoc[randomIntBetween(0, 50)];
+            for (int i = 0; i < fieldDocs.length; i++) {
+                Object[] fields = new Object[] {(long) randomIntBetween(0, 5), new BytesRef(randomAlphaOfLength(1))};
+                fieldDocs[i] = new FieldDoc(randomIntBetween(0, 1000), Float.NaN, fields, shardIndex);
+            }
+            Arrays.sort(fieldDocs, shardOrder);
+            shardHits[shardIndex] = new TopFieldDocs(randomTotalHits(fieldDocs.length), fieldDocs, sort.getSort());
+        }
+        int from = randomIntBetween(0, 100);
+        int size = randomIntBetween(0, 500);
+
+        TopFieldDocs expected = TopDocs.merge(sort, from, size, shardHits, false);
+        TopDocs merged = TopDocsMerger.merge(sort, from, size, shardHits);
+        assertTrue(merged instanceof TopFieldDocs);
+        assertArrayEquals(sort.getSort(), ((TopFieldDocs) merged).fields);
+        assertEquals(expected.totalHits, merged.totalHits);
+        assertSameDocs(expected.scoreDocs, merged.scoreDocs);
+    }
+
+    public void testMergeWithoutHits() {
+        TopDocs[] shardHits = new TopDocs[randomIntBetween(1, 10)];
+        for (int i = 0; i < shardHits.length; i++) {
+            shardHits[i] = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+        }
+        TopDocs merged = TopDocsMerger.merge(null, randomIntBetween(0, 10), randomIntBetween(0, 10), shardHits);
+        assertEquals(0, merged.totalHits.value);
+        assertEquals(0, merged.scoreDocs.length);
+    }
+
+    public void testMissingSortValues() {
+        Sort sort = new Sort(new SortField("long", SortField.Type.LONG));
+        TopFieldDocs[] shardHits = new TopFieldDocs[] {
+            new TopFieldDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new FieldDoc[] {new FieldDoc(0, Float.NaN)}, sort.getSort())
+        };
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> TopDocsMerger.merge(sort, 0, 10, shardHits));
+        assertEquals("shard 0 did not set sort field values (FieldDoc.fields is null)", e.getMessage());
+    }
+
+    private static TotalHits randomTotalHits(int numHits) {
+        return new TotalHits(numHits + randomIntBetween(0, 100),
+            randomBoolean() ? TotalHits.Relation.EQUAL_TO : TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+    }
+
+    private static void assertSameDocs(ScoreDoc[] expected, ScoreDoc[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame("doc " + i + " differs", expected[i], actual[i]);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+public class TinyLfuCacheTests extends ESTestCase {
+    private int numberOfEntries;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        numberOfEntries = randomIntBetween(1000, 10000);
+        logger.debug("numberOfEntries: {}", numberOfEntries);
+    }
+
+    public void testBuilder() {
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>builder().setFrequencyAware(true).build();
+        assertThat(cache, instanceOf(TinyLfuCache.class));
+        assertThat(((TinyLfuCache<Integer, String>) cache).getNumberOfSegments(), equalTo(TinyLfuCache.MAX_SEGMENTS));
+        assertThat(CacheBuilder.<Integer, String>builder().build(), is(not(instanceOf(TinyLfuCache.class))));
+
+        long maximumWeight = randomLongBetween(0, TinyLfuCache.MIN_SEGMENT_WEIGHT * TinyLfuCache.MAX_SEGMENTS * 2);
+        TinyLfuCache<Integer, String> bounded = (TinyLfuCache<Integer, String>)
+            CacheBuilder.<Integer, String>builder().setFrequencyAware(true).setMaximumWeight(maximumWeight).build();
+        int segments = bounded.getNumberOfSegments();
+        assertThat(segments, lessThanOrEqualTo(TinyLfuCache.MAX_SEGMENTS));
+        assertEquals(1, Integer.bitCount(segments));
+        assertTrue(segments == 1 || maximumWeight / segments >= TinyLfuCache.MIN_SEGMENT_WEIGHT);
+    }
+
+    // cache some entries, then randomly lookup keys that do not exist, then check the stats
+    public void testCacheStats() {
+        AtomicLong evictions = new AtomicLong();
+        Set<Integer> keys = ConcurrentHashMap.newKeySet();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .setMaximumWeight(numberOfEntries / 2)
+                .removalListener(notification -> {
+                    keys.remove(notification.getKey());
+                    evictions.incrementAndGet();
+                })
+                .build();
+
+        for (int i = 0; i < numberOfEntries; i++) {
+            keys.add(i);
+            cache.put(i, Integer.toString(i));
+        }
+        cache.refresh();
+        assertEquals(keys.size(), cache.count());
+        assertThat(cache.weight(), lessThanOrEqualTo((long) numberOfEntries / 2));
+        assertEquals(numberOfEntries - keys.size(), evictions.get());
+        assertEquals(evictions.get(), cache.stats().getEvictions());
+
+        long hits = 0;
+        long misses = 0;
+        Integer missingKey = 0;
+        for (Integer key : keys) {
+            --missingKey;
+            if (rarely()) {
+                misses++;
+                assertNull(cache.get(missingKey));
+            } else {
+                hits++;
+                assertNotNull(cache.get(key));
+            }
+        }
+        assertEquals(hits, cache.stats().getHits());
+        assertEquals(misses, cache.stats().getMisses());
+    }
+
+    // frequently used entries must survive a scan over many entries that are used only once
+    public void testScanResistance() {
+        int maximumWeight = randomIntBetween(100, 1000);
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .setMaximumWeight(maximumWeight)
+                .build();
+        int hot = maximumWeight / 4;
+        for (int i = 0; i < hot; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < hot; i++) {
+                assertNotNull(cache.get(i));
+            }
+            cache.refresh();
+        }
+        for (int i = hot; i < hot + 10 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        cache.refresh();
+        assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        int survivors = 0;
+        for (int i = 0; i < hot; i++) {
+            if (cache.get(i) != null) {
+                survivors++;
+            }
+        }
+        assertEquals(hot, survivors);
+    }
+
+    public void testWeigher() {
+        int maximumWeight = 2 * numberOfEntries;
+        int weight = randomIntBetween(2, 10);
+        AtomicLong evictions = new AtomicLong();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .setMaximumWeight(maximumWeight)
+                .weigher((k, v) -> weight)
+                .removalListener(notification -> evictions.incrementAndGet())
+                .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        cache.refresh();
+        assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        assertEquals(weight * cache.count(), cache.weight());
+        assertEquals(numberOfEntries - cache.count(), evictions.get());
+    }
+
+    public void testExpirationAfterAccess() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterAccessNanos(1);
+        Set<Integer> evictedKeys = ConcurrentHashMap.newKeySet();
+        cache.setRemovalListener(notification -> {
+            assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+            evictedKeys.add(notification.getKey());
+        });
+        now.set(0);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(1);
+        for (int i = numberOfEntries; i < 2 * numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        now.set(2);
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertNull(cache.get(i));
+        }
+        cache.refresh();
+        assertEquals(numberOfEntries, cache.count());
+        assertEquals(numberOfEntries, evictedKeys.size());
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertTrue(evictedKeys.contains(i));
+        }
+        Set<Integer> remainingKeys = new HashSet<>();
+        for (Integer key : cache.keys()) {
+            remainingKeys.add(key);
+        }
+        for (int i = numberOfEntries; i < 2 * numberOfEntries; i++) {
+            assertTrue(remainingKeys.contains(i));
+        }
+    }
+
+    public void testExpirationAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterWriteNanos(1);
+        now.set(0);
+        cache.put(0, "0");
+        now.set(1);
+        // accessing the entry does not extend its lifetime
+        assertEquals("0", cache.get(0));
+        now.set(2);
+        assertNull(cache.get(0));
+        cache.refresh();
+        assertEquals(0, cache.count());
+    }
+
+    public void testComputeIfAbsentAfterExpiration() throws ExecutionException {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<Integer, String>() {
+            @Override
+            protected long now() {
+                return now.get();
+            }
+        };
+        cache.setExpireAfterAccessNanos(1);
+        now.set(0);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i) + "-first");
+        }
+        now.set(2);
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.computeIfAbsent(i, k -> Integer.toString(k) + "-second");
+        }
+        for (int i = 0; i < numberOfEntries; i++) {
+            assertEquals(i + "-second", cache.get(i));
+        }
+        assertEquals(numberOfEntries, cache.count());
+    }
+
+    public void testNotificationOnInvalidate() {
+        Set<Integer> notifications = new HashSet<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .removalListener(notification -> {
+                    assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notification.getRemovalReason());
+                    notifications.add(notification.getKey());
+                })
+                .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        Set<Integer> invalidated = new HashSet<>();
+        for (int i = 0; i < numberOfEntries; i++) {
+            if (rarely()) {
+                invalidated.add(i);
+                cache.invalidate(i);
+            }
+        }
+        // an invalidation with the wrong value is a no-op
+        cache.invalidate(0, "wrong");
+        assertEquals(invalidated, notifications);
+        assertEquals(numberOfEntries - invalidated.size(), cache.count());
+        for (int i = 0; i < numberOfEntries; i++) {
+            if (invalidated.contains(i)) {
+                assertNull(cache.get(i));
+            } else {
+                assertNotNull(cache.get(i));
+            }
+        }
+
+        cache.invalidateAll();
+        assertEquals(numberOfEntries, notifications.size());
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.weight());
+        assertFalse(cache.keys().iterator().hasNext());
+    }
+
+    public void testNotificationOnReplace() {
+        List<RemovalNotification<Integer, String>> notifications = new ArrayList<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .weigher((k, v) -> v.length())
+                .removalListener(notifications::add)
+                .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, "a");
+        }
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, "bb");
+        }
+        assertEquals(numberOfEntries, notifications.size());
+        for (RemovalNotification<Integer, String> notification : notifications) {
+            assertEquals(RemovalNotification.RemovalReason.REPLACED, notification.getRemovalReason());
+            assertEquals("a", notification.getValue());
+        }
+        assertEquals(numberOfEntries, cache.count());
+        assertEquals(2 * numberOfEntries, cache.weight());
+    }
+
+    public void testRemoveUsingValuesIterator() {
+        final List<RemovalNotification<Integer, String>> removalNotifications = new ArrayList<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .removalListener(removalNotifications::add)
+                .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        final Set<String> expectedRemovals = new HashSet<>();
+        Iterator<String> valueIterator = cache.values().iterator();
+        while (valueIterator.hasNext()) {
+            String value = valueIterator.next();
+            if (randomBoolean()) {
+                valueIterator.remove();
+                expectedRemovals.add(value);
+            }
+        }
+        assertEquals(expectedRemovals.size(), removalNotifications.size());
+        for (RemovalNotification<Integer, String> notification : removalNotifications) {
+            assertTrue(expectedRemovals.contains(notification.getValue()));
+            assertEquals(RemovalNotification.RemovalReason.INVALIDATED, notification.getRemovalReason());
+        }
+        assertEquals(numberOfEntries - expectedRemovals.size(), cache.count());
+    }
+
+    public void testComputeIfAbsentCallsOnce() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final Cache<Integer, String> cache = CacheBuilder.<Integer, String>builder().setFrequencyAware(true).build();
+        AtomicReferenceArray<Boolean> flags = new AtomicReferenceArray<>(numberOfEntries);
+        for (int j = 0; j < numberOfEntries; j++) {
+            flags.set(j, false);
+        }
+
+        CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        try {
+                            String value = cache.computeIfAbsent(j, key -> {
+                                assertTrue(flags.compareAndSet(key, false, true));
+                                return Integer.toString(key);
+                            });
+                            assertEquals(Integer.toString(j), value);
+                        } catch (ExecutionException | AssertionError e) {
+                            failures.add(e);
+                            break;
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        assertThat(failures, is(empty()));
+        assertEquals(numberOfEntries, cache.count());
+    }
+
+    public void testComputeIfAbsentThrowsExceptionIfLoaderReturnsANullValue() {
+        final Cache<Integer, String> cache = CacheBuilder.<Integer, String>builder().setFrequencyAware(true).build();
+        ExecutionException e = expectThrows(ExecutionException.class, () -> cache.computeIfAbsent(1, k -> null));
+        assertThat(e.getCause(), instanceOf(NullPointerException.class));
+        assertEquals(0, cache.count());
+        assertNull(cache.get(1));
+    }
+
+    public void testExceptionThrownDuringConcurrentComputeIfAbsent() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final Cache<String, String> cache = CacheBuilder.<String, String>builder().setFrequencyAware(true).build();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        AtomicInteger failures = new AtomicInteger();
+        final String key = randomAlphaOfLengthBetween(2, 32);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    cache.computeIfAbsent(key, k -> {
+                        loading.countDown();
+                        release.await();
+                        throw new IllegalArgumentException("boom");
+                    });
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+                    failures.incrementAndGet();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                } finally {
+                    try {
+                        barrier.await();
+                    } catch (BrokenBarrierException | InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            thread.start();
+        }
+
+        barrier.await();
+        loading.await();
+        release.countDown();
+        barrier.await();
+        // the threads that raced the failing load either shared its failure or ran a failing load of their own
+        assertEquals(numberOfThreads, failures.get());
+        assertEquals(0, cache.count());
+    }
+
+    // every value that makes it into the cache must eventually produce exactly one removal notification
+    public void testTorture() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong removed = new AtomicLong();
+        final Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setFrequencyAware(true)
+                .setMaximumWeight(1000)
+                .weigher((k, v) -> 2)
+                .removalListener(notification -> removed.incrementAndGet())
+                .build();
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                inserted.incrementAndGet();
+                                cache.put(key, Integer.toString(j));
+                                break;
+                            case 1:
+                                cache.invalidate(key);
+                                break;
+                            default:
+                                try {
+                                    cache.computeIfAbsent(key, k -> {
+                                        inserted.incrementAndGet();
+                                        return Integer.toString(k);
+                                    });
+                                } catch (ExecutionException e) {
+                                    throw new AssertionError(e);
+                                }
+                                break;
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.count(), lessThanOrEqualTo(500));
+        assertEquals(2L * cache.count(), cache.weight());
+        assertEquals(inserted.get(), removed.get() + cache.count());
+        cache.invalidateAll();
+        assertEquals(0, cache.count());
+        assertEquals(inserted.get(), removed.get());
+    }
+
+    public void testFrequencySketch() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(512);
+        assertThat(sketch.capacity(), equalTo(512));
+        int hash = randomInt();
+        assertEquals(0, sketch.frequency(hash));
+        int increments = randomIntBetween(1, 10);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(hash);
+        }
+        assertThat(sketch.frequency(hash), greaterThan(0));
+        assertThat(sketch.frequency(hash), lessThanOrEqualTo(increments));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(hash);
+        }
+        assertEquals(FrequencySketch.MAXIMUM_FREQUENCY, sketch.frequency(hash));
+
+        // the sketch ages its history, so a key that stops being used eventually looks cold again
+        Random random = new Random(random().nextLong());
+        for (int i = 0; i < 100 * sketch.capacity(); i++) {
+            sketch.increment(random.nextInt());
+        }
+        assertThat(sketch.frequency(hash), lessThanOrEqualTo(FrequencySketch.MAXIMUM_FREQUENCY / 2));
+    }
+}
@@ -22,6 +22,8 @@ package org.elasticsearch.common.util;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
@@ -30,8 +32,12 @@ import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
@@ -42,6 +48,10 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 public class BigArraysTests extends ESTestCase {
 
     private BigArrays randombigArrays() {
+        if (randomBoolean()) {
+            final Settings settings = Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build();
+            return new MockBigArrays(new MockPageCacheRecycler(settings), new NoneCircuitBreakerService()).withOffHeapPages();
+        }
         return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
     }
 
@@ -378,6 +388,96 @@ public class BigArraysTests extends ESTestCase {
         }
     }
 
+    public void testOffHeapPagesAboveLimitAreFreed() {
+        assumeTrue("direct buffers can't be freed explicitly on this JVM", ByteBufferCleaner.isSupported());
+        final BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName())).findFirst().get();
+        final int limit = randomIntBetween(0, 4);
+        final PageCacheRecycler recycler = new PageCacheRecycler(Settings.builder()
+                .put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true)
+                .put(PageCacheRecycler.TYPE_SETTING.getKey(), PageCacheRecycler.Type.QUEUE.name())
+                .put(PageCacheRecycler.LIMIT_OFF_HEAP_SETTING.getKey(), limit * BigArrays.PAGE_SIZE_IN_BYTES + "b")
+                .build());
+        final long usedBefore = directPool.getMemoryUsed();
+        final List<Recycler.V<ByteBuffer>> pages = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            pages.add(recycler.directPage(randomBoolean()));
+        }
+        assertThat(directPool.getMemoryUsed(), greaterThanOrEqualTo(usedBefore + 64L * BigArrays.PAGE_SIZE_IN_BYTES));
+        Releasables.close(pages);
+        // only the pages that fit in the recycler are retained
+        assertEquals(usedBefore + (long) limit * BigArrays.PAGE_SIZE_IN_BYTES, directPool.getMemoryUsed());
+        recycler.close();
+        assertEquals(usedBefore, directPool.getMemoryUsed());
+    }
+
+    public void testOffHeapPages() throws Exception {
+        final BigArrays onHeap = new BigArrays(new PageCacheRecycler(Settings.EMPTY), null, false);
+        assertSame(onHeap, onHeap.withOffHeapPages());
+
+        final int maxSize = randomIntBetween(1 << 16, 1 << 20);
+        HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(
+                Settings.builder()
+                        .put(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), maxSize, ByteSizeUnit.BYTES)
+                        .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                        .build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final PageCacheRecycler recycler = new PageCacheRecycler(
+                Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build());
+        final BigArrays bigArrays = new BigArrays(recycler, hcbs, false).withCircuitBreaking().withOffHeapPages();
+        assertSame(bigArrays, bigArrays.withOffHeapPages());
+        assertSame(bigArrays, bigArrays.withCircuitBreaking());
+
+        for (String type : Arrays.asList("Byte", "Int", "Long", "Double")) {
+            Method create = BigArrays.class.getMethod("new" + type + "Array", long.class);
+            BigArray array = (BigArray) create.invoke(bigArrays, randomIntBetween(1 << 13, 1 << 14));
+            assertEquals("DirectBig" + type + "Array", array.getClass().getSimpleName());
+            assertEquals(array.ramBytesUsed(), hcbs.getBreaker(CircuitBreaker.REQUEST).getUsed());
+            Method resize = BigArrays.class.getMethod("resize", array.getClass().getInterfaces()[0], long.class);
+            while (true) {
+                try {
+                    array = (BigArray) resize.invoke(bigArrays, array, array.size() * 2);
+                } catch (InvocationTargetException e) {
+                    assertTrue(e.getCause() instanceof CircuitBreakingException);
+                    break;
+                }
+                assertEquals("DirectBig" + type + "Array", array.getClass().getSimpleName());
+            }
+            assertEquals(array.ramBytesUsed(), hcbs.getBreaker(CircuitBreaker.REQUEST).getUsed());
+            array.close();
+            assertEquals(0, hcbs.getBreaker(CircuitBreaker.REQUEST).getUsed());
+        }
+
+        // small arrays remain on the heap
+        try (LongArray array = bigArrays.newLongArray(randomIntBetween(0, BigArrays.LONG_PAGE_SIZE / 2 - 1))) {
+            assertFalse(array instanceof DirectBigLongArray);
+        }
+        recycler.close();
+    }
+
+    public void testOffHeapByteArrayGetReusesBytes() {
+        final PageCacheRecycler recycler = new PageCacheRecycler(
+                Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build());
+        final BigArrays bigArrays = new BigArrays(recycler, null, false).withOffHeapPages();
+        final byte[] data = randomByteArrayOfLength(randomIntBetween(BigArrays.BYTE_PAGE_SIZE, 3 * BigArrays.BYTE_PAGE_SIZE));
+        try (ByteArray array = bigArrays.newByteArray(data.length)) {
+            assertTrue(array instanceof DirectBigByteArray);
+            array.set(0, data, 0, data.length);
+            final BytesRef ref = new BytesRef();
+            final int len = randomIntBetween(1, BigArrays.BYTE_PAGE_SIZE);
+            final int offset = randomIntBetween(0, data.length - len);
+            array.get(offset, len, ref);
+            assertEquals(new BytesRef(data, offset, len), ref);
+            final byte[] bytes = ref.bytes;
+            final int smallerLen = randomIntBetween(0, len);
+            final int otherOffset = randomIntBetween(0, data.length - smallerLen);
+            array.get(otherOffset, smallerLen, ref);
+            assertSame(bytes, ref.bytes);
+            assertEquals(new BytesRef(data, otherOffset, smallerLen), ref);
+        }
+        recycler.close();
+    }
+
     public void testEstimatedBytesSameAsActualBytes() throws Exception {
         final int maxSize = 1 << scaledRandomIntBetween(15, 22);
         final long size = randomIntBetween((1 << 14) + 1, maxSize);
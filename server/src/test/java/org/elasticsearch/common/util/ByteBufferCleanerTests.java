@@ -0,0 +1,43 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.ByteBuffer;
+
+public class ByteBufferCleanerTests extends ESTestCase {
+
+    public void testClean() {
+        assertTrue(ByteBufferCleaner.isSupported());
+        ByteBufferCleaner.clean(ByteBuffer.allocateDirect(randomIntBetween(1, 1 << 16)));
+    }
+
+    public void testRejectsHeapBuffers() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> ByteBufferCleaner.clean(ByteBuffer.allocate(16)));
+        assertEquals("only direct buffers can be freed", e.getMessage());
+    }
+
+    public void testRejectsSlices() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        expectThrows(IllegalArgumentException.class, () -> ByteBufferCleaner.clean(randomBoolean() ? buffer.slice() : buffer.duplicate()));
+        ByteBufferCleaner.clean(buffer);
+    }
+}
@@ -36,6 +36,10 @@ public class LongHashTests extends ESSingleNodeTestCase {
     LongHash hash;
 
     private BigArrays randombigArrays() {
+        if (randomBoolean()) {
+            final Settings settings = Settings.builder().put(PageCacheRecycler.OFF_HEAP_SETTING.getKey(), true).build();
+            return new MockBigArrays(new MockPageCacheRecycler(settings), new NoneCircuitBreakerService()).withOffHeapPages();
+        }
         return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
     }
 
@@ -229,6 +229,17 @@ public class IndexSettingsTests extends ESTestCase {
         assertEquals(Translog.Durability.REQUEST, settings.getTranslogDurability()); // test default
     }
 
+    public void testUpdateTranslogGroupCommitMaxLinger() {
+        IndexMetaData metaData = newIndexMeta("index", Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .build());
+        IndexSettings settings = new IndexSettings(metaData, Settings.EMPTY);
+        assertEquals(TimeValue.ZERO, settings.getTranslogGroupCommitMaxLinger()); // test default
+        settings.updateIndexMetaData(newIndexMeta("index", Settings.builder()
+            .put(IndexSettings.INDEX_TRANSLOG_GROUP_COMMIT_MAX_LINGER_SETTING.getKey(), "2ms").build()));
+        assertEquals(TimeValue.timeValueMillis(2), settings.getTranslogGroupCommitMaxLinger());
+    }
+
     public void testIsWarmerEnabled() {
         IndexMetaData metaData = newIndexMeta("index", Settings.builder()
             .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
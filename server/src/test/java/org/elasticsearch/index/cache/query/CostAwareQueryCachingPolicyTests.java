@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class CostAwareQueryCachingPolicyTests extends ESTestCase {
+
+    private static Query filter(String... values) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String value : values) {
+            builder.add(new TermQuery(new Term("field", value)), Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    public void testMinFrequencyToCache() throws IOException {
+        CostAwareQueryCachingPolicy policy = new CostAwareQueryCachingPolicy();
+        Query query = filter("a", "b");
+        Query pointQuery = IntPoint.newRangeQuery("point", 0, 10);
+
+        // the usage tracking frequencies are used until the cost of a filter is known
+        assertEquals(4, policy.minFrequencyToCache(query));
+        assertEquals(2, policy.minFrequencyToCache(pointQuery));
+
+        // expensive filters are cached as soon as they are reused
+        policy.recordCost(query, 1_000_000, 1000);
+        assertEquals(2, policy.minFrequencyToCache(query));
+        policy.onUse(query);
+        assertFalse(policy.shouldCache(query));
+        policy.onUse(query);
+        assertTrue(policy.shouldCache(query));
+
+        // cheap filters need to be used more often
+        policy.recordCost(pointQuery, 1000, 1000);
+        assertEquals(16, policy.minFrequencyToCache(pointQuery));
+        for (int i = 0; i < 15; i++) {
+            policy.onUse(pointQuery);
+            assertFalse(policy.shouldCache(pointQuery));
+        }
+        policy.onUse(pointQuery);
+        assertTrue(policy.shouldCache(pointQuery));
+
+        // the cheapest filters are cached once they made up the whole history of recent uses
+        Query cheapQuery = filter("a", "c");
+        policy.recordCost(cheapQuery, 1, 1_000_000);
+        assertEquals(CostAwareQueryCachingPolicy.HISTORY_SIZE, policy.minFrequencyToCache(cheapQuery));
+        for (int i = 1; i < CostAwareQueryCachingPolicy.HISTORY_SIZE; i++) {
+            policy.onUse(cheapQuery);
+            assertFalse(policy.shouldCache(cheapQuery));
+        }
+        policy.onUse(cheapQuery);
+        assertTrue(policy.shouldCache(cheapQuery));
+    }
+
+    public void testCostIsSampled() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            final int numDocs = randomIntBetween(1, 1000);
+            int expectedCount = 0;
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                final String value = randomFrom("a", "b", "c");
+                if (value.equals("c") == false) {
+                    expectedCount++;
+                }
+                doc.add(new StringField("field", value, Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                final CostAwareQueryCachingPolicy policy = new CostAwareQueryCachingPolicy();
+                final LRUQueryCache cache = new LRUQueryCache(1000, Long.MAX_VALUE, context -> true);
+                final IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setQueryCache((weight, cachingPolicy) -> cache.doCache(policy.trackCost(weight), cachingPolicy));
+                searcher.setQueryCachingPolicy(policy);
+
+                final Query query = filter("a", "b");
+                assertEquals(-1, policy.nanosPerByte(query), 0d);
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(expectedCount, searcher.count(new ConstantScoreQuery(query)));
+                }
+                assertThat(policy.nanosPerByte(query), greaterThanOrEqualTo(0d));
+                // the filter got cached once it was used often enough
+                assertThat(cache.getCacheCount(), greaterThan(0L));
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene80.Lucene80Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.lessThan;
+
+public class BloomFilterPostingsFormatTests extends ESTestCase {
+
+    public void testTermLookupsOnFlushedAndMergedSegments() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final Set<String> ids = new HashSet<>();
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(bloomFilterCodec()))) {
+                indexRandomDocs(writer, ids);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertTermLookups(reader, ids);
+                }
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertTermLookups(reader, ids);
+                }
+            }
+            // segments can be read through SPI
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertTermLookups(reader, ids);
+            }
+        }
+    }
+
+    public void testMergeWithAnotherFormat() throws IOException {
+        try (Directory dir = newDirectory()) {
+            final Set<String> ids = new HashSet<>();
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(bloomFilterCodec()))) {
+                indexRandomDocs(writer, ids);
+            }
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(new Lucene80Codec()))) {
+                indexRandomDocs(writer, ids);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertTermLookups(reader, ids);
+                }
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertTermLookups(reader, ids);
+                }
+            }
+        }
+    }
+
+    public void testFalsePositiveProbability() {
+        final double fpp = randomFrom(0.1, 0.01, 0.001);
+        final int numTerms = 10000;
+        final BloomFilterPostingsFormat.BloomFilter filter = BloomFilterPostingsFormat.BloomFilter.create(numTerms, fpp);
+        final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        for (int i = 0; i < numTerms; i++) {
+            filter.add(new BytesRef("term-" + i), hash);
+        }
+        for (int i = 0; i < numTerms; i++) {
+            assertTrue(filter.mightContain(new BytesRef("term-" + i), hash));
+        }
+        int falsePositives = 0;
+        final int numLookups = 100000;
+        for (int i = 0; i < numLookups; i++) {
+            if (filter.mightContain(new BytesRef("other-" + i), hash)) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / numLookups, lessThan(fpp * 2));
+    }
+
+    public void testEmptyFilter() {
+        final BloomFilterPostingsFormat.BloomFilter filter = BloomFilterPostingsFormat.BloomFilter.create(0, 0.01);
+        assertFalse(filter.mightContain(new BytesRef(randomAlphaOfLength(10)), new MurmurHash3.Hash128()));
+    }
+
+    private static IndexWriterConfig newConfig(Codec codec) {
+        IndexWriterConfig config = new IndexWriterConfig(null);
+        config.setCodec(codec);
+        return config;
+    }
+
+    private static Codec bloomFilterCodec() {
+        final PostingsFormat format = new BloomFilterPostingsFormat(field -> field.equals("id") ? 0.01 : 0);
+        return new Lucene80Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return format;
+            }
+        };
+    }
+
+    private static void indexRandomDocs(IndexWriter writer, Set<String> ids) throws IOException {
+        final int numDocs = randomIntBetween(1, 500);
+        for (int i = 0; i < numDocs; i++) {
+            final String id = randomAlphaOfLength(10);
+            ids.add(id);
+            Document doc = new Document();
+            doc.add(new StringField("id", id, Field.Store.NO));
+            doc.add(new StringField("other", id, Field.Store.NO));
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static void assertTermLookups(DirectoryReader reader, Set<String> ids) throws IOException {
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        for (String id : randomSubsetOf(Math.min(ids.size(), 20), ids)) {
+            assertEquals(1, searcher.count(new TermQuery(new Term("id", id))));
+            assertEquals(1, searcher.count(new TermQuery(new Term("other", id))));
+        }
+        for (int i = 0; i < 20; i++) {
+            final String missing = randomAlphaOfLength(11);
+            assertEquals(0, searcher.count(new TermQuery(new Term("id", missing))));
+        }
+        // every term of every segment can be found
+        for (LeafReaderContext ctx : reader.leaves()) {
+            final TermsEnum termsEnum = ctx.reader().terms("id").iterator();
+            final TermsEnum seekingTermsEnum = ctx.reader().terms("id").iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                assertTrue(seekingTermsEnum.seekExact(term));
+                assertEquals(term, seekingTermsEnum.term());
+            }
+        }
+    }
+}
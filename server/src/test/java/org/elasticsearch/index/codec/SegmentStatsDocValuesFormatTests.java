@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.lucene80.Lucene80Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class SegmentStatsDocValuesFormatTests extends ESTestCase {
+
+    public void testStatsAreRecordedOnFlushAndMerge() throws IOException {
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(statsCodec()))) {
+                indexRandomDocs(writer);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    for (LeafReaderContext ctx : reader.leaves()) {
+                        assertStats(ctx);
+                        assertNull(SegmentStatsDocValuesFormat.getStats(ctx.reader(), "other"));
+                    }
+                }
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertEquals(1, reader.leaves().size());
+                    assertStats(reader.leaves().get(0));
+                }
+            }
+            // segments can be read through SPI
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertStats(reader.leaves().get(0));
+            }
+        }
+    }
+
+    public void testStatsAreIgnoredAfterMergeWithAnotherFormat() throws IOException {
+        try (Directory dir = newDirectory()) {
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(statsCodec()))) {
+                indexRandomDocs(writer);
+            }
+            try (IndexWriter writer = new IndexWriter(dir, newConfig(new Lucene80Codec()))) {
+                writer.addDocument(doc(randomLong(), randomDouble()));
+                writer.forceMerge(1);
+                try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                    assertNull(SegmentStatsDocValuesFormat.getStats(reader.leaves().get(0).reader(), "long"));
+                    assertNull(SegmentStatsDocValuesFormat.getStats(reader.leaves().get(0).reader(), "double"));
+                }
+            }
+        }
+    }
+
+    private static IndexWriterConfig newConfig(Codec codec) {
+        IndexWriterConfig config = new IndexWriterConfig(null);
+        config.setCodec(codec);
+        return config;
+    }
+
+    private static Codec statsCodec() {
+        final DocValuesFormat format = new SegmentStatsDocValuesFormat(field -> {
+            switch (field) {
+                case "long":
+                    return NumericType.LONG;
+                case "double":
+                    return NumericType.DOUBLE;
+                default:
+                    return null;
+            }
+        });
+        return new Lucene80Codec() {
+            @Override
+            public DocValuesFormat getDocValuesFormatForField(String field) {
+                return format;
+            }
+        };
+    }
+
+    private static void indexRandomDocs(IndexWriter writer) throws IOException {
+        final int numDocs = randomIntBetween(1, 500);
+        for (int i = 0; i < numDocs; i++) {
+            if (randomBoolean()) {
+                writer.addDocument(doc(randomLong(), randomDoubleBetween(-1000, 1000, true)));
+            } else {
+                // a document without values
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), StringField.Store.NO));
+                writer.addDocument(doc);
+            }
+            if (rarely()) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static Document doc(long longValue, double doubleValue) {
+        Document doc = new Document();
+        doc.add(new SortedNumericDocValuesField("long", longValue));
+        doc.add(new SortedNumericDocValuesField("double", NumericUtils.doubleToSortableLong(doubleValue)));
+        doc.add(new SortedNumericDocValuesField("double", NumericUtils.doubleToSortableLong(-doubleValue)));
+        doc.add(new SortedNumericDocValuesField("other", longValue));
+        return doc;
+    }
+
+    private static void assertStats(LeafReaderContext ctx) throws IOException {
+        for (String field : new String[] { "long", "double" }) {
+            final SortedNumericDocValues values = ctx.reader().getSortedNumericDocValues(field);
+            if (values == null) {
+                assertNull(SegmentStatsDocValuesFormat.getStats(ctx.reader(), field));
+                continue;
+            }
+            final NumericType numericType = field.equals("long") ? NumericType.LONG : NumericType.DOUBLE;
+            final SegmentStats expected = SegmentStatsDocValuesFormat.computeStats(values, numericType);
+            final SegmentStats actual = SegmentStatsDocValuesFormat.getStats(ctx.reader(), field);
+            assertNotNull(actual);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getSum(), actual.getSum(), 0d);
+            assertEquals(expected.getMin(), actual.getMin(), 0d);
+            assertEquals(expected.getMax(), actual.getMax(), 0d);
+        }
+    }
+}
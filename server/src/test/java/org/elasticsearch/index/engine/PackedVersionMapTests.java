@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageTester;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class PackedVersionMapTests extends ESTestCase {
+
+    public void testRandomOperations() {
+        final PackedVersionMap map = new PackedVersionMap(1 << randomIntBetween(0, 5));
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        final List<BytesRef> uids = new ArrayList<>();
+        final int numUids = randomIntBetween(1, 2000);
+        for (int i = 0; i < numUids; i++) {
+            uids.add(new BytesRef(randomAlphaOfLengthBetween(1, 20)));
+        }
+        final int iters = randomIntBetween(1, 10000);
+        for (int i = 0; i < iters; i++) {
+            final BytesRef uid = randomFrom(uids);
+            switch (randomInt(3)) {
+                case 0:
+                case 1:
+                    final VersionValue value = randomVersionValue();
+                    map.put(uid, value);
+                    expected.put(uid, value);
+                    break;
+                case 2:
+                    assertThat(map.remove(uid), equalTo(expected.remove(uid) != null));
+                    break;
+                default:
+                    assertThat(map.get(uid), equalTo(expected.get(uid)));
+                    break;
+            }
+            assertThat(map.size(), equalTo(expected.size()));
+        }
+        for (BytesRef uid : uids) {
+            assertThat(map.get(uid), equalTo(expected.get(uid)));
+        }
+        final Map<BytesRef, VersionValue> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual, equalTo(expected));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        for (BytesRef uid : uids) {
+            assertNull(map.get(uid));
+        }
+    }
+
+    public void testUidIsCopiedIfItDoesNotSpanItsArray() {
+        final PackedVersionMap map = new PackedVersionMap();
+        final byte[] bytes = new byte[] {'x', 'i', 'd', 'x'};
+        final VersionValue value = randomVersionValue();
+        map.put(new BytesRef(bytes, 1, 2), value);
+        bytes[1] = 'y';
+        assertThat(map.get(new BytesRef("id")), equalTo(value));
+        assertNull(map.get(new BytesRef("yd")));
+    }
+
+    public void testGetDeletes() {
+        final PackedVersionMap map = new PackedVersionMap();
+        final Set<BytesRef> expected = new HashSet<>();
+        final long maxTimestamp = randomLongBetween(0, 100);
+        final long maxSeqNo = randomLongBetween(0, 100);
+        final int numDocs = randomIntBetween(0, 500);
+        for (int i = 0; i < numDocs; i++) {
+            final BytesRef uid = new BytesRef(Integer.toString(i));
+            if (randomBoolean()) {
+                final DeleteVersionValue delete = new DeleteVersionValue(randomNonNegativeLong(), randomLongBetween(0, 200),
+                    randomNonNegativeLong(), randomLongBetween(0, 200));
+                map.put(uid, delete);
+                if (delete.time < maxTimestamp && delete.seqNo <= maxSeqNo) {
+                    expected.add(uid);
+                }
+            } else {
+                map.put(uid, randomIndexVersionValue());
+            }
+        }
+        assertThat(new HashSet<>(map.getDeletes(maxTimestamp, maxSeqNo)), equalTo(expected));
+    }
+
+    public void testRamBytesUsed() {
+        final PackedVersionMap map = new PackedVersionMap();
+        assertThat(map.ramBytesUsed(), equalTo(0L));
+        final List<BytesRef> uids = new ArrayList<>();
+        final int numDocs = scaledRandomIntBetween(1000, 100000);
+        for (int i = 0; i < numDocs; i++) {
+            final BytesRef uid = new BytesRef(randomAlphaOfLengthBetween(10, 20));
+            uids.add(uid);
+            map.put(uid, randomVersionValue());
+        }
+        long actualRamBytesUsed = RamUsageTester.sizeOf(map);
+        assertEquals(actualRamBytesUsed, map.ramBytesUsed(), actualRamBytesUsed / 4);
+
+        // removing most entries shrinks the segments
+        for (BytesRef uid : uids.subList(0, uids.size() - uids.size() / 20)) {
+            map.remove(uid);
+        }
+        actualRamBytesUsed = RamUsageTester.sizeOf(map);
+        assertEquals(actualRamBytesUsed, map.ramBytesUsed(), actualRamBytesUsed / 4);
+
+        map.clear();
+        assertThat(map.ramBytesUsed(), equalTo(0L));
+    }
+
+    private VersionValue randomVersionValue() {
+        if (randomBoolean()) {
+            return new DeleteVersionValue(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong());
+        }
+        return randomIndexVersionValue();
+    }
+
+    private IndexVersionValue randomIndexVersionValue() {
+        final Translog.Location location =
+            randomBoolean() ? null : new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomInt());
+        return new IndexVersionValue(location, randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
+}
@@ -580,12 +580,50 @@ public abstract class AbstractStringFieldDataTestCase extends AbstractFieldDataI
         }
     }
 
+    public void testGlobalOrdinalsAreReusedWhenSegmentsDontChange() throws Exception {
+        fillExtendedMvSet();
+        refreshReader();
+        IndexOrdinalsFieldData ifd = getForField("string", "value", hasDocValues());
+        IndexOrdinalsFieldData globalOrdinals = ifd.loadGlobal(topLevelReader);
+        assertNotNull(globalOrdinals.getOrdinalMap());
+
+        // global ordinals are only reused within a shard
+        DirectoryReader otherShardReader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "_na_", 2));
+        IndexOrdinalsFieldData otherShardGlobalOrdinals = ifd.loadGlobal(otherShardReader);
+        assertThat(otherShardGlobalOrdinals.getOrdinalMap(), not(sameInstance(globalOrdinals.getOrdinalMap())));
+
+        // deletes don't change the terms of the segments
+        writer.deleteDocuments(new Term("_id", "5"));
+        try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "_na_", 1))) {
+            assertEquals(topLevelReader.leaves().size(), reader.leaves().size());
+            IndexOrdinalsFieldData reusedGlobalOrdinals = ifd.loadGlobal(reader);
+            assertThat(reusedGlobalOrdinals, not(sameInstance(globalOrdinals)));
+            assertThat(reusedGlobalOrdinals.getOrdinalMap(), sameInstance(globalOrdinals.getOrdinalMap()));
+            SortedSetDocValues values = reusedGlobalOrdinals.load(reader.leaves().get(1)).getOrdinalsValues();
+            assertTrue(values.advanceExact(0));
+            assertThat(values.lookupOrd(values.nextOrd()).utf8ToString(), equalTo("04"));
+        }
+        otherShardReader.close();
+
+        Document d = new Document();
+        addField(d, "_id", "9");
+        addField(d, "value", "11");
+        writer.addDocument(d);
+        try (DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "_na_", 1))) {
+            IndexOrdinalsFieldData newGlobalOrdinals = ifd.loadGlobal(reader);
+            assertThat(newGlobalOrdinals.getOrdinalMap(), not(sameInstance(globalOrdinals.getOrdinalMap())));
+            assertThat(newGlobalOrdinals.getOrdinalMap().getValueCount(), equalTo(globalOrdinals.getOrdinalMap().getValueCount() + 1));
+        }
+    }
+
     public void testGlobalOrdinalsGetRemovedOnceIndexReaderCloses() throws Exception {
         fillExtendedMvSet();
         refreshReader();
         IndexOrdinalsFieldData ifd = getForField("string", "value", hasDocValues());
+        assertFalse(ifd.isGlobalLoaded(topLevelReader));
         IndexOrdinalsFieldData globalOrdinals = ifd.loadGlobal(topLevelReader);
         assertNotNull(globalOrdinals.getOrdinalMap());
+        assertTrue(ifd.isGlobalLoaded(topLevelReader));
         assertThat(ifd.loadGlobal(topLevelReader), sameInstance(globalOrdinals));
         // 3 b/c 1 segment level caches and 1 top level cache
         // in case of doc values, we don't cache atomic FD, so only the top-level cache is there
@@ -604,6 +642,7 @@ public abstract class AbstractStringFieldDataTestCase extends AbstractFieldDataI
         assertThat(indicesFieldDataCache.getCache().weight(), equalTo(hasDocValues() ? 0L : 3L));
 
         refreshReader();
+        assertFalse(ifd.isGlobalLoaded(topLevelReader));
         assertThat(ifd.loadGlobal(topLevelReader), not(sameInstance(globalOrdinals)));
 
         indexService.clearCaches(false, true);
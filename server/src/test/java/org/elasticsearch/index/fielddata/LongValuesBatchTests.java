@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LongValuesBatchTests extends ESTestCase {
+
+    public void testMultiValued() throws IOException {
+        final long[][] values = randomValues(false);
+        final SortedNumericDocValues source = new AbstractSortedNumericDocValues() {
+            int doc = -1;
+            int i;
+
+            @Override
+            public boolean advanceExact(int target) {
+                assertTrue(target >= doc);
+                doc = target;
+                i = 0;
+                return values[doc].length > 0;
+            }
+
+            @Override
+            public long nextValue() {
+                return values[doc][i++];
+            }
+
+            @Override
+            public int docValueCount() {
+                return values[doc].length;
+            }
+        };
+        assertBatches(source, values);
+    }
+
+    public void testSingleValued() throws IOException {
+        final long[][] values = randomValues(true);
+        final SortedNumericDocValues source = DocValues.singleton(new AbstractNumericDocValues() {
+            int doc = -1;
+
+            @Override
+            public boolean advanceExact(int target) {
+                assertTrue(target >= doc);
+                doc = target;
+                return values[doc].length > 0;
+            }
+
+            @Override
+            public long longValue() {
+                return values[doc][0];
+            }
+
+            @Override
+            public int docID() {
+                return doc;
+            }
+        });
+        assertBatches(source, values);
+    }
+
+    private static long[][] randomValues(boolean singleValued) {
+        final long[][] values = new long[randomIntBetween(1, 2000)][];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = new long[randomIntBetween(0, singleValued ? 1 : 5)];
+            for (int j = 0; j < values[i].length; ++j) {
+                values[i][j] = randomLong();
+            }
+            Arrays.sort(values[i]);
+        }
+        return values;
+    }
+
+    private static void assertBatches(SortedNumericDocValues source, long[][] values) throws IOException {
+        final LongValuesBatch batch = new LongValuesBatch();
+        final int[] docs = new int[values.length];
+        int doc = 0;
+        while (doc < values.length) {
+            int count = 0;
+            final int batchSize = randomIntBetween(1, 300);
+            for (; doc < values.length && count < batchSize; ++doc) {
+                if (randomBoolean()) {
+                    docs[count++] = doc;
+                }
+            }
+            batch.read(source, docs, count);
+            assertEquals(count, batch.numDocs());
+            int numValues = 0;
+            for (int i = 0; i < count; ++i) {
+                final long[] expected = values[docs[i]];
+                assertEquals(numValues, batch.offsets()[i]);
+                assertArrayEquals(expected, Arrays.copyOfRange(batch.values(), batch.offsets()[i], batch.offsets()[i + 1]));
+                numValues += expected.length;
+            }
+            assertEquals(numValues, batch.numValues());
+        }
+    }
+}
@@ -309,6 +309,36 @@ public class KeywordFieldMapperTests extends ESSingleNodeTestCase {
         }
     }
 
+    public void testBloomFilter() throws IOException {
+        String mapping = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "keyword").field("bloom_filter", true)
+                .field("bloom_filter_fpp", 0.001).endObject().endObject()
+                .endObject().endObject());
+
+        DocumentMapper mapper = parser.parse("type", new CompressedXContent(mapping));
+
+        assertEquals(mapping, mapper.mappingSource().toString());
+        KeywordFieldMapper.KeywordFieldType fieldType = ((KeywordFieldMapper) mapper.mappers().getMapper("field")).fieldType();
+        assertTrue(fieldType.bloomFilter());
+        assertEquals(0.001, fieldType.bloomFilterFpp(), 0d);
+
+        final String mapping2 = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "keyword").field("bloom_filter_fpp", 1)
+                .endObject().endObject()
+                .endObject().endObject());
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> parser.parse("type", new CompressedXContent(mapping2)));
+        assertEquals("[bloom_filter_fpp] must be greater than 0 and less than 1, got 1.0", e.getMessage());
+
+        final String mapping3 = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", "keyword").field("bloom_filter", true)
+                .field("index", false).endObject().endObject()
+                .endObject().endObject());
+        MapperParsingException e2 = expectThrows(MapperParsingException.class,
+                () -> parser.parse("type", new CompressedXContent(mapping3)));
+        assertEquals("[bloom_filter] requires the field [field] to be indexed", e2.getMessage());
+    }
+
     public void testBoost() throws IOException {
         String mapping = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
                 .startObject("properties").startObject("field").field("type", "keyword").field("boost", 2f).endObject().endObject()
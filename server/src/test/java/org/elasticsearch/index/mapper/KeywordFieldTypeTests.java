@@ -64,6 +64,19 @@ public class KeywordFieldTypeTests extends FieldTypeTestCase {
                 keywordType.setSplitQueriesOnWhitespace(!keywordType.splitQueriesOnWhitespace());
             }
         });
+        addModifier(new Modifier("bloom_filter", true) {
+            @Override
+            public void modify(MappedFieldType type) {
+                KeywordFieldType keywordType = (KeywordFieldType) type;
+                keywordType.setBloomFilter(!keywordType.bloomFilter());
+            }
+        });
+        addModifier(new Modifier("bloom_filter_fpp", true) {
+            @Override
+            public void modify(MappedFieldType type) {
+                ((KeywordFieldType) type).setBloomFilterFpp(0.5);
+            }
+        });
     }
 
     @Override
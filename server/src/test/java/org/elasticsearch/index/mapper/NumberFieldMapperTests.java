@@ -294,6 +294,24 @@ public class NumberFieldMapperTests extends AbstractNumericFieldMapperTestCase {
         }
     }
 
+    public void testSegmentStats() throws IOException {
+        for (String type : TYPES) {
+            String mapping = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", type).endObject().endObject()
+                .endObject().endObject());
+            DocumentMapper mapper = parser.parse("type", new CompressedXContent(mapping));
+            assertEquals(mapping, mapper.mappingSource().toString());
+            assertFalse(((NumberFieldMapper) mapper.mappers().getMapper("field")).fieldType().segmentStats());
+
+            mapping = Strings.toString(XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("field").field("type", type).field("segment_stats", true).endObject().endObject()
+                .endObject().endObject());
+            mapper = parser.parse("type", new CompressedXContent(mapping));
+            assertEquals(mapping, mapper.mappingSource().toString());
+            assertTrue(((NumberFieldMapper) mapper.mappers().getMapper("field")).fieldType().segmentStats());
+        }
+    }
+
     @Override
     protected void doTestNullValue(String type) throws IOException {
         String mapping = Strings.toString(XContentFactory.jsonBuilder().startObject()
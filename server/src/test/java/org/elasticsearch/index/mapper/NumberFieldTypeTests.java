@@ -65,6 +65,17 @@ public class NumberFieldTypeTests extends FieldTypeTestCase {
         type = RandomPicks.randomFrom(random(), NumberFieldMapper.NumberType.values());
     }
 
+    @Before
+    public void setupProperties() {
+        addModifier(new Modifier("segment_stats", true) {
+            @Override
+            public void modify(MappedFieldType type) {
+                NumberFieldType numberType = (NumberFieldType) type;
+                numberType.setSegmentStats(numberType.segmentStats() == false);
+            }
+        });
+    }
+
     @Override
     protected MappedFieldType createDefaultFieldType() {
         return new NumberFieldMapper.NumberFieldType(type);
@@ -65,6 +65,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
@@ -77,6 +78,7 @@ import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.CommitStats;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.EngineException;
@@ -1734,6 +1736,73 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(newShard);
     }
 
+    public void testConcurrentRecoverFromStore() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexSettings.INDEX_TRANSLOG_RECOVERY_THREADS_SETTING.getKey(), randomIntBetween(2, 8))
+            .build();
+        final IndexShard shard = newStartedShard(true, settings, new InternalEngineFactory());
+        final Set<String> liveDocs = new HashSet<>();
+        final int totalOps = randomIntBetween(1, 500);
+        for (int i = 0; i < totalOps; i++) {
+            final String id = Integer.toString(randomInt(50));
+            if (randomBoolean()) {
+                deleteDoc(shard, "_doc", id);
+                liveDocs.remove(id);
+            } else {
+                indexDoc(shard, "_doc", id);
+                liveDocs.add(id);
+            }
+            if (rarely()) {
+                shard.getEngine().rollTranslogGeneration();
+            }
+        }
+        IndexShard newShard = reinitShard(shard);
+        DiscoveryNode localNode = new DiscoveryNode("foo", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT);
+        newShard.markAsRecovering("store", new RecoveryState(newShard.routingEntry(), localNode, null));
+        assertTrue(newShard.recoverFromStore());
+        assertEquals(totalOps, newShard.recoveryState().getTranslog().recoveredOperations());
+        assertEquals(100.0f, newShard.recoveryState().getTranslog().recoveredPercent(), 0.01f);
+        IndexShardTestCase.updateRoutingEntry(newShard, newShard.routingEntry().moveToStarted());
+        assertThat(newShard.getLocalCheckpoint(), equalTo(totalOps - 1L));
+        assertThat(getShardDocUIDs(newShard), equalTo(liveDocs));
+        closeShards(newShard);
+    }
+
+    public void testPreParseIndexOperationOnPrimary() throws IOException {
+        final IndexShard shard = newStartedShard(true);
+        indexDoc(shard, "_doc", "0", "{\"foo\":\"bar\"}");
+
+        // the type does not exist yet
+        assertNull(shard.preParseIndexOperationOnPrimary(
+            SourceToParse.source(shard.shardId().getIndexName(), "other", "1", new BytesArray("{}"), XContentType.JSON)));
+        // the document needs a mapping update
+        assertNull(shard.preParseIndexOperationOnPrimary(
+            SourceToParse.source(shard.shardId().getIndexName(), "_doc", "1", new BytesArray("{\"baz\":1}"), XContentType.JSON)));
+        // the document cannot be parsed
+        assertNull(shard.preParseIndexOperationOnPrimary(
+            SourceToParse.source(shard.shardId().getIndexName(), "_doc", "1", new BytesArray("{\"foo\":"), XContentType.JSON)));
+
+        final SourceToParse source =
+            SourceToParse.source(shard.shardId().getIndexName(), "_doc", "1", new BytesArray("{\"foo\":\"baz\"}"), XContentType.JSON);
+        IndexShard.PreParsedDocument preParsed = shard.preParseIndexOperationOnPrimary(source);
+        assertNotNull(preParsed);
+        Engine.IndexResult result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL, source,
+            IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false, preParsed);
+        assertThat(result.getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+        assertThat(result.getVersion(), equalTo(1L));
+
+        // a document parsed with a stale mapping is parsed again
+        preParsed = shard.preParseIndexOperationOnPrimary(source);
+        assertNotNull(preParsed);
+        indexDoc(shard, "_doc", "2", "{\"baz\":1}");
+        result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL, source,
+            IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false, preParsed);
+        assertThat(result.getResultType(), equalTo(Engine.Result.Type.SUCCESS));
+        assertThat(result.getVersion(), equalTo(2L));
+        assertThat(getShardDocUIDs(shard), equalTo(new HashSet<>(Arrays.asList("0", "1", "2"))));
+        closeShards(shard);
+    }
+
     public void testRecoverFromStalePrimaryForceNewHistoryUUID() throws IOException {
         final IndexShard shard = newStartedShard(true);
         int totalOps = randomInt(10);
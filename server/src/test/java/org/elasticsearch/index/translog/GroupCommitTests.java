@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class GroupCommitTests extends ESTestCase {
+
+    public void testDoesNotWaitWithoutConcurrentOperations() {
+        final GroupCommit groupCommit = new GroupCommit();
+        assertThat(groupCommit.lingerNanos(1_000_000), equalTo(0L));
+        // every operation was synced on its own
+        for (int i = 1; i <= 10; i++) {
+            groupCommit.onSync(1, i, i, 100_000, 0);
+            assertThat(groupCommit.lingerNanos(1_000_000), equalTo(0L));
+        }
+        assertThat(groupCommit.syncCount(), equalTo(10L));
+        assertThat(groupCommit.syncedOperations(), equalTo(10L));
+        assertThat(groupCommit.syncTimeInNanos(), equalTo(1_000_000L));
+    }
+
+    public void testWaitsWithConcurrentOperations() {
+        final GroupCommit groupCommit = new GroupCommit();
+        // 5 operations were added while the sync was running
+        groupCommit.onSync(1, 10, 15, 400_000, 0);
+        assertThat(groupCommit.lingerNanos(1_000_000), equalTo(200_000L));
+        // bounded by the maximum
+        assertThat(groupCommit.lingerNanos(50_000), equalTo(50_000L));
+        // disabled
+        assertThat(groupCommit.lingerNanos(0), equalTo(0L));
+    }
+
+    public void testStopsWaitingWhenItDoesNotPayOff() {
+        final GroupCommit groupCommit = new GroupCommit();
+        groupCommit.onSync(1, 10, 15, 400_000, 0);
+        assertThat(groupCommit.lingerNanos(1_000_000), greaterThan(0L));
+        int synced = 15;
+        int iterations = 0;
+        while (groupCommit.lingerNanos(1_000_000) > 0) {
+            groupCommit.onWait(200_000);
+            synced++;
+            groupCommit.onSync(1, synced, synced, 400_000, 0);
+            iterations++;
+            assertTrue("should stop waiting eventually", iterations < 100);
+        }
+        assertThat(groupCommit.syncWaitTimeInNanos(), equalTo(200_000L * iterations));
+    }
+
+    public void testSyncedOperationsAcrossGenerations() {
+        final GroupCommit groupCommit = new GroupCommit();
+        groupCommit.onSync(1, 3, 3, 1, 0);
+        groupCommit.onSync(1, 7, 7, 1, 0);
+        groupCommit.onSync(2, 2, 2, 1, 0);
+        groupCommit.onSync(2, 5, 5, 1, 0);
+        assertThat(groupCommit.syncCount(), equalTo(4L));
+        assertThat(groupCommit.syncedOperations(), equalTo(12L));
+    }
+}
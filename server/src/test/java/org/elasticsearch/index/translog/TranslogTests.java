@@ -47,6 +47,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.ByteBufferCleaner;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
@@ -78,6 +79,8 @@ import org.junit.Before;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
@@ -231,6 +234,7 @@ public class TranslogTests extends ESTestCase {
             // only randomize between nog age retention and a long one, so failures will have a chance of reproducing
             .put(IndexSettings.INDEX_TRANSLOG_RETENTION_AGE_SETTING.getKey(), randomBoolean() ? "-1ms" : "1h")
             .put(IndexSettings.INDEX_TRANSLOG_RETENTION_SIZE_SETTING.getKey(), randomIntBetween(-1, 2048) + "b")
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_SETTING.getKey(), randomBoolean())
             .build();
         return getTranslogConfig(path, settings);
     }
@@ -483,7 +487,10 @@ public class TranslogTests extends ESTestCase {
                 builder.endObject();
                 assertThat(Strings.toString(builder), equalTo("{\"translog\":{\"operations\":4,\"size_in_bytes\":" + expectedSizeInBytes
                     + ",\"uncommitted_operations\":4,\"uncommitted_size_in_bytes\":" + expectedSizeInBytes
-                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + "}}"));
+                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge()
+                    + ",\"sync_count\":" + stats.getSyncCount() + ",\"synced_operations\":" + stats.getSyncedOperations()
+                    + ",\"sync_time_in_millis\":" + stats.getSyncTimeInMillis()
+                    + ",\"sync_wait_time_in_millis\":" + stats.getSyncWaitTimeInMillis() + "}}"));
             }
         }
 
@@ -498,6 +505,75 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testSyncStats() throws IOException {
+        assertThat(translog.stats().getSyncCount(), equalTo(0L));
+        int syncs = 0;
+        int operations = 0;
+        final int iterations = randomIntBetween(1, 10);
+        for (int i = 0; i < iterations; i++) {
+            Translog.Location location = null;
+            final int numOps = randomIntBetween(1, 10);
+            for (int j = 0; j < numOps; j++) {
+                location = translog.add(new Translog.Index("test", Integer.toString(operations), operations, primaryTerm.get(),
+                    new byte[]{1}));
+                operations++;
+            }
+            if (randomBoolean()) {
+                assertTrue(translog.ensureSynced(location));
+                assertFalse(translog.ensureSynced(location));
+            } else {
+                translog.sync();
+            }
+            syncs++;
+            final TranslogStats stats = translog.stats();
+            assertThat(stats.getSyncCount(), equalTo((long) syncs));
+            assertThat(stats.getSyncedOperations(), equalTo((long) operations));
+            assertThat(stats.getSyncWaitTimeInMillis(), equalTo(0L));
+        }
+    }
+
+    public void testGroupCommitWithConcurrentRolls() throws Exception {
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_GROUP_COMMIT_MAX_LINGER_SETTING.getKey(), "100ms")
+            .build();
+        final Path path = createTempDir();
+        try (Translog groupCommitTranslog = createTranslog(getTranslogConfig(path, settings))) {
+            final Thread[] writers = new Thread[randomIntBetween(2, 4)];
+            final int opsPerWriter = randomIntBetween(20, 50);
+            final CyclicBarrier barrier = new CyclicBarrier(writers.length + 1);
+            final AtomicInteger idGenerator = new AtomicInteger();
+            final List<Exception> failures = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        for (int op = 0; op < opsPerWriter; op++) {
+                            final int id = idGenerator.getAndIncrement();
+                            final Translog.Location location = groupCommitTranslog.add(
+                                new Translog.Index("test", Integer.toString(id), id, primaryTerm.get(), new byte[]{1}));
+                            groupCommitTranslog.ensureSynced(location);
+                            assertFalse(groupCommitTranslog.ensureSynced(location));
+                        }
+                    } catch (Exception e) {
+                        failures.add(e);
+                    }
+                });
+                writers[i].start();
+            }
+            barrier.await();
+            // rolling needs the write lock, lingering syncs must not hold the read lock and block it
+            while (Arrays.stream(writers).anyMatch(Thread::isAlive)) {
+                groupCommitTranslog.rollGeneration();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertThat(failures, empty());
+            assertThat(groupCommitTranslog.totalOperations(), equalTo(writers.length * opsPerWriter));
+        }
+    }
+
     public void testUncommittedOperations() throws Exception {
         final TranslogDeletionPolicy deletionPolicy = translog.getDeletionPolicy();
         deletionPolicy.setRetentionAgeInMillis(randomLong());
@@ -551,6 +627,17 @@ public class TranslogTests extends ESTestCase {
             equalTo(1L));
     }
 
+    public void testNegativeSyncStats() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new TranslogStats(1, 1, 1, 1, 1, -1, 1, 1, 1));
+        assertThat(e, hasToString(containsString("syncCount must be >= 0")));
+        e = expectThrows(IllegalArgumentException.class, () -> new TranslogStats(1, 1, 1, 1, 1, 1, -1, 1, 1));
+        assertThat(e, hasToString(containsString("syncedOperations must be >= 0")));
+        e = expectThrows(IllegalArgumentException.class, () -> new TranslogStats(1, 1, 1, 1, 1, 1, 1, -1, 1));
+        assertThat(e, hasToString(containsString("syncTimeInMillis must be >= 0")));
+        e = expectThrows(IllegalArgumentException.class, () -> new TranslogStats(1, 1, 1, 1, 1, 1, 1, 1, -1));
+        assertThat(e, hasToString(containsString("syncWaitTimeInMillis must be >= 0")));
+    }
+
     public void testNegativeNumberOfOperations() {
         IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new TranslogStats(-1, 1, 1, 1, 1));
         assertThat(e, hasToString(containsString("numberOfOperations must be >= 0")));
@@ -593,6 +680,69 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testMappedSnapshot() throws IOException {
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_SETTING.getKey(), true)
+            .build();
+        final Path path = createTempDir();
+        final TranslogConfig config = getTranslogConfig(path, settings);
+        assertTrue(config.getIndexSettings().isTranslogMmap());
+        final String translogUUID = Translog.createEmptyTranslog(path, SequenceNumbers.NO_OPS_PERFORMED, shardId, primaryTerm.get());
+        final List<Translog.Operation> ops = new ArrayList<>();
+        try (Translog mappedTranslog = new Translog(config, translogUUID, createTranslogDeletionPolicy(config.getIndexSettings()),
+            () -> SequenceNumbers.NO_OPS_PERFORMED, primaryTerm::get)) {
+            final int numOps = randomIntBetween(1, 200);
+            for (int i = 0; i < numOps; i++) {
+                final Translog.Operation op;
+                switch (randomInt(2)) {
+                    case 0:
+                        op = new Translog.Index("test", Integer.toString(i), i, primaryTerm.get(),
+                            randomByteArrayOfLength(randomIntBetween(1, 2048)));
+                        break;
+                    case 1:
+                        op = new Translog.Delete("test", Integer.toString(i), i, primaryTerm.get(), newUid(Integer.toString(i)));
+                        break;
+                    default:
+                        op = new Translog.NoOp(i, primaryTerm.get(), "test");
+                        break;
+                }
+                addToTranslogAndList(mappedTranslog, ops, op);
+                if (rarely()) {
+                    mappedTranslog.rollGeneration();
+                }
+            }
+            try (Translog.Snapshot snapshot = mappedTranslog.newSnapshot()) {
+                assertThat(snapshot, containsOperationsInAnyOrder(ops));
+                assertThat(snapshot.totalOperations(), equalTo(ops.size()));
+            }
+        }
+    }
+
+    public void testMappedSnapshotIsUnmappedOnClose() throws IOException {
+        assumeTrue("mappings can't be unmapped explicitly on this JVM", ByteBufferCleaner.isSupported());
+        final BufferPoolMXBean mappedPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> "mapped".equals(pool.getName())).findFirst().get();
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_MMAP_SETTING.getKey(), true)
+            .build();
+        try (Translog mappedTranslog = createTranslog(getTranslogConfig(createTempDir(), settings))) {
+            final int numOps = randomIntBetween(1, 100);
+            for (int i = 0; i < numOps; i++) {
+                mappedTranslog.add(new Translog.Index("test", Integer.toString(i), i, primaryTerm.get(), new byte[]{1}));
+            }
+            mappedTranslog.rollGeneration();
+            final long mappedBytesBefore = mappedPool.getTotalCapacity();
+            final Translog.Snapshot snapshot = mappedTranslog.newSnapshot();
+            assertThat(mappedPool.getTotalCapacity(), greaterThan(mappedBytesBefore));
+            assertNotNull(snapshot.next());
+            snapshot.close();
+            assertThat(mappedPool.getTotalCapacity(), lessThanOrEqualTo(mappedBytesBefore));
+            expectThrows(AlreadyClosedException.class, snapshot::next);
+        }
+    }
+
     public void testReadLocation() throws IOException {
         ArrayList<Translog.Operation> ops = new ArrayList<>();
         ArrayList<Translog.Location> locs = new ArrayList<>();
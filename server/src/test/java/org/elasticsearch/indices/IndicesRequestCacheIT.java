@@ -31,6 +31,7 @@ import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
 import org.elasticsearch.test.junit.annotations.TestLogging;
@@ -49,6 +50,7 @@ import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcke
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
 
 @TestLogging(value = "org.elasticsearch.indices.IndicesRequestCache:TRACE")
 public class IndicesRequestCacheIT extends ESIntegTestCase {
@@ -414,6 +416,53 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         assertCacheState(client, "index", 2, 2);
     }
 
+    public void testCacheHits() throws Exception {
+        Client client = client();
+        Settings settings = Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0).build();
+        assertAcked(client.admin().indices().prepareCreate("index").addMapping("type", "s", "type=long")
+            .setSettings(settings).get());
+        indexRandom(true, client.prepareIndex("index", "type", "1").setSource("s", 1),
+            client.prepareIndex("index", "type", "2").setSource("s", 2),
+            client.prepareIndex("index", "type", "3").setSource("s", 3));
+        ensureSearchable("index");
+        // Force merge the index to ensure there can be no background merges during the subsequent searches that would invalidate the cache
+        ForceMergeResponse forceMergeResponse = client.admin().indices().prepareForceMerge("index").setFlush(true).get();
+        ElasticsearchAssertions.assertAllSuccessful(forceMergeResponse);
+        refresh();
+        ensureSearchable("index");
+        assertCacheState(client, "index", 0, 0);
+
+        // requests with hits are not cached by default
+        SearchResponse r = client.prepareSearch("index").setSize(2).addSort("s", SortOrder.DESC).get();
+        assertSearchResponse(r);
+        assertCacheState(client, "index", 0, 0);
+
+        assertAcked(client.admin().indices().prepareUpdateSettings("index")
+            .setSettings(Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_HITS_ENABLED_SETTING.getKey(), true)));
+        r = client.prepareSearch("index").setSize(2).addSort("s", SortOrder.DESC).get();
+        assertSearchResponse(r);
+        assertCacheState(client, "index", 0, 1);
+        assertThat(r.getHits().getHits().length, equalTo(2));
+        assertThat(r.getHits().getAt(0).getId(), equalTo("3"));
+        assertThat(r.getHits().getAt(1).getId(), equalTo("2"));
+
+        // the fetch options are not part of the cache key
+        r = client.prepareSearch("index").setSize(2).addSort("s", SortOrder.DESC).setFetchSource(false).setVersion(true).get();
+        assertSearchResponse(r);
+        assertCacheState(client, "index", 1, 1);
+        assertThat(r.getHits().getHits().length, equalTo(2));
+        assertThat(r.getHits().getAt(0).getId(), equalTo("3"));
+        assertThat(r.getHits().getAt(0).getSourceAsMap(), nullValue());
+        assertThat(r.getHits().getAt(0).getVersion(), equalTo(1L));
+        assertThat(r.getHits().getAt(1).getId(), equalTo("2"));
+
+        // but the requested hits are
+        r = client.prepareSearch("index").setSize(1).addSort("s", SortOrder.DESC).get();
+        assertSearchResponse(r);
+        assertCacheState(client, "index", 1, 2);
+    }
+
     private static void assertCacheState(Client client, String index, long expectedHits, long expectedMisses) {
         RequestCacheStats requestCacheStats = client.admin().indices().prepareStats(index).setRequestCache(true).get().getTotal()
                 .getRequestCache();
@@ -37,6 +37,7 @@ import org.junit.Before;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
@@ -71,6 +72,16 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
     }
 
+    public void testResponseTimeUpperBound() {
+        assertFalse(collector.getResponseTimeUpperBound("node1", 2).isPresent());
+        collector.addNodeStatistics("node1", 1, 100, 10);
+        assertThat(collector.getResponseTimeUpperBound("node1", 2).getAsDouble(), equalTo(100.0));
+        collector.addNodeStatistics("node1", 1, 200, 10);
+        // the average moves to 130 and the variance to 0.3 * 100^2
+        assertThat(collector.getResponseTimeUpperBound("node1", 0).getAsDouble(), closeTo(130.0, 0.001));
+        assertThat(collector.getResponseTimeUpperBound("node1", 2).getAsDouble(), closeTo(130.0 + 2 * Math.sqrt(3000), 0.001));
+    }
+
     /*
      * Test that concurrently adding values and removing nodes does not cause exceptions
      */
@@ -30,6 +30,9 @@ import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -41,11 +44,13 @@ import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.MatchNoneQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.query.TermQueryBuilder;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
@@ -91,6 +96,7 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.Matchers.empty;
 
 public class SearchServiceTests extends ESSingleNodeTestCase {
 
@@ -502,6 +508,115 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
 
     }
 
+    public void testCanMatchReportsFieldRangesOfReadOnlyIndices() throws Exception {
+        createIndex("index", Settings.EMPTY, "_doc", "timestamp", "type=date");
+        client().prepareIndex("index", "_doc", "1").setSource("timestamp", 1514764800000L).setRefreshPolicy(IMMEDIATE).get();
+        client().prepareIndex("index", "_doc", "2").setSource("timestamp", 1514937600000L).setRefreshPolicy(IMMEDIATE).get();
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        final IndexShard indexShard = indicesService.indexServiceSafe(resolveIndex("index")).getShard(0);
+        final ShardSearchLocalRequest request = new ShardSearchLocalRequest(indexShard.shardId(), 1, SearchType.QUERY_THEN_FETCH,
+            new SearchSourceBuilder().query(new BoolQueryBuilder().filter(new RangeQueryBuilder("timestamp").gte(1514851200000L))),
+            Strings.EMPTY_ARRAY, false, new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, true, null, null);
+
+        // the index accepts writes so its ranges might change at any time
+        SearchService.CanMatchResponse response = service.executeCanMatch(request);
+        assertTrue(response.canMatch());
+        assertEquals(-1, response.getFieldRangesVersion());
+        assertThat(response.getFieldRanges(), empty());
+
+        client().admin().indices().prepareUpdateSettings("index")
+            .setSettings(Settings.builder().put(IndexMetaData.SETTING_BLOCKS_WRITE, true)).get();
+        try {
+            final long indexMetaDataVersion = getInstanceFromNode(ClusterService.class).state().metaData().index("index").getVersion();
+            assertBusy(() -> {
+                SearchService.CanMatchResponse readOnlyResponse = service.executeCanMatch(request);
+                assertTrue(readOnlyResponse.canMatch());
+                assertEquals(indexMetaDataVersion, readOnlyResponse.getFieldRangesVersion());
+                assertEquals(1, readOnlyResponse.getFieldRanges().size());
+                ShardFieldRange range = readOnlyResponse.getFieldRanges().get(0);
+                assertEquals("timestamp", range.field());
+                assertEquals(1514764800000L, range.min());
+                assertEquals(1514937600000L, range.max());
+            });
+
+            // a global block can be removed without changing the metadata version of the index
+            client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().put(MetaData.SETTING_READ_ONLY_SETTING.getKey(), true)).get();
+            try {
+                SearchService.CanMatchResponse globallyBlockedResponse = service.executeCanMatch(request);
+                assertTrue(globallyBlockedResponse.canMatch());
+                assertEquals(-1, globallyBlockedResponse.getFieldRangesVersion());
+                assertThat(globallyBlockedResponse.getFieldRanges(), empty());
+            } finally {
+                client().admin().cluster().prepareUpdateSettings()
+                    .setTransientSettings(Settings.builder().putNull(MetaData.SETTING_READ_ONLY_SETTING.getKey())).get();
+            }
+        } finally {
+            client().admin().indices().prepareUpdateSettings("index")
+                .setSettings(Settings.builder().put(IndexMetaData.SETTING_BLOCKS_WRITE, false)).get();
+        }
+
+        // only the global block is left, which does not make the ranges of the index cacheable
+        client().admin().cluster().prepareUpdateSettings()
+            .setTransientSettings(Settings.builder().put(MetaData.SETTING_READ_ONLY_SETTING.getKey(), true)).get();
+        try {
+            SearchService.CanMatchResponse globallyBlockedResponse = service.executeCanMatch(request);
+            assertEquals(-1, globallyBlockedResponse.getFieldRangesVersion());
+            assertThat(globallyBlockedResponse.getFieldRanges(), empty());
+        } finally {
+            client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().putNull(MetaData.SETTING_READ_ONLY_SETTING.getKey())).get();
+        }
+    }
+
+    public void testReaderContext() throws IOException {
+        createIndex("index");
+        client().prepareIndex("index", "type", "1").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        final IndexShard indexShard = indicesService.indexServiceSafe(resolveIndex("index")).getShard(0);
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> service.openReaderContext(indexShard.shardId(), TimeValue.timeValueHours(25)));
+        assertThat(e.getMessage(), startsWith("Keep alive for point in time reader (1d) is too large."));
+
+        final long readerId = service.openReaderContext(indexShard.shardId(), TimeValue.timeValueMinutes(1));
+        assertEquals(1, service.getActiveReaderContexts());
+        assertEquals(1, indexShard.searchStats().getTotal().getReaderContextCurrent());
+        client().prepareIndex("index", "type", "2").setSource("field", "value").setRefreshPolicy(IMMEDIATE).get();
+
+        final ShardSearchLocalRequest request = new ShardSearchLocalRequest(indexShard.shardId(), 1, SearchType.QUERY_THEN_FETCH,
+            new SearchSourceBuilder(), Strings.EMPTY_ARRAY, false, new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, true, null, null);
+        SearchContext context = service.createContext(request);
+        try {
+            assertEquals(2, context.searcher().getIndexReader().numDocs());
+        } finally {
+            context.close();
+        }
+        // searches on the reader context don't see changes made after it was opened
+        request.readerId(readerId);
+        context = service.createContext(request);
+        try {
+            assertEquals(1, context.searcher().getIndexReader().numDocs());
+            assertTrue(service.freeReaderContext(readerId));
+            // the search that is still running keeps the reader open
+            assertEquals(1, context.searcher().getIndexReader().numDocs());
+        } finally {
+            context.close();
+        }
+        assertFalse(service.freeReaderContext(readerId));
+        assertEquals(0, service.getActiveReaderContexts());
+        assertEquals(0, indexShard.searchStats().getTotal().getReaderContextCurrent());
+        assertEquals(1, indexShard.searchStats().getTotal().getReaderContextCount());
+        expectThrows(SearchContextMissingException.class, () -> service.createContext(request));
+
+        service.openReaderContext(indexShard.shardId(), TimeValue.timeValueMinutes(1));
+        assertEquals(1, service.getActiveReaderContexts());
+        assertAcked(client().admin().indices().prepareDelete("index"));
+        assertEquals(0, service.getActiveReaderContexts());
+    }
+
     public void testCanRewriteToMatchNone() {
         assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
             .aggregation(new GlobalAggregationBuilder("test"))));
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ShardFieldRangeTests extends ESTestCase {
+
+    private static final long NOW = 1_000_000;
+
+    public void testIsDisjoint() {
+        ShardFieldRange range = new ShardFieldRange("field", "epoch_millis", "", 1000, 2000);
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field"), () -> NOW));
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").gte(1500), () -> NOW));
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").gte(2000), () -> NOW));
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field").gt(2000), () -> NOW));
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").lte(1000), () -> NOW));
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field").lt(1000), () -> NOW));
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field").gte(2500).lte(3000), () -> NOW));
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").gte(0).lte(3000), () -> NOW));
+
+        // bounds are resolved against the start time of the search
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field").gte("now-1s"), () -> NOW));
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").gte("now-1s"), () -> 2500));
+
+        // the format of the query takes precedence
+        ShardFieldRange dateRange = new ShardFieldRange("field", "strict_date_optional_time||epoch_millis", "",
+            1514764800000L, 1514851199999L); // 2018-01-01
+        assertFalse(dateRange.isDisjoint(new RangeQueryBuilder("field").gte("2018-01-01").lte("2018-01-01"), () -> NOW));
+        assertTrue(dateRange.isDisjoint(new RangeQueryBuilder("field").gte("2018-01-02"), () -> NOW));
+        assertTrue(dateRange.isDisjoint(new RangeQueryBuilder("field").gte("02/01/2018").format("dd/MM/yyyy"), () -> NOW));
+        assertFalse(dateRange.isDisjoint(new RangeQueryBuilder("field").gte("01/01/2018").format("dd/MM/yyyy"), () -> NOW));
+        assertFalse(dateRange.isDisjoint(new RangeQueryBuilder("field").gte("2018-01-01T01:00:00").timeZone("+02:00"), () -> NOW));
+        assertTrue(dateRange.isDisjoint(new RangeQueryBuilder("field").lt("2018-01-01T01:00:00").timeZone("+02:00"), () -> NOW));
+
+        // bounds that cannot be parsed are left to the shard to report
+        assertFalse(range.isDisjoint(new RangeQueryBuilder("field").gte("not a date"), () -> NOW));
+    }
+
+    public void testIsDisjointWithoutValues() {
+        ShardFieldRange range = new ShardFieldRange("field", "epoch_millis", "", Long.MAX_VALUE, Long.MIN_VALUE);
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field"), () -> NOW));
+        assertTrue(range.isDisjoint(new RangeQueryBuilder("field").gte(0), () -> NOW));
+    }
+
+    public void testRequiredRanges() {
+        RangeQueryBuilder first = new RangeQueryBuilder("first").gte(0);
+        RangeQueryBuilder second = new RangeQueryBuilder("second").lte(0);
+        assertEquals(Collections.emptyList(), ShardFieldRange.requiredRanges(null));
+        assertEquals(Collections.emptyList(), ShardFieldRange.requiredRanges(new TermQueryBuilder("field", "value")));
+        assertEquals(Collections.singletonList(first), ShardFieldRange.requiredRanges(first));
+        assertEquals(Collections.singletonList(first), ShardFieldRange.requiredRanges(new ConstantScoreQueryBuilder(first)));
+        assertEquals(Arrays.asList(first, second), ShardFieldRange.requiredRanges(new BoolQueryBuilder()
+            .must(first).filter(new BoolQueryBuilder().filter(second)).should(new RangeQueryBuilder("should").gte(0))
+            .mustNot(new RangeQueryBuilder("must_not").gte(0))));
+    }
+
+    public void testSerialization() throws IOException {
+        ShardFieldRange range = new ShardFieldRange(randomAlphaOfLength(5), "epoch_millis", "", randomLong(), randomLong());
+        ShardFieldRange copy = copyWriteable(range, writableRegistry(), ShardFieldRange::new);
+        assertEquals(range.field(), copy.field());
+        assertEquals(range.min(), copy.min());
+        assertEquals(range.max(), copy.max());
+    }
+}
@@ -61,6 +61,9 @@ import org.elasticsearch.search.aggregations.metrics.InternalStatsTests;
 import org.elasticsearch.search.aggregations.metrics.InternalSumTests;
 import org.elasticsearch.search.aggregations.metrics.InternalAvgTests;
 import org.elasticsearch.search.aggregations.metrics.InternalCardinalityTests;
+import org.elasticsearch.search.aggregations.metrics.InternalDDSketchPercentilesRanksTests;
+import org.elasticsearch.search.aggregations.metrics.InternalDDSketchPercentilesTests;
+import org.elasticsearch.search.aggregations.metrics.InternalExactCardinalityTests;
 import org.elasticsearch.search.aggregations.metrics.InternalGeoBoundsTests;
 import org.elasticsearch.search.aggregations.metrics.InternalGeoCentroidTests;
 import org.elasticsearch.search.aggregations.metrics.InternalHDRPercentilesRanksTests;
@@ -105,10 +108,13 @@ public class AggregationsTests extends ESTestCase {
     private static List<InternalAggregationTestCase<?>> getAggsTests() {
         List<InternalAggregationTestCase<?>> aggsTests = new ArrayList<>();
         aggsTests.add(new InternalCardinalityTests());
+        aggsTests.add(new InternalExactCardinalityTests());
         aggsTests.add(new InternalTDigestPercentilesTests());
         aggsTests.add(new InternalTDigestPercentilesRanksTests());
         aggsTests.add(new InternalHDRPercentilesTests());
         aggsTests.add(new InternalHDRPercentilesRanksTests());
+        aggsTests.add(new InternalDDSketchPercentilesTests());
+        aggsTests.add(new InternalDDSketchPercentilesRanksTests());
         aggsTests.add(new InternalPercentilesBucketTests());
         aggsTests.add(new InternalMinTests());
         aggsTests.add(new InternalMaxTests());
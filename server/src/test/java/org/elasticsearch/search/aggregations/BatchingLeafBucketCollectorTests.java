@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchingLeafBucketCollectorTests extends ESTestCase {
+
+    public void testBuffersDocsOfTheSameBucket() throws IOException {
+        final List<long[]> batches = new ArrayList<>();
+        final List<long[]> collected = new ArrayList<>();
+        final LeafBucketCollector in = new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) {
+                fail("docs should be collected in batches");
+            }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) {
+                assertTrue(count > 0);
+                assertTrue(count <= BatchingLeafBucketCollector.BATCH_SIZE);
+                batches.add(new long[] { count, bucket });
+                for (int i = 0; i < count; ++i) {
+                    collected.add(new long[] { docs[i], bucket });
+                }
+            }
+        };
+        final BatchingLeafBucketCollector collector =
+            new BatchingLeafBucketCollector(in, new int[BatchingLeafBucketCollector.BATCH_SIZE]);
+
+        final List<long[]> expected = new ArrayList<>();
+        final int numDocs = randomIntBetween(1, 5000);
+        long bucket = 0;
+        for (int doc = 0; doc < numDocs; ++doc) {
+            if (rarely()) {
+                bucket = randomIntBetween(0, 3);
+            }
+            collector.collect(doc, bucket);
+            expected.add(new long[] { doc, bucket });
+        }
+        collector.flush();
+        // flushing twice is a no-op
+        collector.flush();
+
+        assertEquals(expected.size(), collected.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertArrayEquals(expected.get(i), collected.get(i));
+        }
+        // consecutive batches only have the same bucket if the first one was full
+        for (int i = 1; i < batches.size(); ++i) {
+            if (batches.get(i)[1] == batches.get(i - 1)[1]) {
+                assertEquals(BatchingLeafBucketCollector.BATCH_SIZE, batches.get(i - 1)[0]);
+            }
+        }
+    }
+
+    public void testBatchesAreForwardedAfterBufferedDocs() throws IOException {
+        final List<Integer> collected = new ArrayList<>();
+        final LeafBucketCollector in = new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long bucket) {
+                collected.add(doc);
+            }
+        };
+        final BatchingLeafBucketCollector collector = new BatchingLeafBucketCollector(in, new int[4]);
+        collector.collect(0, 0);
+        collector.collect(1, 0);
+        collector.collect(new int[] { 2, 3, 4 }, 3, 0);
+        assertEquals(List.of(0, 1, 2, 3, 4), collected);
+        collector.flush();
+        assertEquals(List.of(0, 1, 2, 3, 4), collected);
+    }
+}
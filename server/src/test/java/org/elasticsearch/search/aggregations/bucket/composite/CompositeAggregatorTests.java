@@ -36,6 +36,10 @@ import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -50,6 +54,7 @@ import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.query.QueryShardException;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
@@ -65,20 +70,24 @@ import org.junit.Before;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static org.elasticsearch.test.InternalAggregationTestCase.DEFAULT_MAX_BUCKETS;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
@@ -1637,6 +1646,131 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         assertEquals(expected, seen);
     }
 
+    public void testWithIndexSort() throws IOException {
+        final boolean reverseKeyword = randomBoolean();
+        final boolean reverseLong = randomBoolean();
+        final SortedSetSortField keywordSort = new SortedSetSortField("keyword", reverseKeyword);
+        keywordSort.setMissingValue(randomFrom(SortField.STRING_FIRST, SortField.STRING_LAST));
+        final SortedNumericSortField longSort = new SortedNumericSortField("long", SortField.Type.LONG, reverseLong);
+        longSort.setMissingValue(randomFrom(Long.MIN_VALUE, Long.MAX_VALUE));
+        final Sort indexSort = randomBoolean() ? new Sort(keywordSort, longSort) : new Sort(keywordSort);
+        // the composite sources don't always match the index sort
+        final SortOrder keywordOrder = randomBoolean() ? (reverseKeyword ? SortOrder.DESC : SortOrder.ASC) : randomFrom(SortOrder.values());
+        final SortOrder longOrder = randomBoolean() ? (reverseLong ? SortOrder.DESC : SortOrder.ASC) : randomFrom(SortOrder.values());
+        final Comparator<Map.Entry<String, Long>> keyComparator = (a, b) -> {
+            int cmp = a.getKey().compareTo(b.getKey()) * (keywordOrder == SortOrder.ASC ? 1 : -1);
+            return cmp != 0 ? cmp : a.getValue().compareTo(b.getValue()) * (longOrder == SortOrder.ASC ? 1 : -1);
+        };
+        final Map<Map.Entry<String, Long>, Long> expectedDocCounts = new TreeMap<>(keyComparator);
+        // a range query disables the optimization that visits the terms or points of the leading source in order
+        final boolean useRangeQuery = randomBoolean();
+        final Query query = useRangeQuery ? LongPoint.newRangeQuery("long", -5, 5) : new MatchAllDocsQuery();
+
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory,
+                    newIndexWriterConfig().setIndexSort(indexSort))) {
+                int numDocs = randomIntBetween(50, 500);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    String keyword = rarely() ? null : randomAlphaOfLength(2);
+                    Long value = rarely() ? null : (long) randomIntBetween(-10, 10);
+                    if (keyword != null) {
+                        document.add(new SortedSetDocValuesField("keyword", new BytesRef(keyword)));
+                        document.add(new StringField("keyword", new BytesRef(keyword), Field.Store.NO));
+                    }
+                    if (value != null) {
+                        document.add(new SortedNumericDocValuesField("long", value));
+                        document.add(new LongPoint("long", value));
+                    }
+                    if (keyword != null && value != null && (useRangeQuery == false || Math.abs(value) <= 5)) {
+                        expectedDocCounts.merge(new AbstractMap.SimpleEntry<>(keyword, value), 1L, Long::sum);
+                    }
+                    indexWriter.addDocument(document);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                int size = randomIntBetween(1, 20);
+                List<Map.Entry<String, Long>> seen = new ArrayList<>();
+                Map<String, Object> afterKey = null;
+                while (true) {
+                    CompositeAggregationBuilder aggregationBuilder = new CompositeAggregationBuilder("name", Arrays.asList(
+                            new TermsValuesSourceBuilder("keyword").field("keyword").order(keywordOrder),
+                            new TermsValuesSourceBuilder("long").field("long").order(longOrder)))
+                        .subAggregation(new MaxAggregationBuilder("max").field("long"))
+                        .aggregateAfter(afterKey)
+                        .size(size);
+                    InternalComposite result = search(indexSearcher, query, aggregationBuilder, FIELD_TYPES);
+                    if (result.getBuckets().isEmpty()) {
+                        break;
+                    }
+                    for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                        Map.Entry<String, Long> key = new AbstractMap.SimpleEntry<>((String) bucket.getKey().get("keyword"),
+                            (Long) bucket.getKey().get("long"));
+                        seen.add(key);
+                        assertEquals(expectedDocCounts.get(key).longValue(), bucket.getDocCount());
+                        assertEquals(key.getValue().doubleValue(), ((InternalMax) bucket.getAggregations().get("max")).getValue(), 0d);
+                    }
+                    afterKey = result.afterKey();
+                }
+                assertEquals(new ArrayList<>(expectedDocCounts.keySet()), seen);
+            }
+        }
+    }
+
+    public void testWithIndexSortOnlyCollectsTheDocsOfTheCollector() throws IOException {
+        final Sort indexSort = new Sort(new SortedSetSortField("keyword", false));
+        final Map<String, Long> expectedDocCounts = new TreeMap<>();
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory,
+                    newIndexWriterConfig().setIndexSort(indexSort))) {
+                int numDocs = randomIntBetween(50, 500);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    String keyword = randomAlphaOfLength(2);
+                    long value = randomIntBetween(-10, 10);
+                    document.add(new SortedSetDocValuesField("keyword", new BytesRef(keyword)));
+                    document.add(new SortedNumericDocValuesField("long", value));
+                    document.add(new LongPoint("long", value));
+                    if (Math.abs(value) <= 5) {
+                        expectedDocCounts.merge(keyword, 1L, Long::sum);
+                    }
+                    indexWriter.addDocument(document);
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                int size = randomIntBetween(1, 20);
+                CompositeAggregationBuilder aggregationBuilder = new CompositeAggregationBuilder("name",
+                    Collections.singletonList(new TermsValuesSourceBuilder("keyword").field("keyword")))
+                    .size(size);
+                // the collector only receives some of the documents that match the query of the search context,
+                // like it does with a min_score or terminate_after
+                Query contextQuery = LongPoint.newRangeQuery("long", -10, 10);
+                CompositeAggregator aggregator = createAggregator(contextQuery, aggregationBuilder, indexSearcher,
+                    new MultiBucketConsumer(DEFAULT_MAX_BUCKETS), FIELD_TYPES);
+                aggregator.preCollection();
+                indexSearcher.search(LongPoint.newRangeQuery("long", -5, 5), aggregator);
+                aggregator.postCollection();
+                InternalComposite result = (InternalComposite) aggregator.buildAggregation(0L);
+
+                List<Map.Entry<String, Long>> expected = new ArrayList<>(expectedDocCounts.entrySet());
+                expected = expected.subList(0, Math.min(size, expected.size()));
+                assertEquals(expected.size(), result.getBuckets().size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getKey(), result.getBuckets().get(i).getKey().get("keyword"));
+                    assertEquals(expected.get(i).getValue().longValue(), result.getBuckets().get(i).getDocCount());
+                }
+            }
+        }
+    }
+
     public void testWithIP() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
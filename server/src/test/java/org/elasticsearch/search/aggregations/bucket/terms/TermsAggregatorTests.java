@@ -27,8 +27,11 @@ import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
@@ -71,8 +74,10 @@ import org.elasticsearch.search.aggregations.metrics.InternalTopHits;
 import org.elasticsearch.search.aggregations.metrics.TopHitsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.bucketscript.BucketScriptPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.support.ValueType;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -91,6 +96,9 @@ import static org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorB
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class TermsAggregatorTests extends AggregatorTestCase {
 
@@ -150,6 +158,63 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         directory.close();
     }
 
+    public void testSegmentOrdinalsExecutionMode() throws Exception {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, newIndexWriterConfig()
+                    .setMergePolicy(NoMergePolicy.INSTANCE))) {
+                for (int i = 0; i < 3; i++) {
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("string", new BytesRef("a" + i)));
+                    document.add(new SortedSetDocValuesField("string", new BytesRef("b")));
+                    indexWriter.addDocument(document);
+                    indexWriter.commit();
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                // We do not use LuceneTestCase.newSearcher because we need a DirectoryReader
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                assertEquals(3, indexReader.leaves().size());
+
+                ValuesSource.Bytes.WithOrdinals valuesSource = mock(ValuesSource.Bytes.WithOrdinals.class);
+                when(valuesSource.ordinalsValues(any(LeafReaderContext.class)))
+                    .then(invocation -> DocValues.getSortedSet(((LeafReaderContext) invocation.getArguments()[0]).reader(), "string"));
+                assertEquals(6L, TermsAggregatorFactory.getSegmentOrdsSum(valuesSource, indexSearcher));
+                when(valuesSource.isGlobalOrdinalsLoaded(indexSearcher)).thenReturn(false);
+                assertTrue(TermsAggregatorFactory.useSegmentOrdinals(valuesSource, indexSearcher));
+                when(valuesSource.isGlobalOrdinalsLoaded(indexSearcher)).thenReturn(true);
+                assertFalse(TermsAggregatorFactory.useSegmentOrdinals(valuesSource, indexSearcher));
+
+                MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                fieldType.setName("string");
+                fieldType.setHasDocValues(true);
+                // segment ordinals are only used on request
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                    .field("string");
+                assertThat(createAggregator(aggregationBuilder, indexSearcher, fieldType),
+                    instanceOf(GlobalOrdinalsStringTermsAggregator.class));
+
+                aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                    .executionHint("segment_ordinals")
+                    .includeExclude(new IncludeExclude(null, new String[] { "a1" }))
+                    .field("string")
+                    .order(BucketOrder.key(true));
+                TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(SegmentOrdinalsStringTermsAggregator.class));
+                aggregator.preCollection();
+                indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                Terms result = (Terms) aggregator.buildAggregation(0L);
+                assertEquals(3, result.getBuckets().size());
+                assertEquals("a0", result.getBuckets().get(0).getKeyAsString());
+                assertEquals(1L, result.getBuckets().get(0).getDocCount());
+                assertEquals("a2", result.getBuckets().get(1).getKeyAsString());
+                assertEquals(1L, result.getBuckets().get(1).getDocCount());
+                assertEquals("b", result.getBuckets().get(2).getKeyAsString());
+                assertEquals(3L, result.getBuckets().get(2).getDocCount());
+            }
+        }
+    }
+
     public void testSimple() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
@@ -202,6 +267,46 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testCancelled() throws Exception {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(5000, 10000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("string", new BytesRef(Integer.toString(i % 10))));
+                    indexWriter.addDocument(document);
+                }
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType.setName("string");
+                    fieldType.setHasDocValues(true);
+                    // without an execution hint the low cardinality global ordinals aggregator is used, which only counts
+                    // documents per segment
+                    for (String executionHint : new String[] { null, "global_ordinals", "map" }) {
+                        TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                            .executionHint(executionHint)
+                            .field("string");
+
+                        // while collecting
+                        TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                        when(aggregator.context().isCancelled()).thenReturn(true);
+                        aggregator.preCollection();
+                        expectThrows(TaskCancelledException.class, () -> indexSearcher.search(new MatchAllDocsQuery(), aggregator));
+
+                        // while building the buckets
+                        TermsAggregator other = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                        other.preCollection();
+                        indexSearcher.search(new MatchAllDocsQuery(), other);
+                        other.postCollection();
+                        when(other.context().isCancelled()).thenReturn(true);
+                        expectThrows(TaskCancelledException.class, () -> other.buildAggregation(0L));
+                    }
+                }
+            }
+        }
+    }
+
     public void testStringIncludeExclude() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class DDSketchStateTests extends ESTestCase {
+
+    public void testRelativeAccuracy() {
+        // lower relative accuracies would collapse buckets since values span a range of about e^40
+        final double relativeAccuracy = randomFrom(0.01, 0.05);
+        final double[] values = randomValues();
+        final DDSketchState state = new DDSketchState(relativeAccuracy);
+        Arrays.stream(values).forEach(state::add);
+        Arrays.sort(values);
+
+        assertEquals(values.length, state.size());
+        assertEquals(values[0], state.quantile(0), 0d);
+        assertEquals(values[values.length - 1], state.quantile(1), 0d);
+        for (int i = 0; i < 100; i++) {
+            final double q = randomDouble();
+            final double expected = values[(int) Math.floor(q * (values.length - 1))];
+            // a tiny slack accounts for the rounding of the bucket computations
+            assertThat(Math.abs(state.quantile(q) - expected), lessThanOrEqualTo(relativeAccuracy * Math.abs(expected) * 1.000001));
+        }
+    }
+
+    public void testCdf() {
+        final DDSketchState state = new DDSketchState(0.01);
+        for (double value : new double[] {-10, -1, 0, 0, 1, 10, 100, 1000}) {
+            state.add(value);
+        }
+        assertEquals(0d, state.cdf(-11), 0d);
+        assertEquals(0.125d, state.cdf(-5), 0d);
+        assertEquals(0.5d, state.cdf(0), 0d);
+        assertEquals(0.75d, state.cdf(50), 0d);
+        assertEquals(1d, state.cdf(1000), 0d);
+        assertTrue(Double.isNaN(new DDSketchState(0.01).cdf(randomDouble())));
+        assertTrue(Double.isNaN(new DDSketchState(0.01).quantile(randomDouble())));
+    }
+
+    public void testMergeIsExact() {
+        final double relativeAccuracy = randomFrom(0.001, 0.01, 0.05);
+        final double[] values = randomValues();
+        final DDSketchState expected = new DDSketchState(relativeAccuracy);
+        Arrays.stream(values).forEach(expected::add);
+
+        final DDSketchState[] parts = new DDSketchState[randomIntBetween(1, 20)];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new DDSketchState(relativeAccuracy);
+        }
+        for (double value : values) {
+            randomFrom(parts).add(value);
+        }
+        final DDSketchState merged = new DDSketchState(relativeAccuracy);
+        for (DDSketchState part : parts) {
+            merged.add(part);
+        }
+        assertEquals(expected, merged);
+        assertEquals(expected.hashCode(), merged.hashCode());
+    }
+
+    public void testMergeDifferentRelativeAccuracy() {
+        DDSketchState state = new DDSketchState(0.01);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> state.add(new DDSketchState(0.02)));
+        assertThat(e.getMessage(), containsString("Cannot merge a DDSketch with a relative accuracy of [0.02]"));
+    }
+
+    public void testBoundedNumberOfBuckets() {
+        final DDSketchState state = new DDSketchState(0.01);
+        // values that span far more buckets than a store may hold
+        for (int i = -300; i <= 300; i++) {
+            state.add(Math.pow(10, i));
+            state.add(-Math.pow(10, i));
+        }
+        assertThat(state.byteSize(), lessThanOrEqualTo(2L * (DDSketchState.MAX_NUM_BUCKETS * Long.BYTES + 16)));
+        assertEquals(1202, state.size());
+        // the largest values keep their accuracy since only the buckets that are the closest to zero are collapsed
+        assertEquals(1e300, state.quantile(1), 0d);
+        assertEquals(1e299, state.quantile(1 - 0.5 / 1201), 1e299 * 0.01);
+        assertEquals(-1e299, state.quantile(1.5 / 1201), 1e299 * 0.01);
+    }
+
+    public void testSerialization() throws IOException {
+        final DDSketchState state = new DDSketchState(randomFrom(0.001, 0.01, 0.05));
+        if (randomBoolean()) {
+            Arrays.stream(randomValues()).forEach(state::add);
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            DDSketchState.write(state, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                DDSketchState read = DDSketchState.read(in);
+                assertEquals(state, read);
+                assertEquals(state.hashCode(), read.hashCode());
+                assertEquals(state.quantile(0.5), read.quantile(0.5), 0d);
+            }
+        }
+    }
+
+    public void testInvalidRelativeAccuracy() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new DDSketchState(randomFrom(0d, 1d, -0.1, 1e-7)));
+        assertThat(e.getMessage(), containsString("[relative_accuracy] must be greater than or equal to"));
+    }
+
+    private static double[] randomValues() {
+        final double[] values = new double[randomIntBetween(1, 10000)];
+        final boolean negatives = randomBoolean();
+        for (int i = 0; i < values.length; i++) {
+            double value = randomBoolean() ? randomDouble() * 1000 : Math.exp(randomDoubleBetween(-20, 20, true));
+            if (negatives && randomBoolean()) {
+                value = -value;
+            }
+            values[i] = rarely() ? 0 : value;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValueType;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class ExactCardinalityAggregatorTests extends AggregatorTestCase {
+
+    public void testNoDocs() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        testCase(new ExactCardinalityAggregationBuilder("_name", null).field("number"), fieldType, iw -> {
+            // Intentionally not writing any docs
+        }, card -> assertEquals(0, card.getValue()));
+    }
+
+    public void testUnmapped() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        testCase(new ExactCardinalityAggregationBuilder("_name", null).field("unknown"), fieldType, iw -> {
+            iw.addDocument(singletonDocument(new SortedNumericDocValuesField("number", 7)));
+        }, card -> assertEquals(0, card.getValue()));
+    }
+
+    public void testLongValues() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        final Set<Long> expected = new HashSet<>();
+        testCase(new ExactCardinalityAggregationBuilder("_name", ValueType.LONG).field("number"), fieldType, iw -> {
+            int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document document = new Document();
+                int numValues = randomIntBetween(0, 3);
+                for (int j = 0; j < numValues; j++) {
+                    long value = randomFrom(randomLongBetween(0, 2000), randomLong());
+                    document.add(new SortedNumericDocValuesField("number", value));
+                    expected.add(value);
+                }
+                iw.addDocument(document);
+            }
+        }, card -> assertEquals(expected.size(), card.getValue()));
+    }
+
+    public void testDoubleValues() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        fieldType.setName("number");
+        final Set<Double> expected = new HashSet<>();
+        testCase(new ExactCardinalityAggregationBuilder("_name", ValueType.DOUBLE).field("number"), fieldType, iw -> {
+            int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                double value = randomIntBetween(0, 500) / 4d;
+                iw.addDocument(singletonDocument(new SortedNumericDocValuesField("number", NumericUtils.doubleToSortableLong(value))));
+                expected.add(value);
+            }
+        }, card -> assertEquals(expected.size(), card.getValue()));
+    }
+
+    public void testKeywordValues() throws IOException {
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+        fieldType.setName("keyword");
+        fieldType.setHasDocValues(true);
+        final Set<String> expected = new HashSet<>();
+        testCase(new ExactCardinalityAggregationBuilder("_name", null).field("keyword"), fieldType, iw -> {
+            int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document document = new Document();
+                int numValues = randomIntBetween(0, 3);
+                for (int j = 0; j < numValues; j++) {
+                    String value = randomAlphaOfLengthBetween(1, 3);
+                    document.add(new SortedSetDocValuesField("keyword", new BytesRef(value)));
+                    expected.add(value);
+                }
+                iw.addDocument(document);
+            }
+        }, card -> assertEquals(expected.size(), card.getValue()));
+    }
+
+    public void testAsSubAggregation() throws IOException {
+        MappedFieldType groupFieldType = new KeywordFieldMapper.KeywordFieldType();
+        groupFieldType.setName("group");
+        groupFieldType.setHasDocValues(true);
+        MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+        fieldType.setName("keyword");
+        fieldType.setHasDocValues(true);
+        final Map<String, Set<String>> expected = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter iw = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 500);
+                for (int i = 0; i < numDocs; i++) {
+                    String group = randomFrom("a", "b", "c");
+                    String value = randomAlphaOfLength(2);
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("group", new BytesRef(group)));
+                    document.add(new SortedSetDocValuesField("keyword", new BytesRef(value)));
+                    iw.addDocument(document);
+                    expected.computeIfAbsent(group, k -> new HashSet<>()).add(value);
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = newSearcher(reader, true, true);
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("terms", ValueType.STRING).field("group")
+                    .subAggregation(new ExactCardinalityAggregationBuilder("card", null).field("keyword"));
+                Terms terms = searchAndReduce(searcher, new MatchAllDocsQuery(), aggregationBuilder, groupFieldType, fieldType);
+                assertEquals(expected.size(), terms.getBuckets().size());
+                for (Terms.Bucket bucket : terms.getBuckets()) {
+                    InternalExactCardinality card = bucket.getAggregations().get("card");
+                    assertEquals(expected.get(bucket.getKeyAsString()).size(), card.getValue());
+                }
+            }
+        }
+    }
+
+    private static Document singletonDocument(SortedNumericDocValuesField field) {
+        Document document = new Document();
+        document.add(field);
+        return document;
+    }
+
+    private void testCase(AggregationBuilder aggregationBuilder, MappedFieldType fieldType,
+                          CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
+                          Consumer<InternalExactCardinality> verify) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                buildIndex.accept(indexWriter);
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final InternalExactCardinality card;
+                if (indexReader.leaves().isEmpty()) {
+                    // there is no segment to reduce
+                    card = search(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                } else {
+                    card = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                }
+                verify.accept(card);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.io.stream.Writeable.Reader;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.ParsedAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.InternalAggregationTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.Collections.emptyList;
+
+public class InternalExactCardinalityTests extends InternalAggregationTestCase<InternalExactCardinality> {
+    private boolean numeric;
+    private boolean floatingPoint;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        // all the aggregations that are reduced together count the same type of values
+        numeric = randomBoolean();
+        floatingPoint = numeric && randomBoolean();
+    }
+
+    @Override
+    protected InternalExactCardinality createTestInstance(String name,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        if (rarely()) {
+            return new InternalExactCardinality(name, null, false, null, pipelineAggregators, metaData);
+        }
+        int numValues = randomIntBetween(1, 100);
+        if (numeric) {
+            Set<Long> values = new TreeSet<>();
+            for (int i = 0; i < numValues; i++) {
+                values.add(randomBoolean() ? randomLongBetween(-50, 50) : randomLong());
+            }
+            return new InternalExactCardinality(name, values.stream().mapToLong(Long::longValue).toArray(), floatingPoint, null,
+                pipelineAggregators, metaData);
+        }
+        Set<BytesRef> values = new TreeSet<>();
+        for (int i = 0; i < numValues; i++) {
+            values.add(new BytesRef(randomAlphaOfLengthBetween(0, 5)));
+        }
+        return new InternalExactCardinality(name, null, false, values.toArray(new BytesRef[0]), pipelineAggregators, metaData);
+    }
+
+    public void testReduceIsAccountedInRequestBreaker() {
+        final List<InternalAggregation> aggregations = new ArrayList<>();
+        long valuesBytes = 0;
+        for (int i = 0; i < 3; i++) {
+            final long[] numbers = new long[1000];
+            for (int j = 0; j < numbers.length; j++) {
+                numbers[j] = i * numbers.length + j;
+            }
+            valuesBytes += InternalExactCardinality.ramBytesUsed(numbers, null);
+            aggregations.add(new InternalExactCardinality("name", numbers, false, null, emptyList(), null));
+        }
+        final boolean trip = randomBoolean();
+        final long limit = trip ? randomLongBetween(1, valuesBytes) : 100 * valuesBytes;
+        final HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), breakerService).withCircuitBreaking();
+        final InternalAggregation.ReduceContext reduceContext = new InternalAggregation.ReduceContext(bigArrays, null, true);
+        if (trip) {
+            expectThrows(CircuitBreakingException.class, () -> aggregations.get(0).reduce(aggregations, reduceContext));
+        } else {
+            assertEquals(3000, ((InternalExactCardinality) aggregations.get(0).reduce(aggregations, reduceContext)).getValue());
+        }
+        assertEquals(0, breakerService.getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    @Override
+    protected Reader<InternalExactCardinality> instanceReader() {
+        return InternalExactCardinality::new;
+    }
+
+    @Override
+    protected void assertReduced(InternalExactCardinality reduced, List<InternalExactCardinality> inputs) {
+        Set<Object> expected = new HashSet<>();
+        for (InternalExactCardinality input : inputs) {
+            if (input.getNumbers() != null) {
+                Arrays.stream(input.getNumbers()).forEach(expected::add);
+            }
+            if (input.getTerms() != null) {
+                expected.addAll(Arrays.asList(input.getTerms()));
+            }
+        }
+        assertEquals(expected.size(), reduced.getValue());
+    }
+
+    @Override
+    protected void assertFromXContent(InternalExactCardinality aggregation, ParsedAggregation parsedAggregation) {
+        assertTrue(parsedAggregation instanceof ParsedExactCardinality);
+        ParsedExactCardinality parsed = (ParsedExactCardinality) parsedAggregation;
+
+        assertEquals(aggregation.getValue(), parsed.getValue());
+        assertEquals(aggregation.getValueAsString(), parsed.getValueAsString());
+    }
+
+    @Override
+    protected InternalExactCardinality mutateInstance(InternalExactCardinality instance) {
+        String name = instance.getName();
+        long[] numbers = instance.getNumbers();
+        BytesRef[] terms = instance.getTerms();
+        List<PipelineAggregator> pipelineAggregators = instance.pipelineAggregators();
+        Map<String, Object> metaData = instance.getMetaData();
+        switch (between(0, 2)) {
+        case 0:
+            name += randomAlphaOfLength(5);
+            break;
+        case 1:
+            if (numbers != null) {
+                final long[] previous = numbers;
+                numbers = Arrays.copyOf(numbers, numbers.length + 1);
+                numbers[numbers.length - 1] = randomValueOtherThanMany(v -> Arrays.binarySearch(previous, v) >= 0, ESTestCase::randomLong);
+                Arrays.sort(numbers);
+            } else if (terms != null) {
+                terms = Arrays.copyOf(terms, terms.length + 1);
+                // longer than any random term
+                terms[terms.length - 1] = new BytesRef(randomAlphaOfLength(10));
+                Arrays.sort(terms);
+            } else {
+                terms = new BytesRef[] { new BytesRef(randomAlphaOfLength(10)) };
+            }
+            break;
+        case 2:
+            if (metaData == null) {
+                metaData = new HashMap<>(1);
+            } else {
+                metaData = new HashMap<>(instance.getMetaData());
+            }
+            metaData.put(randomAlphaOfLength(15), randomInt());
+            break;
+        default:
+            throw new AssertionError("Illegal randomisation branch");
+        }
+        return new InternalExactCardinality(name, numbers, instance.isFloatingPoint(), terms, pipelineAggregators, metaData);
+    }
+}
@@ -18,16 +18,26 @@
  */
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.lucene80.Lucene80Codec;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.index.codec.SegmentStatsDocValuesFormat;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
@@ -174,6 +184,57 @@ public class StatsAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testSegmentStats() throws IOException {
+        NumberFieldMapper.NumberFieldType ft = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        ft.setName("field");
+        ft.setSegmentStats(true);
+        DocValuesFormat format = new SegmentStatsDocValuesFormat(field -> field.equals("field") ? NumericType.DOUBLE : null);
+        IndexWriterConfig config = newIndexWriterConfig();
+        config.setCodec(new Lucene80Codec() {
+            @Override
+            public DocValuesFormat getDocValuesFormatForField(String field) {
+                return format;
+            }
+        });
+        try (Directory directory = newDirectory();
+             IndexWriter indexWriter = new IndexWriter(directory, config)) {
+            final int numDocs = randomIntBetween(10, 100);
+            final double[] values = new double[numDocs];
+            for (int i = 0; i < numDocs; i++) {
+                values[i] = randomDoubleBetween(-100d, 100d, true);
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new SortedNumericDocValuesField("field", NumericUtils.doubleToSortableLong(values[i])));
+                indexWriter.addDocument(doc);
+                if (rarely()) {
+                    indexWriter.flush();
+                }
+            }
+            final boolean[] deleted = new boolean[numDocs];
+            for (int iter = 0; iter < 2; iter++) {
+                final SimpleStatsAggregator expected = new SimpleStatsAggregator();
+                for (int i = 0; i < numDocs; i++) {
+                    if (deleted[i] == false) {
+                        expected.add(values[i]);
+                    }
+                }
+                try (IndexReader reader = DirectoryReader.open(indexWriter)) {
+                    IndexSearcher searcher = new IndexSearcher(reader);
+                    StatsAggregationBuilder aggBuilder = new StatsAggregationBuilder("my_agg").field("field");
+                    InternalStats stats = search(searcher, new MatchAllDocsQuery(), aggBuilder, ft);
+                    assertEquals(expected.count, stats.getCount(), 0);
+                    assertEquals(expected.sum, stats.getSum(), TOLERANCE);
+                    assertEquals(expected.min, stats.getMin(), 0);
+                    assertEquals(expected.max, stats.getMax(), 0);
+                }
+                // segments with deleted docs need to be collected since their stats include the deleted docs
+                final int toDelete = randomIntBetween(0, numDocs - 1);
+                deleted[toDelete] = true;
+                indexWriter.deleteDocuments(new Term("id", Integer.toString(toDelete)));
+            }
+        }
+    }
+
     public void testCase(MappedFieldType ft,
                          CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
                          Consumer<InternalStats> verify) throws IOException {
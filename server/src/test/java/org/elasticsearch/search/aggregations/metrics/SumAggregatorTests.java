@@ -39,12 +39,14 @@ import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.function.Consumer;
 
 import static java.util.Collections.singleton;
+import static org.mockito.Mockito.when;
 
 public class SumAggregatorTests extends AggregatorTestCase {
 
@@ -145,6 +147,33 @@ public class SumAggregatorTests extends AggregatorTestCase {
         verifySummationOfDoubles(largeValues, Double.NEGATIVE_INFINITY, 0d);
     }
 
+    public void testCancelled() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = randomIntBetween(5000, 10000);
+                for (int i = 0; i < numDocs; i++) {
+                    indexWriter.addDocument(singleton(new NumericDocValuesField(FIELD_NAME, i)));
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+
+                MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                fieldType.setName(FIELD_NAME);
+                fieldType.setHasDocValues(true);
+
+                SumAggregationBuilder aggregationBuilder = new SumAggregationBuilder("_name");
+                aggregationBuilder.field(FIELD_NAME);
+
+                SumAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                when(aggregator.context().isCancelled()).thenReturn(true);
+                aggregator.preCollection();
+                expectThrows(TaskCancelledException.class, () -> indexSearcher.search(new MatchAllDocsQuery(), aggregator));
+            }
+        }
+    }
+
     private void verifySummationOfDoubles(double[] values, double expected, double delta) throws IOException {
         testCase(new MatchAllDocsQuery(),
             iw -> {
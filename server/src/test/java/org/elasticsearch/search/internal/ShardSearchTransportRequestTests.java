@@ -76,6 +76,7 @@ public class ShardSearchTransportRequestTests extends AbstractSearchTestCase {
                 assertEquals(deserializedRequest.numberOfShards(), shardSearchTransportRequest.numberOfShards());
                 assertEquals(deserializedRequest.indexRoutings(), shardSearchTransportRequest.indexRoutings());
                 assertEquals(deserializedRequest.preference(), shardSearchTransportRequest.preference());
+                assertEquals(deserializedRequest.readerId(), shardSearchTransportRequest.readerId());
                 assertEquals(deserializedRequest.cacheKey(), shardSearchTransportRequest.cacheKey());
                 assertNotSame(deserializedRequest, shardSearchTransportRequest);
                 assertEquals(deserializedRequest.getAliasFilter(), shardSearchTransportRequest.getAliasFilter());
@@ -95,9 +96,13 @@ public class ShardSearchTransportRequestTests extends AbstractSearchTestCase {
             filteringAliases = new AliasFilter(null, Strings.EMPTY_ARRAY);
         }
         final String[] routings = generateRandomStringArray(5, 10, false, true);
-        return new ShardSearchTransportRequest(new OriginalIndices(searchRequest), searchRequest, shardId,
+        ShardSearchTransportRequest request = new ShardSearchTransportRequest(new OriginalIndices(searchRequest), searchRequest, shardId,
             randomIntBetween(1, 100), filteringAliases, randomBoolean() ? 1.0f : randomFloat(),
             Math.abs(randomLong()), null, routings);
+        if (randomBoolean()) {
+            request.readerId(randomNonNegativeLong());
+        }
+        return request;
     }
 
     public void testFilteringAliases() throws Exception {
@@ -21,10 +21,13 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
@@ -46,29 +49,41 @@ import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import static org.elasticsearch.search.query.QueryCollectorContext.createCancellableCollectorContext;
+import static org.elasticsearch.search.query.QueryCollectorContext.createMultiCollectorContext;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class QueryPhaseTests extends IndexShardTestCase {
 
@@ -538,6 +553,295 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testConcurrentSegmentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(200, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField("foo", randomFrom("bar", "baz"), Store.NO));
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "qux", Store.NO));
+            }
+            doc.add(new NumericDocValuesField("rank", randomInt(20)));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        w.deleteDocuments(new Term("foo", "baz"));
+        final IndexReader reader = w.getReader();
+        w.close();
+
+        IndexShard concurrentShard = newShard(true, Settings.builder()
+            .put(IndexSettings.INDEX_SEARCH_CONCURRENCY_SETTING.getKey(), randomIntBetween(2, 8)).build());
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final ContextIndexSearcher concurrentSearcher = new ContextIndexSearcher(
+            new Engine.Searcher("test", new IndexSearcher(reader), null), null, IndexSearcher.getDefaultQueryCachingPolicy());
+
+        final Query[] queries = new Query[] {
+            new MatchAllDocsQuery(),
+            new TermQuery(new Term("foo", "qux")),
+            new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+                .add(new TermQuery(new Term("foo", "qux")), Occur.SHOULD)
+                .build()
+        };
+        final SortAndFormats rankSort = new SortAndFormats(new Sort(new SortField("rank", SortField.Type.INT)),
+            new DocValueFormat[] { DocValueFormat.RAW });
+        for (Query query : queries) {
+            for (int size : new int[] { 0, 1, 10, numDocs }) {
+                for (SortAndFormats sort : Arrays.asList(null, rankSort)) {
+                    TestSearchContext context = new TestSearchContext(null, indexShard);
+                    TestSearchContext concurrentContext = new TestSearchContext(null, concurrentShard);
+                    for (TestSearchContext ctx : Arrays.asList(context, concurrentContext)) {
+                        ctx.parsedQuery(new ParsedQuery(query));
+                        ctx.setSize(size);
+                        ctx.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+                        ctx.sort(sort);
+                        ctx.trackScores(true);
+                    }
+                    QueryPhase.execute(context, searcher, checkCancelled -> {});
+                    QueryPhase.execute(concurrentContext, concurrentSearcher, concurrentSearcher::setCheckCancelled);
+
+                    final TopDocsAndMaxScore expected = context.queryResult().topDocs();
+                    final TopDocsAndMaxScore actual = concurrentContext.queryResult().topDocs();
+                    assertThat(actual.topDocs.totalHits, equalTo(expected.topDocs.totalHits));
+                    assertThat(actual.maxScore, equalTo(expected.maxScore));
+                    assertThat(actual.topDocs.scoreDocs.length, equalTo(expected.topDocs.scoreDocs.length));
+                    for (int i = 0; i < expected.topDocs.scoreDocs.length; i++) {
+                        assertThat(actual.topDocs.scoreDocs[i].doc, equalTo(expected.topDocs.scoreDocs[i].doc));
+                        assertThat(actual.topDocs.scoreDocs[i].score, equalTo(expected.topDocs.scoreDocs[i].score));
+                        assertThat(actual.topDocs.scoreDocs[i].shardIndex, equalTo(-1));
+                    }
+                }
+            }
+        }
+
+        final TestSearchContext context = new TestSearchContext(null, concurrentShard);
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(10);
+        final List<QueryCollectorContext> collectors = new ArrayList<>();
+        collectors.add(createCancellableCollectorContext(() -> false));
+        List<List<LeafReaderContext>> slices = QueryPhase.concurrentSlices(context, concurrentSearcher, collectors);
+        if (reader.leaves().size() > 1) {
+            assertNotNull(slices);
+            assertThat(slices.size(), lessThanOrEqualTo(concurrentShard.indexSettings().getSearchConcurrency()));
+            List<LeafReaderContext> leaves = new ArrayList<>();
+            slices.forEach(leaves::addAll);
+            assertThat(leaves, equalTo(reader.leaves()));
+        } else {
+            assertNull(slices);
+        }
+        // aggregations are collected sequentially
+        collectors.add(createMultiCollectorContext(Collections.singletonList(new TotalHitCountCollector())));
+        assertNull(QueryPhase.concurrentSlices(context, concurrentSearcher, collectors));
+        // so are the queries of shards that are not configured to search concurrently
+        assertNull(QueryPhase.concurrentSlices(new TestSearchContext(null, indexShard), concurrentSearcher, collectors.subList(0, 1)));
+
+        closeShards(concurrentShard);
+        reader.close();
+        dir.close();
+    }
+
+    public void testSegmentSkipping() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSegments = randomIntBetween(2, 10);
+        // timestamps are unique and increase from one segment to the next
+        long timestamp = randomLongBetween(0, 1000);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(5, 50);
+            for (int j = 0; j < numDocs; j++) {
+                Document doc = new Document();
+                doc.add(new StringField("foo", randomFrom("bar", "baz"), Store.NO));
+                if (rarely() == false) {
+                    timestamp += randomIntBetween(1, 10);
+                    doc.add(new LongPoint("timestamp", timestamp));
+                    doc.add(new SortedNumericDocValuesField("timestamp", timestamp));
+                }
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        w.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(
+            new Engine.Searcher("test", new IndexSearcher(reader), null), null, IndexSearcher.getDefaultQueryCachingPolicy());
+
+        final boolean reverse = randomBoolean();
+        final SortedNumericSortField sortField = new SortedNumericSortField("timestamp", SortField.Type.LONG, reverse);
+        // documents without timestamp sort last
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        final Sort sort = new Sort(sortField);
+        final int size = randomIntBetween(1, 10);
+        for (Query query : Arrays.asList(new MatchAllDocsQuery(), new TermQuery(new Term("foo", "bar")))) {
+            TestSearchContext context = new TestSearchContext(null, indexShard);
+            context.parsedQuery(new ParsedQuery(query));
+            context.setSize(size);
+            context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+            context.sort(new SortAndFormats(sort, new DocValueFormat[] { DocValueFormat.RAW }));
+            context.trackTotalHits(false);
+            assertThat(QueryPhase.segmentSkippingSortField(context, reader), equalTo(sortField));
+            QueryPhase.execute(context, searcher, searcher::setCheckCancelled);
+
+            final TopDocs expected = new IndexSearcher(reader).search(query, size, sort);
+            final TopDocs actual = context.queryResult().topDocs().topDocs;
+            assertThat(actual.scoreDocs.length, equalTo(expected.scoreDocs.length));
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertThat(((FieldDoc) actual.scoreDocs[i]).fields[0], equalTo(((FieldDoc) expected.scoreDocs[i]).fields[0]));
+            }
+
+            // the segments that only hold older (or newer) documents than the top hits are skipped
+            final long[] bestValues = SegmentSkippingCollector.bestValues(reader.leaves(), sortField);
+            final SegmentSkippingCollector collector = new SegmentSkippingCollector(
+                TopFieldCollector.create(sort, size, null, 1), sortField, size, bestValues);
+            searcher.search(query, SegmentSkippingCollector.sortLeaves(reader.leaves(), bestValues, reverse), collector);
+            final int competitiveSegments = (int) reader.leaves().stream()
+                .filter(leaf -> {
+                    final long best = bestValues[leaf.ord];
+                    final Object bottom = ((FieldDoc) expected.scoreDocs[expected.scoreDocs.length - 1]).fields[0];
+                    return expected.scoreDocs.length < size || (reverse ? best >= (long) bottom : best <= (long) bottom);
+                })
+                .count();
+            assertThat(collector.getNumSkippedSegments(), greaterThanOrEqualTo(numSegments - competitiveSegments));
+        }
+
+        // segments cannot be skipped when all hits are counted or when scrolling
+        TestSearchContext context = new TestSearchContext(null, indexShard);
+        context.setSize(size);
+        context.sort(new SortAndFormats(sort, new DocValueFormat[] { DocValueFormat.RAW }));
+        context.trackTotalHits(true);
+        assertNull(QueryPhase.segmentSkippingSortField(context, reader));
+        context.trackTotalHits(false);
+        context.scrollContext(new ScrollContext());
+        assertNull(QueryPhase.segmentSkippingSortField(context, reader));
+        reader.close();
+        dir.close();
+    }
+
+    public void testSegmentSkippingWithTies() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSegments = randomIntBetween(2, 10);
+        // few distinct timestamps so that many hits tie, later segments hold the larger ones
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(5, 50);
+            for (int j = 0; j < numDocs; j++) {
+                final long timestamp = i + randomIntBetween(0, 2);
+                Document doc = new Document();
+                doc.add(new LongPoint("timestamp", timestamp));
+                doc.add(new SortedNumericDocValuesField("timestamp", timestamp));
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        w.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(
+            new Engine.Searcher("test", new IndexSearcher(reader), null), null, IndexSearcher.getDefaultQueryCachingPolicy());
+
+        // sorting in descending order visits the segments in reverse order
+        final SortedNumericSortField sortField = new SortedNumericSortField("timestamp", SortField.Type.LONG, true);
+        final Sort sort = new Sort(sortField);
+        final int size = randomIntBetween(1, 20);
+        TestSearchContext context = new TestSearchContext(null, indexShard);
+        context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+        context.setSize(size);
+        context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+        context.sort(new SortAndFormats(sort, new DocValueFormat[] { DocValueFormat.RAW }));
+        context.trackTotalHits(false);
+        assertThat(QueryPhase.segmentSkippingSortField(context, reader), equalTo(sortField));
+        QueryPhase.execute(context, searcher, searcher::setCheckCancelled);
+
+        // ties are broken on the doc id like when the segments are searched in order
+        final TopDocs expected = new IndexSearcher(reader).search(new MatchAllDocsQuery(), size, sort);
+        final TopFieldDocs actual = (TopFieldDocs) context.queryResult().topDocs().topDocs;
+        assertThat(actual.fields.length, equalTo(1));
+        assertThat(actual.scoreDocs.length, equalTo(expected.scoreDocs.length));
+        for (int i = 0; i < expected.scoreDocs.length; i++) {
+            assertThat(actual.scoreDocs[i].doc, equalTo(expected.scoreDocs[i].doc));
+            assertThat(((FieldDoc) actual.scoreDocs[i]).fields.length, equalTo(1));
+            assertThat(((FieldDoc) actual.scoreDocs[i]).fields[0], equalTo(((FieldDoc) expected.scoreDocs[i]).fields[0]));
+        }
+        reader.close();
+        dir.close();
+    }
+
+    public void testSegmentSkippingWithUnorderedValues() throws Exception {
+        Directory dir = newDirectory();
+        // a random config could flush the first segment early
+        IndexWriterConfig iwc = new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        // the values of the first segment are collected in random order, the two other segments only have one document
+        final int numDocs = randomIntBetween(20, 200);
+        final long[] values = new long[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            values[i] = randomLongBetween(-1000, 1000);
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("timestamp", values[i]));
+            w.addDocument(doc);
+        }
+        w.commit();
+        for (int i = 0; i < 2; i++) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("timestamp", 0L));
+            w.addDocument(doc);
+            w.commit();
+        }
+        w.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+        assertThat(reader.leaves().size(), equalTo(3));
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(
+            new Engine.Searcher("test", new IndexSearcher(reader), null), null, IndexSearcher.getDefaultQueryCachingPolicy());
+
+        final boolean reverse = randomBoolean();
+        final SortedNumericSortField sortField = new SortedNumericSortField("timestamp", SortField.Type.LONG, reverse);
+        final int size = randomIntBetween(1, 20);
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        final long worstTopValue = reverse ? sorted[numDocs - size] : sorted[size - 1];
+        // the second segment cannot compete with the top hits of the first one, the third one ties with the worst of them
+        final long[] bestValues = new long[] { reverse ? Long.MAX_VALUE : Long.MIN_VALUE,
+            reverse ? worstTopValue - 1 : worstTopValue + 1, worstTopValue };
+        final SegmentSkippingCollector collector = new SegmentSkippingCollector(
+            TopFieldCollector.create(new Sort(sortField), size, null, 1), sortField, size, bestValues);
+        searcher.search(new MatchAllDocsQuery(), reader.leaves(), collector);
+        assertThat(collector.getNumSkippedSegments(), equalTo(1));
+        reader.close();
+        dir.close();
+    }
+
+    public void testSlices() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSegments = randomIntBetween(1, 20);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 100);
+            for (int j = 0; j < numDocs; j++) {
+                w.addDocument(new Document());
+            }
+            w.commit();
+        }
+        w.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+        final int maxSlices = randomIntBetween(1, 30);
+        final List<List<LeafReaderContext>> slices = ContextIndexSearcher.slices(reader.leaves(), maxSlices);
+        assertThat(slices.size(), equalTo(Math.min(maxSlices, numSegments)));
+        final List<LeafReaderContext> leaves = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            assertFalse(slice.isEmpty());
+            leaves.addAll(slice);
+        }
+        assertThat(leaves, equalTo(reader.leaves()));
+        reader.close();
+        dir.close();
+    }
+
     private static IndexSearcher getAssertingEarlyTerminationSearcher(IndexReader reader, int size) {
         return new IndexSearcher(reader) {
             protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
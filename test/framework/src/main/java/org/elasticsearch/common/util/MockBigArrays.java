@@ -82,11 +82,11 @@ public class MockBigArrays extends BigArrays {
     private final CircuitBreakerService breakerService;
 
     public MockBigArrays(PageCacheRecycler recycler, CircuitBreakerService breakerService) {
-        this(recycler, breakerService, false);
+        this(recycler, breakerService, false, false);
     }
 
-    private MockBigArrays(PageCacheRecycler recycler, CircuitBreakerService breakerService, boolean checkBreaker) {
-        super(recycler, breakerService, checkBreaker);
+    private MockBigArrays(PageCacheRecycler recycler, CircuitBreakerService breakerService, boolean checkBreaker, boolean offHeap) {
+        super(recycler, breakerService, checkBreaker, offHeap);
         this.recycler = recycler;
         this.breakerService = breakerService;
         long seed;
@@ -101,7 +101,12 @@ public class MockBigArrays extends BigArrays {
 
     @Override
     public BigArrays withCircuitBreaking() {
-        return new MockBigArrays(this.recycler, this.breakerService, true);
+        return new MockBigArrays(this.recycler, this.breakerService, true, this.offHeap);
+    }
+
+    @Override
+    public BigArrays withOffHeapPages() {
+        return new MockBigArrays(this.recycler, this.breakerService, this.checkBreaker, true);
     }
 
     @Override
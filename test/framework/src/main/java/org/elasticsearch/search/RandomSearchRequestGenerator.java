@@ -353,6 +353,9 @@ public class RandomSearchRequestGenerator {
         if (randomBoolean()) {
             builder.collapse(randomCollapseBuilder.get());
         }
+        if (randomBoolean()) {
+            builder.readerContext(randomAlphaOfLengthBetween(5, 20));
+        }
         return builder;
     }
 }
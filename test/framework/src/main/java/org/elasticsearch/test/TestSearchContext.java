@@ -612,6 +612,6 @@ public class TestSearchContext extends SearchContext {
 
     @Override
     public boolean isCancelled() {
-        return task.isCancelled();
+        return task != null && task.isCancelled();
     }
 }
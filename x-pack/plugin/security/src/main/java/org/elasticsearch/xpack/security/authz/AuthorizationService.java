@@ -21,6 +21,7 @@ import org.elasticsearch.action.delete.DeleteAction;
 import org.elasticsearch.action.get.MultiGetAction;
 import org.elasticsearch.action.index.IndexAction;
 import org.elasticsearch.action.search.ClearScrollAction;
+import org.elasticsearch.action.search.CloseReaderContextAction;
 import org.elasticsearch.action.search.MultiSearchAction;
 import org.elasticsearch.action.search.SearchScrollAction;
 import org.elasticsearch.action.search.SearchTransportService;
@@ -499,6 +500,7 @@ public class AuthorizationService extends AbstractComponent {
                 action.equals(SearchTransportService.QUERY_SCROLL_ACTION_NAME) ||
                 action.equals(SearchTransportService.FREE_CONTEXT_SCROLL_ACTION_NAME) ||
                 action.equals(ClearScrollAction.NAME) ||
+                action.equals(CloseReaderContextAction.NAME) ||
                 action.equals("indices:data/read/sql/close_cursor") ||
                 action.equals(SearchTransportService.CLEAR_SCROLL_CONTEXTS_ACTION_NAME);
     }
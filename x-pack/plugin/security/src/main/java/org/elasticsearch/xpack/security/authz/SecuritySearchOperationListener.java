@@ -9,6 +9,7 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.license.XPackLicenseState;
 import org.elasticsearch.search.SearchContextMissingException;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.transport.TransportRequest;
@@ -20,13 +21,14 @@ import static org.elasticsearch.xpack.security.authz.AuthorizationService.ORIGIN
 import static org.elasticsearch.xpack.security.authz.AuthorizationService.ROLE_NAMES_KEY;
 
 /**
- * A {@link SearchOperationListener} that is used to provide authorization for scroll requests.
+ * A {@link SearchOperationListener} that is used to provide authorization for scroll requests and for
+ * requests that use a point in time {@link ReaderContext}.
  *
  * In order to identify the user associated with a scroll request, we replace the {@link ScrollContext}
  * on creation with a custom implementation that holds the {@link Authentication} object. When
  * this context is accessed again in {@link SearchOperationListener#onPreQueryPhase(SearchContext)}
  * the ScrollContext is inspected for the authentication, which is compared to the currently
- * authentication.
+ * authentication. Reader contexts hold the authentication of the user that opened them the same way.
  */
 public final class SecuritySearchOperationListener implements SearchOperationListener {
 
@@ -69,7 +71,34 @@ public final class SecuritySearchOperationListener implements SearchOperationLis
     }
 
     /**
-     * Compares the {@link Authentication} that was stored in the {@link ScrollContext} with the
+     * Adds the {@link Authentication} to the {@link ReaderContext}
+     */
+    @Override
+    public void onNewReaderContext(ReaderContext readerContext) {
+        if (licenseState.isAuthAllowed()) {
+            readerContext.putInContext(AuthenticationField.AUTHENTICATION_KEY, Authentication.getAuthentication(threadContext));
+        }
+    }
+
+    /**
+     * Compares the {@link Authentication} object from the reader context, if it was opened with one, with the current
+     * authentication context
+     */
+    @Override
+    public void validateReaderContext(ReaderContext readerContext, TransportRequest request) {
+        if (licenseState.isAuthAllowed()) {
+            final Authentication originalAuth = readerContext.getFromContext(AuthenticationField.AUTHENTICATION_KEY);
+            if (originalAuth != null) {
+                final Authentication current = Authentication.getAuthentication(threadContext);
+                final String action = threadContext.getTransient(ORIGINATING_ACTION_KEY);
+                ensureAuthenticatedUserIsSame(originalAuth, current, auditTrailService, readerContext.id(), action, request,
+                        threadContext.getTransient(ROLE_NAMES_KEY));
+            }
+        }
+    }
+
+    /**
+     * Compares the {@link Authentication} that was stored in the {@link ScrollContext} or {@link ReaderContext} with the
      * current authentication. We cannot guarantee that all of the details of the authentication will
      * be the same. Some things that could differ include the roles, the name of the authenticating
      * (or lookup) realm. To work around this we compare the username and the originating realm type.
@@ -13,6 +13,7 @@ import org.elasticsearch.license.XPackLicenseState;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.SearchContextMissingException;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.test.ESTestCase;
@@ -75,6 +76,38 @@ public class SecuritySearchOperationListenerTests extends ESTestCase {
         verifyZeroInteractions(auditTrailService);
     }
 
+    public void testValidateReaderContext() throws Exception {
+        XPackLicenseState licenseState = mock(XPackLicenseState.class);
+        when(licenseState.isAuthAllowed()).thenReturn(true);
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        AuditTrailService auditTrailService = mock(AuditTrailService.class);
+        SecuritySearchOperationListener listener = new SecuritySearchOperationListener(threadContext, licenseState, auditTrailService);
+        ReaderContext readerContext = new ReaderContext(randomNonNegativeLong(), null, null, 60000, 0);
+
+        try (StoredContext ignore = threadContext.newStoredContext(false)) {
+            Authentication authentication = new Authentication(new User("test", "role"), new RealmRef("realm", "file", "node"), null);
+            authentication.writeToContext(threadContext);
+            listener.onNewReaderContext(readerContext);
+            assertEquals(authentication, readerContext.getFromContext(AuthenticationField.AUTHENTICATION_KEY));
+            listener.validateReaderContext(readerContext, Empty.INSTANCE);
+            verify(licenseState, times(2)).isAuthAllowed();
+            verifyZeroInteractions(auditTrailService);
+        }
+
+        try (StoredContext ignore = threadContext.newStoredContext(false)) {
+            Authentication authentication = new Authentication(new User("other", "role"), new RealmRef("realm", "file", "node"), null);
+            authentication.writeToContext(threadContext);
+            threadContext.putTransient(ORIGINATING_ACTION_KEY, "action");
+            threadContext.putTransient(ROLE_NAMES_KEY, authentication.getUser().roles());
+            final TransportRequest request = new TransportRequest.Empty();
+            SearchContextMissingException expected =
+                    expectThrows(SearchContextMissingException.class, () -> listener.validateReaderContext(readerContext, request));
+            assertEquals(readerContext.id(), expected.id());
+            verify(licenseState, times(3)).isAuthAllowed();
+            verify(auditTrailService).accessDenied(authentication, "action", request, authentication.getUser().roles());
+        }
+    }
+
     public void testValidateSearchContext() throws Exception {
         TestScrollSearchContext testSearchContext = new TestScrollSearchContext();
         testSearchContext.scrollContext(new ScrollContext());